@@ -7,6 +7,7 @@ import java.lang.invoke.MethodHandles;
 import java.time.Duration;
 import java.util.Optional;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
 
 import org.apache.http.conn.EofSensorInputStream;
 import org.slf4j.Logger;
@@ -17,70 +18,124 @@ import com.azure.core.http.HttpHeader;
 import com.azure.core.http.HttpHeaderName;
 import com.azure.core.http.HttpRequest;
 import com.azure.core.http.HttpResponse;
-import com.azure.core.util.Context;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.microsoft.azure.kusto.data.exceptions.DataServiceException;
 import com.microsoft.azure.kusto.data.exceptions.DataWebException;
 import com.microsoft.azure.kusto.data.exceptions.ExceptionUtils;
+import com.microsoft.azure.kusto.data.exceptions.KustoServiceQueryError;
 import com.microsoft.azure.kusto.data.exceptions.OneApiError;
 import com.microsoft.azure.kusto.data.exceptions.ThrottleException;
 import com.microsoft.azure.kusto.data.exceptions.WebException;
 import com.microsoft.azure.kusto.data.http.CloseParentResourcesStream;
+import com.microsoft.azure.kusto.data.http.FluxInputStream;
 import com.microsoft.azure.kusto.data.http.HttpRequestBuilder;
 import com.microsoft.azure.kusto.data.http.HttpStatus;
 import com.microsoft.azure.kusto.data.req.RequestUtils;
 import com.microsoft.azure.kusto.data.res.ResponseState;
 
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 public abstract class BaseClient implements Client, StreamingClient {
 
-    private static final int EXTRA_TIMEOUT_FOR_CLIENT_SIDE = (int) TimeUnit.SECONDS.toMillis(30);
+    static final int EXTRA_TIMEOUT_FOR_CLIENT_SIDE = (int) TimeUnit.SECONDS.toMillis(30);
 
     // Make logger available to implementations
     protected static final Logger LOGGER = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
 
     protected HttpClient httpClient;
+    private final KustoCircuitBreaker circuitBreaker;
 
     public BaseClient(HttpClient httpClient) {
+        this(httpClient, null);
+    }
+
+    /**
+     * @param circuitBreaker the circuit breaker the requests go through, or null to send them all
+     */
+    protected BaseClient(HttpClient httpClient, KustoCircuitBreaker circuitBreaker) {
         this.httpClient = httpClient;
+        this.circuitBreaker = circuitBreaker;
     }
 
     protected Mono<String> postAsync(HttpRequest request, long timeoutMs) {
-        return httpClient.send(request, getContextTimeout(timeoutMs))
-                .flatMap(response -> Utils.getResponseBody(response)
-                        .map(responseBody -> {
-                            switch (response.getStatusCode()) {
-                                case HttpStatus.OK:
-                                    return responseBody;
-                                case HttpStatus.TOO_MANY_REQS:
-                                    throw new ThrottleException(response.getRequest().getUrl().toString());
-                                default:
-                                    throw createExceptionFromResponse(
-                                            response.getRequest().getUrl().toString(), response, null, responseBody);
-                            }
-                        }).doFinally(ignore -> response.close()))
+        return postAsync(request, timeoutMs, Utils::getResponseBody);
+    }
+
+    /**
+     * Sends a request and reads a successful response with the given body reader, so the body doesn't have to be decoded into a String.
+     * Error responses are always read as a String in order to build the matching exception.
+     */
+    protected <T> Mono<T> postAsync(HttpRequest request, long timeoutMs, Function<HttpResponse, Mono<T>> bodyReader) {
+        return protect(request, send(request, timeoutMs)
+                .flatMap(response -> (response.getStatusCode() == HttpStatus.OK
+                        ? bodyReader.apply(response)
+                        : Utils.getResponseBody(response).<T>flatMap(responseBody -> Mono.error(createExceptionFromStatus(response, responseBody))))
+                                .doFinally(ignore -> response.close()))
                 .onErrorMap(e -> {
                     if (e instanceof DataServiceException) {
                         return e;
                     }
                     return ExceptionUtils.createExceptionOnPost((Exception) e, request.getUrl(), "async");
-                });
+                }));
+    }
+
+    /**
+     * Sends a request and reads a successful response as a Flux, which holds the response open until it terminates.
+     * Errors raised while reading the body are left to the caller, the others are mapped like in {@link #postAsync(HttpRequest, long)}.
+     */
+    protected <T> Flux<T> postToFlux(HttpRequest request, long timeoutMs, Function<HttpResponse, Flux<T>> bodyReader) {
+        return protect(request, send(request, timeoutMs)
+                .flatMapMany(response -> (response.getStatusCode() == HttpStatus.OK
+                        ? bodyReader.apply(response)
+                        : Utils.getResponseBody(response).<T>flatMapMany(responseBody -> Flux.error(createExceptionFromStatus(response, responseBody))))
+                                .doFinally(ignore -> response.close()))
+                .onErrorMap(e -> {
+                    if (e instanceof DataServiceException || e instanceof KustoServiceQueryError) {
+                        return e;
+                    }
+                    return ExceptionUtils.createExceptionOnPost((Exception) e, request.getUrl(), "async");
+                }));
+    }
+
+    private <T> Mono<T> protect(HttpRequest request, Mono<T> response) {
+        return circuitBreaker == null ? response : circuitBreaker.protect(request.getUrl().toString(), response);
+    }
+
+    private <T> Flux<T> protect(HttpRequest request, Flux<T> response) {
+        return circuitBreaker == null ? response : circuitBreaker.protect(request.getUrl().toString(), response);
+    }
+
+    private static DataServiceException createExceptionFromStatus(HttpResponse response, String responseBody) {
+        if (response.getStatusCode() == HttpStatus.TOO_MANY_REQS) {
+            // The response is kept for its Retry-After header
+            return new ThrottleException(response.getRequest().getUrl().toString(), ThrottleException.ERROR_MESSAGE,
+                    new WebException(responseBody, response, null));
+        }
+        return createExceptionFromResponse(response.getRequest().getUrl().toString(), response, null, responseBody);
     }
 
     protected Mono<InputStream> postToStreamingOutputAsync(HttpRequest request, long timeoutMs,
             int currentRedirectCounter, int maxRedirectCount) {
+        return protect(request, sendToStreamingOutputAsync(request, timeoutMs, currentRedirectCounter, maxRedirectCount));
+    }
+
+    // Redirects are followed within the call protected by the circuit breaker
+    private Mono<InputStream> sendToStreamingOutputAsync(HttpRequest request, long timeoutMs,
+            int currentRedirectCounter, int maxRedirectCount) {
         ResponseState state = new ResponseState();
-        return httpClient.send(request, getContextTimeout(timeoutMs))
+        return send(request, timeoutMs)
                 .flatMap(httpResponse -> {
                     state.setHttpResponse(httpResponse);
                     int responseStatusCode = httpResponse.getStatusCode();
                     if (responseStatusCode == HttpStatus.OK) {
                         state.setReturnInputStream(true);
-                        return httpResponse.getBodyAsInputStream() // TODO: since we want to just close on EOF should we implement EofSensorInputStream
-                                                                   // ourselves and remove the remaining Apache dependency or not?
-                                .map(inputStream -> new EofSensorInputStream(new CloseParentResourcesStream(httpResponse, inputStream), null));
+                        // The body is pulled from the connection as the stream is read, rather than aggregated up front
+                        // TODO: since we want to just close on EOF should we implement EofSensorInputStream
+                        // ourselves and remove the remaining Apache dependency or not?
+                        return Mono.just(
+                                new EofSensorInputStream(new CloseParentResourcesStream(httpResponse, new FluxInputStream(httpResponse.getBody())), null));
                     }
 
                     return handleErrorResponse(httpResponse, state, request, timeoutMs, currentRedirectCounter, maxRedirectCount);
@@ -118,7 +173,7 @@ public abstract class BaseClient implements Client, StreamingClient {
                                             .fromExistingRequest(request)
                                             .withURL(location.getValue())
                                             .build();
-                                    return postToStreamingOutputAsync(redirectRequest, timeoutMs, currentRedirectCounter + 1, maxRedirectCount);
+                                    return sendToStreamingOutputAsync(redirectRequest, timeoutMs, currentRedirectCounter + 1, maxRedirectCount);
                                 })
                                 .orElseThrow(() -> createExceptionFromResponse(request.getUrl().toString(), httpResponse, null, state.getErrorFromResponse()));
                     }
@@ -142,7 +197,7 @@ public abstract class BaseClient implements Client, StreamingClient {
         boolean isPermanent = false;
         if (!StringUtils.isBlank(errorFromResponse)) {
             try {
-                JsonNode jsonObject = Utils.getObjectMapper().readTree(errorFromResponse);
+                JsonNode jsonObject = JsonCodecs.treeReader().readTree(errorFromResponse);
                 if (jsonObject.has("error")) {
                     formattedException = new DataWebException(errorFromResponse, httpResponse, thrownException);
                     OneApiError apiError = ((DataWebException) formattedException).getApiError();
@@ -169,10 +224,16 @@ public abstract class BaseClient implements Client, StreamingClient {
                 isPermanent);
     }
 
-    private static Context getContextTimeout(long timeoutMs) {
-        int requestTimeout = timeoutMs > Integer.MAX_VALUE ? Integer.MAX_VALUE : Math.toIntExact(timeoutMs) + EXTRA_TIMEOUT_FOR_CLIENT_SIDE;
-
-        return RequestUtils.contextWithTimeout(Duration.ofMillis(requestTimeout));
+    // Each request, redirects included, only gets the time left before the deadline of the call, if it has one
+    private Mono<HttpResponse> send(HttpRequest request, long timeoutMs) {
+        return Mono.deferContextual(context -> {
+            long requestTimeout = timeoutMs > Integer.MAX_VALUE ? Integer.MAX_VALUE : timeoutMs + EXTRA_TIMEOUT_FOR_CLIENT_SIDE;
+            KustoDeadline deadline = KustoDeadline.fromContext(context);
+            if (deadline != null) {
+                requestTimeout = Math.min(requestTimeout, deadline.getRemaining().toMillis());
+            }
+            return httpClient.send(request, RequestUtils.contextWithTimeout(Duration.ofMillis(requestTimeout)));
+        });
     }
 
     private static void closeResourcesIfNeeded(boolean returnInputStream, HttpResponse httpResponse) {
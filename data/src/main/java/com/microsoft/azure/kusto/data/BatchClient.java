@@ -0,0 +1,44 @@
+// Copyright (c) Microsoft Corporation.
+// Licensed under the MIT License.
+
+package com.microsoft.azure.kusto.data;
+
+import com.microsoft.azure.kusto.data.exceptions.DataClientException;
+import com.microsoft.azure.kusto.data.exceptions.DataServiceException;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+/**
+ * A client that sends several queries as the statements of a single request.
+ */
+public interface BatchClient {
+    /**
+     * Executes several queries against a specified database in a single request, as the statements of a batch, and returns one result per
+     * query, in the order of the queries. Each query must return exactly one primary result. Statements like {@code let} that a query declares
+     * are visible to the queries after it.
+     * <p>
+     * An error the service reports while executing the batch only fails the query it belongs to, the queries before it keep their results.
+     * Errors that fail the whole request, like a query that doesn't compile, are thrown.
+     *
+     * @param database The name of the database.
+     * @param queries The queries to execute.
+     * @param properties Additional request properties, applied to the whole batch.
+     * @return The result or error of each query.
+     * @throws DataServiceException If there is an error from the service.
+     * @throws DataClientException If there is an error on the client side.
+     */
+    List<KustoQueryBatchResult> executeQueryBatch(String database, List<String> queries, ClientRequestProperties properties)
+            throws DataServiceException, DataClientException;
+
+    /**
+     * Executes several queries against a specified database in a single request.
+     *
+     * @param database The name of the database.
+     * @param queries The queries to execute.
+     * @param properties Additional request properties, applied to the whole batch.
+     * @return A {@link Mono} emitting the result or error of each query.
+     * @see #executeQueryBatch(String, List, ClientRequestProperties)
+     */
+    Mono<List<KustoQueryBatchResult>> executeQueryBatchAsync(String database, List<String> queries, ClientRequestProperties properties);
+}
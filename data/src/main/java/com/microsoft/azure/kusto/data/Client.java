@@ -5,8 +5,11 @@ package com.microsoft.azure.kusto.data;
 
 import com.microsoft.azure.kusto.data.exceptions.DataClientException;
 import com.microsoft.azure.kusto.data.exceptions.DataServiceException;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.util.stream.Collectors;
+
 /**
  * A client for interacting with Kusto.
  */
@@ -72,6 +75,38 @@ public interface Client {
      */
     Mono<KustoOperationResult> executeQueryAsync(String database, String command, ClientRequestProperties properties);
 
+    /**
+     * Executes a query against a specified database and emits the rows of its primary results as they are parsed from the response.
+     * Rows are emitted in batches, each one a {@link KustoResultSetTable} holding consecutive rows of a primary result table. The response is
+     * only read as fast as the batches are requested, so a slow subscriber applies backpressure to the network reads.
+     * <p>
+     * The default implementation doesn't stream: it executes the query with
+     * {@link #executeQueryAsync(String, String, ClientRequestProperties)} and emits each primary result table as a single batch.
+     *
+     * @param database The name of the database.
+     * @param command The query command to execute.
+     * @param properties Additional request properties.
+     * @return A {@link Flux} of row batches of the primary results.
+     */
+    default Flux<KustoResultSetTable> executeQueryFlux(String database, String command, ClientRequestProperties properties) {
+        return executeQueryAsync(database, command, properties)
+                .flatMapIterable(result -> result.getResultTables().stream()
+                        .filter(table -> table.getTableKind() == WellKnownDataSet.PrimaryResult)
+                        .collect(Collectors.toList()));
+    }
+
+    /**
+     * Executes a query against a specified database and emits the rows of its primary results as they are parsed from the response.
+     *
+     * @param database The name of the database.
+     * @param command The query command to execute.
+     * @return A {@link Flux} of row batches of the primary results.
+     * @see #executeQueryFlux(String, String, ClientRequestProperties)
+     */
+    default Flux<KustoResultSetTable> executeQueryFlux(String database, String command) {
+        return executeQueryFlux(database, command, null);
+    }
+
     /**
      * Executes a management command against the default database.
      *
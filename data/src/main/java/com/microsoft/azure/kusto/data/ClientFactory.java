@@ -40,6 +40,21 @@ public class ClientFactory {
         return new ClientImpl(csb, properties);
     }
 
+    /**
+     * Creates a new {@linkplain Client} instance with the given connection string, which serves repeated queries from the given result cache.
+     * The underlying HTTP client is customized with the given properties.
+     *
+     * @param csb the connection string builder
+     * @param properties HTTP client properties, or null for the default settings
+     * @param queryCache the cache of query results, which can be shared by several clients, each of them only getting its own results
+     * @return a fully constructed {@linkplain Client} instance
+     * @throws URISyntaxException if the cluster URL is invalid
+     */
+    public static Client createClient(ConnectionStringBuilder csb, HttpClientProperties properties, KustoQueryCache queryCache)
+            throws URISyntaxException {
+        return new ClientImpl(csb, properties, queryCache);
+    }
+
     /**
      * Creates a new {@linkplain Client} instance with the given connection string. The underlying HTTP client is
      * customized with the given properties.
@@ -90,4 +105,42 @@ public class ClientFactory {
     public static StreamingClient createStreamingClient(ConnectionStringBuilder csb, HttpClient httpClient) throws URISyntaxException {
         return new ClientImpl(csb, httpClient);
     }
+
+    /**
+     * Creates a new {@linkplain BatchClient} instance with the given connection string. The underlying HTTP client
+     * is created with default settings.
+     *
+     * @param csb the connection string builder
+     * @return a fully constructed {@linkplain BatchClient} instance
+     * @throws URISyntaxException if the cluster URL is invalid
+     */
+    public static BatchClient createBatchClient(ConnectionStringBuilder csb) throws URISyntaxException {
+        return createBatchClient(csb, (HttpClientProperties) null);
+    }
+
+    /**
+     * Creates a new {@linkplain BatchClient} instance with the given connection string. The underlying HTTP client
+     * is customized with the given properties.
+     *
+     * @param csb the connection string builder
+     * @param properties HTTP client properties
+     * @return a fully constructed {@linkplain BatchClient} instance
+     * @throws URISyntaxException if the cluster URL is invalid
+     */
+    public static BatchClient createBatchClient(ConnectionStringBuilder csb, HttpClientProperties properties) throws URISyntaxException {
+        return new ClientImpl(csb, properties);
+    }
+
+    /**
+     * Creates a new {@linkplain BatchClient} instance with the given connection string. The underlying HTTP client
+     * is customized with the given properties.
+     *
+     * @param csb the connection string builder
+     * @param httpClient HTTP client
+     * @return a fully constructed {@linkplain BatchClient} instance
+     * @throws URISyntaxException if the cluster URL is invalid
+     */
+    public static BatchClient createBatchClient(ConnectionStringBuilder csb, HttpClient httpClient) throws URISyntaxException {
+        return new ClientImpl(csb, httpClient);
+    }
 }
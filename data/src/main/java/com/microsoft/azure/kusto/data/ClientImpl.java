@@ -6,15 +6,22 @@ package com.microsoft.azure.kusto.data;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.URISyntaxException;
+import java.time.Duration;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.TimeUnit;
-
+import java.util.function.Function;
 
 import org.jetbrains.annotations.NotNull;
 
 import com.azure.core.http.HttpClient;
+import com.azure.core.http.HttpHeaderName;
+import com.azure.core.http.HttpHeaders;
+import com.azure.core.http.HttpResponse;
 import com.azure.core.util.BinaryData;
 import com.microsoft.azure.kusto.data.auth.CloudInfo;
 import com.microsoft.azure.kusto.data.auth.ConnectionStringBuilder;
@@ -35,26 +42,38 @@ import com.microsoft.azure.kusto.data.instrumentation.MonitoredActivity;
 import com.microsoft.azure.kusto.data.instrumentation.TraceableAttributes;
 import com.microsoft.azure.kusto.data.req.KustoRequest;
 import com.microsoft.azure.kusto.data.req.KustoRequestContext;
-import com.microsoft.azure.kusto.data.res.JsonResult;
 
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 import reactor.core.scheduler.Schedulers;
 import reactor.util.function.Tuple2;
 
-class ClientImpl extends BaseClient {
+class ClientImpl extends BaseClient implements BatchClient {
     public static final String MGMT_ENDPOINT_VERSION = "v1";
     public static final String QUERY_ENDPOINT_VERSION = "v2";
     public static final String STREAMING_VERSION = "v1";
     private static final Long CLIENT_GRACE_PERIOD_IN_MILLISECS = TimeUnit.SECONDS.toMillis(30);
+    // The shortest server timeout a request is sent with before the deadline of its call
+    private static final long MIN_SERVER_TIMEOUT_IN_MILLISECS = TimeUnit.SECONDS.toMillis(1);
     private static final Long COMMAND_TIMEOUT_IN_MILLISECS = TimeUnit.MINUTES.toMillis(10);
     private static final Long QUERY_TIMEOUT_IN_MILLISECS = TimeUnit.MINUTES.toMillis(4);
     private static final Long STREAMING_INGEST_TIMEOUT_IN_MILLISECS = TimeUnit.MINUTES.toMillis(10);
+    private static final HttpHeaderName CLIENT_REQUEST_ID_HEADER = HttpHeaderName.fromString("x-ms-client-request-id");
 
     private final TokenProviderBase aadAuthenticationHelper;
 
     private final String clusterUrl;
     private final String defaultDatabaseName;
     private final ClientDetails clientDetails;
+    private final KustoQueryCache queryCache;
+    // Scopes the cached results to this client, see KustoQueryCache.Key
+    private final Object queryCacheScope = new Object();
+    private final KustoConcurrencyLimiter concurrencyLimiter;
+    private final KustoHedgingPolicy hedgingPolicy;
+    private final KustoRetryPolicy retryPolicy;
+    private final boolean coalesceQueries;
+    // Queries being executed, shared by the identical queries that are sent in the meantime
+    private final ConcurrentMap<KustoQueryCache.Key, InFlightQuery> inFlightQueries = new ConcurrentHashMap<>();
     private boolean endpointValidated = false;
 
     public ClientImpl(ConnectionStringBuilder csb) throws URISyntaxException {
@@ -62,11 +81,33 @@ class ClientImpl extends BaseClient {
     }
 
     public ClientImpl(ConnectionStringBuilder csb, HttpClientProperties properties) throws URISyntaxException {
-        this(csb, HttpClientFactory.create(properties));
+        this(csb, properties, null);
+    }
+
+    public ClientImpl(ConnectionStringBuilder csb, HttpClientProperties properties, KustoQueryCache queryCache) throws URISyntaxException {
+        this(csb, HttpClientFactory.create(properties), queryCache, properties);
     }
 
     public ClientImpl(ConnectionStringBuilder csb, HttpClient httpClient) throws URISyntaxException {
-        super(httpClient);
+        this(csb, httpClient, null);
+    }
+
+    public ClientImpl(ConnectionStringBuilder csb, HttpClient httpClient, KustoQueryCache queryCache) throws URISyntaxException {
+        this(csb, httpClient, queryCache, null);
+    }
+
+    /**
+     * @param properties supplies the concurrency limiter, hedging policy, circuit breaker and retry policy of the client, the HTTP client
+     *            being given
+     */
+    public ClientImpl(ConnectionStringBuilder csb, HttpClient httpClient, KustoQueryCache queryCache,
+            HttpClientProperties properties) throws URISyntaxException {
+        super(httpClient, properties == null ? null : properties.getCircuitBreaker());
+        this.queryCache = queryCache;
+        this.concurrencyLimiter = properties == null ? null : properties.getConcurrencyLimiter();
+        this.hedgingPolicy = properties == null ? null : properties.getHedgingPolicy();
+        this.retryPolicy = properties == null ? null : properties.getRetryPolicy();
+        this.coalesceQueries = properties != null && properties.isCoalesceQueries();
         String clusterURL = UriUtils.createClusterURLFrom(csb.getClusterUrl());
         csb.setClusterUrl(clusterURL);
         clusterUrl = csb.getClusterUrl();
@@ -105,6 +146,60 @@ class ClientImpl extends BaseClient {
         return executeAsync(database, query, properties, CommandType.QUERY);
     }
 
+    @Override
+    public Flux<KustoResultSetTable> executeQueryFlux(String database, String query, ClientRequestProperties properties) {
+        return Flux.defer(() -> {
+            KustoRequest kr = new KustoRequest(query, database, properties, CommandType.QUERY);
+            String clusterEndpoint = String.format(kr.getCommandType().getEndpoint(), clusterUrl);
+            return prepareRequestAsync(kr)
+                    .flatMapMany(requestContext -> {
+                        ClientRequestProperties requestProperties = kr.getProperties() == null ? new ClientRequestProperties() : kr.getProperties();
+                        long timeoutMs = determineTimeout(requestProperties, kr.getCommandType(), clusterUrl);
+                        return limitConcurrency(kr.getCommandType(), postToFlux(requestContext.getHttpRequest(), timeoutMs,
+                                response -> KustoResultBatches.primaryResultBatches(Utils.getDecompressedBody(response), JsonCodecs.mapper(),
+                                        requestProperties.getColumnSelection())));
+                    })
+                    .onErrorMap(KustoServiceQueryError.class, e -> new DataServiceException(clusterEndpoint, e.getMessage(), e, e.isPermanent()))
+                    .onErrorMap(Exception.class, e -> {
+                        if (e instanceof DataServiceException) {
+                            return e;
+                        }
+
+                        return new DataClientException(clusterEndpoint, ExceptionUtils.getMessageEx(e), e);
+                    });
+        });
+    }
+
+    @Override
+    public List<KustoQueryBatchResult> executeQueryBatch(String database, List<String> queries, ClientRequestProperties properties) {
+        return executeQueryBatchAsync(database, queries, properties).block();
+    }
+
+    @Override
+    public Mono<List<KustoQueryBatchResult>> executeQueryBatchAsync(String database, List<String> queries, ClientRequestProperties properties) {
+        Ensure.argIsNotNull(queries, "queries");
+        Ensure.isFalse(queries.isEmpty(), "queries must not be empty");
+
+        return Mono.defer(() -> {
+            KustoRequest kr = new KustoRequest(KustoQueryBatches.join(queries), database, properties, CommandType.QUERY);
+            String clusterEndpoint = String.format(kr.getCommandType().getEndpoint(), clusterUrl);
+            return MonitoredActivity.wrap(
+                    executeWithTimeout(kr, ".executeQueryBatchImplAsync",
+                            response -> KustoQueryBatches.readAsync(Utils.getDecompressedBody(response), queries, kr.getProperties(), clusterEndpoint)),
+                    kr.getCommandType().getActivityTypeSuffix().concat(".executeQueryBatchAsync"),
+                    updateAndGetExecuteTracingAttributes(database, properties))
+                    .publishOn(Schedulers.boundedElastic())
+                    .onErrorMap(KustoServiceQueryError.class, e -> new DataServiceException(clusterEndpoint, e.getMessage(), e, e.isPermanent()))
+                    .onErrorMap(Exception.class, e -> {
+                        if (e instanceof DataServiceException) {
+                            return e;
+                        }
+
+                        return new DataClientException(clusterEndpoint, ExceptionUtils.getMessageEx(e), e);
+                    });
+        });
+    }
+
     @Override
     public KustoOperationResult executeMgmt(String command) {
         return executeMgmt(defaultDatabaseName, command);
@@ -151,10 +246,59 @@ class ClientImpl extends BaseClient {
     private Mono<KustoOperationResult> executeAsync(String database, String command, ClientRequestProperties properties, CommandType commandType) {
         return Mono.defer(() -> {
             KustoRequest kr = new KustoRequest(command, database, properties, commandType);
-            return MonitoredActivity.wrap(
+            // Deferred, so the cache can subscribe to it again to refresh the result
+            Mono<KustoOperationResult> execution = Mono.defer(() -> MonitoredActivity.wrap(
                     executeImplAsync(kr),
                     commandType.getActivityTypeSuffix().concat(".executeAsync"),
-                    updateAndGetExecuteTracingAttributes(database, properties));
+                    updateAndGetExecuteTracingAttributes(database, properties)));
+            if ((queryCache == null && !coalesceQueries) || !isShareable(kr)) {
+                return execution;
+            }
+
+            KustoQueryCache.Key key = new KustoQueryCache.Key(queryCacheScope, clusterUrl, kr.getDatabase(), kr.getCommand(), kr.getProperties());
+            if (queryCache == null) {
+                return coalesce(key, execution);
+            }
+            KustoOperationResult cached = queryCache.get(key);
+            if (cached != null) {
+                return Mono.just(cached);
+            }
+            Mono<KustoOperationResult> cachedExecution = execution.doOnNext(result -> queryCache.put(key, result, execution));
+            return coalesceQueries ? coalesce(key, cachedExecution) : cachedExecution;
+        });
+    }
+
+    private boolean isHedged(KustoRequest kr) {
+        return hedgingPolicy != null && kr.getCommandType() == CommandType.QUERY
+                && (kr.getProperties() == null || !kr.getProperties().isOffHeapResults());
+    }
+
+    /**
+     * Queries whose results can be shared between callers: they are served from the cache when there is one, and when queries are coalesced,
+     * identical queries that are sent while one of them is executed wait for its result.
+     */
+    private boolean isShareable(KustoRequest kr) {
+        ClientRequestProperties properties = kr.getProperties();
+        return kr.getCommandType() == CommandType.QUERY
+                && (properties == null || (!properties.isResultCacheBypass() && !properties.isOffHeapResults()));
+    }
+
+    /**
+     * Executes the query only if no identical query is being executed, otherwise waits for the result of that one. Every caller gets its own
+     * copy of the result, with its own cursors. The query is cancelled only once all of its callers have cancelled.
+     * <p>
+     * The execution is bound by the deadline of the caller that started it, so a caller only waits for it if that deadline isn't earlier than
+     * its own, and fails at its own deadline if it is later.
+     */
+    private Mono<KustoOperationResult> coalesce(KustoQueryCache.Key key, Mono<KustoOperationResult> execution) {
+        return Mono.deferContextual(context -> {
+            KustoDeadline deadline = KustoDeadline.fromContext(context);
+            InFlightQuery query = inFlightQueries.computeIfAbsent(key, k -> new InFlightQuery(k, deadline, execution));
+            if (!query.canBeAwaitedUntil(deadline)) {
+                // Executed on its own, so it isn't cut short by the deadline of the other caller
+                return execution;
+            }
+            return KustoDeadline.enforce(query.result.map(KustoOperationResult::copy));
         });
     }
 
@@ -170,12 +314,17 @@ class ClientImpl extends BaseClient {
 
     private Mono<KustoOperationResult> executeImplAsync(KustoRequest kr) {
         String clusterEndpoint = String.format(kr.getCommandType().getEndpoint(), clusterUrl);
-        return executeWithTimeout(kr, ".executeImplAsync")
+        String version = clusterEndpoint.endsWith("v2/rest/query") ? "v2" : "v1";
+        Function<HttpResponse, Mono<KustoOperationResult>> bodyReader = response -> KustoOperationResult.readAsync(Utils.getDecompressedBody(response),
+                version, kr.getProperties());
+        // Deferred so that each attempt prepares its request again, with a client request id of its own
+        Mono<KustoOperationResult> execution = Mono.defer(() -> isHedged(kr)
+                ? hedgingPolicy.hedge(executeWithTimeout(kr, ".executeImplAsync", bodyReader, false),
+                        executeWithTimeout(kr, ".executeImplAsync.hedge", bodyReader, true))
+                : executeWithTimeout(kr, ".executeImplAsync", bodyReader));
+        Mono<KustoOperationResult> result = execution
+                // The response is parsed on the threads that receive it, callers continue elsewhere
                 .publishOn(Schedulers.boundedElastic())
-                .map(response -> {
-                    JsonResult jsonResult = new JsonResult(response, clusterEndpoint);
-                    return new KustoOperationResult(jsonResult.getResult(), jsonResult.getEndpoint().endsWith("v2/rest/query") ? "v2" : "v1");
-                })
                 .onErrorMap(KustoServiceQueryError.class, e -> new DataServiceException(clusterEndpoint, e.getMessage(), e, e.isPermanent()))
                 .onErrorMap(Exception.class, e -> {
                     if (e instanceof DataServiceException) {
@@ -184,21 +333,46 @@ class ClientImpl extends BaseClient {
 
                     return new DataClientException(clusterEndpoint, ExceptionUtils.getMessageEx(e), e);
                 });
+        return withDeadline(kr.getProperties(), kr.getCommandType(), retryPolicy == null ? result : retryPolicy.retry(kr, result));
     }
 
     private Mono<String> executeWithTimeout(KustoRequest request, String nameOfSpan) {
-        return prepareRequestAsync(request)
-                .zipWhen(requestContext -> {
-                    ClientRequestProperties properties = request.getProperties() == null ? new ClientRequestProperties() : request.getProperties();
-                    long timeoutMs = determineTimeout(properties, request.getCommandType(), clusterUrl);
-                    return MonitoredActivity.wrap(
-                            postAsync(requestContext.getHttpRequest(), timeoutMs),
-                            requestContext.getSdkRequest().getCommandType().getActivityTypeSuffix().concat(nameOfSpan));
-                })
-                .map(Tuple2::getT2);
+        return executeWithTimeout(request, nameOfSpan, Utils::getResponseBody);
+    }
+
+    private <T> Mono<T> executeWithTimeout(KustoRequest request, String nameOfSpan, Function<HttpResponse, Mono<T>> bodyReader) {
+        return executeWithTimeout(request, nameOfSpan, bodyReader, false);
+    }
+
+    /**
+     * @param hedge whether the request is the hedge of another one, which gets a client request id of its own
+     */
+    private <T> Mono<T> executeWithTimeout(KustoRequest request, String nameOfSpan, Function<HttpResponse, Mono<T>> bodyReader, boolean hedge) {
+        return Mono.deferContextual(context -> {
+            ClientRequestProperties properties = request.getProperties() == null ? new ClientRequestProperties() : request.getProperties();
+            long timeoutMs = determineTimeout(properties, request.getCommandType(), clusterUrl);
+            return prepareRequestAsync(request, remainingServerTimeout(KustoDeadline.fromContext(context), timeoutMs))
+                    .zipWhen(requestContext -> {
+                        if (hedge) {
+                            HttpHeaders headers = requestContext.getHttpRequest().getHeaders();
+                            headers.set(CLIENT_REQUEST_ID_HEADER, headers.getValue(CLIENT_REQUEST_ID_HEADER) + ";hedge");
+                        }
+                        return MonitoredActivity.wrap(
+                                limitConcurrency(request.getCommandType(), postAsync(requestContext.getHttpRequest(), timeoutMs, bodyReader)),
+                                requestContext.getSdkRequest().getCommandType().getActivityTypeSuffix().concat(nameOfSpan));
+                    })
+                    .map(Tuple2::getT2);
+        });
     }
 
     Mono<KustoRequestContext> prepareRequestAsync(@NotNull KustoRequest kr) {
+        return prepareRequestAsync(kr, null);
+    }
+
+    /**
+     * @param serverTimeoutMs the server timeout to send instead of the one of the request properties, or null to send theirs
+     */
+    Mono<KustoRequestContext> prepareRequestAsync(@NotNull KustoRequest kr, Long serverTimeoutMs) {
         kr.validateAndOptimize();
 
         String clusterEndpoint = String.format(kr.getCommandType().getEndpoint(), clusterUrl);
@@ -212,7 +386,7 @@ class ClientImpl extends BaseClient {
 
         HttpRequestBuilder requestBuilder = HttpRequestBuilder
                 .newPost(clusterEndpoint)
-                .createCommandPayload(kr)
+                .createCommandPayload(kr, serverTimeoutMs)
                 .withTracing(tracing);
 
         return validateEndpointAsync()
@@ -317,7 +491,9 @@ class ClientImpl extends BaseClient {
 
         return getAuthorizationHeaderValueAsync()
                 .doOnNext(httpRequestBuilder::withAuthorization)
-                .then(MonitoredActivity.wrap(postAsync(httpRequestBuilder.build(), timeoutMs), "ClientImpl.executeStreamingIngest")
+                .then(MonitoredActivity.wrap(withDeadline(timeoutMs,
+                        limitConcurrency(CommandType.STREAMING_INGEST, postAsync(httpRequestBuilder.build(), timeoutMs))),
+                        "ClientImpl.executeStreamingIngest")
                         .publishOn(Schedulers.boundedElastic())
                         .map(response -> new KustoOperationResult(response, "v1"))
                         .onErrorMap(KustoServiceQueryError.class, e -> new DataClientException(clusterEndpoint, e.getMessage(), e))
@@ -381,6 +557,18 @@ class ClientImpl extends BaseClient {
         return executeStreamingQueryAsync(kr);
     }
 
+    @Override
+    public KustoStreamingOperationResult executeStreamingQueryResult(String database, String command, ClientRequestProperties properties) {
+        return executeStreamingQueryResultAsync(database, command, properties).block();
+    }
+
+    @Override
+    public Mono<KustoStreamingOperationResult> executeStreamingQueryResultAsync(String database, String command, ClientRequestProperties properties) {
+        return executeStreamingQueryAsync(database, command, properties)
+                .map(stream -> new KustoStreamingOperationResult(stream, QUERY_ENDPOINT_VERSION, properties == null ? null : properties.getColumnSelection()))
+                .onErrorMap(KustoServiceQueryError.class, e -> new DataServiceException(clusterUrl, e.getMessage(), e, e.isPermanent()));
+    }
+
     private Mono<InputStream> executeStreamingQueryAsync(@NotNull KustoRequest kr) {
         kr.validateAndOptimize();
         String clusterEndpoint = String.format(kr.getCommandType().getEndpoint(), clusterUrl);
@@ -397,19 +585,73 @@ class ClientImpl extends BaseClient {
 
     private Mono<InputStream> executeStreamingQuery(String clusterEndpoint, KustoRequest kr,
             HttpTracing tracing) {
-        HttpRequestBuilder requestBuilder = HttpRequestBuilder
-                .newPost(clusterEndpoint)
-                .createCommandPayload(kr)
-                .withTracing(tracing);
         ClientRequestProperties properties = kr.getProperties() == null ? new ClientRequestProperties() : kr.getProperties();
         long timeoutMs = determineTimeout(properties, kr.getCommandType(), clusterUrl);
 
-        return getAuthorizationHeaderValueAsync()
-                .doOnNext(requestBuilder::withAuthorization)
-                .then(MonitoredActivity.wrap(
-                        postToStreamingOutputAsync(requestBuilder.build(), timeoutMs, 0,
-                                kr.getRedirectCount()),
-                        "ClientImpl.executeStreamingQuery", updateAndGetExecuteTracingAttributes(kr.getDatabase(), properties)));
+        return withDeadline(timeoutMs, Mono.deferContextual(context -> {
+            HttpRequestBuilder requestBuilder = HttpRequestBuilder
+                    .newPost(clusterEndpoint)
+                    .createCommandPayload(kr, remainingServerTimeout(KustoDeadline.fromContext(context), timeoutMs))
+                    .withTracing(tracing);
+
+            return getAuthorizationHeaderValueAsync()
+                    .doOnNext(requestBuilder::withAuthorization)
+                    .then(MonitoredActivity.wrap(
+                            limitConcurrency(kr.getCommandType(), postToStreamingOutputAsync(requestBuilder.build(), timeoutMs, 0,
+                                    kr.getRedirectCount())),
+                            "ClientImpl.executeStreamingQuery", updateAndGetExecuteTracingAttributes(kr.getDatabase(), properties)));
+        }));
+    }
+
+    private <T> Mono<T> limitConcurrency(CommandType commandType, Mono<T> request) {
+        return concurrencyLimiter == null ? request : concurrencyLimiter.limit(clusterUrl, commandType, request);
+    }
+
+    private <T> Flux<T> limitConcurrency(CommandType commandType, Flux<T> request) {
+        return concurrencyLimiter == null ? request : concurrencyLimiter.limit(clusterUrl, commandType, request);
+    }
+
+    private <T> Mono<T> withDeadline(ClientRequestProperties properties, CommandType commandType, Mono<T> call) {
+        return Mono.defer(() -> withDeadline(
+                determineTimeout(properties == null ? new ClientRequestProperties() : properties, commandType, clusterUrl), call));
+    }
+
+    /**
+     * Bounds the call, with all its attempts, by the deadline in its context, or by the timeout of its request when it has none.
+     */
+    private <T> Mono<T> withDeadline(long timeoutMs, Mono<T> call) {
+        return Mono.deferContextual(context -> {
+            KustoDeadline deadline = KustoDeadline.fromContext(context);
+            if (deadline != null) {
+                return deadline.bound(call);
+            }
+            if (timeoutMs == Long.MAX_VALUE) {
+                return call;
+            }
+            KustoDeadline requestDeadline = KustoDeadline.ofRequestTimeout(Duration.ofMillis(timeoutMs + EXTRA_TIMEOUT_FOR_CLIENT_SIDE));
+            return requestDeadline.bound(call).contextWrite(requestDeadline::putIn);
+        });
+    }
+
+    /**
+     * @param timeoutMs the timeout of the request, with the grace period of the client
+     * @return the server timeout that lets the request complete before the deadline set by the caller, or null if the one of the request does
+     * @throws DataClientException if the deadline leaves too little time to send the request
+     */
+    private static Long remainingServerTimeout(KustoDeadline deadline, long timeoutMs) {
+        if (deadline == null || deadline.isFromRequestTimeout()) {
+            return null;
+        }
+        long remainingMs = deadline.getRemaining().toMillis();
+        // The client and the service each keep time to report the timeout, as around the timeout of a request, but at most a third of what is left
+        long serverTimeoutMs = Math.max(remainingMs - 2 * CLIENT_GRACE_PERIOD_IN_MILLISECS, remainingMs / 3);
+        if (serverTimeoutMs >= timeoutMs - CLIENT_GRACE_PERIOD_IN_MILLISECS) {
+            return null;
+        }
+        if (serverTimeoutMs < MIN_SERVER_TIMEOUT_IN_MILLISECS) {
+            throw deadline.expiredException();
+        }
+        return serverTimeoutMs;
     }
 
     private long determineTimeout(ClientRequestProperties properties, CommandType commandType, String clusterUrl) {
@@ -459,4 +701,20 @@ class ClientImpl extends BaseClient {
     ClientDetails getClientDetails() {
         return clientDetails;
     }
+
+    private class InFlightQuery {
+        // The deadline of the caller that started the execution, or null if it is only bound by the timeout of the request
+        private final KustoDeadline deadline;
+        private final Mono<KustoOperationResult> result;
+
+        InFlightQuery(KustoQueryCache.Key key, KustoDeadline deadline, Mono<KustoOperationResult> execution) {
+            this.deadline = deadline;
+            // Removed when the execution ends, so later queries are sent again (or served from the cache)
+            this.result = execution.doFinally(ignore -> inFlightQueries.remove(key, this)).share();
+        }
+
+        boolean canBeAwaitedUntil(KustoDeadline callerDeadline) {
+            return deadline == null || (callerDeadline != null && !callerDeadline.isAfter(deadline));
+        }
+    }
 }
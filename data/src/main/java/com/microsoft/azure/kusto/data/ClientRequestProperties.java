@@ -11,6 +11,7 @@ import java.util.Date;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.Map;
+import java.util.TreeMap;
 import java.util.UUID;
 import java.util.concurrent.TimeUnit;
 import java.util.regex.Matcher;
@@ -27,6 +28,7 @@ import com.microsoft.azure.kusto.data.format.CslLongFormat;
 import com.microsoft.azure.kusto.data.format.CslRealFormat;
 import com.microsoft.azure.kusto.data.format.CslTimespanFormat;
 import com.microsoft.azure.kusto.data.format.CslUuidFormat;
+import com.microsoft.azure.kusto.data.format.KustoTemporalParser;
 import com.microsoft.azure.kusto.data.instrumentation.TraceableAttributes;
 
 /*
@@ -58,6 +60,10 @@ public class ClientRequestProperties implements Serializable, TraceableAttribute
     private String clientRequestId;
     private String application;
     private String user;
+    private KustoColumnSelection columnSelection;
+    private KustoSpillOptions spillOptions;
+    private boolean offHeapResults;
+    private boolean resultCacheBypass;
 
     public ClientRequestProperties() {
         parameters = new HashMap<>();
@@ -196,6 +202,14 @@ public class ClientRequestProperties implements Serializable, TraceableAttribute
     }
 
     private static long parseTimeoutFromTimespanString(String str) {
+        long nanos = KustoTemporalParser.parseTimespanNanos(str);
+        if (nanos != KustoTemporalParser.INVALID) {
+            if (str.charAt(0) == '-') {
+                throw new IllegalArgumentException(String.format("Negative timeouts are invalid. Value: '%s'", str));
+            }
+            return nanos >= TimeUnit.DAYS.toNanos(1) ? MAX_TIMEOUT_MS : TimeUnit.NANOSECONDS.toMillis(nanos);
+        }
+
         Matcher matcher = KUSTO_TIMESPAN_REGEX.matcher(str);
         if (!matcher.matches()) {
             throw new ParseException(String.format("Failed to parse timeout string as a timespan. Value: '%s'", str));
@@ -242,11 +256,11 @@ public class ClientRequestProperties implements Serializable, TraceableAttribute
     }
 
     JsonNode toJson() {
-        ObjectNode optionsAsJSON = Utils.getObjectMapper().valueToTree(this.options);
+        ObjectNode optionsAsJSON = JsonCodecs.valueToTree(this.options);
 
-        ObjectNode json = Utils.getObjectMapper().createObjectNode();
+        ObjectNode json = JsonCodecs.createObjectNode();
         json.set(OPTIONS_KEY, optionsAsJSON);
-        json.set(PARAMETERS_KEY, Utils.getObjectMapper().valueToTree(this.parameters));
+        json.set(PARAMETERS_KEY, JsonCodecs.valueToTree(this.parameters));
         return json;
     }
 
@@ -254,10 +268,34 @@ public class ClientRequestProperties implements Serializable, TraceableAttribute
         return toJson().toString();
     }
 
+    /**
+     * @param serverTimeoutInMilliSec the server timeout to send instead of the one of these properties, e.g. the time left before the
+     *            deadline of the call
+     * @return the options and parameters as JSON
+     */
+    public String toString(long serverTimeoutInMilliSec) {
+        ObjectNode json = (ObjectNode) toJson();
+        ((ObjectNode) json.get(OPTIONS_KEY)).put(OPTION_SERVER_TIMEOUT, adjustTimeoutToServiceLimits(serverTimeoutInMilliSec));
+        return json.toString();
+    }
+
+    /**
+     * @return the options and parameters as JSON, ordered by name so equal properties give equal strings. The server timeout is left out: it
+     * doesn't change the result, and the client sets it on the properties of the requests that have none.
+     */
+    String toCanonicalString() {
+        ObjectNode json = JsonCodecs.createObjectNode();
+        TreeMap<String, Object> canonicalOptions = new TreeMap<>(this.options);
+        canonicalOptions.remove(OPTION_SERVER_TIMEOUT);
+        json.set(OPTIONS_KEY, JsonCodecs.valueToTree(canonicalOptions));
+        json.set(PARAMETERS_KEY, JsonCodecs.valueToTree(new TreeMap<>(this.parameters)));
+        return json.toString();
+    }
+
     public static ClientRequestProperties fromString(String json) throws JsonProcessingException {
         if (StringUtils.isNotBlank(json)) {
             ClientRequestProperties crp = new ClientRequestProperties();
-            JsonNode jsonObj = Utils.getObjectMapper().readTree(json);
+            JsonNode jsonObj = JsonCodecs.treeReader().readTree(json);
             Iterator<String> it = jsonObj.fieldNames();
             while (it.hasNext()) {
                 String propertyName = it.next();
@@ -346,6 +384,76 @@ public class ClientRequestProperties implements Serializable, TraceableAttribute
         this.user = user;
     }
 
+    /**
+     * Gets the columns of the primary results that are kept when the response is parsed.
+     * @return The column selection, or null if all the columns are kept.
+     */
+    public KustoColumnSelection getColumnSelection() {
+        return columnSelection;
+    }
+
+    /**
+     * Sets the columns of the primary results that are kept when the response is parsed. The values of the other columns are skipped without
+     * being decoded. This isn't sent to the service, which still returns all the columns - prefer projecting them in the query when possible.
+     * @param columnSelection The column selection, or null to keep all the columns.
+     */
+    public void setColumnSelection(KustoColumnSelection columnSelection) {
+        this.columnSelection = columnSelection;
+    }
+
+    /**
+     * Gets when the rows of a result table are spilled to a temporary file.
+     * @return The spill options, or null if all the rows are kept on the heap.
+     */
+    public KustoSpillOptions getSpillOptions() {
+        return spillOptions;
+    }
+
+    /**
+     * Sets when the rows of a result table are spilled to a temporary file instead of being kept on the heap. This isn't sent to the service,
+     * and it doesn't apply to streamed results.
+     * @param spillOptions The spill options, or null to keep all the rows on the heap.
+     */
+    public void setSpillOptions(KustoSpillOptions spillOptions) {
+        this.spillOptions = spillOptions;
+    }
+
+    /**
+     * Gets whether the result tables keep their columns off the Java heap.
+     * @return true if the columns are kept in direct buffers.
+     */
+    public boolean isOffHeapResults() {
+        return offHeapResults;
+    }
+
+    /**
+     * Sets whether the result tables keep their bool, int, long, real and text columns in pooled direct buffers instead of on the heap, which
+     * keeps large or long-lived results out of the garbage collector's way. Such results must be closed with {@link KustoOperationResult#close()}
+     * or {@link KustoResultSetTable#close()} to release their buffers, and can't be read once they are closed. Other columns, and tables that
+     * are spilled to a file, stay as they are. This isn't sent to the service, and it doesn't apply to streamed results.
+     * @param offHeapResults true to keep the columns in direct buffers.
+     */
+    public void setOffHeapResults(boolean offHeapResults) {
+        this.offHeapResults = offHeapResults;
+    }
+
+    /**
+     * Gets whether the request skips the client's query result cache.
+     * @return true if the cache is skipped.
+     */
+    public boolean isResultCacheBypass() {
+        return resultCacheBypass;
+    }
+
+    /**
+     * Sets whether the request skips the client's query result cache, see {@link KustoQueryCache}. A request that skips it is always sent to
+     * the service, even when an identical query is already being executed, and its result isn't cached. This isn't sent to the service.
+     * @param resultCacheBypass true to skip the cache.
+     */
+    public void setResultCacheBypass(boolean resultCacheBypass) {
+        this.resultCacheBypass = resultCacheBypass;
+    }
+
     Iterator<Map.Entry<String, Object>> getOptions() {
         return options.entrySet().iterator();
     }
@@ -11,7 +11,7 @@ class IngestionSourceStorage {
 
     public String toString() {
         try {
-            return Utils.getObjectMapper().writeValueAsString(this);
+            return JsonCodecs.writer().writeValueAsString(this);
         } catch (JsonProcessingException e) {
             throw new RuntimeException(e);
         }
@@ -0,0 +1,80 @@
+// Copyright (c) Microsoft Corporation.
+// Licensed under the MIT License.
+
+package com.microsoft.azure.kusto.data;
+
+import com.fasterxml.jackson.annotation.JsonAutoDetect.Visibility;
+import com.fasterxml.jackson.annotation.PropertyAccessor;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Shared Jackson readers and writers, configured like {@link Utils#getObjectMapper()}.
+ * <p>
+ * Building a mapper registers modules and resolves its configuration, which is far more expensive than the reads and writes the SDK does with it.
+ * Readers and writers are immutable and thread-safe, so they are built once here and reused by every request.
+ */
+public final class JsonCodecs {
+    // Never handed out, so its configuration can't change after the readers and writers were created from it
+    private static final ObjectMapper MAPPER = Utils.getObjectMapper();
+
+    private static final ObjectReader TREE_READER = MAPPER.reader();
+    private static final ObjectWriter WRITER = MAPPER.writer();
+    private static final ObjectWriter FIELD_WRITER = MAPPER.copy()
+            .setVisibility(PropertyAccessor.ALL, Visibility.NONE)
+            .setVisibility(PropertyAccessor.FIELD, Visibility.ANY)
+            .writer();
+    private static final ConcurrentMap<Class<?>, ObjectReader> VALUE_READERS = new ConcurrentHashMap<>();
+
+    private JsonCodecs() {
+    }
+
+    /**
+     * @return a reader for JSON trees, e.g. {@code treeReader().readTree(json)}
+     */
+    public static ObjectReader treeReader() {
+        return TREE_READER;
+    }
+
+    /**
+     * @return a reader that binds JSON to the given type, created on first use
+     */
+    public static ObjectReader readerFor(Class<?> type) {
+        return VALUE_READERS.computeIfAbsent(type, MAPPER::readerFor);
+    }
+
+    /**
+     * @return a writer that serializes values through their properties
+     */
+    public static ObjectWriter writer() {
+        return WRITER;
+    }
+
+    /**
+     * @return a writer that serializes values through their fields only, ignoring getters
+     */
+    public static ObjectWriter fieldWriter() {
+        return FIELD_WRITER;
+    }
+
+    public static ObjectNode createObjectNode() {
+        return MAPPER.getNodeFactory().objectNode();
+    }
+
+    public static <T extends JsonNode> T valueToTree(Object value) {
+        return MAPPER.valueToTree(value);
+    }
+
+    /**
+     * The shared mapper itself, for the result parsers that need its parser factory. It must not be reconfigured.
+     */
+    static ObjectMapper mapper() {
+        return MAPPER;
+    }
+}
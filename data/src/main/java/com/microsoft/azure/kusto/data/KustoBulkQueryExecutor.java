@@ -0,0 +1,155 @@
+// Copyright (c) Microsoft Corporation.
+// Licensed under the MIT License.
+
+package com.microsoft.azure.kusto.data;
+
+import com.microsoft.azure.kusto.data.exceptions.DataClientException;
+import com.microsoft.azure.kusto.data.exceptions.ExceptionUtils;
+import com.microsoft.azure.kusto.data.exceptions.KustoDataExceptionBase;
+import com.microsoft.azure.kusto.data.req.KustoRequest;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoSink;
+import reactor.util.function.Tuple2;
+
+import java.util.ArrayDeque;
+import java.util.Queue;
+
+/**
+ * Executes many queries with {@link Client#executeQueryAsync(String, String, ClientRequestProperties)}, running at most a given number of
+ * them at once.
+ * <p>
+ * The limit applies to all the queries sent through the executor, whichever call they came from, so create one executor per cluster and share
+ * it between the components that fan out queries to that cluster. Queries over the limit wait in a queue, and
+ * {@link #getQueuedCount()} and {@link #getInFlightCount()} can be polled as gauges by a metrics system.
+ * <p>
+ * A failed query doesn't stop the others: every request gets a {@link KustoBulkQueryResult} holding either its result or its error.
+ * Cancelling the returned Flux cancels the queries that are running and removes the others from the queue.
+ */
+public final class KustoBulkQueryExecutor {
+    private final Client client;
+    private final int maxConcurrency;
+
+    // Guarded by this
+    private final Queue<Permit> queue = new ArrayDeque<>();
+    private int inFlight = 0;
+
+    /**
+     * @param client the client of the cluster to query
+     * @param maxConcurrency the maximum number of queries running at once
+     */
+    public KustoBulkQueryExecutor(Client client, int maxConcurrency) {
+        Ensure.argIsNotNull(client, "client");
+        Ensure.isTrue(maxConcurrency > 0, "maxConcurrency must be positive");
+        this.client = client;
+        this.maxConcurrency = maxConcurrency;
+    }
+
+    /**
+     * Executes the queries and emits their results in the order of the requests. A result that is ready waits for the results of the requests
+     * before it, so at most {@code maxConcurrency} results are held back.
+     */
+    public Flux<KustoBulkQueryResult> executeOrdered(Flux<KustoRequest> requests) {
+        return requests.index().flatMapSequential(this::execute, maxConcurrency);
+    }
+
+    public Flux<KustoBulkQueryResult> executeOrdered(Iterable<KustoRequest> requests) {
+        return executeOrdered(Flux.fromIterable(requests));
+    }
+
+    /**
+     * Executes the queries and emits their results as they complete. {@link KustoBulkQueryResult#getIndex()} tells which request a result
+     * belongs to.
+     */
+    public Flux<KustoBulkQueryResult> executeUnordered(Flux<KustoRequest> requests) {
+        return requests.index().flatMap(this::execute, maxConcurrency);
+    }
+
+    public Flux<KustoBulkQueryResult> executeUnordered(Iterable<KustoRequest> requests) {
+        return executeUnordered(Flux.fromIterable(requests));
+    }
+
+    /**
+     * @return the number of queries waiting for one of the running queries to complete
+     */
+    public synchronized int getQueuedCount() {
+        return queue.size();
+    }
+
+    /**
+     * @return the number of queries running
+     */
+    public synchronized int getInFlightCount() {
+        return inFlight;
+    }
+
+    public int getMaxConcurrency() {
+        return maxConcurrency;
+    }
+
+    private Mono<KustoBulkQueryResult> execute(Tuple2<Long, KustoRequest> indexedRequest) {
+        int index = indexedRequest.getT1().intValue();
+        KustoRequest request = indexedRequest.getT2();
+        return Mono.defer(() -> {
+            Permit permit = new Permit();
+            return Mono.<Void>create(sink -> acquire(permit, sink))
+                    .then(Mono.defer(() -> client.executeQueryAsync(request.getDatabase(), request.getCommand(), request.getProperties())))
+                    .map(result -> new KustoBulkQueryResult(index, request, result, null))
+                    .onErrorResume(Exception.class, e -> Mono.just(new KustoBulkQueryResult(index, request, null, toError(e))))
+                    // Released before the result is emitted, so the query no longer counts as in flight once its result is seen
+                    .doOnSuccess(ignore -> release(permit))
+                    .doOnError(ignore -> release(permit))
+                    .doOnCancel(() -> release(permit));
+        });
+    }
+
+    private void acquire(Permit permit, MonoSink<Void> sink) {
+        synchronized (this) {
+            if (inFlight >= maxConcurrency) {
+                permit.sink = sink;
+                queue.add(permit);
+                return;
+            }
+            inFlight++;
+            permit.granted = true;
+        }
+        sink.success();
+    }
+
+    // Called when a query completes or is cancelled, whether or not it got its permit. Only the first call releases it.
+    private void release(Permit permit) {
+        Permit next;
+        synchronized (this) {
+            if (permit.released) {
+                return;
+            }
+            permit.released = true;
+            if (!permit.granted) {
+                queue.remove(permit);
+                return;
+            }
+            // The permit goes to the next query in the queue, if any
+            next = queue.poll();
+            if (next == null) {
+                inFlight--;
+                return;
+            }
+            next.granted = true;
+        }
+        next.sink.success();
+    }
+
+    private static KustoDataExceptionBase toError(Exception e) {
+        if (e instanceof KustoDataExceptionBase) {
+            return (KustoDataExceptionBase) e;
+        }
+        return new DataClientException(null, ExceptionUtils.getMessageEx(e), e);
+    }
+
+    private static class Permit {
+        // Guarded by the executor
+        private boolean granted = false;
+        private boolean released = false;
+        private MonoSink<Void> sink;
+    }
+}
@@ -0,0 +1,53 @@
+// Copyright (c) Microsoft Corporation.
+// Licensed under the MIT License.
+
+package com.microsoft.azure.kusto.data;
+
+import com.microsoft.azure.kusto.data.exceptions.KustoDataExceptionBase;
+import com.microsoft.azure.kusto.data.req.KustoRequest;
+
+/**
+ * The outcome of one query executed by a {@link KustoBulkQueryExecutor}: either its result or its error.
+ */
+public final class KustoBulkQueryResult {
+    private final int index;
+    private final KustoRequest request;
+    private final KustoOperationResult result;
+    private final KustoDataExceptionBase error;
+
+    KustoBulkQueryResult(int index, KustoRequest request, KustoOperationResult result, KustoDataExceptionBase error) {
+        this.index = index;
+        this.request = request;
+        this.result = result;
+        this.error = error;
+    }
+
+    /**
+     * @return the position of the request among the requests given to the executor, from 0
+     */
+    public int getIndex() {
+        return index;
+    }
+
+    public KustoRequest getRequest() {
+        return request;
+    }
+
+    public boolean isSuccess() {
+        return error == null;
+    }
+
+    /**
+     * @return the result of the query, or null if it failed
+     */
+    public KustoOperationResult getResult() {
+        return result;
+    }
+
+    /**
+     * @return the error of the query, or null if it succeeded
+     */
+    public KustoDataExceptionBase getError() {
+        return error;
+    }
+}
@@ -0,0 +1,401 @@
+// Copyright (c) Microsoft Corporation.
+// Licensed under the MIT License.
+
+package com.microsoft.azure.kusto.data;
+
+import com.microsoft.azure.kusto.data.exceptions.CircuitBreakerOpenException;
+import com.microsoft.azure.kusto.data.exceptions.DataServiceException;
+import com.microsoft.azure.kusto.data.exceptions.KustoServiceQueryError;
+import com.microsoft.azure.kusto.data.exceptions.ThrottleException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.lang.invoke.MethodHandles;
+import java.net.URI;
+import java.time.Duration;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.LongSupplier;
+
+/**
+ * Stops sending requests to a cluster that keeps failing, so callers fail fast instead of waiting for the request timeout.
+ * <p>
+ * Every cluster endpoint has its own circuit. While it is {@link State#CLOSED}, the outcomes of the last requests are kept in a sliding
+ * window, and once the window holds the minimum number of requests, a failure rate or a slow-call rate over its threshold opens the circuit.
+ * Failures are the errors that point at the cluster rather than at the request: connection errors, timeouts, throttling and 5xx responses.
+ * While the circuit is {@link State#OPEN}, requests fail at once with a {@link CircuitBreakerOpenException}. After the open duration, the
+ * circuit is {@link State#HALF_OPEN} and lets a few probe requests through: it closes again if they all succeed in time, and opens again
+ * as soon as one of them fails or is slow.
+ * <p>
+ * A request cancelled because the {@link KustoDeadline} of its call passed is a failure, and one cancelled after the slow-call duration is a
+ * slow call, so requests to a cluster that stopped responding count even though they never complete.
+ * <p>
+ * Set it with {@link com.microsoft.azure.kusto.data.http.HttpClientProperties.HttpClientPropertiesBuilder#circuitBreaker}. A circuit breaker
+ * can be shared by the clients of several clusters, and {@link #getState(String)} and the rates can be polled by a metrics system.
+ */
+public final class KustoCircuitBreaker {
+    private static final Logger log = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+
+    public enum State {
+        CLOSED,
+        OPEN,
+        HALF_OPEN
+    }
+
+    private final double failureRateThreshold;
+    private final double slowCallRateThreshold;
+    private final long slowCallDurationNanos;
+    private final int windowSize;
+    private final int minimumCalls;
+    private final long openDurationNanos;
+    private final int halfOpenCalls;
+    private final LongSupplier nanoTime;
+    private final ConcurrentMap<String, Circuit> circuits = new ConcurrentHashMap<>();
+
+    private KustoCircuitBreaker(Builder builder) {
+        Ensure.isTrue(builder.failureRateThreshold > 0 && builder.failureRateThreshold <= 1, "failureRateThreshold must be between 0 and 1");
+        Ensure.isTrue(builder.slowCallRateThreshold > 0 && builder.slowCallRateThreshold <= 1, "slowCallRateThreshold must be between 0 and 1");
+        Ensure.isTrue(builder.windowSize > 0, "windowSize must be positive");
+        Ensure.isTrue(builder.minimumCalls > 0 && builder.minimumCalls <= builder.windowSize, "minimumCalls must be between 1 and windowSize");
+        Ensure.argIsNotNull(builder.openDuration, "openDuration");
+        Ensure.isTrue(builder.halfOpenCalls > 0, "halfOpenCalls must be positive");
+        this.failureRateThreshold = builder.failureRateThreshold;
+        this.slowCallRateThreshold = builder.slowCallRateThreshold;
+        this.slowCallDurationNanos = builder.slowCallDuration == null ? Long.MAX_VALUE : builder.slowCallDuration.toNanos();
+        this.windowSize = builder.windowSize;
+        this.minimumCalls = builder.minimumCalls;
+        this.openDurationNanos = builder.openDuration.toNanos();
+        this.halfOpenCalls = builder.halfOpenCalls;
+        this.nanoTime = builder.nanoTime;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * @param clusterUrl the url of the cluster, or of any of its endpoints
+     * @return the state of the circuit of the cluster. An open circuit whose open duration elapsed is reported as half-open.
+     */
+    public State getState(String clusterUrl) {
+        Circuit circuit = circuits.get(toEndpoint(clusterUrl));
+        return circuit == null ? State.CLOSED : circuit.getState();
+    }
+
+    /**
+     * @return the ratio of failed requests in the window of the cluster, or 0 until it holds the minimum number of requests
+     */
+    public double getFailureRate(String clusterUrl) {
+        Circuit circuit = circuits.get(toEndpoint(clusterUrl));
+        return circuit == null ? 0 : circuit.getFailureRate();
+    }
+
+    /**
+     * @return the ratio of slow requests in the window of the cluster, or 0 until it holds the minimum number of requests
+     */
+    public double getSlowCallRate(String clusterUrl) {
+        Circuit circuit = circuits.get(toEndpoint(clusterUrl));
+        return circuit == null ? 0 : circuit.getSlowCallRate();
+    }
+
+    /**
+     * Subscribes to the request if the circuit of its cluster lets it through, and records its outcome.
+     */
+    <T> Mono<T> protect(String url, Mono<T> request) {
+        return Mono.deferContextual(context -> {
+            String endpoint = toEndpoint(url);
+            Circuit circuit = circuits.computeIfAbsent(endpoint, k -> new Circuit(endpoint));
+            Call call = circuit.tryAcquire();
+            if (call == null) {
+                return Mono.error(circuit.openException());
+            }
+            return request
+                    .doOnSuccess(ignore -> circuit.record(call, null))
+                    .doOnError(e -> circuit.record(call, e))
+                    .doOnCancel(() -> circuit.cancel(call, KustoDeadline.fromContext(context)));
+        });
+    }
+
+    /**
+     * Subscribes to the request if the circuit of its cluster lets it through, and records its outcome, which is known once it emits its
+     * first element or terminates.
+     */
+    <T> Flux<T> protect(String url, Flux<T> request) {
+        return Flux.deferContextual(context -> {
+            String endpoint = toEndpoint(url);
+            Circuit circuit = circuits.computeIfAbsent(endpoint, k -> new Circuit(endpoint));
+            Call call = circuit.tryAcquire();
+            if (call == null) {
+                return Flux.error(circuit.openException());
+            }
+            return request
+                    .doOnNext(ignore -> circuit.record(call, null))
+                    .doOnComplete(() -> circuit.record(call, null))
+                    .doOnError(e -> circuit.record(call, e))
+                    .doOnCancel(() -> circuit.cancel(call, KustoDeadline.fromContext(context)));
+        });
+    }
+
+    // Errors caused by the request itself, like a syntax error or a missing table, say nothing about the health of the cluster
+    static boolean isFailure(Throwable e) {
+        if (e instanceof ThrottleException) {
+            return true;
+        }
+        if (e instanceof DataServiceException) {
+            Integer statusCode = ((DataServiceException) e).getStatusCode();
+            return statusCode == null ? !((DataServiceException) e).isPermanent() : statusCode >= 500;
+        }
+        return !(e instanceof KustoServiceQueryError);
+    }
+
+    private static String toEndpoint(String url) {
+        URI uri = URI.create(url);
+        return (uri.getScheme() + "://" + uri.getRawAuthority()).toLowerCase(Locale.ROOT);
+    }
+
+    private class Circuit {
+        private final String endpoint;
+
+        // Guarded by this
+        private State state = State.CLOSED;
+        // Calls acquired before the last transition aren't recorded
+        private long generation = 0;
+        private long openedAt;
+        private final boolean[] failures = new boolean[windowSize];
+        private final boolean[] slowCalls = new boolean[windowSize];
+        private int callCount = 0;
+        private int next = 0;
+        private int failureCount = 0;
+        private int slowCallCount = 0;
+        private int halfOpenAcquired = 0;
+        private int halfOpenSucceeded = 0;
+
+        Circuit(String endpoint) {
+            this.endpoint = endpoint;
+        }
+
+        synchronized State getState() {
+            return state == State.OPEN && openDurationElapsed() ? State.HALF_OPEN : state;
+        }
+
+        synchronized double getFailureRate() {
+            return callCount < minimumCalls ? 0 : (double) failureCount / callCount;
+        }
+
+        synchronized double getSlowCallRate() {
+            return callCount < minimumCalls ? 0 : (double) slowCallCount / callCount;
+        }
+
+        synchronized Call tryAcquire() {
+            if (state == State.OPEN) {
+                if (!openDurationElapsed()) {
+                    return null;
+                }
+                transition(State.HALF_OPEN);
+            }
+            if (state == State.HALF_OPEN) {
+                if (halfOpenAcquired >= halfOpenCalls) {
+                    return null;
+                }
+                halfOpenAcquired++;
+            }
+            return new Call(generation, nanoTime.getAsLong());
+        }
+
+        void record(Call call, Throwable error) {
+            record(call, error != null && isFailure(error));
+        }
+
+        private void record(Call call, boolean failed) {
+            if (!call.recorded.compareAndSet(false, true)) {
+                return;
+            }
+            boolean slow = nanoTime.getAsLong() - call.startNanos > slowCallDurationNanos;
+            synchronized (this) {
+                if (call.generation != generation) {
+                    return;
+                }
+                if (state == State.HALF_OPEN) {
+                    if (failed || slow) {
+                        open();
+                    } else if (++halfOpenSucceeded >= halfOpenCalls) {
+                        transition(State.CLOSED);
+                    }
+                    return;
+                }
+
+                if (callCount == windowSize) {
+                    failureCount -= failures[next] ? 1 : 0;
+                    slowCallCount -= slowCalls[next] ? 1 : 0;
+                } else {
+                    callCount++;
+                }
+                failures[next] = failed;
+                slowCalls[next] = slow;
+                failureCount += failed ? 1 : 0;
+                slowCallCount += slow ? 1 : 0;
+                next = (next + 1) % windowSize;
+
+                if (callCount >= minimumCalls
+                        && (failureCount >= failureRateThreshold * callCount || slowCallCount >= slowCallRateThreshold * callCount)) {
+                    open();
+                }
+            }
+        }
+
+        // A request cancelled by its deadline timed out, and one cancelled after the slow-call duration was slow. Otherwise, e.g. when it
+        // lost to a hedge or its caller gave up early, it says nothing about the cluster, and a cancelled probe gives its place to another one.
+        void cancel(Call call, KustoDeadline deadline) {
+            if (deadline != null && deadline.isExpired()) {
+                record(call, true);
+                return;
+            }
+            if (nanoTime.getAsLong() - call.startNanos > slowCallDurationNanos) {
+                record(call, false);
+                return;
+            }
+            if (!call.recorded.compareAndSet(false, true)) {
+                return;
+            }
+            synchronized (this) {
+                if (call.generation == generation && state == State.HALF_OPEN) {
+                    halfOpenAcquired--;
+                }
+            }
+        }
+
+        CircuitBreakerOpenException openException() {
+            return new CircuitBreakerOpenException(endpoint, String.format("Requests to '%s' were failing, so the circuit breaker stopped "
+                    + "sending them for %s.", endpoint, Duration.ofNanos(openDurationNanos)));
+        }
+
+        // Guarded by this
+        private boolean openDurationElapsed() {
+            return nanoTime.getAsLong() - openedAt >= openDurationNanos;
+        }
+
+        // Guarded by this
+        private void open() {
+            openedAt = nanoTime.getAsLong();
+            transition(State.OPEN);
+        }
+
+        // Guarded by this
+        private void transition(State newState) {
+            if (newState == State.OPEN) {
+                log.warn("Circuit breaker of '{}' opened, requests fail fast for {}", endpoint, Duration.ofNanos(openDurationNanos));
+            } else {
+                log.info("Circuit breaker of '{}' is {}", endpoint, newState);
+            }
+            state = newState;
+            generation++;
+            halfOpenAcquired = 0;
+            halfOpenSucceeded = 0;
+            if (newState == State.CLOSED) {
+                callCount = 0;
+                next = 0;
+                failureCount = 0;
+                slowCallCount = 0;
+            }
+        }
+    }
+
+    private static class Call {
+        private final long generation;
+        private final long startNanos;
+        private final AtomicBoolean recorded = new AtomicBoolean();
+
+        Call(long generation, long startNanos) {
+            this.generation = generation;
+            this.startNanos = startNanos;
+        }
+    }
+
+    public static class Builder {
+        private double failureRateThreshold = 0.5;
+        private double slowCallRateThreshold = 1;
+        private Duration slowCallDuration = null;
+        private int windowSize = 100;
+        private int minimumCalls = 20;
+        private Duration openDuration = Duration.ofSeconds(30);
+        private int halfOpenCalls = 5;
+        private LongSupplier nanoTime = System::nanoTime;
+
+        private Builder() {
+        }
+
+        /**
+         * Sets the ratio of failed requests in the window that opens the circuit. Defaults to 0.5.
+         *
+         * @param failureRateThreshold a ratio between 0 and 1
+         * @return the builder instance
+         */
+        public Builder failureRateThreshold(double failureRateThreshold) {
+            this.failureRateThreshold = failureRateThreshold;
+            return this;
+        }
+
+        /**
+         * Sets which requests are slow, and the ratio of slow requests in the window that opens the circuit. By default, slow requests don't
+         * open it.
+         *
+         * @param slowCallDuration the duration above which a request is slow
+         * @param slowCallRateThreshold a ratio between 0 and 1
+         * @return the builder instance
+         */
+        public Builder slowCalls(Duration slowCallDuration, double slowCallRateThreshold) {
+            this.slowCallDuration = slowCallDuration;
+            this.slowCallRateThreshold = slowCallRateThreshold;
+            return this;
+        }
+
+        /**
+         * Sets the number of recent requests the rates are computed from, and how many of them are needed before the circuit can open.
+         * Defaults to 100 and 20.
+         *
+         * @param windowSize the number of requests in the sliding window
+         * @param minimumCalls the minimum number of requests in the window
+         * @return the builder instance
+         */
+        public Builder window(int windowSize, int minimumCalls) {
+            this.windowSize = windowSize;
+            this.minimumCalls = minimumCalls;
+            return this;
+        }
+
+        /**
+         * Sets how long an open circuit rejects requests before it lets probes through. Defaults to 30 seconds.
+         *
+         * @param openDuration the open duration
+         * @return the builder instance
+         */
+        public Builder openDuration(Duration openDuration) {
+            this.openDuration = openDuration;
+            return this;
+        }
+
+        /**
+         * Sets the number of probe requests a half-open circuit lets through, which must all succeed to close it. Defaults to 5.
+         *
+         * @param halfOpenCalls the number of probe requests
+         * @return the builder instance
+         */
+        public Builder halfOpenCalls(int halfOpenCalls) {
+            this.halfOpenCalls = halfOpenCalls;
+            return this;
+        }
+
+        Builder nanoTime(LongSupplier nanoTime) {
+            this.nanoTime = nanoTime;
+            return this;
+        }
+
+        public KustoCircuitBreaker build() {
+            return new KustoCircuitBreaker(this);
+        }
+    }
+}
@@ -0,0 +1,73 @@
+// Copyright (c) Microsoft Corporation.
+// Licensed under the MIT License.
+
+package com.microsoft.azure.kusto.data;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * The columns of the primary results to keep when a query response is parsed, by name or by ordinal.
+ * <p>
+ * The values of the other columns are skipped by the parser without being decoded, which saves most of the parsing time and memory of wide
+ * results when only a few columns are needed and the query can't be changed to project them, e.g. when calling a stored function. Kept columns
+ * keep the order they have in the response and are renumbered from 0. Names and ordinals that aren't in a table are ignored.
+ * <p>
+ * Set it with {@link ClientRequestProperties#setColumnSelection(KustoColumnSelection)}. It only affects the client, the service still sends all
+ * the columns, and it applies to the primary result tables only.
+ */
+public final class KustoColumnSelection implements Serializable {
+    private final Set<String> names;
+    private final Set<Integer> ordinals;
+
+    private KustoColumnSelection(Set<String> names, Set<Integer> ordinals) {
+        this.names = names;
+        this.ordinals = ordinals;
+    }
+
+    public static KustoColumnSelection ofNames(String... names) {
+        Ensure.argIsNotNull(names, "names");
+        return new KustoColumnSelection(new HashSet<>(Arrays.asList(names)), Collections.emptySet());
+    }
+
+    public static KustoColumnSelection ofOrdinals(int... ordinals) {
+        Ensure.argIsNotNull(ordinals, "ordinals");
+        Set<Integer> ordinalSet = new HashSet<>();
+        for (int ordinal : ordinals) {
+            ordinalSet.add(ordinal);
+        }
+        return new KustoColumnSelection(Collections.emptySet(), ordinalSet);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof KustoColumnSelection)) {
+            return false;
+        }
+        KustoColumnSelection that = (KustoColumnSelection) o;
+        return names.equals(that.names) && ordinals.equals(that.ordinals);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(names, ordinals);
+    }
+
+    /**
+     * @return for each column of the table, whether its values are skipped
+     */
+    boolean[] skippedColumns(KustoResultColumn[] columns) {
+        boolean[] skipped = new boolean[columns.length];
+        for (int i = 0; i < columns.length; i++) {
+            skipped[i] = !ordinals.contains(i) && !names.contains(columns[i].getColumnName());
+        }
+        return skipped;
+    }
+}
@@ -0,0 +1,1142 @@
+// Copyright (c) Microsoft Corporation.
+// Licensed under the MIT License.
+
+package com.microsoft.azure.kusto.data;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.PooledByteBufAllocator;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+
+/**
+ * The rows of a result table, stored column by column.
+ * <p>
+ * Columns whose declared type has a primitive representation (bool, int, long and real) are kept in primitive arrays with a null bitmap, and text columns in string arrays,
+ * so a cell costs its value and nothing more. String columns are dictionary-encoded while their values repeat: each distinct value is kept once
+ * and the rows hold its code. A row is a lightweight view over the columns that boxes cells only when they are accessed as objects;
+ * the typed getters of {@link KustoResultSetTable} read the primitives directly. A column that receives a value that doesn't fit its declared type
+ * falls back to storing objects, so the values returned are always the ones that were parsed.
+ * <p>
+ * Off-heap tables append the cells of their bool, int, long, real and text columns to pooled direct buffers as the rows are parsed: a null
+ * bitmap and the fixed-width values, or the value offsets and the UTF-8 bytes for text. These buffers are only released by {@link #close()}.
+ */
+class KustoColumnarRows extends AbstractList<List<Object>> implements RandomAccess {
+    private static final int INITIAL_CAPACITY = 16;
+
+    private final Column[] columns;
+    private final int size;
+    private boolean closed = false;
+
+    private KustoColumnarRows(Column[] columns, int size) {
+        this.columns = columns;
+        this.size = size;
+    }
+
+    @Override
+    public List<Object> get(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+        return new Row(index);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return the distinct values of a dictionary-encoded column, indexed by their codes, or null if the column isn't dictionary-encoded
+     */
+    List<String> getStringDictionary(int columnIndex) {
+        return columns[columnIndex].dictionary();
+    }
+
+    /**
+     * @return whether some of the columns are held in off-heap buffers
+     */
+    boolean isOffHeap() {
+        for (Column column : columns) {
+            if (column instanceof OffHeapColumn) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Releases the off-heap buffers of the columns. Rows read afterwards fail, except for the columns that are kept on the heap.
+     */
+    synchronized void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        for (Column column : columns) {
+            column.release();
+        }
+    }
+
+    /**
+     * A single row, read from the columns of the table.
+     */
+    class Row extends AbstractList<Object> implements RandomAccess {
+        private final int index;
+
+        private Row(int index) {
+            this.index = index;
+        }
+
+        @Override
+        public Object get(int columnIndex) {
+            return columns[columnIndex].get(index);
+        }
+
+        @Override
+        public int size() {
+            return columns.length;
+        }
+
+        boolean isNull(int columnIndex) {
+            return columns[columnIndex].isNull(index);
+        }
+
+        boolean getBoolean(int columnIndex) {
+            return columns[columnIndex].getBoolean(index);
+        }
+
+        int getInt(int columnIndex) {
+            return columns[columnIndex].getInt(index);
+        }
+
+        long getLong(int columnIndex) {
+            return columns[columnIndex].getLong(index);
+        }
+
+        short getShort(int columnIndex) {
+            return columns[columnIndex].getShort(index);
+        }
+
+        byte getByte(int columnIndex) {
+            return columns[columnIndex].getByte(index);
+        }
+
+        float getFloat(int columnIndex) {
+            return columns[columnIndex].getFloat(index);
+        }
+
+        double getDouble(int columnIndex) {
+            return columns[columnIndex].getDouble(index);
+        }
+
+        int getStringCode(int columnIndex) {
+            return columns[columnIndex].getStringCode(index);
+        }
+    }
+
+    /**
+     * Collects rows as they are parsed. Tables without columns, or whose rows don't match their columns, are kept as plain row lists. With
+     * {@link KustoSpillOptions}, the rows move to a {@link KustoSpilledRows} file once their estimated heap size passes the threshold. The
+     * columns of off-heap tables are appended to direct buffers as the rows arrive, and the builder releases them if they aren't built.
+     */
+    static class Builder {
+        // Rough heap sizes, only used to decide when to spill
+        private static final int REFERENCE_SIZE = 8;
+        private static final int STRING_OVERHEAD = 40;
+        private static final int OBJECT_OVERHEAD = 16;
+        private static final int BIG_DECIMAL_SIZE = 40;
+        private static final int TREE_SIZE = 64;
+
+        private Column[] columns;
+        private int size = 0;
+        private List<List<Object>> rows = null;
+        private final KustoSpillOptions spillOptions;
+        private long estimatedBytes = 0;
+        private KustoSpilledRows.Writer spilled = null;
+
+        Builder(KustoResultColumn[] columnMetadata) {
+            this(columnMetadata, null, false);
+        }
+
+        Builder(KustoResultColumn[] columnMetadata, KustoSpillOptions spillOptions, boolean offHeap) {
+            this.spillOptions = spillOptions;
+            if (columnMetadata == null) {
+                rows = new ArrayList<>();
+                return;
+            }
+
+            columns = new Column[columnMetadata.length];
+            try {
+                for (int i = 0; i < columnMetadata.length; i++) {
+                    columns[i] = createColumn(columnMetadata[i].getColumnType(), offHeap);
+                }
+            } catch (RuntimeException | Error e) {
+                releaseColumns();
+                throw e;
+            }
+        }
+
+        void add(List<Object> row) {
+            if (spilled != null) {
+                spilled.add(row);
+                return;
+            }
+            if (spillOptions != null) {
+                for (Object value : row) {
+                    estimatedBytes += estimateSize(value);
+                }
+                if (estimatedBytes > spillOptions.getThresholdBytes()) {
+                    spill();
+                    spilled.add(row);
+                    return;
+                }
+            }
+
+            if (rows == null && row.size() != columns.length) {
+                // Fall back to rows as they are exposed to the caller, with dynamic values decoded
+                rows = new ArrayList<>(Math.max(size * 2, INITIAL_CAPACITY));
+                for (List<Object> columnarRow : new KustoColumnarRows(columns, size)) {
+                    rows.add(new ArrayList<>(columnarRow));
+                }
+                releaseColumns();
+            }
+            if (rows != null) {
+                row.replaceAll(KustoDynamicValue::resolve);
+                rows.add(row);
+                return;
+            }
+
+            for (int i = 0; i < columns.length; i++) {
+                Object value = row.get(i);
+                if (!columns[i].add(size, value)) {
+                    widen(i, value);
+                }
+            }
+            size++;
+        }
+
+        /**
+         * Adds the row being parsed, storing its primitive cells without boxing them. The buffer can be reused once this returns.
+         */
+        void add(KustoRowBuffer row) {
+            if (spilled != null) {
+                spilled.add(row.asList());
+                return;
+            }
+            if (rows != null || row.size() != columns.length) {
+                add(row.toList());
+                return;
+            }
+            if (spillOptions != null) {
+                for (int i = 0; i < row.size(); i++) {
+                    estimatedBytes += estimateSize(row, i);
+                }
+                if (estimatedBytes > spillOptions.getThresholdBytes()) {
+                    spill();
+                    spilled.add(row.asList());
+                    return;
+                }
+            }
+
+            for (int i = 0; i < columns.length; i++) {
+                if (!addCell(columns[i], row, i)) {
+                    widen(i, row.get(i));
+                }
+            }
+            size++;
+        }
+
+        private void widen(int index, Object value) {
+            Column widened = columns[index].widen(size, value);
+            columns[index].release();
+            columns[index] = widened;
+            widened.add(size, value);
+        }
+
+        private boolean addCell(Column column, KustoRowBuffer row, int index) {
+            switch (row.kind(index)) {
+                case BOOLEAN:
+                    return column.addBoolean(size, row.getBoolean(index));
+                case INT:
+                    return column.addInt(size, row.getInt(index));
+                case LONG:
+                    return column.addLong(size, row.getLong(index));
+                case DOUBLE:
+                    return column.addDouble(size, row.getDouble(index));
+                default:
+                    return column.add(size, row.get(index));
+            }
+        }
+
+        List<List<Object>> build() {
+            if (spilled != null) {
+                return spilled.finish();
+            }
+            if (rows != null) {
+                return rows;
+            }
+            for (Column column : columns) {
+                column.seal();
+            }
+            return new KustoColumnarRows(columns, size);
+        }
+
+        /**
+         * Drops the rows added so far, and deletes the file they were spilled to, if any.
+         */
+        void discard() {
+            if (spilled != null) {
+                spilled.discard();
+                spilled = null;
+            }
+            rows = null;
+            releaseColumns();
+        }
+
+        private void releaseColumns() {
+            if (columns != null) {
+                for (Column column : columns) {
+                    if (column != null) {
+                        column.release();
+                    }
+                }
+                columns = null;
+            }
+        }
+
+        private void spill() {
+            List<List<Object>> heapRows = rows != null ? rows : new KustoColumnarRows(columns, size);
+            spilled = new KustoSpilledRows.Writer(spillOptions);
+            for (List<Object> row : heapRows) {
+                spilled.add(row);
+            }
+            rows = null;
+            releaseColumns();
+        }
+
+        private static long estimateSize(Object value) {
+            if (value == null || value instanceof Boolean) {
+                return REFERENCE_SIZE;
+            }
+            if (value instanceof String) {
+                return REFERENCE_SIZE + STRING_OVERHEAD + 2L * ((String) value).length();
+            }
+            if (value instanceof Integer) {
+                return REFERENCE_SIZE + 4;
+            }
+            if (value instanceof Long || value instanceof Double) {
+                return REFERENCE_SIZE + 8;
+            }
+            if (value instanceof KustoDynamicValue) {
+                return REFERENCE_SIZE + OBJECT_OVERHEAD + ((KustoDynamicValue) value).bytes().length;
+            }
+            if (value instanceof BigDecimal) {
+                return REFERENCE_SIZE + BIG_DECIMAL_SIZE;
+            }
+            return REFERENCE_SIZE + TREE_SIZE;
+        }
+
+        private static long estimateSize(KustoRowBuffer row, int index) {
+            switch (row.kind(index)) {
+                case INT:
+                    return REFERENCE_SIZE + 4;
+                case LONG:
+                case DOUBLE:
+                    return REFERENCE_SIZE + 8;
+                case OBJECT:
+                    return estimateSize(row.get(index));
+                default:
+                    return REFERENCE_SIZE;
+            }
+        }
+
+        private static Column createColumn(String columnType, boolean offHeap) {
+            switch (columnType) {
+                case "bool":
+                case "boolean":
+                    return offHeap ? new OffHeapBooleanColumn() : new BooleanColumn();
+                case "int":
+                    return offHeap ? new OffHeapIntColumn() : new IntColumn();
+                case "long":
+                    return offHeap ? new OffHeapLongColumn() : new LongColumn();
+                case "real":
+                    return offHeap ? new OffHeapDoubleColumn() : new DoubleColumn();
+                case "string":
+                    return offHeap ? new OffHeapDictionaryStringColumn() : new DictionaryStringColumn();
+                case "guid":
+                case "datetime":
+                case "timespan":
+                    return offHeap ? new OffHeapStringColumn() : new StringColumn();
+                default:
+                    return new ObjectColumn();
+            }
+        }
+    }
+
+    /**
+     * The typed getters default to converting the boxed value the same way {@link KustoResultSetTable} converts the cells of a row list.
+     */
+    private abstract static class Column {
+        /**
+         * Stores the value of the given row.
+         *
+         * @return false if the value doesn't fit this column, in which case nothing was stored
+         */
+        abstract boolean add(int row, Object value);
+
+        abstract Object get(int row);
+
+        /**
+         * The typed adders store a cell that was parsed as a primitive, boxing it unless the column keeps primitives of that type.
+         */
+        boolean addBoolean(int row, boolean value) {
+            return add(row, value);
+        }
+
+        boolean addInt(int row, int value) {
+            return add(row, value);
+        }
+
+        boolean addLong(int row, long value) {
+            return add(row, value);
+        }
+
+        boolean addDouble(int row, double value) {
+            return add(row, value);
+        }
+
+        /**
+         * @return a copy of the first rows of this column that can store the given value, which this column rejected
+         */
+        Column widen(int rows, Object value) {
+            return ObjectColumn.copyOf(this, rows);
+        }
+
+        /**
+         * Called when the table is built, to drop what is only needed while rows are added.
+         */
+        void seal() {
+        }
+
+        void release() {
+        }
+
+        List<String> dictionary() {
+            return null;
+        }
+
+        int getStringCode(int row) {
+            throw new IllegalStateException("Column isn't dictionary-encoded");
+        }
+
+        boolean isNull(int row) {
+            return get(row) == null;
+        }
+
+        boolean getBoolean(int row) {
+            return (boolean) get(row);
+        }
+
+        int getInt(int row) {
+            return (int) KustoResultSetTable.toIntegerObject(get(row));
+        }
+
+        long getLong(int row) {
+            return (long) KustoResultSetTable.toLongObject(get(row));
+        }
+
+        short getShort(int row) {
+            return (short) KustoResultSetTable.toShortObject(get(row));
+        }
+
+        byte getByte(int row) {
+            return KustoResultSetTable.toByte(get(row));
+        }
+
+        float getFloat(int row) {
+            return (float) KustoResultSetTable.toFloatObject(get(row));
+        }
+
+        double getDouble(int row) {
+            return (double) KustoResultSetTable.toDoubleObject(get(row));
+        }
+    }
+
+    /**
+     * A column whose values are kept in a primitive array, with the nulls in a bitmap.
+     */
+    private abstract static class PrimitiveColumn extends Column {
+        final BitSet nulls = new BitSet();
+
+        @Override
+        boolean isNull(int row) {
+            return nulls.get(row);
+        }
+
+        void checkNotNull(int row) {
+            if (nulls.get(row)) {
+                throw new NullPointerException("Value of row " + row + " is null");
+            }
+        }
+    }
+
+    private static class BooleanColumn extends PrimitiveColumn {
+        private final BitSet values = new BitSet();
+
+        @Override
+        boolean add(int row, Object value) {
+            if (value == null) {
+                nulls.set(row);
+                return true;
+            }
+            return value instanceof Boolean && addBoolean(row, (Boolean) value);
+        }
+
+        @Override
+        boolean addBoolean(int row, boolean value) {
+            values.set(row, value);
+            return true;
+        }
+
+        @Override
+        Object get(int row) {
+            return nulls.get(row) ? null : values.get(row);
+        }
+
+        @Override
+        boolean getBoolean(int row) {
+            checkNotNull(row);
+            return values.get(row);
+        }
+    }
+
+    private static class IntColumn extends PrimitiveColumn {
+        private int[] values = new int[INITIAL_CAPACITY];
+
+        @Override
+        boolean add(int row, Object value) {
+            if (value == null) {
+                nulls.set(row);
+                return addInt(row, 0);
+            }
+            return value instanceof Integer && addInt(row, (Integer) value);
+        }
+
+        @Override
+        boolean addInt(int row, int value) {
+            if (row == values.length) {
+                values = Arrays.copyOf(values, values.length * 2);
+            }
+            values[row] = value;
+            return true;
+        }
+
+        @Override
+        Object get(int row) {
+            return nulls.get(row) ? null : values[row];
+        }
+
+        @Override
+        int getInt(int row) {
+            checkNotNull(row);
+            return values[row];
+        }
+
+        @Override
+        long getLong(int row) {
+            checkNotNull(row);
+            return values[row];
+        }
+
+        @Override
+        short getShort(int row) {
+            checkNotNull(row);
+            return (short) values[row];
+        }
+
+        @Override
+        byte getByte(int row) {
+            checkNotNull(row);
+            return (byte) values[row];
+        }
+    }
+
+    private static class LongColumn extends PrimitiveColumn {
+        private long[] values = new long[INITIAL_CAPACITY];
+
+        @Override
+        boolean add(int row, Object value) {
+            if (value == null) {
+                nulls.set(row);
+                return addLong(row, 0);
+            }
+            return value instanceof Long && addLong(row, (Long) value);
+        }
+
+        @Override
+        boolean addLong(int row, long value) {
+            if (row == values.length) {
+                values = Arrays.copyOf(values, values.length * 2);
+            }
+            values[row] = value;
+            return true;
+        }
+
+        @Override
+        Object get(int row) {
+            return nulls.get(row) ? null : values[row];
+        }
+
+        @Override
+        long getLong(int row) {
+            checkNotNull(row);
+            return values[row];
+        }
+    }
+
+    private static class DoubleColumn extends PrimitiveColumn {
+        private double[] values = new double[INITIAL_CAPACITY];
+
+        @Override
+        boolean add(int row, Object value) {
+            if (value == null) {
+                nulls.set(row);
+                return addDouble(row, 0);
+            }
+            return value instanceof Double && addDouble(row, (Double) value);
+        }
+
+        @Override
+        boolean addDouble(int row, double value) {
+            if (row == values.length) {
+                values = Arrays.copyOf(values, values.length * 2);
+            }
+            values[row] = value;
+            return true;
+        }
+
+        @Override
+        Object get(int row) {
+            return nulls.get(row) ? null : values[row];
+        }
+
+        @Override
+        float getFloat(int row) {
+            checkNotNull(row);
+            return (float) values[row];
+        }
+
+        @Override
+        double getDouble(int row) {
+            checkNotNull(row);
+            return values[row];
+        }
+    }
+
+    private static class StringColumn extends Column {
+        private String[] values = new String[INITIAL_CAPACITY];
+
+        static StringColumn copyOf(Column column, int rows) {
+            StringColumn copy = new StringColumn();
+            for (int row = 0; row < rows; row++) {
+                copy.add(row, column.get(row));
+            }
+            return copy;
+        }
+
+        @Override
+        boolean add(int row, Object value) {
+            if (value != null && !(value instanceof String)) {
+                return false;
+            }
+            if (row == values.length) {
+                values = Arrays.copyOf(values, values.length * 2);
+            }
+            values[row] = (String) value;
+            return true;
+        }
+
+        @Override
+        Object get(int row) {
+            return values[row];
+        }
+    }
+
+    /**
+     * The distinct values of a dictionary-encoded column, indexed by their codes. The lookup of the codes by value is only kept while rows are
+     * added.
+     */
+    private static class StringDictionary {
+        private static final int MAX_SIZE = 1 << 16;
+        // Past this many rows, a column is widened once more than half of its values are distinct
+        private static final int SAMPLE_ROWS = 1024;
+
+        private final List<String> values = new ArrayList<>();
+        private Map<String, Integer> codesByValue = new HashMap<>();
+
+        /**
+         * @return the code of the value of the given row, which is added to the dictionary if it's new, or -1 if the column should be widened
+         */
+        int encode(int row, String value) {
+            if (codesByValue == null) {
+                // Sealed, but a builder that built an empty table goes on adding rows
+                codesByValue = new HashMap<>();
+                for (int code = 0; code < values.size(); code++) {
+                    codesByValue.put(values.get(code), code);
+                }
+            }
+            Integer code = codesByValue.get(value);
+            if (code == null) {
+                if (values.size() == MAX_SIZE || (row >= SAMPLE_ROWS && values.size() * 2 > row)) {
+                    return -1;
+                }
+                code = values.size();
+                values.add(value);
+                codesByValue.put(value, code);
+            }
+            return code;
+        }
+
+        String get(int code) {
+            return code == -1 ? null : values.get(code);
+        }
+
+        List<String> values() {
+            return Collections.unmodifiableList(values);
+        }
+
+        void seal() {
+            codesByValue = null;
+        }
+    }
+
+    /**
+     * Keeps each distinct value once, with the code of its value for every row, or -1 for null. Columns whose values mostly differ gain
+     * nothing from it and are widened to a {@link StringColumn}.
+     */
+    private static class DictionaryStringColumn extends Column {
+        private int[] codes = new int[INITIAL_CAPACITY];
+        private final StringDictionary dictionary = new StringDictionary();
+
+        @Override
+        boolean add(int row, Object value) {
+            if (value != null && !(value instanceof String)) {
+                return false;
+            }
+            int code = -1;
+            if (value != null) {
+                code = dictionary.encode(row, (String) value);
+                if (code == -1) {
+                    return false;
+                }
+            }
+            if (row == codes.length) {
+                codes = Arrays.copyOf(codes, codes.length * 2);
+            }
+            codes[row] = code;
+            return true;
+        }
+
+        @Override
+        Column widen(int rows, Object value) {
+            return value instanceof String ? StringColumn.copyOf(this, rows) : ObjectColumn.copyOf(this, rows);
+        }
+
+        @Override
+        void seal() {
+            dictionary.seal();
+        }
+
+        @Override
+        Object get(int row) {
+            return dictionary.get(codes[row]);
+        }
+
+        @Override
+        boolean isNull(int row) {
+            return codes[row] == -1;
+        }
+
+        @Override
+        List<String> dictionary() {
+            return dictionary.values();
+        }
+
+        @Override
+        int getStringCode(int row) {
+            return codes[row];
+        }
+    }
+
+    private static class ObjectColumn extends Column {
+        private Object[] values = new Object[INITIAL_CAPACITY];
+
+        static ObjectColumn copyOf(Column column, int rows) {
+            ObjectColumn copy = new ObjectColumn();
+            for (int row = 0; row < rows; row++) {
+                copy.add(row, column.get(row));
+            }
+            return copy;
+        }
+
+        @Override
+        boolean add(int row, Object value) {
+            if (row == values.length) {
+                values = Arrays.copyOf(values, values.length * 2);
+            }
+            values[row] = value;
+            return true;
+        }
+
+        @Override
+        Object get(int row) {
+            return KustoDynamicValue.resolve(values[row]);
+        }
+
+        @Override
+        boolean isNull(int row) {
+            return values[row] == null;
+        }
+    }
+
+    /**
+     * A column whose values are appended to pooled direct buffers as rows are added, after a null bitmap in a buffer of its own. The buffers
+     * grow as needed and are only released by {@link #release()}.
+     */
+    private abstract static class OffHeapColumn extends Column {
+        private final ByteBuf nulls;
+        final ByteBuf values;
+
+        OffHeapColumn() {
+            nulls = allocate();
+            try {
+                values = allocate();
+            } catch (RuntimeException | Error e) {
+                nulls.release();
+                throw e;
+            }
+        }
+
+        static ByteBuf allocate() {
+            return PooledByteBufAllocator.DEFAULT.directBuffer(INITIAL_CAPACITY);
+        }
+
+        /**
+         * Sets a bit of a bitmap that grows a byte at a time, as its bits are set in order.
+         */
+        static void appendBit(ByteBuf bitmap, int index, boolean bit) {
+            int byteIndex = index >>> 3;
+            if (byteIndex == bitmap.writerIndex()) {
+                bitmap.writeByte(0);
+            }
+            if (bit) {
+                bitmap.setByte(byteIndex, bitmap.getByte(byteIndex) | (1 << (index & 7)));
+            }
+        }
+
+        static boolean getBit(ByteBuf bitmap, int index) {
+            return (bitmap.getByte(index >>> 3) & (1 << (index & 7))) != 0;
+        }
+
+        /**
+         * Marks the given row as null or not, before its value is appended.
+         */
+        void appendNull(int row, boolean isNull) {
+            appendBit(nulls, row, isNull);
+        }
+
+        @Override
+        void release() {
+            nulls.release();
+            values.release();
+        }
+
+        @Override
+        boolean isNull(int row) {
+            return getBit(nulls, row);
+        }
+
+        void checkNotNull(int row) {
+            if (isNull(row)) {
+                throw new NullPointerException("Value of row " + row + " is null");
+            }
+        }
+    }
+
+    private static class OffHeapBooleanColumn extends OffHeapColumn {
+        @Override
+        boolean add(int row, Object value) {
+            if (value == null) {
+                appendNull(row, true);
+                appendBit(values, row, false);
+                return true;
+            }
+            return value instanceof Boolean && addBoolean(row, (Boolean) value);
+        }
+
+        @Override
+        boolean addBoolean(int row, boolean value) {
+            appendNull(row, false);
+            appendBit(values, row, value);
+            return true;
+        }
+
+        @Override
+        Object get(int row) {
+            return isNull(row) ? null : getBit(values, row);
+        }
+
+        @Override
+        boolean getBoolean(int row) {
+            checkNotNull(row);
+            return getBit(values, row);
+        }
+    }
+
+    private static class OffHeapIntColumn extends OffHeapColumn {
+        @Override
+        boolean add(int row, Object value) {
+            if (value == null) {
+                appendNull(row, true);
+                values.writeInt(0);
+                return true;
+            }
+            return value instanceof Integer && addInt(row, (Integer) value);
+        }
+
+        @Override
+        boolean addInt(int row, int value) {
+            appendNull(row, false);
+            values.writeInt(value);
+            return true;
+        }
+
+        private int value(int row) {
+            return values.getInt(row * Integer.BYTES);
+        }
+
+        @Override
+        Object get(int row) {
+            return isNull(row) ? null : value(row);
+        }
+
+        @Override
+        int getInt(int row) {
+            checkNotNull(row);
+            return value(row);
+        }
+
+        @Override
+        long getLong(int row) {
+            checkNotNull(row);
+            return value(row);
+        }
+
+        @Override
+        short getShort(int row) {
+            checkNotNull(row);
+            return (short) value(row);
+        }
+
+        @Override
+        byte getByte(int row) {
+            checkNotNull(row);
+            return (byte) value(row);
+        }
+    }
+
+    private static class OffHeapLongColumn extends OffHeapColumn {
+        @Override
+        boolean add(int row, Object value) {
+            if (value == null) {
+                appendNull(row, true);
+                values.writeLong(0);
+                return true;
+            }
+            return value instanceof Long && addLong(row, (Long) value);
+        }
+
+        @Override
+        boolean addLong(int row, long value) {
+            appendNull(row, false);
+            values.writeLong(value);
+            return true;
+        }
+
+        private long value(int row) {
+            return values.getLong(row * Long.BYTES);
+        }
+
+        @Override
+        Object get(int row) {
+            return isNull(row) ? null : value(row);
+        }
+
+        @Override
+        long getLong(int row) {
+            checkNotNull(row);
+            return value(row);
+        }
+    }
+
+    private static class OffHeapDoubleColumn extends OffHeapColumn {
+        @Override
+        boolean add(int row, Object value) {
+            if (value == null) {
+                appendNull(row, true);
+                values.writeDouble(0);
+                return true;
+            }
+            return value instanceof Double && addDouble(row, (Double) value);
+        }
+
+        @Override
+        boolean addDouble(int row, double value) {
+            appendNull(row, false);
+            values.writeDouble(value);
+            return true;
+        }
+
+        private double value(int row) {
+            return values.getDouble(row * Double.BYTES);
+        }
+
+        @Override
+        Object get(int row) {
+            return isNull(row) ? null : value(row);
+        }
+
+        @Override
+        float getFloat(int row) {
+            checkNotNull(row);
+            return (float) value(row);
+        }
+
+        @Override
+        double getDouble(int row) {
+            checkNotNull(row);
+            return value(row);
+        }
+    }
+
+    /**
+     * The values buffer holds the offset of the end of each value, and the UTF-8 bytes of the values are appended to a third buffer.
+     */
+    private static class OffHeapStringColumn extends OffHeapColumn {
+        private final ByteBuf bytes;
+
+        OffHeapStringColumn() {
+            try {
+                bytes = allocate();
+            } catch (RuntimeException | Error e) {
+                super.release();
+                throw e;
+            }
+        }
+
+        static OffHeapStringColumn copyOf(Column column, int rows) {
+            OffHeapStringColumn copy = new OffHeapStringColumn();
+            try {
+                for (int row = 0; row < rows; row++) {
+                    copy.add(row, column.get(row));
+                }
+            } catch (RuntimeException | Error e) {
+                copy.release();
+                throw e;
+            }
+            return copy;
+        }
+
+        @Override
+        boolean add(int row, Object value) {
+            if (value != null && !(value instanceof String)) {
+                return false;
+            }
+            appendNull(row, value == null);
+            if (value != null) {
+                bytes.writeCharSequence((String) value, StandardCharsets.UTF_8);
+            }
+            values.writeInt(bytes.writerIndex());
+            return true;
+        }
+
+        @Override
+        Object get(int row) {
+            if (isNull(row)) {
+                return null;
+            }
+            int start = row == 0 ? 0 : values.getInt((row - 1) * Integer.BYTES);
+            int end = values.getInt(row * Integer.BYTES);
+            return bytes.toString(start, end - start, StandardCharsets.UTF_8);
+        }
+
+        @Override
+        void release() {
+            super.release();
+            bytes.release();
+        }
+    }
+
+    /**
+     * The values buffer holds the codes of the rows, with -1 for null, so the null bitmap is left empty. The dictionary stays on the heap.
+     */
+    private static class OffHeapDictionaryStringColumn extends OffHeapColumn {
+        private final StringDictionary dictionary = new StringDictionary();
+
+        @Override
+        boolean add(int row, Object value) {
+            if (value != null && !(value instanceof String)) {
+                return false;
+            }
+            int code = -1;
+            if (value != null) {
+                code = dictionary.encode(row, (String) value);
+                if (code == -1) {
+                    return false;
+                }
+            }
+            values.writeInt(code);
+            return true;
+        }
+
+        @Override
+        Column widen(int rows, Object value) {
+            return value instanceof String ? OffHeapStringColumn.copyOf(this, rows) : ObjectColumn.copyOf(this, rows);
+        }
+
+        @Override
+        void seal() {
+            dictionary.seal();
+        }
+
+        @Override
+        Object get(int row) {
+            return dictionary.get(getStringCode(row));
+        }
+
+        @Override
+        boolean isNull(int row) {
+            return getStringCode(row) == -1;
+        }
+
+        @Override
+        List<String> dictionary() {
+            return dictionary.values();
+        }
+
+        @Override
+        int getStringCode(int row) {
+            return values.getInt(row * Integer.BYTES);
+        }
+    }
+}
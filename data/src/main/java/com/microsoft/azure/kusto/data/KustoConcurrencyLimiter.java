@@ -0,0 +1,323 @@
+// Copyright (c) Microsoft Corporation.
+// Licensed under the MIT License.
+
+package com.microsoft.azure.kusto.data;
+
+import com.microsoft.azure.kusto.data.exceptions.ThrottleException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoSink;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.LongSupplier;
+
+/**
+ * Limits the number of requests a client sends at once to a cluster, adapting the limit to what the cluster can take.
+ * <p>
+ * Every cluster and {@link CommandType} has its own limit, which follows the additive-increase/multiplicative-decrease rule: each request
+ * that succeeds while the limit is being used raises it by 1/limit, so by about one per round of requests, and a request that is throttled
+ * by the service (HTTP 429) or that takes longer than the latency threshold multiplies it by the backoff ratio. Only one decrease is applied
+ * for the requests that were sent under the same limit, so a burst of throttled requests backs off once. Requests over the limit wait in a
+ * queue, and fail with a {@link ThrottleException} if they waited longer than the maximum queue wait.
+ * <p>
+ * Set it with {@link com.microsoft.azure.kusto.data.http.HttpClientProperties.HttpClientPropertiesBuilder#concurrencyLimiter}. A limiter
+ * can be shared by the clients of several clusters. {@link #getLimit(String, CommandType)} and the other getters can be polled as gauges by a
+ * metrics system.
+ */
+public final class KustoConcurrencyLimiter {
+    private final int initialLimit;
+    private final int minLimit;
+    private final int maxLimit;
+    private final double backoffRatio;
+    private final long latencyThresholdNanos;
+    private final Duration maxQueueWait;
+    private final LongSupplier nanoTime;
+    private final ConcurrentMap<Key, Limit> limits = new ConcurrentHashMap<>();
+
+    private KustoConcurrencyLimiter(Builder builder) {
+        Ensure.isTrue(builder.minLimit > 0, "minLimit must be positive");
+        Ensure.isTrue(builder.minLimit <= builder.initialLimit && builder.initialLimit <= builder.maxLimit,
+                "initialLimit must be between minLimit and maxLimit");
+        Ensure.isTrue(builder.backoffRatio > 0 && builder.backoffRatio < 1, "backoffRatio must be between 0 and 1");
+        this.initialLimit = builder.initialLimit;
+        this.minLimit = builder.minLimit;
+        this.maxLimit = builder.maxLimit;
+        this.backoffRatio = builder.backoffRatio;
+        this.latencyThresholdNanos = builder.latencyThreshold == null ? Long.MAX_VALUE : builder.latencyThreshold.toNanos();
+        this.maxQueueWait = builder.maxQueueWait;
+        this.nanoTime = builder.nanoTime;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * @return the current limit of the cluster for the command type
+     */
+    public int getLimit(String clusterUrl, CommandType commandType) {
+        Limit limit = limits.get(new Key(clusterUrl, commandType));
+        return limit == null ? initialLimit : limit.getLimit();
+    }
+
+    /**
+     * @return the number of requests being sent to the cluster for the command type
+     */
+    public int getInFlightCount(String clusterUrl, CommandType commandType) {
+        Limit limit = limits.get(new Key(clusterUrl, commandType));
+        return limit == null ? 0 : limit.getInFlightCount();
+    }
+
+    /**
+     * @return the number of requests waiting for the limit of the cluster for the command type
+     */
+    public int getQueuedCount(String clusterUrl, CommandType commandType) {
+        Limit limit = limits.get(new Key(clusterUrl, commandType));
+        return limit == null ? 0 : limit.getQueuedCount();
+    }
+
+    /**
+     * Subscribes to the request once the limit allows it. The request is counted until it terminates or is cancelled.
+     */
+    <T> Mono<T> limit(String clusterUrl, CommandType commandType, Mono<T> request) {
+        return Mono.defer(() -> {
+            Limit limit = limits.computeIfAbsent(new Key(clusterUrl, commandType), k -> new Limit());
+            Permit permit = new Permit();
+            return acquire(clusterUrl, limit, permit)
+                    .then(request)
+                    .doOnSuccess(ignore -> permit.completed = true)
+                    .doOnError(e -> permit.error = e)
+                    .doFinally(ignore -> limit.release(permit));
+        });
+    }
+
+    /**
+     * Subscribes to the request once the limit allows it. The request is counted until it terminates or is cancelled.
+     */
+    <T> Flux<T> limit(String clusterUrl, CommandType commandType, Flux<T> request) {
+        return Flux.defer(() -> {
+            Limit limit = limits.computeIfAbsent(new Key(clusterUrl, commandType), k -> new Limit());
+            Permit permit = new Permit();
+            return acquire(clusterUrl, limit, permit)
+                    .thenMany(request)
+                    .doOnComplete(() -> permit.completed = true)
+                    .doOnError(e -> permit.error = e)
+                    .doFinally(ignore -> limit.release(permit));
+        });
+    }
+
+    private Mono<Void> acquire(String clusterUrl, Limit limit, Permit permit) {
+        Mono<Void> acquire = Mono.create(sink -> limit.acquire(permit, sink));
+        if (maxQueueWait == null) {
+            return acquire;
+        }
+        return acquire.timeout(maxQueueWait, Mono.error(() -> new ThrottleException(clusterUrl,
+                "Request was throttled by the client, it waited more than " + maxQueueWait + " for the concurrency limit of the cluster.")));
+    }
+
+    private class Limit {
+        // Guarded by this
+        private double limit = initialLimit;
+        private int inFlight = 0;
+        private long epoch = 0;
+        private final Queue<Permit> queue = new ArrayDeque<>();
+
+        synchronized int getLimit() {
+            return (int) limit;
+        }
+
+        synchronized int getInFlightCount() {
+            return inFlight;
+        }
+
+        synchronized int getQueuedCount() {
+            return queue.size();
+        }
+
+        void acquire(Permit permit, MonoSink<Void> sink) {
+            synchronized (this) {
+                permit.sink = sink;
+                if (inFlight >= (int) limit) {
+                    queue.add(permit);
+                    return;
+                }
+                grant(permit);
+            }
+            sink.success();
+        }
+
+        // Called once per request, when it terminates or is cancelled, whether or not it got its permit
+        void release(Permit permit) {
+            List<Permit> granted = new ArrayList<>();
+            synchronized (this) {
+                if (!permit.granted) {
+                    queue.remove(permit);
+                    return;
+                }
+                inFlight--;
+
+                long latency = nanoTime.getAsLong() - permit.startNanos;
+                if (permit.error instanceof ThrottleException || (permit.completed && latency > latencyThresholdNanos)) {
+                    // Requests sent before the previous decrease don't decrease the limit again
+                    if (permit.epoch == epoch) {
+                        limit = Math.max(minLimit, limit * backoffRatio);
+                        epoch++;
+                    }
+                } else if (permit.completed && permit.inFlightAtStart * 2 >= (int) limit) {
+                    // The limit only grows while it is used, otherwise it would keep growing when there are few requests
+                    limit = Math.min(maxLimit, limit + 1 / limit);
+                }
+
+                while (inFlight < (int) limit && !queue.isEmpty()) {
+                    Permit next = queue.poll();
+                    grant(next);
+                    granted.add(next);
+                }
+            }
+            granted.forEach(next -> next.sink.success());
+        }
+
+        private void grant(Permit permit) {
+            inFlight++;
+            permit.granted = true;
+            permit.epoch = epoch;
+            permit.inFlightAtStart = inFlight;
+            permit.startNanos = nanoTime.getAsLong();
+        }
+    }
+
+    private static class Permit {
+        // Guarded by the limit
+        private boolean granted = false;
+        private MonoSink<Void> sink;
+        private long epoch;
+        private int inFlightAtStart;
+        private long startNanos;
+        // Set by the request before it releases its permit
+        private volatile boolean completed = false;
+        private volatile Throwable error;
+    }
+
+    private static final class Key {
+        private final String clusterUrl;
+        private final CommandType commandType;
+
+        Key(String clusterUrl, CommandType commandType) {
+            this.clusterUrl = clusterUrl;
+            this.commandType = commandType;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key key = (Key) o;
+            return Objects.equals(clusterUrl, key.clusterUrl) && commandType == key.commandType;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(clusterUrl, commandType);
+        }
+    }
+
+    public static class Builder {
+        private int initialLimit = 20;
+        private int minLimit = 1;
+        private int maxLimit = 200;
+        private double backoffRatio = 0.5;
+        private Duration latencyThreshold = null;
+        private Duration maxQueueWait = Duration.ofMinutes(1);
+        private LongSupplier nanoTime = System::nanoTime;
+
+        private Builder() {
+        }
+
+        /**
+         * Sets the limit of a cluster before any of its requests completed. Defaults to 20.
+         *
+         * @param initialLimit the initial number of requests sent at once
+         * @return the builder instance
+         */
+        public Builder initialLimit(int initialLimit) {
+            this.initialLimit = initialLimit;
+            return this;
+        }
+
+        /**
+         * Sets the lowest limit the backoff can reach. Defaults to 1.
+         *
+         * @param minLimit the minimum number of requests sent at once
+         * @return the builder instance
+         */
+        public Builder minLimit(int minLimit) {
+            this.minLimit = minLimit;
+            return this;
+        }
+
+        /**
+         * Sets the highest limit successful requests can raise it to. Defaults to 200.
+         *
+         * @param maxLimit the maximum number of requests sent at once
+         * @return the builder instance
+         */
+        public Builder maxLimit(int maxLimit) {
+            this.maxLimit = maxLimit;
+            return this;
+        }
+
+        /**
+         * Sets the ratio the limit is multiplied by when a request is throttled or too slow. Defaults to 0.5.
+         *
+         * @param backoffRatio a ratio between 0 and 1
+         * @return the builder instance
+         */
+        public Builder backoffRatio(double backoffRatio) {
+            this.backoffRatio = backoffRatio;
+            return this;
+        }
+
+        /**
+         * Sets the latency above which a successful request is treated as a sign of overload, like a throttled one. By default, only throttled
+         * requests decrease the limit.
+         *
+         * @param latencyThreshold the latency threshold, or null to ignore latencies
+         * @return the builder instance
+         */
+        public Builder latencyThreshold(Duration latencyThreshold) {
+            this.latencyThreshold = latencyThreshold;
+            return this;
+        }
+
+        /**
+         * Sets how long a request waits for the limit before it fails with a {@link ThrottleException}. Defaults to 1 minute.
+         *
+         * @param maxQueueWait the maximum wait, or null to wait as long as it takes
+         * @return the builder instance
+         */
+        public Builder maxQueueWait(Duration maxQueueWait) {
+            this.maxQueueWait = maxQueueWait;
+            return this;
+        }
+
+        Builder nanoTime(LongSupplier nanoTime) {
+            this.nanoTime = nanoTime;
+            return this;
+        }
+
+        public KustoConcurrencyLimiter build() {
+            return new KustoConcurrencyLimiter(this);
+        }
+    }
+}
@@ -0,0 +1,116 @@
+// Copyright (c) Microsoft Corporation.
+// Licensed under the MIT License.
+
+package com.microsoft.azure.kusto.data;
+
+import com.microsoft.azure.kusto.data.exceptions.DataClientException;
+import reactor.core.publisher.Mono;
+import reactor.util.context.Context;
+import reactor.util.context.ContextView;
+
+import java.time.Duration;
+import java.util.function.LongSupplier;
+
+/**
+ * The time by which a call must complete, including all its attempts, redirects and fallbacks.
+ * <p>
+ * A deadline is carried in the Reactor {@link Context} of the call, so it is shared by every step of the call: each HTTP attempt only gets the
+ * remaining time, which is also sent to the service as the server timeout of queries and commands, retries aren't made once the remaining
+ * time is spent, and the call fails with a {@link DataClientException} when the deadline passes. Set it with
+ * {@code client.executeQueryAsync(...).contextWrite(KustoDeadline.in(Duration.ofSeconds(30))::putIn)}. Calls that have no deadline get one
+ * from the timeout of their request when they start.
+ */
+public final class KustoDeadline {
+    private static final Object KEY = KustoDeadline.class;
+
+    private final long deadlineNanos;
+    private final Duration timeout;
+    private final LongSupplier nanoTime;
+    private final boolean fromRequestTimeout;
+
+    private KustoDeadline(Duration timeout, LongSupplier nanoTime, boolean fromRequestTimeout) {
+        Ensure.argIsNotNull(timeout, "timeout");
+        Ensure.isFalse(timeout.isNegative(), "timeout must not be negative");
+        this.timeout = timeout;
+        this.nanoTime = nanoTime;
+        this.fromRequestTimeout = fromRequestTimeout;
+        this.deadlineNanos = nanoTime.getAsLong() + timeout.toNanos();
+    }
+
+    /**
+     * @param timeout the time the call has from now
+     * @return a deadline that passes after the timeout
+     */
+    public static KustoDeadline in(Duration timeout) {
+        return new KustoDeadline(timeout, System::nanoTime, false);
+    }
+
+    static KustoDeadline in(Duration timeout, LongSupplier nanoTime) {
+        return new KustoDeadline(timeout, nanoTime, false);
+    }
+
+    /**
+     * @return the deadline of a call that has none, set from the timeout of its request
+     */
+    static KustoDeadline ofRequestTimeout(Duration timeout) {
+        return new KustoDeadline(timeout, System::nanoTime, true);
+    }
+
+    /**
+     * @return the deadline carried in the context, or null if there is none
+     */
+    public static KustoDeadline fromContext(ContextView context) {
+        return context.getOrDefault(KEY, null);
+    }
+
+    /**
+     * Fails the call with a {@link DataClientException} if it didn't complete by the deadline carried in its context, if any.
+     */
+    public static <T> Mono<T> enforce(Mono<T> call) {
+        return Mono.deferContextual(context -> {
+            KustoDeadline deadline = fromContext(context);
+            return deadline == null ? call : deadline.bound(call);
+        });
+    }
+
+    /**
+     * @return the context with this deadline, which replaces the deadline it had
+     */
+    public Context putIn(Context context) {
+        return context.put(KEY, this);
+    }
+
+    /**
+     * @return the time left until the deadline, or zero once it passed
+     */
+    public Duration getRemaining() {
+        long remaining = deadlineNanos - nanoTime.getAsLong();
+        return remaining > 0 ? Duration.ofNanos(remaining) : Duration.ZERO;
+    }
+
+    /**
+     * @return whether the deadline was set by the client from the timeout of the request, rather than by the caller
+     */
+    boolean isFromRequestTimeout() {
+        return fromRequestTimeout;
+    }
+
+    public boolean isExpired() {
+        return deadlineNanos - nanoTime.getAsLong() <= 0;
+    }
+
+    /**
+     * @return whether this deadline passes after the other one
+     */
+    boolean isAfter(KustoDeadline other) {
+        return deadlineNanos - other.deadlineNanos > 0;
+    }
+
+    <T> Mono<T> bound(Mono<T> call) {
+        return Mono.defer(() -> isExpired() ? Mono.error(expiredException()) : call.timeout(getRemaining(), Mono.error(this::expiredException)));
+    }
+
+    DataClientException expiredException() {
+        return new DataClientException(null, String.format("The call didn't complete within its deadline of %s", timeout));
+    }
+}
@@ -0,0 +1,85 @@
+// Copyright (c) Microsoft Corporation.
+// Licensed under the MIT License.
+
+package com.microsoft.azure.kusto.data;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.util.ByteArrayBuilder;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+/**
+ * An object or array cell of a dynamic column, kept as its compact UTF-8 JSON until it is accessed.
+ * <p>
+ * Building a {@link JsonNode} tree for every dynamic cell dominates parsing of tables with large dynamic columns, even though most of these
+ * cells are never read. The parser copies the tokens of such cells into a byte array instead, and the tree is built from it only when the cell
+ * is read. Every read builds a new tree, so changes to a returned tree aren't seen by later reads.
+ * <p>
+ * Instances never leave the SDK: the result tables return the tree in their place.
+ */
+final class KustoDynamicValue {
+    private final byte[] json;
+
+    private KustoDynamicValue(byte[] json) {
+        this.json = json;
+    }
+
+    /**
+     * Reads the object or array starting at the current token of the parser.
+     */
+    static KustoDynamicValue read(JsonParser parser, ObjectMapper objectMapper) throws IOException {
+        try (ByteArrayBuilder bytes = new ByteArrayBuilder();
+                JsonGenerator generator = objectMapper.getFactory().createGenerator(bytes)) {
+            // Copied event by event with the exact variant, as copyCurrentStructure would round floating point numbers to doubles
+            int depth = 0;
+            JsonToken token = parser.currentToken();
+            do {
+                generator.copyCurrentEventExact(parser);
+                if (token.isStructStart()) {
+                    depth++;
+                } else if (token.isStructEnd()) {
+                    depth--;
+                }
+            } while (depth > 0 && (token = parser.nextToken()) != null);
+            generator.flush();
+            return new KustoDynamicValue(bytes.toByteArray());
+        }
+    }
+
+    /**
+     * Wraps the compact JSON of a value, as returned by {@link #bytes()}.
+     */
+    static KustoDynamicValue of(byte[] json) {
+        return new KustoDynamicValue(json);
+    }
+
+    byte[] bytes() {
+        return json;
+    }
+
+    /**
+     * @return the tree of the value if it is a {@link KustoDynamicValue}, otherwise the value itself
+     */
+    static Object resolve(Object value) {
+        return value instanceof KustoDynamicValue ? ((KustoDynamicValue) value).toTree() : value;
+    }
+
+    JsonNode toTree() {
+        try {
+            return JsonCodecs.treeReader().readTree(json);
+        } catch (IOException e) {
+            // The bytes were written by Jackson from a valid value
+            throw new UncheckedIOException("Failed to read a dynamic value", e);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return toTree().toString();
+    }
+}
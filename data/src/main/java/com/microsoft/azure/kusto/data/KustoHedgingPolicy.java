@@ -0,0 +1,192 @@
+// Copyright (c) Microsoft Corporation.
+// Licensed under the MIT License.
+
+package com.microsoft.azure.kusto.data;
+
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.function.LongSupplier;
+
+/**
+ * Hedges queries: when a query got no response after the hedging delay, the same query is sent a second time, with a different client request
+ * id, and the first response wins while the other request is cancelled. This cuts the latency of queries that are stuck on a slow node of an
+ * otherwise healthy service, at the cost of some extra requests.
+ * <p>
+ * The delay is either fixed, or a percentile of the latencies of the recent queries, so only the slowest queries are hedged. The number of
+ * hedges is capped by a budget shared by all the queries that use the policy: each query adds the budget ratio to the budget, each hedge takes
+ * one from it, and hedges that would overdraw it aren't sent, so hedges are at most that ratio of the queries. Errors of a hedge are ignored,
+ * the query then waits for the first request.
+ * <p>
+ * Set it with {@link com.microsoft.azure.kusto.data.http.HttpClientProperties.HttpClientPropertiesBuilder#hedgingPolicy}. It applies to
+ * queries executed with {@link Client#executeQueryAsync(String, String, ClientRequestProperties)} and the methods built on it, except queries
+ * whose results are kept off the heap.
+ */
+public final class KustoHedgingPolicy {
+    // Unused budget is capped, so a long quiet period doesn't allow a burst of hedges
+    private static final double MAX_BUDGET = 10;
+    // Percentiles are computed again after this many new latencies
+    private static final int PERCENTILE_REFRESH_INTERVAL = 64;
+
+    private final long delayNanos;
+    private final double latencyPercentile;
+    private final double budgetRatio;
+    private final LongSupplier nanoTime;
+
+    // Guarded by this
+    private final long[] latencies;
+    private int latencyCount = 0;
+    private int latenciesSinceRefresh = 0;
+    private long percentileNanos;
+    private double budget = 0;
+    private long queryCount = 0;
+    private long hedgeCount = 0;
+
+    private KustoHedgingPolicy(Builder builder) {
+        Ensure.argIsNotNull(builder.delay, "delay");
+        Ensure.isFalse(builder.delay.isNegative(), "delay must not be negative");
+        Ensure.isTrue(Double.isNaN(builder.latencyPercentile) || (builder.latencyPercentile > 0 && builder.latencyPercentile < 100),
+                "latencyPercentile must be between 0 and 100");
+        Ensure.isTrue(builder.budgetRatio >= 0 && builder.budgetRatio <= 1, "budgetRatio must be between 0 and 1");
+        Ensure.isTrue(builder.latencySampleSize > 0, "latencySampleSize must be positive");
+        this.delayNanos = builder.delay.toNanos();
+        this.latencyPercentile = builder.latencyPercentile;
+        this.budgetRatio = builder.budgetRatio;
+        this.nanoTime = builder.nanoTime;
+        this.latencies = new long[builder.latencySampleSize];
+        this.percentileNanos = delayNanos;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * @return the current hedging delay, the observed latency percentile once enough queries completed, otherwise the configured delay
+     */
+    public synchronized Duration getDelay() {
+        return Duration.ofNanos(currentDelayNanos());
+    }
+
+    /**
+     * @return the number of queries that used the policy
+     */
+    public synchronized long getQueryCount() {
+        return queryCount;
+    }
+
+    /**
+     * @return the number of hedges that were sent
+     */
+    public synchronized long getHedgeCount() {
+        return hedgeCount;
+    }
+
+    /**
+     * Subscribes to the first request, and to the hedge if the first request didn't respond within the delay and the budget allows it.
+     *
+     * @param request sends the first request
+     * @param hedge sends the hedge
+     */
+    <T> Mono<T> hedge(Mono<T> request, Mono<T> hedge) {
+        return Mono.defer(() -> {
+            long delay;
+            synchronized (this) {
+                queryCount++;
+                budget = Math.min(MAX_BUDGET, budget + budgetRatio);
+                delay = currentDelayNanos();
+            }
+            long start = nanoTime.getAsLong();
+            Mono<T> delayedHedge = Mono.delay(Duration.ofNanos(delay))
+                    .flatMap(ignore -> tryAcquireHedge() ? hedge.onErrorResume(e -> Mono.never()) : Mono.never());
+            return Mono.firstWithSignal(request, delayedHedge)
+                    .doOnSuccess(ignore -> recordLatency(nanoTime.getAsLong() - start));
+        });
+    }
+
+    private synchronized boolean tryAcquireHedge() {
+        if (budget < 1) {
+            return false;
+        }
+        budget -= 1;
+        hedgeCount++;
+        return true;
+    }
+
+    private synchronized void recordLatency(long latencyNanos) {
+        if (Double.isNaN(latencyPercentile)) {
+            return;
+        }
+        latencies[latencyCount % latencies.length] = latencyNanos;
+        latencyCount++;
+        if (++latenciesSinceRefresh >= PERCENTILE_REFRESH_INTERVAL && latencyCount >= latencies.length) {
+            long[] sorted = Arrays.copyOf(latencies, latencies.length);
+            Arrays.sort(sorted);
+            percentileNanos = sorted[(int) Math.min(sorted.length - 1, Math.ceil(latencyPercentile / 100 * sorted.length) - 1)];
+            latenciesSinceRefresh = 0;
+        }
+    }
+
+    // Guarded by this
+    private long currentDelayNanos() {
+        return Double.isNaN(latencyPercentile) || latencyCount < latencies.length ? delayNanos : percentileNanos;
+    }
+
+    public static class Builder {
+        private Duration delay = Duration.ofSeconds(1);
+        private double latencyPercentile = Double.NaN;
+        private int latencySampleSize = 1000;
+        private double budgetRatio = 0.05;
+        private LongSupplier nanoTime = System::nanoTime;
+
+        private Builder() {
+        }
+
+        /**
+         * Sets how long a query waits for a response before it is hedged, and the delay used until enough latencies were observed when the
+         * delay follows a latency percentile. Defaults to 1 second.
+         *
+         * @param delay the hedging delay
+         * @return the builder instance
+         */
+        public Builder delay(Duration delay) {
+            this.delay = delay;
+            return this;
+        }
+
+        /**
+         * Makes the hedging delay follow a percentile of the latencies of the recent queries, e.g. 95 to hedge the slowest 5% of the queries.
+         * Not set by default.
+         *
+         * @param latencyPercentile the percentile, between 0 and 100
+         * @param latencySampleSize the number of recent latencies the percentile is computed from
+         * @return the builder instance
+         */
+        public Builder latencyPercentile(double latencyPercentile, int latencySampleSize) {
+            this.latencyPercentile = latencyPercentile;
+            this.latencySampleSize = latencySampleSize;
+            return this;
+        }
+
+        /**
+         * Sets the maximum ratio of hedges to queries. Defaults to 0.05, at most one hedge per 20 queries.
+         *
+         * @param budgetRatio a ratio between 0 and 1
+         * @return the builder instance
+         */
+        public Builder budgetRatio(double budgetRatio) {
+            this.budgetRatio = budgetRatio;
+            return this;
+        }
+
+        Builder nanoTime(LongSupplier nanoTime) {
+            this.nanoTime = nanoTime;
+            return this;
+        }
+
+        public KustoHedgingPolicy build() {
+            return new KustoHedgingPolicy(this);
+        }
+    }
+}
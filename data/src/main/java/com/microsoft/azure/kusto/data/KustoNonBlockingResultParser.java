@@ -0,0 +1,311 @@
+// Copyright (c) Microsoft Corporation.
+// Licensed under the MIT License.
+
+package com.microsoft.azure.kusto.data;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.async.ByteBufferFeeder;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+import com.microsoft.azure.kusto.data.exceptions.JsonPropertyMissingException;
+import com.microsoft.azure.kusto.data.exceptions.KustoServiceQueryError;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Push-style counterpart of {@link KustoResultParser}, built on Jackson's non-blocking parser.
+ * Chunks of the response are fed as they arrive and every complete row is handed to a {@link Listener}, so parsing doesn't have to wait for, or
+ * block on, the rest of the response. Frame properties and nested cell values are collected into a {@link TokenBuffer} until complete and then
+ * decoded by the same code as the blocking parser.
+ */
+class KustoNonBlockingResultParser {
+    interface Listener {
+        /**
+         * Called before the first row of a table, with the properties of the table that were read so far.
+         */
+        void onTable(KustoResultParser.Frame frame);
+
+        /**
+         * Called with each row of a table. The buffer is reused for the next row, so its cells must be copied to be kept.
+         */
+        void onRow(KustoResultParser.Frame frame, KustoRowBuffer row);
+
+        /**
+         * Called once the whole table frame was read.
+         */
+        void onTableEnd(KustoResultParser.Frame frame);
+    }
+
+    private enum State {
+        ROOT, ROOT_FIELDS, ROOT_FIELD_VALUE, FRAMES, FRAME_FIELDS, FRAME_FIELD_VALUE, ROWS, ROW, DONE
+    }
+
+    private enum CaptureTarget {
+        SKIP, FRAME_FIELD, ERROR_ROW, CELL
+    }
+
+    private final JsonParser parser;
+    private final ByteBufferFeeder feeder;
+    private final ObjectMapper objectMapper;
+    private final boolean isV2;
+    @Nullable
+    private final KustoColumnSelection columnSelection;
+    private final Listener listener;
+
+    private State state = State.ROOT;
+    private String fieldName;
+    private KustoResultParser.Frame frame;
+    private boolean frameDelivered;
+    private final KustoRowBuffer row = new KustoRowBuffer();
+    private int rowColumn;
+
+    // A value that spans several tokens (and possibly several chunks) is collected here until it is complete
+    private CaptureTarget captureTarget;
+    private State stateAfterCapture;
+    private TokenBuffer capture;
+    private int captureDepth;
+
+    KustoNonBlockingResultParser(ObjectMapper objectMapper, boolean isV2, Listener listener) throws IOException {
+        this(objectMapper, isV2, null, listener);
+    }
+
+    /**
+     * @param columnSelection the columns to keep in the primary result tables, or null to keep them all
+     */
+    KustoNonBlockingResultParser(ObjectMapper objectMapper, boolean isV2, @Nullable KustoColumnSelection columnSelection,
+            Listener listener) throws IOException {
+        this.parser = objectMapper.getFactory().createNonBlockingByteBufferParser();
+        this.feeder = (ByteBufferFeeder) parser.getNonBlockingInputFeeder();
+        this.objectMapper = objectMapper;
+        this.isV2 = isV2;
+        this.columnSelection = columnSelection;
+        this.listener = listener;
+    }
+
+    /**
+     * Parses the given chunk of the response as far as possible. The buffer must not be modified until the next call.
+     */
+    void feed(ByteBuffer chunk) throws IOException {
+        feeder.feedInput(chunk);
+        drain();
+    }
+
+    /**
+     * Signals the end of the response and verifies that it was complete.
+     */
+    void complete() throws IOException {
+        feeder.endOfInput();
+        drain();
+        if (state != State.DONE) {
+            throw new JsonPropertyMissingException(state == State.ROOT
+                    ? (isV2 ? "There is no array in the response which can be parsed" : "Tables Property missing from V1 response json")
+                    : "Unexpected end of response");
+        }
+    }
+
+    private void drain() throws IOException {
+        JsonToken token;
+        while ((token = parser.nextToken()) != null && token != JsonToken.NOT_AVAILABLE) {
+            if (captureTarget != null) {
+                continueCapture(token);
+            } else {
+                onToken(token);
+            }
+        }
+    }
+
+    private void onToken(JsonToken token) throws IOException {
+        switch (state) {
+            case ROOT:
+                if (isV2 && token == JsonToken.START_ARRAY) {
+                    state = State.FRAMES;
+                } else if (!isV2 && token == JsonToken.START_OBJECT) {
+                    state = State.ROOT_FIELDS;
+                } else {
+                    throw new JsonPropertyMissingException(isV2 ? "There is no array in the response which can be parsed"
+                            : "Tables Property missing from V1 response json");
+                }
+                break;
+            case ROOT_FIELDS:
+                if (token == JsonToken.END_OBJECT) {
+                    throw new JsonPropertyMissingException("Tables Property missing from V1 response json");
+                }
+                fieldName = parser.currentName();
+                state = State.ROOT_FIELD_VALUE;
+                break;
+            case ROOT_FIELD_VALUE:
+                if (token == JsonToken.START_ARRAY && KustoResultParser.TABLES_LIST_PROPERTY_NAME.equals(fieldName)) {
+                    state = State.FRAMES;
+                } else {
+                    startCapture(CaptureTarget.SKIP, State.ROOT_FIELDS, token);
+                }
+                break;
+            case FRAMES:
+                if (token == JsonToken.END_ARRAY) {
+                    // Anything after the tables of a v1 response is ignored, like the blocking parser does
+                    state = State.DONE;
+                } else if (token == JsonToken.START_OBJECT) {
+                    frame = new KustoResultParser.Frame();
+                    frameDelivered = false;
+                    state = State.FRAME_FIELDS;
+                } else {
+                    startCapture(CaptureTarget.SKIP, State.FRAMES, token);
+                }
+                break;
+            case FRAME_FIELDS:
+                if (token == JsonToken.END_OBJECT) {
+                    endFrame();
+                    state = State.FRAMES;
+                } else {
+                    fieldName = parser.currentName();
+                    state = State.FRAME_FIELD_VALUE;
+                }
+                break;
+            case FRAME_FIELD_VALUE:
+                if (token == JsonToken.START_ARRAY && KustoResultSetTable.ROWS_PROPERTY_NAME.equals(fieldName)) {
+                    startRows();
+                } else {
+                    startCapture(CaptureTarget.FRAME_FIELD, State.FRAME_FIELDS, token);
+                }
+                break;
+            case ROWS:
+                if (token == JsonToken.END_ARRAY) {
+                    state = State.FRAME_FIELDS;
+                } else if (token == JsonToken.START_ARRAY) {
+                    row.clear();
+                    rowColumn = 0;
+                    state = State.ROW;
+                } else if (token == JsonToken.START_OBJECT) {
+                    startCapture(CaptureTarget.ERROR_ROW, State.ROWS, token);
+                } else {
+                    throw KustoResultParser.unexpectedRowToken(token);
+                }
+                break;
+            case ROW:
+                if (token == JsonToken.END_ARRAY) {
+                    onRow();
+                    state = State.ROWS;
+                } else {
+                    boolean skipped = frame.isSkipped(rowColumn++);
+                    if (token == JsonToken.START_ARRAY || token == JsonToken.START_OBJECT) {
+                        startCapture(skipped ? CaptureTarget.SKIP : CaptureTarget.CELL, State.ROW, token);
+                    } else if (!skipped) {
+                        KustoResultParser.readCell(parser, token, objectMapper, KustoResultParser.cellType(frame, row.size()), row);
+                    }
+                }
+                break;
+            default:
+                break;
+        }
+    }
+
+    private void startRows() throws IOException {
+        KustoResultParser.selectColumns(frame, columnSelection, isV2);
+        if (!isV2 || KustoResultParser.DATA_TABLE_FRAME_TYPE_PROPERTY_VALUE.equals(frame.frameType)) {
+            frameDelivered = true;
+            listener.onTable(frame);
+            state = State.ROWS;
+        } else if (frame.frameType == null) {
+            // The frame type is normally the first property, but nothing guarantees it - keep the rows until the frame is classified
+            frame.bufferedRows = new ArrayList<>();
+            state = State.ROWS;
+        } else {
+            startCapture(CaptureTarget.SKIP, State.FRAME_FIELDS, JsonToken.START_ARRAY);
+        }
+    }
+
+    private void onRow() {
+        if (frameDelivered) {
+            listener.onRow(frame, row);
+        } else {
+            frame.bufferedRows.add(row.toList());
+        }
+    }
+
+    private void endFrame() {
+        if (isV2 && KustoResultParser.DATA_SET_COMPLETION_FRAME_TYPE_PROPERTY_VALUE.equals(frame.frameType) && frame.hasErrors) {
+            throw KustoServiceQueryError.fromOneApiErrorArray(frame.oneApiErrors, true);
+        }
+
+        if (!frameDelivered && (!isV2 || KustoResultParser.DATA_TABLE_FRAME_TYPE_PROPERTY_VALUE.equals(frame.frameType))) {
+            List<List<Object>> bufferedRows = frame.bufferedRows;
+            frame.bufferedRows = null;
+            listener.onTable(frame);
+            if (bufferedRows != null) {
+                for (List<Object> bufferedRow : bufferedRows) {
+                    row.set(bufferedRow);
+                    listener.onRow(frame, row);
+                }
+            }
+            frameDelivered = true;
+        }
+        if (frameDelivered) {
+            listener.onTableEnd(frame);
+        }
+        frame = null;
+    }
+
+    private void startCapture(CaptureTarget target, State returnState, JsonToken token) throws IOException {
+        captureTarget = target;
+        stateAfterCapture = returnState;
+        captureDepth = 0;
+        if (target != CaptureTarget.SKIP) {
+            capture = new TokenBuffer(parser, null);
+            if (target == CaptureTarget.FRAME_FIELD) {
+                // Wrapped as a single-property object so it can be read with KustoResultParser.readFields
+                capture.writeStartObject();
+                capture.writeFieldName(fieldName);
+            }
+        }
+        continueCapture(token);
+    }
+
+    private void continueCapture(JsonToken token) throws IOException {
+        if (capture != null) {
+            capture.copyCurrentEvent(parser);
+        }
+        if (token.isStructStart()) {
+            captureDepth++;
+        } else if (token.isStructEnd()) {
+            captureDepth--;
+        }
+        if (captureDepth == 0) {
+            endCapture();
+        }
+    }
+
+    private void endCapture() throws IOException {
+        CaptureTarget target = captureTarget;
+        TokenBuffer captured = capture;
+        captureTarget = null;
+        capture = null;
+        state = stateAfterCapture;
+
+        switch (target) {
+            case FRAME_FIELD:
+                captured.writeEndObject();
+                try (JsonParser fieldParser = captured.asParser()) {
+                    fieldParser.nextToken();
+                    KustoResultParser.readFields(fieldParser, objectMapper, frame);
+                }
+                break;
+            case ERROR_ROW:
+                try (JsonParser rowParser = captured.asParser()) {
+                    throw KustoResultParser.rowError(objectMapper.readTree(rowParser));
+                }
+            case CELL:
+                try (JsonParser cellParser = captured.asParser()) {
+                    row.addObject(KustoResultParser.readValue(cellParser, cellParser.nextToken(), objectMapper,
+                            KustoResultParser.cellType(frame, row.size())));
+                }
+                break;
+            default:
+                break;
+        }
+    }
+}
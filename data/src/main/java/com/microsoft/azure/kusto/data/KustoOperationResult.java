@@ -3,21 +3,27 @@
 
 package com.microsoft.azure.kusto.data;
 
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.node.ArrayNode;
 import com.microsoft.azure.kusto.data.exceptions.JsonPropertyMissingException;
 import com.microsoft.azure.kusto.data.exceptions.KustoServiceQueryError;
 import com.microsoft.azure.kusto.data.instrumentation.MonitoredActivity;
 import com.microsoft.azure.kusto.data.instrumentation.SupplierOneException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
 import java.lang.invoke.MethodHandles;
+import java.nio.ByteBuffer;
 import java.util.*;
+import java.util.function.Supplier;
 
-public class KustoOperationResult implements Iterator<KustoResultSetTable> {
+public class KustoOperationResult implements Iterator<KustoResultSetTable>, Closeable {
 
     private static final Logger log = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
     private static final Map<String, WellKnownDataSet> tablesKindsMap = new HashMap<String, WellKnownDataSet>() {
@@ -30,32 +36,167 @@ public class KustoOperationResult implements Iterator<KustoResultSetTable> {
     private static final String TABLE_NAME_PROPERTY_NAME = "Name";
     private static final String TABLE_ID_PROPERTY_NAME = "Id";
     private static final String TABLE_KIND_PROPERTY_NAME = "Kind";
-    private static final String TABLES_LIST_PROPERTY_NAME = "Tables";
-    private static final String DATA_TABLE_FRAME_TYPE_PROPERTY_VALUE = "DataTable";
-    private static final String FRAME_TYPE_PROPERTY_NAME = "FrameType";
-    private static final String DATA_SET_COMPLETION_FRAME_TYPE_PROPERTY_VALUE = "DataSetCompletion";
-    private static final String HAS_ERRORS_PROPERTY_NAME = "HasErrors";
     static final String ONE_API_ERRORS_PROPERTY_NAME = "OneApiErrors";
 
     private final List<KustoResultSetTable> resultTables = new ArrayList<>();
     private final Iterator<KustoResultSetTable> it;
 
-    private final ObjectMapper objectMapper = Utils.getObjectMapper();
+    private final ObjectMapper objectMapper = JsonCodecs.mapper();
+    // The size of the decompressed response body, when it was read by readAsync
+    private long responseSize = -1;
 
     public KustoOperationResult(String response, String version) {
         MonitoredActivity.invoke((SupplierOneException<Void, KustoServiceQueryError>) () -> {
-            kustoOperationResultImpl(response, version);
+            kustoOperationResultImpl(() -> objectMapper.createParser(response), version, null);
             return null;
         }, "KustoOperationResult.createFromResponse");
         it = resultTables.iterator();
     }
 
-    private void kustoOperationResultImpl(String response, String version) {
-        if (version.contains("v2")) {
-            createFromV2Response(response);
-        } else {
-            createFromV1Response(response);
+    /**
+     * Parses a response directly from its UTF-8 bytes, table by table, without reading it into a String or a JSON tree first.
+     * The stream is closed once the response has been read.
+     *
+     * @param response the response body
+     * @param version the response version, "v1" or "v2"
+     */
+    public KustoOperationResult(InputStream response, String version) {
+        this(response, version, null);
+    }
+
+    /**
+     * Parses a response directly from its UTF-8 bytes, keeping only the selected columns of the primary result tables.
+     * The stream is closed once the response has been read.
+     *
+     * @param response the response body
+     * @param version the response version, "v1" or "v2"
+     * @param columnSelection the columns to keep in the primary result tables of a v2 response, or null to keep them all
+     */
+    public KustoOperationResult(InputStream response, String version, KustoColumnSelection columnSelection) {
+        MonitoredActivity.invoke((SupplierOneException<Void, KustoServiceQueryError>) () -> {
+            kustoOperationResultImpl(() -> objectMapper.createParser(response), version, columnSelection);
+            return null;
+        }, "KustoOperationResult.createFromResponse");
+        it = resultTables.iterator();
+    }
+
+    KustoOperationResult(List<KustoResultSetTable> tables, long responseSize) {
+        resultTables.addAll(tables);
+        it = resultTables.iterator();
+        this.responseSize = responseSize;
+    }
+
+    /**
+     * Parses a response as its body is received, with a non-blocking parser fed by the chunks of the body. Parsing overlaps with the transfer,
+     * and the body is neither collected nor decoded into a String first.
+     *
+     * @param body the decompressed response body
+     * @param version the response version, "v1" or "v2"
+     * @param properties the properties of the request, for the client-side options of its results, or null
+     */
+    static Mono<KustoOperationResult> readAsync(Flux<ByteBuffer> body, String version, ClientRequestProperties properties) {
+        return readAsync(body, version, properties, () -> new TableCollector(properties));
+    }
+
+    /**
+     * @param collectorFactory creates the collector of the tables of each subscription
+     */
+    static Mono<KustoOperationResult> readAsync(Flux<ByteBuffer> body, String version, ClientRequestProperties properties,
+            Supplier<TableCollector> collectorFactory) {
+        return Mono.defer(() -> {
+            boolean isV2 = version.contains("v2");
+            TableCollector collector = collectorFactory.get();
+            return parseAsync(body, isV2, properties, collector)
+                    .map(responseSize -> {
+                        KustoOperationResult result = new KustoOperationResult(collector.tables, responseSize);
+                        if (!isV2) {
+                            result.setV1TablesMetadata();
+                        }
+                        collector.handOver();
+                        return result;
+                    })
+                    .doOnError(ignore -> collector.close())
+                    .doOnCancel(collector::close);
+        }).onErrorMap(KustoOperationResult::isParsingError, e -> toQueryError((Exception) e));
+    }
+
+    /**
+     * Feeds the body to a non-blocking parser that hands the tables to the listener.
+     *
+     * @return the size of the body
+     */
+    static Mono<Long> parseAsync(Flux<ByteBuffer> body, boolean isV2, ClientRequestProperties properties, KustoNonBlockingResultParser.Listener listener) {
+        return Mono.defer(() -> {
+            long[] responseSize = {0};
+            KustoNonBlockingResultParser parser;
+            try {
+                parser = new KustoNonBlockingResultParser(JsonCodecs.mapper(), isV2, properties == null ? null : properties.getColumnSelection(), listener);
+            } catch (IOException e) {
+                return Mono.error(e);
+            }
+
+            return body
+                    .<Void>handle((chunk, sink) -> {
+                        try {
+                            responseSize[0] += chunk.remaining();
+                            parser.feed(chunk);
+                        } catch (IOException e) {
+                            sink.error(e);
+                        }
+                    })
+                    .then(Mono.fromCallable(() -> {
+                        parser.complete();
+                        return responseSize[0];
+                    }));
+        });
+    }
+
+    static boolean isParsingError(Throwable e) {
+        return e instanceof IOException || e instanceof UncheckedIOException || e instanceof JsonPropertyMissingException || e instanceof NullPointerException;
+    }
+
+    private void kustoOperationResultImpl(SupplierOneException<JsonParser, IOException> parserFactory, String version,
+            KustoColumnSelection columnSelection) {
+        boolean isV2 = version.contains("v2");
+        try (KustoResultParser parser = new KustoResultParser(parserFactory.get(), objectMapper, isV2, columnSelection)) {
+            KustoResultParser.Frame frame;
+            while ((frame = parser.nextTable()) != null) {
+                resultTables.add(new KustoResultSetTable(frame, parser.readRows()));
+            }
+        } catch (IOException | JsonPropertyMissingException | NullPointerException e) {
+            throw toQueryError(e);
+        }
+
+        if (!isV2) {
+            setV1TablesMetadata();
+        }
+    }
+
+    static KustoServiceQueryError toQueryError(Exception e) {
+        if (e instanceof NullPointerException) {
+            log.error("Null pointer exception thrown due to invalid v2 response", e);
+            return new KustoServiceQueryError("Null pointer exception thrown due to invalid v2 response " + e.getMessage());
         }
+        log.error("Json processing error occurred while parsing string to json with exception", e);
+        return new KustoServiceQueryError("Json processing error occurred while parsing string to json with exception " + e.getMessage());
+    }
+
+    /**
+     * @return a result over the same rows, with its own table and row cursors
+     */
+    KustoOperationResult copy() {
+        List<KustoResultSetTable> tables = new ArrayList<>(resultTables.size());
+        for (KustoResultSetTable table : resultTables) {
+            tables.add(table.copy());
+        }
+        return new KustoOperationResult(tables, responseSize);
+    }
+
+    /**
+     * @return the size of the decompressed response body, or -1 if the result wasn't read from a response body
+     */
+    long getResponseSize() {
+        return responseSize;
     }
 
     public List<KustoResultSetTable> getResultTables() {
@@ -72,6 +213,14 @@ public class KustoOperationResult implements Iterator<KustoResultSetTable> {
         return it.next();
     }
 
+    /**
+     * Releases the off-heap buffers of the result tables, see {@link ClientRequestProperties#setOffHeapResults(boolean)}.
+     */
+    @Override
+    public void close() {
+        resultTables.forEach(KustoResultSetTable::close);
+    }
+
     public KustoResultSetTable getPrimaryResults() {
         if (resultTables.size() == 1) {
             return resultTables.get(0);
@@ -80,23 +229,7 @@ public class KustoOperationResult implements Iterator<KustoResultSetTable> {
         return resultTables.stream().filter(t -> t.getTableKind().equals(WellKnownDataSet.PrimaryResult)).findFirst().orElse(null);
     }
 
-    private void createFromV1Response(String response) {
-        try {
-            JsonNode jsonObject = objectMapper.readTree(response);
-            if (jsonObject.has(TABLES_LIST_PROPERTY_NAME) && jsonObject.get(TABLES_LIST_PROPERTY_NAME).isArray()) {
-                ArrayNode jsonArray = (ArrayNode) jsonObject.get(TABLES_LIST_PROPERTY_NAME);
-                for (int i = 0; i < jsonArray.size(); i++) {
-                    JsonNode table = jsonArray.get(i);
-                    resultTables.add(new KustoResultSetTable(table));
-                }
-            } else {
-                throw new JsonPropertyMissingException("Tables Property missing from V1 response json");
-            }
-        } catch (JsonProcessingException | JsonPropertyMissingException e) {
-            log.error("Json processing error occurred while parsing string to json with exception", e);
-            throw new KustoServiceQueryError("Json processing error occurred while parsing string to json with exception " + e.getMessage());
-        }
-
+    private void setV1TablesMetadata() {
         if (resultTables.size() <= 2) {
             resultTables.get(0).setTableKind(WellKnownDataSet.PrimaryResult);
             resultTables.get(0).setTableId(Integer.toString(0));
@@ -118,38 +251,75 @@ public class KustoOperationResult implements Iterator<KustoResultSetTable> {
         }
     }
 
-    private void createFromV2Response(String response) {
-        ArrayNode jsonArray;
-        try {
-            JsonNode jsonNode = objectMapper.readTree(response);
-            if (jsonNode.isArray()) {
-                jsonArray = (ArrayNode) jsonNode;
-                for (JsonNode node : jsonArray) {
-                    String frameType = "";
-                    if (node.has(FRAME_TYPE_PROPERTY_NAME)) {
-                        frameType = node.get(FRAME_TYPE_PROPERTY_NAME).asText();
-                    }
-
-                    if (frameType.equals(DATA_SET_COMPLETION_FRAME_TYPE_PROPERTY_VALUE) &&
-                            node.has(HAS_ERRORS_PROPERTY_NAME) && node.get(HAS_ERRORS_PROPERTY_NAME).asBoolean()) {
-                        ArrayNode oneApiErrors = (ArrayNode) node.get(ONE_API_ERRORS_PROPERTY_NAME);
-
-                        throw KustoServiceQueryError.fromOneApiErrorArray(oneApiErrors, true);
-                    }
-                    if (frameType.equals(DATA_TABLE_FRAME_TYPE_PROPERTY_VALUE)) {
-                        resultTables.add(new KustoResultSetTable(node));
-                    }
-                }
-            } else {
-                throw new JsonPropertyMissingException("There is no array in the response which can be parsed");
+    /**
+     * Collects every table the non-blocking parser reads, in columnar storage.
+     * <p>
+     * The parser calls it from the thread that receives the body, while a cancellation can discard it from another one. The tables are owned
+     * by the collector, which closes them if the response fails or is cancelled, until they are handed over to the result.
+     */
+    static class TableCollector implements KustoNonBlockingResultParser.Listener {
+        final List<KustoResultSetTable> tables = new ArrayList<>();
+        private final KustoSpillOptions spillOptions;
+        private final boolean offHeap;
+        // Guarded by this
+        private KustoColumnarRows.Builder rows = null;
+        private boolean discarded = false;
+        private boolean handedOver = false;
+
+        TableCollector(ClientRequestProperties properties) {
+            this.spillOptions = properties == null ? null : properties.getSpillOptions();
+            this.offHeap = properties != null && properties.isOffHeapResults();
+        }
+
+        @Override
+        public synchronized void onTable(KustoResultParser.Frame frame) {
+            if (!discarded) {
+                rows = new KustoColumnarRows.Builder(frame.columns, spillOptions, offHeap);
+            }
+        }
+
+        @Override
+        public synchronized void onRow(KustoResultParser.Frame frame, KustoRowBuffer row) {
+            if (rows != null) {
+                rows.add(row);
+            }
+        }
+
+        @Override
+        public synchronized void onTableEnd(KustoResultParser.Frame frame) {
+            if (rows != null) {
+                tables.add(new KustoResultSetTable(frame, rows.build()));
+                rows = null;
+            }
+        }
+
+        /**
+         * Drops the table being read, with the file its rows were spilled to, when the response failed or was cancelled. The tables that
+         * follow are ignored.
+         */
+        synchronized void discard() {
+            discarded = true;
+            if (rows != null) {
+                rows.discard();
+                rows = null;
+            }
+        }
+
+        /**
+         * Marks the tables as owned by the result they were handed over to, which is then responsible for closing them.
+         */
+        synchronized void handOver() {
+            handedOver = true;
+        }
+
+        /**
+         * Discards the table being read, and releases the off-heap buffers of the complete tables unless they were handed over.
+         */
+        synchronized void close() {
+            discard();
+            if (!handedOver) {
+                tables.forEach(KustoResultSetTable::close);
             }
-        } catch (JsonProcessingException | JsonPropertyMissingException jsonException) {
-            log.error("Json processing error occurred while parsing string to json with exception", jsonException);
-            throw new KustoServiceQueryError(
-                    "Json processing error occurred while parsing string to json with exception " + jsonException.getMessage());
-        } catch (NullPointerException nullPointerException) {
-            log.error("Null pointer exception thrown due to invalid v2 response", nullPointerException);
-            throw new KustoServiceQueryError("Null pointer exception thrown due to invalid v2 response " + nullPointerException.getMessage());
         }
     }
 }
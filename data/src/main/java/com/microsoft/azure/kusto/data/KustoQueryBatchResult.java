@@ -0,0 +1,47 @@
+// Copyright (c) Microsoft Corporation.
+// Licensed under the MIT License.
+
+package com.microsoft.azure.kusto.data;
+
+import com.microsoft.azure.kusto.data.exceptions.KustoDataExceptionBase;
+
+/**
+ * The outcome of one query of a batch sent with {@link BatchClient#executeQueryBatchAsync(String, java.util.List, ClientRequestProperties)}: either
+ * its result or the error the service reported for it.
+ * <p>
+ * The result holds the primary result table of the query and the other tables of the response, like the query properties and completion
+ * information, which are shared by all the results of the batch.
+ */
+public final class KustoQueryBatchResult {
+    private final String query;
+    private final KustoOperationResult result;
+    private final KustoDataExceptionBase error;
+
+    KustoQueryBatchResult(String query, KustoOperationResult result, KustoDataExceptionBase error) {
+        this.query = query;
+        this.result = result;
+        this.error = error;
+    }
+
+    public String getQuery() {
+        return query;
+    }
+
+    public boolean isSuccess() {
+        return error == null;
+    }
+
+    /**
+     * @return the result of the query, or null if it failed
+     */
+    public KustoOperationResult getResult() {
+        return result;
+    }
+
+    /**
+     * @return the error of the query, or null if it succeeded
+     */
+    public KustoDataExceptionBase getError() {
+        return error;
+    }
+}
@@ -0,0 +1,124 @@
+// Copyright (c) Microsoft Corporation.
+// Licensed under the MIT License.
+
+package com.microsoft.azure.kusto.data;
+
+import com.microsoft.azure.kusto.data.exceptions.DataServiceException;
+import com.microsoft.azure.kusto.data.exceptions.KustoDataExceptionBase;
+import com.microsoft.azure.kusto.data.exceptions.KustoServiceQueryError;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Sends several queries as the statements of a single request and splits the response back into one result per query.
+ */
+class KustoQueryBatches {
+    private static final String SEPARATOR = "\n;\n";
+
+    private KustoQueryBatches() {
+    }
+
+    /**
+     * Joins the queries into the text of one request. Separators are on their own line, so a comment at the end of a query doesn't hide the
+     * separator that follows it.
+     */
+    static String join(List<String> queries) {
+        StringBuilder batch = new StringBuilder();
+        for (String query : queries) {
+            Ensure.stringIsNotBlank(query, "query");
+            int end = query.length();
+            while (end > 0 && (Character.isWhitespace(query.charAt(end - 1)) || query.charAt(end - 1) == ';')) {
+                end--;
+            }
+            if (batch.length() > 0) {
+                batch.append(SEPARATOR);
+            }
+            batch.append(query, 0, end);
+        }
+        return batch.toString();
+    }
+
+    /**
+     * Reads the response of a batch. The service executes the queries in order and stops at the first one that fails, so when it reports an
+     * error, the queries whose primary results were received completely succeeded, the next one failed, and the rest weren't executed. An error
+     * reported after all the primary results were received is attributed to the last query.
+     *
+     * @param body the decompressed response body
+     * @param clusterEndpoint the endpoint the batch was sent to, for the errors of the queries
+     */
+    static Mono<List<KustoQueryBatchResult>> readAsync(Flux<ByteBuffer> body, List<String> queries, ClientRequestProperties properties,
+            String clusterEndpoint) {
+        return Mono.defer(() -> {
+            KustoOperationResult.TableCollector collector = new KustoOperationResult.TableCollector(properties);
+            return KustoOperationResult.parseAsync(body, true, properties, collector)
+                    .map(ignore -> split(queries, collector, null, clusterEndpoint))
+                    .onErrorResume(KustoServiceQueryError.class, e -> {
+                        // The queries that completed before the error keep their tables
+                        collector.discard();
+                        return Mono.just(split(queries, collector, e, clusterEndpoint));
+                    })
+                    .doOnError(ignore -> collector.close())
+                    .doOnCancel(collector::close);
+        }).onErrorMap(KustoOperationResult::isParsingError, e -> KustoOperationResult.toQueryError((Exception) e));
+    }
+
+    private static List<KustoQueryBatchResult> split(List<String> queries, KustoOperationResult.TableCollector collector,
+            KustoServiceQueryError error, String clusterEndpoint) {
+        List<KustoResultSetTable> tables = collector.tables;
+        List<KustoResultSetTable> primaryResults = new ArrayList<>();
+        for (KustoResultSetTable table : tables) {
+            if (table.getTableKind() == WellKnownDataSet.PrimaryResult) {
+                primaryResults.add(table);
+            }
+        }
+        if (error == null && primaryResults.size() != queries.size()) {
+            throw new IllegalStateException(String.format("The batch returned %d primary results for %d queries, each query must return exactly one",
+                    primaryResults.size(), queries.size()));
+        }
+
+        int failed = error == null ? queries.size() : Math.min(primaryResults.size(), queries.size() - 1);
+        List<KustoQueryBatchResult> results = new ArrayList<>(queries.size());
+        for (int i = 0; i < queries.size(); i++) {
+            if (i < failed) {
+                results.add(new KustoQueryBatchResult(queries.get(i), resultOf(tables, primaryResults.get(i)), null));
+            } else {
+                if (i < primaryResults.size()) {
+                    // The result of a query that is reported as failed isn't returned
+                    primaryResults.get(i).close();
+                }
+                String message = i == failed ? error.getMessage()
+                        : String.format("The query wasn't executed because query %d of the batch failed: %s", failed, error.getMessage());
+                KustoDataExceptionBase queryError = new DataServiceException(clusterEndpoint, message, error, error.isPermanent());
+                results.add(new KustoQueryBatchResult(queries.get(i), null, queryError));
+            }
+        }
+        collector.handOver();
+        for (KustoResultSetTable table : tables) {
+            if (table.getTableKind() != WellKnownDataSet.PrimaryResult) {
+                // Each result has its own copy
+                table.close();
+            }
+        }
+        return results;
+    }
+
+    /*
+     * The tables of the response that aren't primary results are given to the results of all the queries. Each result gets its own heap copy of the off-heap
+     * ones, so closing one result doesn't release the tables of the others.
+     */
+    private static KustoOperationResult resultOf(List<KustoResultSetTable> tables, KustoResultSetTable primaryResult) {
+        List<KustoResultSetTable> resultTables = new ArrayList<>();
+        for (KustoResultSetTable table : tables) {
+            if (table == primaryResult) {
+                resultTables.add(table);
+            } else if (table.getTableKind() != WellKnownDataSet.PrimaryResult) {
+                resultTables.add(table.heapCopy());
+            }
+        }
+        return new KustoOperationResult(resultTables, -1);
+    }
+}
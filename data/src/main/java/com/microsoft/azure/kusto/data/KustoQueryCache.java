@@ -0,0 +1,304 @@
+// Copyright (c) Microsoft Corporation.
+// Licensed under the MIT License.
+
+package com.microsoft.azure.kusto.data;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import reactor.core.publisher.Mono;
+
+import java.lang.invoke.MethodHandles;
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.LongSupplier;
+
+/**
+ * A client-side cache of query results, for applications that send the same queries again and again, like dashboards.
+ * <p>
+ * Results are keyed by client, cluster, database, query text, the options and parameters of the {@link ClientRequestProperties} and the
+ * column selection. An entry expires once it is older than the time to live, and the least recently used entries are evicted when the cached results
+ * take more than the byte budget, measured as the size of their decompressed response bodies. Every hit returns a new
+ * {@link KustoOperationResult} over the cached rows, with its own cursors.
+ * <p>
+ * Pass it to {@link ClientFactory#createClient(com.microsoft.azure.kusto.data.auth.ConnectionStringBuilder,
+ * com.microsoft.azure.kusto.data.http.HttpClientProperties, KustoQueryCache)}. A cache can be shared by several clients, which then share its
+ * byte budget, but each client only gets the results of its own queries: clients may authenticate as different principals, and a result
+ * filtered by the permissions or row-level security of one principal must not be served to another. Only queries are cached, not management commands, and requests
+ * can skip the cache with {@link ClientRequestProperties#setResultCacheBypass(boolean)}. Results kept off the heap
+ * ({@link ClientRequestProperties#setOffHeapResults(boolean)}) are never cached, as their callers release them.
+ * <p>
+ * With refresh-ahead, a hit on a result that is older than the refresh age also executes the query again in the background, and the new result
+ * replaces the cached one when it arrives, so results that keep being read are renewed before they expire and their readers don't wait for
+ * the service. Only reads trigger refreshes, so results nobody reads since their last refresh simply expire. At most the given number of
+ * refreshes run at once, hits over that limit are served without refreshing.
+ */
+public final class KustoQueryCache {
+    private static final Logger log = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+
+    private final long timeToLiveNanos;
+    private final long maxBytes;
+    private final long refreshAfterNanos;
+    private final int maxConcurrentRefreshes;
+    private final LongSupplier nanoTime;
+
+    // In access order, so iteration starts with the least recently used entry
+    private final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long sizeBytes = 0;
+    private long hitCount = 0;
+    private long missCount = 0;
+    private long evictionCount = 0;
+    private long expirationCount = 0;
+    private long refreshCount = 0;
+    private int runningRefreshes = 0;
+
+    /**
+     * @param timeToLive how long a result is served from the cache after it was received
+     * @param maxBytes the total size of the cached response bodies above which the least recently used results are evicted
+     */
+    public KustoQueryCache(Duration timeToLive, long maxBytes) {
+        this(timeToLive, maxBytes, null, 0);
+    }
+
+    /**
+     * Creates a cache that refreshes the results that are read once they are older than the refresh age.
+     *
+     * @param timeToLive how long a result is served from the cache after it was received
+     * @param maxBytes the total size of the cached response bodies above which the least recently used results are evicted
+     * @param refreshAfter the age from which a read result is refreshed in the background, shorter than the time to live, or null not to refresh
+     * @param maxConcurrentRefreshes the maximum number of refreshes running at once
+     */
+    public KustoQueryCache(Duration timeToLive, long maxBytes, Duration refreshAfter, int maxConcurrentRefreshes) {
+        this(timeToLive, maxBytes, refreshAfter, maxConcurrentRefreshes, System::nanoTime);
+    }
+
+    KustoQueryCache(Duration timeToLive, long maxBytes, Duration refreshAfter, int maxConcurrentRefreshes, LongSupplier nanoTime) {
+        Ensure.argIsNotNull(timeToLive, "timeToLive");
+        Ensure.isTrue(!timeToLive.isNegative() && !timeToLive.isZero(), "timeToLive must be positive");
+        Ensure.isTrue(maxBytes > 0, "maxBytes must be positive");
+        if (refreshAfter != null) {
+            Ensure.isTrue(!refreshAfter.isNegative() && refreshAfter.compareTo(timeToLive) < 0, "refreshAfter must be shorter than timeToLive");
+            Ensure.isTrue(maxConcurrentRefreshes > 0, "maxConcurrentRefreshes must be positive");
+        }
+        this.timeToLiveNanos = timeToLive.toNanos();
+        this.maxBytes = maxBytes;
+        this.refreshAfterNanos = refreshAfter == null ? Long.MAX_VALUE : refreshAfter.toNanos();
+        this.maxConcurrentRefreshes = maxConcurrentRefreshes;
+        this.nanoTime = nanoTime;
+    }
+
+    /**
+     * @return a new result over the cached rows, or null if there is no fresh result for the key
+     */
+    KustoOperationResult get(Key key) {
+        Entry entry;
+        boolean refresh = false;
+        synchronized (this) {
+            entry = entries.get(key);
+            long age = entry == null ? 0 : nanoTime.getAsLong() - entry.createdNanos;
+            if (entry != null && age >= timeToLiveNanos) {
+                remove(key);
+                expirationCount++;
+                entry = null;
+            }
+            if (entry == null) {
+                missCount++;
+                return null;
+            }
+            hitCount++;
+
+            if (age >= refreshAfterNanos && entry.reload != null && !entry.refreshing && runningRefreshes < maxConcurrentRefreshes) {
+                entry.refreshing = true;
+                runningRefreshes++;
+                refreshCount++;
+                refresh = true;
+            }
+        }
+
+        if (refresh) {
+            refresh(key, entry);
+        }
+        return entry.result.copy();
+    }
+
+    private void refresh(Key key, Entry entry) {
+        entry.reload
+                .doFinally(ignore -> {
+                    synchronized (this) {
+                        entry.refreshing = false;
+                        runningRefreshes--;
+                    }
+                })
+                .subscribe(result -> put(key, result, entry.reload),
+                        e -> log.warn("Failed to refresh a cached query result, it will be served until it expires", e));
+    }
+
+    /**
+     * Caches a copy of the result, so the cursors of the given result stay with the caller. Results larger than the byte budget aren't cached.
+     *
+     * @param reload executes the query again, to refresh the result, or null if it can't be refreshed
+     */
+    synchronized void put(Key key, KustoOperationResult result, Mono<KustoOperationResult> reload) {
+        long size = Math.max(result.getResponseSize(), 0);
+        if (size > maxBytes) {
+            return;
+        }
+        remove(key);
+        entries.put(key, new Entry(result.copy(), size, nanoTime.getAsLong(), reload));
+        sizeBytes += size;
+
+        Iterator<Map.Entry<Key, Entry>> eldest = entries.entrySet().iterator();
+        while (sizeBytes > maxBytes && eldest.hasNext()) {
+            sizeBytes -= eldest.next().getValue().size;
+            eldest.remove();
+            evictionCount++;
+        }
+    }
+
+    private void remove(Key key) {
+        Entry removed = entries.remove(key);
+        if (removed != null) {
+            sizeBytes -= removed.size;
+        }
+    }
+
+    /**
+     * Removes all the cached results. The statistics are kept.
+     */
+    public synchronized void invalidateAll() {
+        entries.clear();
+        sizeBytes = 0;
+    }
+
+    public synchronized Stats getStats() {
+        return new Stats(hitCount, missCount, evictionCount, expirationCount, refreshCount, entries.size(), sizeBytes);
+    }
+
+    private static class Entry {
+        private final KustoOperationResult result;
+        private final long size;
+        private final long createdNanos;
+        private final Mono<KustoOperationResult> reload;
+        // Guarded by the cache
+        private boolean refreshing = false;
+
+        Entry(KustoOperationResult result, long size, long createdNanos, Mono<KustoOperationResult> reload) {
+            this.result = result;
+            this.size = size;
+            this.createdNanos = createdNanos;
+            this.reload = reload;
+        }
+    }
+
+    /**
+     * Identifies the results of a query.
+     */
+    static final class Key {
+        // Compared by identity, so clients never share results
+        private final Object client;
+        private final String clusterUrl;
+        private final String database;
+        private final String query;
+        private final String properties;
+        private final KustoColumnSelection columnSelection;
+
+        /**
+         * @param client identifies the client that executed the query
+         */
+        Key(Object client, String clusterUrl, String database, String query, ClientRequestProperties properties) {
+            this.client = client;
+            this.clusterUrl = clusterUrl;
+            this.database = database;
+            this.query = query;
+            this.properties = properties == null ? null : properties.toCanonicalString();
+            this.columnSelection = properties == null ? null : properties.getColumnSelection();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key key = (Key) o;
+            return client == key.client && Objects.equals(clusterUrl, key.clusterUrl) && Objects.equals(database, key.database)
+                    && Objects.equals(query, key.query)
+                    && Objects.equals(properties, key.properties) && Objects.equals(columnSelection, key.columnSelection);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(System.identityHashCode(client), clusterUrl, database, query, properties, columnSelection);
+        }
+    }
+
+    /**
+     * A snapshot of the statistics of a cache.
+     */
+    public static final class Stats {
+        private final long hitCount;
+        private final long missCount;
+        private final long evictionCount;
+        private final long expirationCount;
+        private final long refreshCount;
+        private final int entryCount;
+        private final long sizeBytes;
+
+        Stats(long hitCount, long missCount, long evictionCount, long expirationCount, long refreshCount, int entryCount, long sizeBytes) {
+            this.hitCount = hitCount;
+            this.missCount = missCount;
+            this.evictionCount = evictionCount;
+            this.expirationCount = expirationCount;
+            this.refreshCount = refreshCount;
+            this.entryCount = entryCount;
+            this.sizeBytes = sizeBytes;
+        }
+
+        public long getHitCount() {
+            return hitCount;
+        }
+
+        public long getMissCount() {
+            return missCount;
+        }
+
+        /**
+         * @return the number of results that were evicted to stay within the byte budget
+         */
+        public long getEvictionCount() {
+            return evictionCount;
+        }
+
+        /**
+         * @return the number of results that were removed because they were older than the time to live
+         */
+        public long getExpirationCount() {
+            return expirationCount;
+        }
+
+        /**
+         * @return the number of background refreshes that were started
+         */
+        public long getRefreshCount() {
+            return refreshCount;
+        }
+
+        public int getEntryCount() {
+            return entryCount;
+        }
+
+        public long getSizeBytes() {
+            return sizeBytes;
+        }
+
+        @Override
+        public String toString() {
+            return "Stats{hitCount=" + hitCount + ", missCount=" + missCount + ", evictionCount=" + evictionCount + ", expirationCount="
+                    + expirationCount + ", refreshCount=" + refreshCount + ", entryCount=" + entryCount + ", sizeBytes=" + sizeBytes + "}";
+        }
+    }
+}
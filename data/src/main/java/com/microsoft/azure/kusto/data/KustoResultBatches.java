@@ -0,0 +1,126 @@
+// Copyright (c) Microsoft Corporation.
+// Licensed under the MIT License.
+
+package com.microsoft.azure.kusto.data;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.microsoft.azure.kusto.data.exceptions.JsonPropertyMissingException;
+import com.microsoft.azure.kusto.data.exceptions.KustoServiceQueryError;
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import reactor.core.publisher.Flux;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Turns the body of a v2 query response into a Flux of primary result rows, parsed as the body arrives.
+ */
+class KustoResultBatches {
+    private static final Logger log = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+
+    private KustoResultBatches() {
+    }
+
+    /**
+     * Emits the rows of the primary result tables as batches, each holding the rows that were completed by one chunk of the body.
+     * Chunks are requested one at a time and only when the previous batches were requested downstream, so a slow subscriber stops the reads
+     * of the body instead of having the rows pile up in memory.
+     *
+     * @param body the decompressed response body
+     * @param columnSelection the columns to keep, or null to keep them all
+     */
+    static Flux<KustoResultSetTable> primaryResultBatches(Flux<ByteBuffer> body, ObjectMapper objectMapper, @Nullable KustoColumnSelection columnSelection) {
+        return Flux.defer(() -> {
+            PrimaryResultCollector collector = new PrimaryResultCollector();
+            KustoNonBlockingResultParser parser = createParser(objectMapper, columnSelection, collector);
+            return body
+                    .concatMap(chunk -> parse(() -> parser.feed(chunk), collector), 1)
+                    .concatWith(Flux.defer(() -> parse(parser::complete, collector)));
+        });
+    }
+
+    private static KustoNonBlockingResultParser createParser(ObjectMapper objectMapper, @Nullable KustoColumnSelection columnSelection,
+            KustoNonBlockingResultParser.Listener listener) {
+        try {
+            return new KustoNonBlockingResultParser(objectMapper, true, columnSelection, listener);
+        } catch (IOException e) {
+            throw new KustoServiceQueryError("Failed to create a response parser: " + e.getMessage());
+        }
+    }
+
+    // Rows completed before a failure in the same chunk are still emitted ahead of the error
+    private static Flux<KustoResultSetTable> parse(ParseStep step, PrimaryResultCollector collector) {
+        try {
+            step.run();
+        } catch (IOException | JsonPropertyMissingException e) {
+            log.error("Json processing error occurred while parsing string to json with exception", e);
+            return Flux.fromIterable(collector.drain())
+                    .concatWith(Flux
+                            .error(new KustoServiceQueryError("Json processing error occurred while parsing string to json with exception " + e.getMessage())));
+        } catch (RuntimeException e) {
+            return Flux.fromIterable(collector.drain()).concatWith(Flux.error(e));
+        }
+        return Flux.fromIterable(collector.drain());
+    }
+
+    @FunctionalInterface
+    private interface ParseStep {
+        void run() throws IOException;
+    }
+
+    private static class PrimaryResultCollector implements KustoNonBlockingResultParser.Listener {
+        private final List<KustoResultSetTable> ready = new ArrayList<>();
+        private KustoResultParser.Frame current = null;
+        private KustoColumnarRows.Builder rows = null;
+
+        @Override
+        public void onTable(KustoResultParser.Frame frame) {
+            if (WellKnownDataSet.PrimaryResult.name().equals(frame.tableKind)) {
+                current = frame;
+                rows = new KustoColumnarRows.Builder(frame.columns);
+            }
+        }
+
+        @Override
+        public void onRow(KustoResultParser.Frame frame, KustoRowBuffer row) {
+            if (frame == current) {
+                rows.add(row);
+            }
+        }
+
+        @Override
+        public void onTableEnd(KustoResultParser.Frame frame) {
+            if (frame == current) {
+                flush();
+                current = null;
+                rows = null;
+            }
+        }
+
+        List<KustoResultSetTable> drain() {
+            flush();
+            if (ready.isEmpty()) {
+                return Collections.emptyList();
+            }
+            List<KustoResultSetTable> batches = new ArrayList<>(ready);
+            ready.clear();
+            return batches;
+        }
+
+        private void flush() {
+            if (current != null) {
+                List<List<Object>> batch = rows.build();
+                if (!batch.isEmpty()) {
+                    ready.add(new KustoResultSetTable(current, batch));
+                    rows = new KustoColumnarRows.Builder(current.columns);
+                }
+            }
+        }
+    }
+}
@@ -1,6 +1,9 @@
 package com.microsoft.azure.kusto.data;
 
 import java.util.function.BiConsumer;
+import java.util.function.ObjDoubleConsumer;
+import java.util.function.ObjIntConsumer;
+import java.util.function.ObjLongConsumer;
 
 /**
  * Represents a single Kusto result column and its mapping to a java object. Used to extract the column from a {@link KustoResultSetTable} and set the
@@ -36,6 +39,23 @@ class KustoResultColumnPopulator<R, C, T extends KustoType<C>> {
         return new KustoResultColumnPopulator<>(null, ordinal, type, isNullable, valueSetter);
     }
 
+    static <R> KustoResultColumnPopulator<R, Integer, KustoType<Integer>> ofInt(String name, int ordinal, ObjIntConsumer<R> valueSetter) {
+        return new IntPopulator<>(name, ordinal, valueSetter);
+    }
+
+    static <R> KustoResultColumnPopulator<R, Long, KustoType<Long>> ofLong(String name, int ordinal, ObjLongConsumer<R> valueSetter) {
+        return new LongPopulator<>(name, ordinal, valueSetter);
+    }
+
+    static <R> KustoResultColumnPopulator<R, Double, KustoType<Double>> ofDouble(String name, int ordinal, ObjDoubleConsumer<R> valueSetter) {
+        return new DoublePopulator<>(name, ordinal, valueSetter);
+    }
+
+    static <R> KustoResultColumnPopulator<R, Boolean, KustoType<Boolean>> ofBoolean(String name, int ordinal,
+            KustoResultMapper.ObjBooleanConsumer<R> valueSetter) {
+        return new BooleanPopulator<>(name, ordinal, valueSetter);
+    }
+
     KustoResultColumnPopulator(String name, int ordinal, T type, boolean isNullable, BiConsumer<R, C> valueSetter) {
         this.name = name;
         this.presetOrdinal = ordinal;
@@ -61,13 +81,112 @@ class KustoResultColumnPopulator<R, C, T extends KustoType<C>> {
         try {
             typed = this.type.type(resultValue);
         } catch (Exception e) {
-            throw new IllegalArgumentException(String.format("Column %s (ordinal %d) is of type %s but expected type is %s", this.name, ordinal,
-                    resultValue.getClass().toString(), this.type.clazz.toString()), e);
+            throw typeMismatch(ordinal, resultValue, e);
         }
         this.valueSetter.accept(objToPopulate, typed);
     }
 
+    void checkNotNull(KustoResultSetTable resultSet, int ordinal) {
+        if (resultSet.isNull(ordinal)) {
+            throw new NullPointerException(String.format("Column %s (ordinal %d) is not nullable", this.name, ordinal));
+        }
+    }
+
+    IllegalArgumentException typeMismatch(int ordinal, Object resultValue, Exception e) {
+        return new IllegalArgumentException(String.format("Column %s (ordinal %d) is of type %s but expected type is %s", this.name, ordinal,
+                resultValue.getClass().toString(), this.type.clazz.toString()), e);
+    }
+
     int columnIndexInResultSet(KustoResultSetTable resultSet) {
         return this.presetOrdinal == UNSET_ORDINAL ? resultSet.findColumn(this.name) : this.presetOrdinal;
     }
+
+    /*
+     * The populators of primitive columns read the cells with the primitive getters of the result set and pass them to primitive setters, so the values of
+     * primitive columns reach the pojo without being boxed. Their columns aren't nullable.
+     */
+
+    private static class IntPopulator<R> extends KustoResultColumnPopulator<R, Integer, KustoType<Integer>> {
+        private final ObjIntConsumer<R> intSetter;
+
+        IntPopulator(String name, int ordinal, ObjIntConsumer<R> intSetter) {
+            super(name, ordinal, KustoType.INTEGER, false, intSetter::accept);
+            this.intSetter = intSetter;
+        }
+
+        @Override
+        void populateFrom(R objToPopulate, KustoResultSetTable resultSet, int ordinal) {
+            checkNotNull(resultSet, ordinal);
+            int value;
+            try {
+                value = resultSet.getInt(ordinal);
+            } catch (ClassCastException e) {
+                throw typeMismatch(ordinal, resultSet.getObject(ordinal), e);
+            }
+            intSetter.accept(objToPopulate, value);
+        }
+    }
+
+    private static class LongPopulator<R> extends KustoResultColumnPopulator<R, Long, KustoType<Long>> {
+        private final ObjLongConsumer<R> longSetter;
+
+        LongPopulator(String name, int ordinal, ObjLongConsumer<R> longSetter) {
+            super(name, ordinal, KustoType.LONG, false, longSetter::accept);
+            this.longSetter = longSetter;
+        }
+
+        @Override
+        void populateFrom(R objToPopulate, KustoResultSetTable resultSet, int ordinal) {
+            checkNotNull(resultSet, ordinal);
+            long value;
+            try {
+                value = resultSet.getLong(ordinal);
+            } catch (ClassCastException e) {
+                throw typeMismatch(ordinal, resultSet.getObject(ordinal), e);
+            }
+            longSetter.accept(objToPopulate, value);
+        }
+    }
+
+    private static class DoublePopulator<R> extends KustoResultColumnPopulator<R, Double, KustoType<Double>> {
+        private final ObjDoubleConsumer<R> doubleSetter;
+
+        DoublePopulator(String name, int ordinal, ObjDoubleConsumer<R> doubleSetter) {
+            super(name, ordinal, KustoType.REAL_DOUBLE, false, doubleSetter::accept);
+            this.doubleSetter = doubleSetter;
+        }
+
+        @Override
+        void populateFrom(R objToPopulate, KustoResultSetTable resultSet, int ordinal) {
+            checkNotNull(resultSet, ordinal);
+            double value;
+            try {
+                value = resultSet.getDouble(ordinal);
+            } catch (ClassCastException e) {
+                throw typeMismatch(ordinal, resultSet.getObject(ordinal), e);
+            }
+            doubleSetter.accept(objToPopulate, value);
+        }
+    }
+
+    private static class BooleanPopulator<R> extends KustoResultColumnPopulator<R, Boolean, KustoType<Boolean>> {
+        private final KustoResultMapper.ObjBooleanConsumer<R> booleanSetter;
+
+        BooleanPopulator(String name, int ordinal, KustoResultMapper.ObjBooleanConsumer<R> booleanSetter) {
+            super(name, ordinal, KustoType.BOOLEAN, false, booleanSetter::accept);
+            this.booleanSetter = booleanSetter;
+        }
+
+        @Override
+        void populateFrom(R objToPopulate, KustoResultSetTable resultSet, int ordinal) {
+            checkNotNull(resultSet, ordinal);
+            boolean value;
+            try {
+                value = resultSet.getBoolean(ordinal);
+            } catch (ClassCastException e) {
+                throw typeMismatch(ordinal, resultSet.getObject(ordinal), e);
+            }
+            booleanSetter.accept(objToPopulate, value);
+        }
+    }
 }
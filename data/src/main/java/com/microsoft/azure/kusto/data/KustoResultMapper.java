@@ -3,16 +3,34 @@ package com.microsoft.azure.kusto.data;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.function.BiConsumer;
+import java.util.function.ObjDoubleConsumer;
+import java.util.function.ObjIntConsumer;
+import java.util.function.ObjLongConsumer;
 import java.util.function.Supplier;
 
 /**
  * A class for mapping Kusto results to a list of pojos
+ * <p>
+ * Columns added with a primitive setter ({@link Builder#addIntColumn}, {@link Builder#addLongColumn}, {@link Builder#addDoubleColumn} and
+ * {@link Builder#addBooleanColumn}) are read with the primitive getters of {@link KustoResultSetTable} and set without boxing the values.
+ * Method references such as {@code MyPojo::setCount} can be passed for these setters just like for the {@link BiConsumer} ones.
  *
  * @param <R>
  *            pojo type returned by the mapping
  */
 public class KustoResultMapper<R> {
 
+    /**
+     * A setter of a boolean property, the boolean counterpart of {@link ObjIntConsumer}.
+     *
+     * @param <R>
+     *            the pojo the value is set to
+     */
+    @FunctionalInterface
+    public interface ObjBooleanConsumer<R> {
+        void accept(R r, boolean value);
+    }
+
     public static class Builder<R> {
         final List<KustoResultColumnPopulator<R, ?, ?>> queryResultColumns = new ArrayList<>();
         final Supplier<R> objConstructor;
@@ -85,6 +103,190 @@ public class KustoResultMapper<R> {
             return this;
         }
 
+        /**
+         * Add a non-nullable {@code int} column by name, whose values are passed to the setter without boxing. A null value fails the extraction
+         * with a {@link NullPointerException}.
+         *
+         * @param name
+         *            column name
+         * @param setter
+         *            function for setting a cell value into a pojo instance
+         * @return {@link Builder} of the provided type of the object being populated
+         */
+        public Builder<R> addIntColumn(String name, ObjIntConsumer<R> setter) {
+            this.queryResultColumns.add(KustoResultColumnPopulator.ofInt(name, KustoResultColumnPopulator.UNSET_ORDINAL, setter));
+            return this;
+        }
+
+        /**
+         * Add a non-nullable {@code int} column by name and ordinal (column index), whose values are passed to the setter without boxing. The
+         * ordinal value will be preferred for extracting values from the {@link KustoResultSetTable}.
+         *
+         * @param name
+         *            column name
+         * @param ordinal
+         *            index of the column in the
+         * @param setter
+         *            function for setting a cell value into a pojo instance
+         * @return {@link Builder} of the provided type of the object being populated
+         */
+        public Builder<R> addIntColumn(String name, int ordinal, ObjIntConsumer<R> setter) {
+            this.queryResultColumns.add(KustoResultColumnPopulator.ofInt(name, ordinal, setter));
+            return this;
+        }
+
+        /**
+         * Add a non-nullable {@code int} column by ordinal (column index), whose values are passed to the setter without boxing.
+         *
+         * @param ordinal
+         *            index of the column in the
+         * @param setter
+         *            function for setting a cell value into a pojo instance
+         * @return {@link Builder} of the provided type of the object being populated
+         */
+        public Builder<R> addIntColumn(int ordinal, ObjIntConsumer<R> setter) {
+            this.queryResultColumns.add(KustoResultColumnPopulator.ofInt(null, ordinal, setter));
+            return this;
+        }
+
+        /**
+         * Add a non-nullable {@code long} column by name, whose values are passed to the setter without boxing. A null value fails the extraction
+         * with a {@link NullPointerException}.
+         *
+         * @param name
+         *            column name
+         * @param setter
+         *            function for setting a cell value into a pojo instance
+         * @return {@link Builder} of the provided type of the object being populated
+         */
+        public Builder<R> addLongColumn(String name, ObjLongConsumer<R> setter) {
+            this.queryResultColumns.add(KustoResultColumnPopulator.ofLong(name, KustoResultColumnPopulator.UNSET_ORDINAL, setter));
+            return this;
+        }
+
+        /**
+         * Add a non-nullable {@code long} column by name and ordinal (column index), whose values are passed to the setter without boxing. The
+         * ordinal value will be preferred for extracting values from the {@link KustoResultSetTable}.
+         *
+         * @param name
+         *            column name
+         * @param ordinal
+         *            index of the column in the
+         * @param setter
+         *            function for setting a cell value into a pojo instance
+         * @return {@link Builder} of the provided type of the object being populated
+         */
+        public Builder<R> addLongColumn(String name, int ordinal, ObjLongConsumer<R> setter) {
+            this.queryResultColumns.add(KustoResultColumnPopulator.ofLong(name, ordinal, setter));
+            return this;
+        }
+
+        /**
+         * Add a non-nullable {@code long} column by ordinal (column index), whose values are passed to the setter without boxing.
+         *
+         * @param ordinal
+         *            index of the column in the
+         * @param setter
+         *            function for setting a cell value into a pojo instance
+         * @return {@link Builder} of the provided type of the object being populated
+         */
+        public Builder<R> addLongColumn(int ordinal, ObjLongConsumer<R> setter) {
+            this.queryResultColumns.add(KustoResultColumnPopulator.ofLong(null, ordinal, setter));
+            return this;
+        }
+
+        /**
+         * Add a non-nullable {@code real} column by name, whose values are passed to the setter without boxing. A null value fails the extraction
+         * with a {@link NullPointerException}.
+         *
+         * @param name
+         *            column name
+         * @param setter
+         *            function for setting a cell value into a pojo instance
+         * @return {@link Builder} of the provided type of the object being populated
+         */
+        public Builder<R> addDoubleColumn(String name, ObjDoubleConsumer<R> setter) {
+            this.queryResultColumns.add(KustoResultColumnPopulator.ofDouble(name, KustoResultColumnPopulator.UNSET_ORDINAL, setter));
+            return this;
+        }
+
+        /**
+         * Add a non-nullable {@code real} column by name and ordinal (column index), whose values are passed to the setter without boxing. The
+         * ordinal value will be preferred for extracting values from the {@link KustoResultSetTable}.
+         *
+         * @param name
+         *            column name
+         * @param ordinal
+         *            index of the column in the
+         * @param setter
+         *            function for setting a cell value into a pojo instance
+         * @return {@link Builder} of the provided type of the object being populated
+         */
+        public Builder<R> addDoubleColumn(String name, int ordinal, ObjDoubleConsumer<R> setter) {
+            this.queryResultColumns.add(KustoResultColumnPopulator.ofDouble(name, ordinal, setter));
+            return this;
+        }
+
+        /**
+         * Add a non-nullable {@code real} column by ordinal (column index), whose values are passed to the setter without boxing.
+         *
+         * @param ordinal
+         *            index of the column in the
+         * @param setter
+         *            function for setting a cell value into a pojo instance
+         * @return {@link Builder} of the provided type of the object being populated
+         */
+        public Builder<R> addDoubleColumn(int ordinal, ObjDoubleConsumer<R> setter) {
+            this.queryResultColumns.add(KustoResultColumnPopulator.ofDouble(null, ordinal, setter));
+            return this;
+        }
+
+        /**
+         * Add a non-nullable {@code bool} column by name, whose values are passed to the setter without boxing. A null value fails the extraction
+         * with a {@link NullPointerException}.
+         *
+         * @param name
+         *            column name
+         * @param setter
+         *            function for setting a cell value into a pojo instance
+         * @return {@link Builder} of the provided type of the object being populated
+         */
+        public Builder<R> addBooleanColumn(String name, ObjBooleanConsumer<R> setter) {
+            this.queryResultColumns.add(KustoResultColumnPopulator.ofBoolean(name, KustoResultColumnPopulator.UNSET_ORDINAL, setter));
+            return this;
+        }
+
+        /**
+         * Add a non-nullable {@code bool} column by name and ordinal (column index), whose values are passed to the setter without boxing. The
+         * ordinal value will be preferred for extracting values from the {@link KustoResultSetTable}.
+         *
+         * @param name
+         *            column name
+         * @param ordinal
+         *            index of the column in the
+         * @param setter
+         *            function for setting a cell value into a pojo instance
+         * @return {@link Builder} of the provided type of the object being populated
+         */
+        public Builder<R> addBooleanColumn(String name, int ordinal, ObjBooleanConsumer<R> setter) {
+            this.queryResultColumns.add(KustoResultColumnPopulator.ofBoolean(name, ordinal, setter));
+            return this;
+        }
+
+        /**
+         * Add a non-nullable {@code bool} column by ordinal (column index), whose values are passed to the setter without boxing.
+         *
+         * @param ordinal
+         *            index of the column in the
+         * @param setter
+         *            function for setting a cell value into a pojo instance
+         * @return {@link Builder} of the provided type of the object being populated
+         */
+        public Builder<R> addBooleanColumn(int ordinal, ObjBooleanConsumer<R> setter) {
+            this.queryResultColumns.add(KustoResultColumnPopulator.ofBoolean(null, ordinal, setter));
+            return this;
+        }
+
         public KustoResultMapper<R> build() {
             return new KustoResultMapper<>(this.queryResultColumns, this.objConstructor);
         }
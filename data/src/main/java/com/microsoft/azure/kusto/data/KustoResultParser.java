@@ -0,0 +1,580 @@
+// Copyright (c) Microsoft Corporation.
+// Licensed under the MIT License.
+
+package com.microsoft.azure.kusto.data;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.microsoft.azure.kusto.data.exceptions.JsonPropertyMissingException;
+import com.microsoft.azure.kusto.data.exceptions.KustoServiceQueryError;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.microsoft.azure.kusto.data.KustoOperationResult.ONE_API_ERRORS_PROPERTY_NAME;
+
+/**
+ * Reads a v1 or v2 query response frame by frame from a Jackson {@link JsonParser}.
+ * Table metadata is read up to the "Rows" array, and rows are then decoded one at a time straight from the token stream, so a response is never
+ * materialized as a {@link JsonNode} tree.
+ */
+class KustoResultParser implements Closeable {
+    static final String TABLES_LIST_PROPERTY_NAME = "Tables";
+    static final String FRAME_TYPE_PROPERTY_NAME = "FrameType";
+    static final String DATA_TABLE_FRAME_TYPE_PROPERTY_VALUE = "DataTable";
+    static final String DATA_SET_COMPLETION_FRAME_TYPE_PROPERTY_VALUE = "DataSetCompletion";
+    static final String HAS_ERRORS_PROPERTY_NAME = "HasErrors";
+
+    private final JsonParser parser;
+    private final ObjectMapper objectMapper;
+    private final boolean isV2;
+    @Nullable
+    private final KustoColumnSelection columnSelection;
+    private boolean started = false;
+    private boolean finished = false;
+    private Frame currentFrame = null;
+    private final KustoRowBuffer cursorRow = new KustoRowBuffer();
+
+    KustoResultParser(JsonParser parser, ObjectMapper objectMapper, boolean isV2) {
+        this(parser, objectMapper, isV2, null);
+    }
+
+    /**
+     * @param columnSelection the columns to keep in the primary result tables, or null to keep them all
+     */
+    KustoResultParser(JsonParser parser, ObjectMapper objectMapper, boolean isV2, @Nullable KustoColumnSelection columnSelection) {
+        this.parser = parser;
+        this.objectMapper = objectMapper;
+        this.isV2 = isV2;
+        this.columnSelection = columnSelection;
+    }
+
+    /**
+     * Skips whatever is left of the current table and reads the metadata of the next one.
+     * For v2 responses only DataTable frames are returned, and a DataSetCompletion frame that reports errors is thrown as a
+     * {@link KustoServiceQueryError}.
+     *
+     * @return the next table, positioned before its first row, or null once the response is exhausted
+     */
+    @Nullable
+    Frame nextTable() throws IOException {
+        if (!started) {
+            started = true;
+            enterTablesArray();
+        }
+        if (currentFrame != null) {
+            skipRows();
+        }
+
+        while (!finished) {
+            JsonToken token = parser.nextToken();
+            if (token == null || token == JsonToken.END_ARRAY) {
+                finished = true;
+                break;
+            }
+            if (token != JsonToken.START_OBJECT) {
+                parser.skipChildren();
+                continue;
+            }
+
+            Frame frame = new Frame();
+            boolean atRows = readFields(parser, objectMapper, frame);
+            if (!isV2 || DATA_TABLE_FRAME_TYPE_PROPERTY_VALUE.equals(frame.frameType)) {
+                selectColumns(frame, columnSelection, isV2);
+                frame.rowsPending = atRows;
+                currentFrame = frame;
+                return frame;
+            }
+
+            if (atRows) {
+                if (frame.frameType == null) {
+                    // The frame type is normally the first property, but nothing guarantees it - keep the rows until the frame is classified
+                    frame.rowsPending = true;
+                    currentFrame = frame;
+                    selectColumns(frame, columnSelection, isV2);
+                    frame.bufferedRows = readRows();
+                    currentFrame = null;
+                } else {
+                    parser.skipChildren();
+                    finishFrame(frame);
+                }
+            }
+
+            if (DATA_SET_COMPLETION_FRAME_TYPE_PROPERTY_VALUE.equals(frame.frameType) && frame.hasErrors) {
+                throw KustoServiceQueryError.fromOneApiErrorArray(frame.oneApiErrors, true);
+            }
+            if (DATA_TABLE_FRAME_TYPE_PROPERTY_VALUE.equals(frame.frameType)) {
+                currentFrame = frame;
+                return frame;
+            }
+        }
+
+        currentFrame = null;
+        return null;
+    }
+
+    /**
+     * Reads the next row of the current table. Once the last row has been read the rest of the table's frame is consumed.
+     *
+     * @return the row values, or null when the table has no more rows
+     */
+    @Nullable
+    List<Object> nextRow() throws IOException {
+        Frame frame = currentFrame;
+        if (frame != null && frame.bufferedRows != null) {
+            return frame.bufferedRowIndex < frame.bufferedRows.size() ? frame.bufferedRows.get(frame.bufferedRowIndex++) : null;
+        }
+        return nextRow(cursorRow) ? cursorRow.toList() : null;
+    }
+
+    /**
+     * Reads the next row of the current table into the given buffer, which is cleared first.
+     *
+     * @return false when the table has no more rows
+     */
+    boolean nextRow(KustoRowBuffer row) throws IOException {
+        row.clear();
+        Frame frame = currentFrame;
+        if (frame == null) {
+            return false;
+        }
+        if (frame.bufferedRows != null) {
+            if (frame.bufferedRowIndex == frame.bufferedRows.size()) {
+                return false;
+            }
+            row.set(frame.bufferedRows.get(frame.bufferedRowIndex++));
+            return true;
+        }
+        if (!frame.rowsPending) {
+            return false;
+        }
+
+        JsonToken token = parser.nextToken();
+        if (token == JsonToken.END_ARRAY) {
+            frame.rowsPending = false;
+            finishFrame(frame);
+            return false;
+        }
+        if (token == JsonToken.START_OBJECT) {
+            throw rowError(objectMapper.readTree(parser));
+        }
+        if (token != JsonToken.START_ARRAY) {
+            throw unexpectedRowToken(token);
+        }
+
+        int column = 0;
+        while ((token = parser.nextToken()) != JsonToken.END_ARRAY) {
+            if (frame.isSkipped(column++)) {
+                parser.skipChildren();
+                continue;
+            }
+            readCell(parser, token, objectMapper, cellType(frame, row.size()), row);
+        }
+        return true;
+    }
+
+    boolean isCurrentTable(Frame frame) {
+        return currentFrame == frame;
+    }
+
+    /**
+     * Reads all the remaining rows of the current table into columnar storage.
+     */
+    List<List<Object>> readRows() throws IOException {
+        KustoColumnarRows.Builder rows = new KustoColumnarRows.Builder(currentFrame == null ? null : currentFrame.columns);
+        KustoRowBuffer row = new KustoRowBuffer();
+        while (nextRow(row)) {
+            rows.add(row);
+        }
+        return rows.build();
+    }
+
+    /**
+     * Reads a single table that is already held as a tree, as used by {@link KustoResultSetTable#KustoResultSetTable(JsonNode)}.
+     */
+    static Frame readTable(JsonNode jsonTable, ObjectMapper objectMapper) throws IOException {
+        try (JsonParser parser = jsonTable.traverse(objectMapper)) {
+            Frame frame = new Frame();
+            if (parser.nextToken() == JsonToken.START_OBJECT) {
+                KustoResultParser resultParser = new KustoResultParser(parser, objectMapper, false);
+                frame.rowsPending = readFields(parser, objectMapper, frame);
+                resultParser.currentFrame = frame;
+                frame.bufferedRows = resultParser.readRows();
+            }
+            return frame;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        parser.close();
+    }
+
+    private void enterTablesArray() throws IOException {
+        JsonToken token = parser.nextToken();
+        if (isV2) {
+            if (token != JsonToken.START_ARRAY) {
+                throw new JsonPropertyMissingException("There is no array in the response which can be parsed");
+            }
+            return;
+        }
+
+        if (token == JsonToken.START_OBJECT) {
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String name = parser.currentName();
+                if (parser.nextToken() == JsonToken.START_ARRAY && TABLES_LIST_PROPERTY_NAME.equals(name)) {
+                    return;
+                }
+                parser.skipChildren();
+            }
+        }
+        throw new JsonPropertyMissingException("Tables Property missing from V1 response json");
+    }
+
+    private void skipRows() throws IOException {
+        Frame frame = currentFrame;
+        currentFrame = null;
+        if (frame.bufferedRows != null || !frame.rowsPending) {
+            return;
+        }
+
+        JsonToken token;
+        while ((token = parser.nextToken()) != JsonToken.END_ARRAY) {
+            if (token == null) {
+                return;
+            }
+            parser.skipChildren();
+        }
+        frame.rowsPending = false;
+        finishFrame(frame);
+    }
+
+    private void finishFrame(Frame frame) throws IOException {
+        if (readFields(parser, objectMapper, frame)) {
+            // A second "Rows" property is not something the service sends, ignore it
+            parser.skipChildren();
+            finishFrame(frame);
+        }
+    }
+
+    /**
+     * Reads the properties of a frame until its "Rows" array or its end.
+     *
+     * @return true if the parser stopped at the start of the "Rows" array
+     */
+    static boolean readFields(JsonParser parser, ObjectMapper objectMapper, Frame frame) throws IOException {
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String name = parser.currentName();
+            JsonToken token = parser.nextToken();
+            switch (name) {
+                case KustoResultSetTable.ROWS_PROPERTY_NAME:
+                    if (token == JsonToken.START_ARRAY) {
+                        return true;
+                    }
+                    break;
+                case KustoResultSetTable.COLUMNS_PROPERTY_NAME:
+                    if (token == JsonToken.START_ARRAY) {
+                        frame.columns = readColumns(parser);
+                        frame.cellTypes = new CellType[frame.columns.length];
+                        for (int i = 0; i < frame.columns.length; i++) {
+                            frame.cellTypes[i] = CellType.of(frame.columns[i].getColumnType());
+                        }
+                        continue;
+                    }
+                    break;
+                case FRAME_TYPE_PROPERTY_NAME:
+                    frame.frameType = readText(parser, token);
+                    break;
+                case KustoResultSetTable.TABLE_NAME_PROPERTY_NAME:
+                    frame.tableName = readText(parser, token);
+                    break;
+                case KustoResultSetTable.TABLE_ID_PROPERTY_NAME:
+                    frame.tableId = readText(parser, token);
+                    break;
+                case KustoResultSetTable.TABLE_KIND_PROPERTY_NAME:
+                    frame.tableKind = readText(parser, token);
+                    break;
+                case HAS_ERRORS_PROPERTY_NAME:
+                    frame.hasErrors = parser.getValueAsBoolean();
+                    break;
+                case ONE_API_ERRORS_PROPERTY_NAME:
+                    if (token == JsonToken.START_ARRAY) {
+                        frame.oneApiErrors = objectMapper.readTree(parser);
+                        continue;
+                    }
+                    break;
+                default:
+                    break;
+            }
+            parser.skipChildren();
+        }
+        return false;
+    }
+
+    private static KustoResultColumn[] readColumns(JsonParser parser) throws IOException {
+        List<KustoResultColumn> columns = new ArrayList<>();
+        JsonToken token;
+        while ((token = parser.nextToken()) != JsonToken.END_ARRAY) {
+            String columnName = null;
+            String columnType = null;
+            String secondColumnType = null;
+            if (token == JsonToken.START_OBJECT) {
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    String name = parser.currentName();
+                    String value = readText(parser, parser.nextToken());
+                    parser.skipChildren();
+                    switch (name) {
+                        case KustoResultSetTable.COLUMN_NAME_PROPERTY_NAME:
+                            columnName = value;
+                            break;
+                        case KustoResultSetTable.COLUMN_TYPE_PROPERTY_NAME:
+                            columnType = value;
+                            break;
+                        case KustoResultSetTable.COLUMN_TYPE_SECOND_PROPERTY_NAME:
+                            secondColumnType = value;
+                            break;
+                        default:
+                            break;
+                    }
+                }
+            } else {
+                parser.skipChildren();
+            }
+
+            if (columnName == null) {
+                throw new JsonPropertyMissingException("Column Name property is missing in the json response");
+            }
+            // TODO yischoen Use CslFormat classes to validate columnType is valid, and that its value is valid for columnType
+            if (StringUtils.isEmpty(columnType)) {
+                columnType = secondColumnType == null ? "" : secondColumnType;
+            }
+            columns.add(new KustoResultColumn(columnName, columnType, columns.size()));
+        }
+        return columns.toArray(new KustoResultColumn[0]);
+    }
+
+    /**
+     * Drops the columns that aren't selected from a primary result table of a v2 response, before its rows are read.
+     */
+    static void selectColumns(Frame frame, @Nullable KustoColumnSelection selection, boolean isV2) {
+        if (selection == null || !isV2 || frame.columns == null || frame.skippedColumns != null
+                || !WellKnownDataSet.PrimaryResult.name().equals(frame.tableKind)) {
+            return;
+        }
+
+        boolean[] skipped = selection.skippedColumns(frame.columns);
+        List<KustoResultColumn> columns = new ArrayList<>();
+        List<CellType> cellTypes = new ArrayList<>();
+        for (int i = 0; i < frame.columns.length; i++) {
+            if (!skipped[i]) {
+                columns.add(new KustoResultColumn(frame.columns[i].getColumnName(), frame.columns[i].getColumnType(), columns.size()));
+                cellTypes.add(frame.cellTypes[i]);
+            }
+        }
+        frame.columns = columns.toArray(new KustoResultColumn[0]);
+        frame.cellTypes = cellTypes.toArray(new CellType[0]);
+        frame.skippedColumns = skipped;
+    }
+
+    /**
+     * Builds the error reported by the service in place of a row.
+     */
+    static KustoServiceQueryError rowError(JsonNode row) {
+        ArrayNode exceptions = row.has(KustoResultSetTable.EXCEPTIONS_PROPERTY_NAME) ? ((ArrayNode) row.get(KustoResultSetTable.EXCEPTIONS_PROPERTY_NAME))
+                : null;
+        if (exceptions != null) {
+            return KustoServiceQueryError.fromOneApiErrorArray(exceptions, exceptions.size() == 1); // TODO: this is the same logic as before, should
+                                                                                                    // check with Yehezkel why isOneApi error is true
+                                                                                                    // if there is one exception
+        } else {
+            return KustoServiceQueryError.fromOneApiErrorArray((ArrayNode) row.get(ONE_API_ERRORS_PROPERTY_NAME), true);
+        }
+    }
+
+    static JsonPropertyMissingException unexpectedRowToken(JsonToken token) {
+        return new JsonPropertyMissingException("Expected a row array in table rows but found " + token);
+    }
+
+    private static String readText(JsonParser parser, JsonToken token) throws IOException {
+        // Same as JsonNode.asText(): containers have no text
+        return token.isScalarValue() ? parser.getText() : "";
+    }
+
+    static CellType cellType(Frame frame, int columnIndex) {
+        return frame.cellTypes != null && columnIndex < frame.cellTypes.length ? frame.cellTypes[columnIndex] : CellType.OTHER;
+    }
+
+    /**
+     * Decodes the cell value at the current token into the row, like {@link #readValue}, except that booleans and the numbers of int, long and
+     * real columns are added as primitives.
+     */
+    static void readCell(JsonParser parser, JsonToken token, ObjectMapper objectMapper, CellType cellType, KustoRowBuffer row) throws IOException {
+        switch (token) {
+            case VALUE_NULL:
+                row.addNull();
+                return;
+            case VALUE_TRUE:
+            case VALUE_FALSE:
+                row.addBoolean(token == JsonToken.VALUE_TRUE);
+                return;
+            case VALUE_NUMBER_INT:
+                if (cellType == CellType.INT && parser.getNumberType() == JsonParser.NumberType.INT) {
+                    row.addInt(parser.getIntValue());
+                    return;
+                }
+                if (cellType == CellType.LONG && parser.getNumberType() != JsonParser.NumberType.BIG_INTEGER) {
+                    row.addLong(parser.getLongValue());
+                    return;
+                }
+                // Fall through to real columns
+            case VALUE_NUMBER_FLOAT:
+                if (cellType == CellType.REAL) {
+                    row.addDouble(parser.getDoubleValue());
+                    return;
+                }
+                break;
+            case VALUE_STRING:
+                if (cellType == CellType.REAL) {
+                    Double special = readSpecialDouble(parser.getText());
+                    if (special != null) {
+                        row.addDouble(special);
+                        return;
+                    }
+                }
+                break;
+            default:
+                break;
+        }
+        row.addObject(readValue(parser, token, objectMapper, cellType));
+    }
+
+    /**
+     * Decodes the cell value at the current token, as the declared type of its column asks: numbers in int and long columns are read as
+     * Integer and Long, numbers in real columns as Double (including the "NaN" and "Infinity" strings) and numbers in decimal columns as exact
+     * BigDecimals. Values of other columns keep their JSON representation, with exact BigDecimals for floating point literals. Objects and arrays
+     * are read as a tree, except in dynamic columns where they are kept as a {@link KustoDynamicValue} until they are accessed.
+     */
+    static Object readValue(JsonParser parser, JsonToken token, ObjectMapper objectMapper, CellType cellType) throws IOException {
+        switch (token) {
+            case VALUE_NULL:
+                return null;
+            case VALUE_STRING:
+                if (cellType == CellType.REAL) {
+                    Double special = readSpecialDouble(parser.getText());
+                    if (special != null) {
+                        return special;
+                    }
+                }
+                return parser.getText();
+            case VALUE_TRUE:
+                return Boolean.TRUE;
+            case VALUE_FALSE:
+                return Boolean.FALSE;
+            case VALUE_NUMBER_INT:
+            case VALUE_NUMBER_FLOAT:
+                return readNumber(parser, token, objectMapper, cellType);
+            default:
+                // Objects and arrays of dynamic columns are only decoded when they are read, other ones are kept as trees
+                if (cellType == CellType.DYNAMIC) {
+                    return KustoDynamicValue.read(parser, objectMapper);
+                }
+                return objectMapper.readTree(parser);
+        }
+    }
+
+    private static Object readNumber(JsonParser parser, JsonToken token, ObjectMapper objectMapper, CellType cellType) throws IOException {
+        switch (cellType) {
+            case INT:
+                if (token == JsonToken.VALUE_NUMBER_INT && parser.getNumberType() == JsonParser.NumberType.INT) {
+                    return parser.getIntValue();
+                }
+                break;
+            case LONG:
+                if (token == JsonToken.VALUE_NUMBER_INT && parser.getNumberType() != JsonParser.NumberType.BIG_INTEGER) {
+                    return parser.getLongValue();
+                }
+                break;
+            case REAL:
+                return parser.getDoubleValue();
+            case DECIMAL:
+                return parser.getDecimalValue();
+            default:
+                break;
+        }
+
+        // Floating point literals come back as exact BigDecimals, like the tree model does with USE_BIG_DECIMAL_FOR_FLOATS
+        Number number = parser.getNumberValueExact();
+        if (number instanceof BigInteger) {
+            return objectMapper.getNodeFactory().numberNode((BigInteger) number);
+        }
+        return number;
+    }
+
+    @Nullable
+    private static Double readSpecialDouble(String text) {
+        switch (text) {
+            case "NaN":
+                return Double.NaN;
+            case "Infinity":
+                return Double.POSITIVE_INFINITY;
+            case "-Infinity":
+                return Double.NEGATIVE_INFINITY;
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * How the cells of a column are decoded, by the column's declared type.
+     */
+    enum CellType {
+        INT, LONG, REAL, DECIMAL, DYNAMIC, OTHER;
+
+        static CellType of(String columnType) {
+            switch (columnType) {
+                case "int":
+                    return INT;
+                case "long":
+                    return LONG;
+                case "real":
+                    return REAL;
+                case "decimal":
+                    return DECIMAL;
+                case "dynamic":
+                    return DYNAMIC;
+                default:
+                    return OTHER;
+            }
+        }
+    }
+
+    /**
+     * The metadata of a single frame (v2) or table (v1).
+     */
+    static class Frame {
+        String frameType = null;
+        String tableName = null;
+        String tableId = "";
+        String tableKind = "";
+        KustoResultColumn[] columns = null;
+        CellType[] cellTypes = null;
+        boolean hasErrors = false;
+        ArrayNode oneApiErrors = null;
+        private boolean rowsPending = false;
+        List<List<Object>> bufferedRows = null;
+        private int bufferedRowIndex = 0;
+        // Indexed by the columns of the response, before the selection
+        boolean[] skippedColumns = null;
+
+        boolean isSkipped(int column) {
+            return skippedColumns != null && column < skippedColumns.length && skippedColumns[column];
+        }
+    }
+}
@@ -4,12 +4,11 @@
 package com.microsoft.azure.kusto.data;
 
 import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.node.ArrayNode;
-import com.fasterxml.jackson.databind.node.JsonNodeType;
-import com.microsoft.azure.kusto.data.exceptions.JsonPropertyMissingException;
 import com.microsoft.azure.kusto.data.exceptions.KustoServiceQueryError;
+import com.microsoft.azure.kusto.data.format.KustoTemporalParser;
 
 import java.io.ByteArrayInputStream;
+import java.io.IOException;
 import java.io.InputStream;
 import java.io.Reader;
 import java.io.StringReader;
@@ -28,9 +27,8 @@ import java.time.format.SignStyle;
 import java.time.temporal.ChronoField;
 import java.util.*;
 
-import static com.microsoft.azure.kusto.data.KustoOperationResult.ONE_API_ERRORS_PROPERTY_NAME;
-
-// This class does not keep an open connection with the cluster - the results are evaluated once and can be retrieved using getData()
+// This class does not keep an open connection with the cluster - the results are evaluated once and can be retrieved using getData().
+// Parsed tables keep their rows column by column (see KustoColumnarRows), and the primitive getters read those columns without boxing.
 public class KustoResultSetTable {
     protected static final String TABLE_NAME_PROPERTY_NAME = "TableName";
     protected static final String TABLE_ID_PROPERTY_NAME = "TableId";
@@ -42,11 +40,10 @@ public class KustoResultSetTable {
     protected static final String ROWS_PROPERTY_NAME = "Rows";
     protected static final String EXCEPTIONS_PROPERTY_NAME = "Exceptions";
 
-    private static final String EMPTY_STRING = "";
     private static final DateTimeFormatter kustoDateTimeFormatter = new DateTimeFormatterBuilder().parseCaseInsensitive()
             .append(DateTimeFormatter.ISO_LOCAL_DATE_TIME).appendLiteral('Z').toFormatter();
 
-    private static final DateTimeFormatterBuilder  parseFormatterBuilder = new DateTimeFormatterBuilder()
+    private static final DateTimeFormatter parseFormatter = new DateTimeFormatterBuilder()
             .appendPattern("yyyy-MM-dd")
             .optionalStart().appendLiteral('T').optionalEnd() // Optional 'T' between date and time
             .appendPattern("HH:mm:") // Required time part
@@ -58,7 +55,8 @@ public class KustoResultSetTable {
             .appendLiteral('Z')
             .optionalEnd() // Optional 'Z' at the end for UTC time
             .parseCaseInsensitive() // Ensure case-insensitive parsing for 'Z'
-            .parseLenient(); // Allow lenient parsing to handle malformed strings (worst case fallback)
+            .parseLenient() // Allow lenient parsing to handle malformed strings (worst case fallback)
+            .toFormatter();
 
     private final List<List<Object>> rows;
     private String tableName;
@@ -98,104 +96,77 @@ public class KustoResultSetTable {
     }
 
     protected KustoResultSetTable(JsonNode jsonTable) {
-        if (jsonTable.has(TABLE_NAME_PROPERTY_NAME)) {
-            tableName = jsonTable.get(TABLE_NAME_PROPERTY_NAME).asText();
-        }
-        if (jsonTable.has(TABLE_ID_PROPERTY_NAME)) {
-            tableId = jsonTable.get(TABLE_ID_PROPERTY_NAME).asText();
-        }
-        tableId = jsonTable.has(TABLE_ID_PROPERTY_NAME) ? jsonTable.get(TABLE_ID_PROPERTY_NAME).asText() : EMPTY_STRING;
-        String tableKindString = jsonTable.has(TABLE_KIND_PROPERTY_NAME) ? jsonTable.get(TABLE_KIND_PROPERTY_NAME).asText() : EMPTY_STRING;
-        tableKind = StringUtils.isBlank(tableKindString) ? null : WellKnownDataSet.valueOf(tableKindString);
-
-        if (jsonTable.has(COLUMNS_PROPERTY_NAME) && jsonTable.get(COLUMNS_PROPERTY_NAME).getNodeType() == JsonNodeType.ARRAY) {
-            ArrayNode columnsJson = (ArrayNode) jsonTable.get(COLUMNS_PROPERTY_NAME);
-            if (columnsJson != null) {
-                columnsAsArray = new KustoResultColumn[columnsJson.size()];
-                for (int i = 0; i < columnsJson.size(); i++) {
-                    JsonNode jsonCol = columnsJson.get(i);
-
-                    // TODO yischoen Use CslFormat classes to validate columnType is valid, and that its value ("JsonNode obj" below) is valid for columnType
-                    String columnType = jsonCol.has(COLUMN_TYPE_PROPERTY_NAME) ? jsonCol.get(COLUMN_TYPE_PROPERTY_NAME).asText() : EMPTY_STRING;
-                    if (columnType.isEmpty()) {
-                        columnType = jsonCol.has(COLUMN_TYPE_SECOND_PROPERTY_NAME) ? jsonCol.get(COLUMN_TYPE_SECOND_PROPERTY_NAME).asText() : EMPTY_STRING;
-                    }
-                    if (jsonCol.has(COLUMN_NAME_PROPERTY_NAME)) {
-                        KustoResultColumn col = new KustoResultColumn(
-                                jsonCol.has(COLUMN_NAME_PROPERTY_NAME) ? jsonCol.get(COLUMN_NAME_PROPERTY_NAME).asText() : EMPTY_STRING, columnType, i);
-                        columnsAsArray[i] = col;
-                        columns.put(jsonCol.has(COLUMN_NAME_PROPERTY_NAME) ? jsonCol.get(COLUMN_NAME_PROPERTY_NAME).asText() : EMPTY_STRING, col);
-                    } else {
-                        throw new JsonPropertyMissingException("Column Name property is missing in the json response");
-                    }
-                }
+        this(readTable(jsonTable));
+    }
+
+    private KustoResultSetTable(KustoResultParser.Frame frame) {
+        this(frame, frame.bufferedRows == null ? new ArrayList<>() : frame.bufferedRows);
+    }
+
+    KustoResultSetTable(KustoResultParser.Frame frame, List<List<Object>> rows) {
+        this(frame, rows, rows.iterator());
+    }
+
+    /**
+     * Creates a table whose rows are produced by the given iterator as they are read. Such a table has no row list, so navigation methods that
+     * depend on one must be overridden.
+     */
+    KustoResultSetTable(KustoResultParser.Frame frame, Iterator<List<Object>> rowIterator) {
+        this(frame, null, rowIterator);
+    }
+
+    private KustoResultSetTable(KustoResultParser.Frame frame, List<List<Object>> rows, Iterator<List<Object>> rowIterator) {
+        tableName = frame.tableName;
+        tableId = frame.tableId;
+        tableKind = StringUtils.isBlank(frame.tableKind) ? null : WellKnownDataSet.valueOf(frame.tableKind);
+        columnsAsArray = frame.columns;
+        if (columnsAsArray != null) {
+            for (KustoResultColumn col : columnsAsArray) {
+                columns.put(col.getColumnName(), col);
             }
         }
 
-        ArrayNode exceptions;
-        ArrayNode jsonRows = null;
-        if (jsonTable.has(ROWS_PROPERTY_NAME) && jsonTable.get(ROWS_PROPERTY_NAME).getNodeType() == JsonNodeType.ARRAY) {
-            jsonRows = (ArrayNode) jsonTable.get(ROWS_PROPERTY_NAME);
-        }
-        if (jsonRows != null) {
-            List<List<Object>> values = new ArrayList<>();
-            for (int i = 0; i < jsonRows.size(); i++) {
-                JsonNode row = jsonRows.get(i);
-                if (jsonRows.get(i).getNodeType() == JsonNodeType.OBJECT) {
-                    exceptions = row.has(EXCEPTIONS_PROPERTY_NAME) ? ((ArrayNode) row.get(EXCEPTIONS_PROPERTY_NAME)) : null;
-                    if (exceptions != null) {
-                        throw KustoServiceQueryError.fromOneApiErrorArray(exceptions, exceptions.size() == 1); // TODO: this is the same logic as before, should
-                                                                                                               // check with Yehezkel why isOneApi error is true
-                                                                                                               // if there is one exception
-                    } else {
-                        throw KustoServiceQueryError.fromOneApiErrorArray((ArrayNode) row.get(ONE_API_ERRORS_PROPERTY_NAME), true);
-                    }
-                }
-                ArrayNode rowAsJsonArray = (ArrayNode) jsonRows.get(i);
-                List<Object> rowVector = new ArrayList<>();
-                for (int j = 0; j < rowAsJsonArray.size(); j++) {
-                    JsonNode obj = rowAsJsonArray.get(j);
-                    if (obj.isNull()) {
-                        rowVector.add(null);
-                    } else {
-                        switch (rowAsJsonArray.get(j).getNodeType()) {
-                            case STRING:
-                                rowVector.add(obj.asText());
-                                break;
-                            case BOOLEAN:
-                                rowVector.add(obj.asBoolean());
-                                break;
-                            case NUMBER:
-                                if (obj.isInt()) {
-                                    rowVector.add(obj.asInt());
-                                } else if (obj.isLong()) {
-                                    rowVector.add(obj.asLong());
-                                } else if (obj.isBigDecimal()) {
-                                    rowVector.add(obj.decimalValue());
-                                } else if (obj.isDouble()) {
-                                    rowVector.add(obj.asDouble());
-                                } else if (obj.isShort()) {
-                                    rowVector.add(obj.shortValue());
-                                } else if (obj.isFloat()) {
-                                    rowVector.add(obj.floatValue());
-                                } else {
-                                    rowVector.add(obj);
-                                }
-                                break;
-                            default:
-                                rowVector.add(obj);
-                        }
-                    }
-                }
-                values.add(rowVector);
-            }
+        this.rows = rows;
+        this.rowIterator = rowIterator;
+    }
+
+    private KustoResultSetTable(KustoResultSetTable other, List<List<Object>> rows) {
+        tableName = other.tableName;
+        tableId = other.tableId;
+        tableKind = other.tableKind;
+        columnsAsArray = other.columnsAsArray;
+        columns.putAll(other.columns);
+        this.rows = rows;
+        rowIterator = rows.iterator();
+    }
 
-            rows = values;
-        } else {
-            rows = new ArrayList<>();
+    /**
+     * @return a table over the same rows, positioned before the first row
+     */
+    KustoResultSetTable copy() {
+        return new KustoResultSetTable(this, rows);
+    }
+
+    /**
+     * @return a copy of the table whose rows are on the heap, so it isn't affected when this table is closed
+     */
+    KustoResultSetTable heapCopy() {
+        if (!(rows instanceof KustoColumnarRows) || !((KustoColumnarRows) rows).isOffHeap()) {
+            return copy();
+        }
+        KustoColumnarRows.Builder heapRows = new KustoColumnarRows.Builder(columnsAsArray);
+        for (List<Object> row : rows) {
+            heapRows.add(new ArrayList<>(row));
         }
+        return new KustoResultSetTable(this, heapRows.build());
+    }
 
-        rowIterator = rows.iterator();
+    private static KustoResultParser.Frame readTable(JsonNode jsonTable) {
+        try {
+            return KustoResultParser.readTable(jsonTable, JsonCodecs.mapper());
+        } catch (IOException e) {
+            throw new KustoServiceQueryError("Json processing error occurred while parsing string to json with exception " + e.getMessage());
+        }
     }
 
     public List<Object> getCurrentRow() {
@@ -218,12 +189,30 @@ public class KustoResultSetTable {
         return rows;
     }
 
+    /**
+     * Releases the off-heap buffers of the table, see {@link ClientRequestProperties#setOffHeapResults(boolean)}. The rows of the table can't be
+     * read once it is closed. Closing a table whose rows are on the heap does nothing.
+     */
+    public void close() {
+        if (rows instanceof KustoColumnarRows) {
+            ((KustoColumnarRows) rows).close();
+        }
+    }
+
     private Object get(int columnIndex) {
         return currentRow.get(columnIndex);
     }
 
     private Object get(String columnName) {
-        return currentRow.get(findColumn(columnName));
+        return get(findColumn(columnName));
+    }
+
+    // Tells if a cell is null without boxing the values of primitive columns
+    boolean isNull(int columnIndex) {
+        if (currentRow instanceof KustoColumnarRows.Row) {
+            return ((KustoColumnarRows.Row) currentRow).isNull(columnIndex);
+        }
+        return currentRow.get(columnIndex) == null;
     }
 
     public String getString(int columnIndex) {
@@ -235,7 +224,34 @@ public class KustoResultSetTable {
         return obj.toString();
     }
 
+    /**
+     * Gets the code of the current row's value in the dictionary of a string column, see {@link #getStringDictionary(int)}. Rows with equal
+     * values have equal codes, so they can be grouped or compared by code without comparing the strings.
+     *
+     * @return the code of the value, or -1 if it is null
+     * @throws IllegalStateException if the column isn't dictionary-encoded
+     */
+    public int getStringCode(int columnIndex) {
+        if (currentRow instanceof KustoColumnarRows.Row) {
+            return ((KustoColumnarRows.Row) currentRow).getStringCode(columnIndex);
+        }
+        throw new IllegalStateException("Column isn't dictionary-encoded");
+    }
+
+    /**
+     * Gets the distinct values of a dictionary-encoded string column, indexed by their codes. String columns are dictionary-encoded while
+     * parsing as long as most of their values repeat.
+     *
+     * @return the values of the column by code, or null if the column isn't dictionary-encoded
+     */
+    public List<String> getStringDictionary(int columnIndex) {
+        return rows instanceof KustoColumnarRows ? ((KustoColumnarRows) rows).getStringDictionary(columnIndex) : null;
+    }
+
     public boolean getBoolean(int columnIndex) {
+        if (currentRow instanceof KustoColumnarRows.Row) {
+            return ((KustoColumnarRows.Row) currentRow).getBoolean(columnIndex);
+        }
         return (boolean) get(columnIndex);
     }
 
@@ -244,39 +260,57 @@ public class KustoResultSetTable {
     }
 
     public byte getByte(int columnIndex) {
-        Object obj = get(columnIndex);
-        if (obj instanceof Integer) {
-            return ((Integer) obj).byteValue();
+        if (currentRow instanceof KustoColumnarRows.Row) {
+            return ((KustoColumnarRows.Row) currentRow).getByte(columnIndex);
+        }
+        return toByte(get(columnIndex));
+    }
+
+    static byte toByte(Object obj) {
+        if (obj instanceof Integer || obj instanceof Long) {
+            return ((Number) obj).byteValue();
         }
         return (byte) obj;
     }
 
-    private Object getShortGeneric(int columnIndex) {
-        Object obj = get(columnIndex);
-        if (obj instanceof Integer) {
-            return ((Integer) obj).shortValue();
+    static Object toShortObject(Object obj) {
+        if (obj instanceof Integer || obj instanceof Long) {
+            return ((Number) obj).shortValue();
         }
         return obj;
     }
 
     public short getShort(int columnIndex) {
-        return (short) getShortGeneric(columnIndex);
+        if (currentRow instanceof KustoColumnarRows.Row) {
+            return ((KustoColumnarRows.Row) currentRow).getShort(columnIndex);
+        }
+        return (short) toShortObject(get(columnIndex));
     }
 
     public Short getShortObject(int columnIndex) {
-        return (Short) getShortGeneric(columnIndex);
+        return (Short) toShortObject(get(columnIndex));
+    }
+
+    // Values of long columns can be read as ints as long as they fit
+    static Object toIntegerObject(Object obj) {
+        if (obj instanceof Long && (Long) obj == ((Long) obj).intValue()) {
+            return ((Long) obj).intValue();
+        }
+        return obj;
     }
 
     public int getInt(int columnIndex) {
-        return (int) get(columnIndex);
+        if (currentRow instanceof KustoColumnarRows.Row) {
+            return ((KustoColumnarRows.Row) currentRow).getInt(columnIndex);
+        }
+        return (int) toIntegerObject(get(columnIndex));
     }
 
     public Integer getIntegerObject(int columnIndex) {
-        return (Integer) get(columnIndex);
+        return (Integer) toIntegerObject(get(columnIndex));
     }
 
-    private Object getLongGeneric(int columnIndex) {
-        Object obj = get(columnIndex);
+    static Object toLongObject(Object obj) {
         if (obj instanceof Integer) {
             return ((Integer) obj).longValue();
         }
@@ -284,31 +318,35 @@ public class KustoResultSetTable {
     }
 
     public long getLong(int columnIndex) {
-        return (long) getLongGeneric(columnIndex);
+        if (currentRow instanceof KustoColumnarRows.Row) {
+            return ((KustoColumnarRows.Row) currentRow).getLong(columnIndex);
+        }
+        return (long) toLongObject(get(columnIndex));
     }
 
     public Long getLongObject(int columnIndex) {
-        return (Long) getLongGeneric(columnIndex);
+        return (Long) toLongObject(get(columnIndex));
     }
 
-    private Object getFloatGeneric(int columnIndex) {
-        Object obj = get(columnIndex);
-        if (obj instanceof BigDecimal) {
-            return ((BigDecimal) obj).floatValue();
+    static Object toFloatObject(Object obj) {
+        if (obj instanceof BigDecimal || obj instanceof Double) {
+            return ((Number) obj).floatValue();
         }
         return obj;
     }
 
     public float getFloat(int columnIndex) {
-        return (float) getFloatGeneric(columnIndex);
+        if (currentRow instanceof KustoColumnarRows.Row) {
+            return ((KustoColumnarRows.Row) currentRow).getFloat(columnIndex);
+        }
+        return (float) toFloatObject(get(columnIndex));
     }
 
     public Float getFloatObject(int columnIndex) {
-        return (Float) getFloatGeneric(columnIndex);
+        return (Float) toFloatObject(get(columnIndex));
     }
 
-    private Object getDoubleGeneric(int columnIndex) {
-        Object obj = get(columnIndex);
+    static Object toDoubleObject(Object obj) {
         if (obj instanceof BigDecimal) {
             return ((BigDecimal) obj).doubleValue();
         }
@@ -316,11 +354,14 @@ public class KustoResultSetTable {
     }
 
     public double getDouble(int columnIndex) {
-        return (double) getDoubleGeneric(columnIndex);
+        if (currentRow instanceof KustoColumnarRows.Row) {
+            return ((KustoColumnarRows.Row) currentRow).getDouble(columnIndex);
+        }
+        return (double) toDoubleObject(get(columnIndex));
     }
 
     public Double getDoubleObject(int columnIndex) {
-        return (Double) getDoubleGeneric(columnIndex);
+        return (Double) toDoubleObject(get(columnIndex));
     }
 
     public byte[] getBytes(int columnIndex) {
@@ -351,6 +392,10 @@ public class KustoResultSetTable {
                 if (get(columnIndex) == null) {
                     return null;
                 }
+                LocalDateTime dateTime = KustoTemporalParser.parseLocalDateTime(getString(columnIndex));
+                if (dateTime != null) {
+                    return Timestamp.valueOf(dateTime);
+                }
                 return Timestamp.valueOf(StringUtils.chop(getString(columnIndex)).replace("T", " "));
             case "long":
             case "int":
@@ -376,6 +421,14 @@ public class KustoResultSetTable {
         return getString(findColumn(columnName));
     }
 
+    public int getStringCode(String columnName) {
+        return getStringCode(findColumn(columnName));
+    }
+
+    public List<String> getStringDictionary(String columnName) {
+        return getStringDictionary(findColumn(columnName));
+    }
+
     public boolean getBoolean(String columnName) {
         return getBoolean(findColumn(columnName));
     }
@@ -557,7 +610,8 @@ public class KustoResultSetTable {
             return null;
         }
         String dateString = getString(columnIndex);
-        return LocalDateTime.parse(dateString, kustoDateTimeFormatter);
+        LocalDateTime dateTime = KustoTemporalParser.parseLocalDateTime(dateString);
+        return dateTime != null ? dateTime : LocalDateTime.parse(dateString, kustoDateTimeFormatter);
     }
 
     public LocalDateTime getKustoDateTime(String columnName) {
@@ -585,11 +639,17 @@ public class KustoResultSetTable {
                         return null;
                     }
                     String dateString = getString(columnIndex);
-                    // First try the original FastDateFormat approach with strict patterns
                     ZoneId zoneId = calendar.getTimeZone().toZoneId();
+                    // The time is read as a local time of the calendar's zone, like the formatter below does
+                    LocalDateTime dateTime = KustoTemporalParser.parseLocalDateTime(dateString);
+                    if (dateTime != null && zoneId != null) {
+                        return new Date(dateTime.atZone(zoneId).toInstant().toEpochMilli());
+                    }
+
+                    // First try the original FastDateFormat approach with strict patterns
                     DateTimeFormatter formatter = (zoneId != null)
-                            ? parseFormatterBuilder.toFormatter().withZone(zoneId)
-                            : parseFormatterBuilder.toFormatter();
+                            ? parseFormatter.withZone(zoneId)
+                            : parseFormatter;
                     // Remove trailing 'Z' if present, similar to original FastDateFormat implementation
                     Instant instant = formatter.parse(dateString, Instant::from);
                     return new Date(Date.from(instant).getTime());
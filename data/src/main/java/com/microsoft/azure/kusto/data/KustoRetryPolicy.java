@@ -0,0 +1,238 @@
+// Copyright (c) Microsoft Corporation.
+// Licensed under the MIT License.
+
+package com.microsoft.azure.kusto.data;
+
+import com.azure.core.http.HttpHeaderName;
+import com.azure.core.http.HttpResponse;
+import com.microsoft.azure.kusto.data.exceptions.CircuitBreakerOpenException;
+import com.microsoft.azure.kusto.data.exceptions.DataServiceException;
+import com.microsoft.azure.kusto.data.exceptions.KustoDataExceptionBase;
+import com.microsoft.azure.kusto.data.exceptions.ThrottleException;
+import com.microsoft.azure.kusto.data.exceptions.WebException;
+import com.microsoft.azure.kusto.data.req.KustoRequest;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
+
+import java.lang.invoke.MethodHandles;
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Locale;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Retries the queries and management commands that failed with a transient error, with exponential backoff and jitter.
+ * <p>
+ * Errors are retried unless they are {@link KustoDataExceptionBase#isPermanent() permanent}, or are 4xx responses other than throttling and
+ * request timeouts. The wait before a retry is the {@code Retry-After} header of the response when there is one, and the retry is given up if
+ * it asks to wait longer than the maximum delay. Management commands other than {@code .show} commands may have been executed before they
+ * failed, so they are only retried when they were throttled.
+ * <p>
+ * Retries are capped by a token bucket of 10 tokens, which starts full: each request adds the budget ratio to it, each retry takes one token
+ * from it, and the error of a request is returned as is when the bucket is empty. Once the first tokens are spent, retries stay below that
+ * ratio of the requests, even when a cluster fails all of them, instead of multiplying its load. The bucket is kept by the policy, so the
+ * clients that share a policy share its budget.
+ * <p>
+ * Retries are not made once the {@link KustoDeadline} of the call would pass before them.
+ * <p>
+ * Set it with {@link com.microsoft.azure.kusto.data.http.HttpClientProperties.HttpClientPropertiesBuilder#retryPolicy}.
+ */
+public final class KustoRetryPolicy {
+    private static final Logger log = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+    // Unused budget is capped, so a long quiet period doesn't allow a burst of retries
+    private static final double MAX_BUDGET = 10;
+    private static final HttpHeaderName RETRY_AFTER = HttpHeaderName.fromString("Retry-After");
+
+    private final int maxAttempts;
+    private final Duration baseDelay;
+    private final Duration maxDelay;
+    private final double budgetRatio;
+
+    // Guarded by this
+    private double budget = MAX_BUDGET;
+    private long requestCount = 0;
+    private long retryCount = 0;
+
+    private KustoRetryPolicy(Builder builder) {
+        Ensure.isTrue(builder.maxAttempts > 0, "maxAttempts must be positive");
+        Ensure.argIsNotNull(builder.baseDelay, "baseDelay");
+        Ensure.argIsNotNull(builder.maxDelay, "maxDelay");
+        Ensure.isFalse(builder.baseDelay.isNegative() || builder.maxDelay.compareTo(builder.baseDelay) < 0,
+                "baseDelay must not be negative nor greater than maxDelay");
+        Ensure.isTrue(builder.budgetRatio >= 0 && builder.budgetRatio <= 1, "budgetRatio must be between 0 and 1");
+        this.maxAttempts = builder.maxAttempts;
+        this.baseDelay = builder.baseDelay;
+        this.maxDelay = builder.maxDelay;
+        this.budgetRatio = builder.budgetRatio;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * @return the number of requests that used the policy
+     */
+    public synchronized long getRequestCount() {
+        return requestCount;
+    }
+
+    /**
+     * @return the number of retries that were sent
+     */
+    public synchronized long getRetryCount() {
+        return retryCount;
+    }
+
+    /**
+     * Subscribes to the execution of the request again after each transient error, as long as attempts and budget are left.
+     */
+    <T> Mono<T> retry(KustoRequest request, Mono<T> execution) {
+        return Mono.deferContextual(context -> {
+            synchronized (this) {
+                requestCount++;
+                budget = Math.min(MAX_BUDGET, budget + budgetRatio);
+            }
+            KustoDeadline deadline = KustoDeadline.fromContext(context);
+            return execution.retryWhen(Retry.from(signals -> signals.concatMap(signal -> {
+                Duration delay = nextDelay(request, signal.failure(), signal.totalRetries(), deadline);
+                return delay == null ? Mono.error(signal.failure()) : Mono.delay(delay);
+            })));
+        });
+    }
+
+    // Returns null if the request isn't retried
+    private Duration nextDelay(KustoRequest request, Throwable failure, long retries, KustoDeadline deadline) {
+        if (retries + 1 >= maxAttempts || !isRetryable(request, failure)) {
+            return null;
+        }
+        Duration retryAfter = retryAfter(failure);
+        if (retryAfter != null && retryAfter.compareTo(maxDelay) > 0) {
+            log.debug("Not retrying, the service asked to wait {}", retryAfter);
+            return null;
+        }
+        Duration delay = retryAfter != null ? retryAfter : backoff(retries);
+        if (deadline != null && delay.compareTo(deadline.getRemaining()) >= 0) {
+            log.debug("Not retrying, the deadline of the request passes within {}", delay);
+            return null;
+        }
+        if (!tryAcquireRetry()) {
+            log.debug("Not retrying, the retry budget is exhausted");
+            return null;
+        }
+        log.info("Attempt {} failed, retrying in {}: {}", retries + 1, delay, failure.getMessage());
+        return delay;
+    }
+
+    private synchronized boolean tryAcquireRetry() {
+        if (budget < 1) {
+            return false;
+        }
+        budget -= 1;
+        retryCount++;
+        return true;
+    }
+
+    // Full jitter: a random delay up to the exponential backoff
+    private Duration backoff(long retries) {
+        long cap = Math.min(maxDelay.toMillis(), baseDelay.toMillis() << Math.min(retries, 30));
+        return Duration.ofMillis(ThreadLocalRandom.current().nextLong(cap + 1));
+    }
+
+    static boolean isRetryable(KustoRequest request, Throwable failure) {
+        if (!(failure instanceof KustoDataExceptionBase) || failure instanceof CircuitBreakerOpenException) {
+            return false;
+        }
+        if (failure instanceof ThrottleException) {
+            return true;
+        }
+        if (((KustoDataExceptionBase) failure).isPermanent()) {
+            return false;
+        }
+        if (failure instanceof DataServiceException) {
+            Integer statusCode = ((DataServiceException) failure).getStatusCode();
+            if (statusCode != null && statusCode >= 400 && statusCode < 500 && statusCode != 408) {
+                return false;
+            }
+        }
+        return request.getCommandType() != CommandType.ADMIN_COMMAND || request.getCommand().trim().toLowerCase(Locale.ROOT).startsWith(".show");
+    }
+
+    /**
+     * @return the wait the {@code Retry-After} header of the failed response asks for, in seconds or as a date, or null if there is none
+     */
+    static Duration retryAfter(Throwable failure) {
+        if (!(failure.getCause() instanceof WebException)) {
+            return null;
+        }
+        HttpResponse response = ((WebException) failure.getCause()).getHttpResponse();
+        String value = response == null ? null : response.getHeaders().getValue(RETRY_AFTER);
+        if (StringUtils.isBlank(value)) {
+            return null;
+        }
+        try {
+            return Duration.ofSeconds(Math.max(0, Long.parseLong(value.trim())));
+        } catch (NumberFormatException e) {
+            try {
+                Duration wait = Duration.between(ZonedDateTime.now(), ZonedDateTime.parse(value.trim(), DateTimeFormatter.RFC_1123_DATE_TIME));
+                return wait.isNegative() ? Duration.ZERO : wait;
+            } catch (DateTimeParseException ignored) {
+                return null;
+            }
+        }
+    }
+
+    public static class Builder {
+        private int maxAttempts = 3;
+        private Duration baseDelay = Duration.ofSeconds(1);
+        private Duration maxDelay = Duration.ofSeconds(30);
+        private double budgetRatio = 0.1;
+
+        private Builder() {
+        }
+
+        /**
+         * Sets the number of times a request is sent, the first one included. Defaults to 3.
+         *
+         * @param maxAttempts the maximum number of attempts
+         * @return the builder instance
+         */
+        public Builder maxAttempts(int maxAttempts) {
+            this.maxAttempts = maxAttempts;
+            return this;
+        }
+
+        /**
+         * Sets the backoff: the n-th retry waits a random delay up to the base delay times 2^(n-1), capped by the maximum delay, which is also
+         * the longest {@code Retry-After} that is honoured. Defaults to 1 second and 30 seconds.
+         *
+         * @param baseDelay the base delay
+         * @param maxDelay the maximum delay
+         * @return the builder instance
+         */
+        public Builder backoff(Duration baseDelay, Duration maxDelay) {
+            this.baseDelay = baseDelay;
+            this.maxDelay = maxDelay;
+            return this;
+        }
+
+        /**
+         * Sets the maximum ratio of retries to requests. Defaults to 0.1, at most one retry per 10 requests.
+         *
+         * @param budgetRatio a ratio between 0 and 1
+         * @return the builder instance
+         */
+        public Builder budgetRatio(double budgetRatio) {
+            this.budgetRatio = budgetRatio;
+            return this;
+        }
+
+        public KustoRetryPolicy build() {
+            return new KustoRetryPolicy(this);
+        }
+    }
+}
@@ -0,0 +1,159 @@
+// Copyright (c) Microsoft Corporation.
+// Licensed under the MIT License.
+
+package com.microsoft.azure.kusto.data;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * The cells of the row being parsed, reused from one row to the next. Bool, int, long and real cells are kept as primitives, so they reach the
+ * columns of a {@link KustoColumnarRows.Builder} without being boxed, and other cells are kept as the objects they were decoded to.
+ */
+class KustoRowBuffer {
+    private static final int INITIAL_CAPACITY = 16;
+
+    enum Kind {
+        NULL, BOOLEAN, INT, LONG, DOUBLE, OBJECT
+    }
+
+    private Kind[] kinds = new Kind[INITIAL_CAPACITY];
+    // Doubles are kept by their bits
+    private long[] primitives = new long[INITIAL_CAPACITY];
+    private Object[] objects = new Object[INITIAL_CAPACITY];
+    private int size = 0;
+    private final List<Object> view = new View();
+
+    /**
+     * Empties the buffer for the next row.
+     */
+    void clear() {
+        Arrays.fill(objects, 0, size, null);
+        size = 0;
+    }
+
+    /**
+     * Replaces the cells with the given values, which are kept as they are.
+     */
+    void set(List<Object> values) {
+        clear();
+        for (Object value : values) {
+            addObject(value);
+        }
+    }
+
+    int size() {
+        return size;
+    }
+
+    void addNull() {
+        append(Kind.NULL);
+    }
+
+    void addBoolean(boolean value) {
+        primitives[append(Kind.BOOLEAN)] = value ? 1 : 0;
+    }
+
+    void addInt(int value) {
+        primitives[append(Kind.INT)] = value;
+    }
+
+    void addLong(long value) {
+        primitives[append(Kind.LONG)] = value;
+    }
+
+    void addDouble(double value) {
+        primitives[append(Kind.DOUBLE)] = Double.doubleToRawLongBits(value);
+    }
+
+    void addObject(Object value) {
+        if (value == null) {
+            addNull();
+        } else {
+            objects[append(Kind.OBJECT)] = value;
+        }
+    }
+
+    Kind kind(int index) {
+        return kinds[index];
+    }
+
+    boolean getBoolean(int index) {
+        return primitives[index] != 0;
+    }
+
+    int getInt(int index) {
+        return (int) primitives[index];
+    }
+
+    long getLong(int index) {
+        return primitives[index];
+    }
+
+    double getDouble(int index) {
+        return Double.longBitsToDouble(primitives[index]);
+    }
+
+    /**
+     * @return the cell as an object, boxing it if it is a primitive
+     */
+    Object get(int index) {
+        switch (kinds[index]) {
+            case BOOLEAN:
+                return getBoolean(index);
+            case INT:
+                return getInt(index);
+            case LONG:
+                return getLong(index);
+            case DOUBLE:
+                return getDouble(index);
+            case OBJECT:
+                return objects[index];
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * @return a read-only view of the cells, which follows the buffer as it is reused
+     */
+    List<Object> asList() {
+        return view;
+    }
+
+    /**
+     * @return a copy of the cells, for a row that outlives the buffer
+     */
+    List<Object> toList() {
+        return new ArrayList<>(view);
+    }
+
+    private int append(Kind kind) {
+        if (size == kinds.length) {
+            int capacity = size * 2;
+            kinds = Arrays.copyOf(kinds, capacity);
+            primitives = Arrays.copyOf(primitives, capacity);
+            objects = Arrays.copyOf(objects, capacity);
+        }
+        kinds[size] = kind;
+        return size++;
+    }
+
+    private class View extends AbstractList<Object> implements RandomAccess {
+        @Override
+        public Object get(int index) {
+            if (index < 0 || index >= size) {
+                throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+            }
+            return KustoRowBuffer.this.get(index);
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+    }
+}
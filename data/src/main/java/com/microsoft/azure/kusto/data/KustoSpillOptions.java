@@ -0,0 +1,46 @@
+// Copyright (c) Microsoft Corporation.
+// Licensed under the MIT License.
+
+package com.microsoft.azure.kusto.data;
+
+import java.io.Serializable;
+
+/**
+ * Lets result tables that are too big for the heap spill their rows to a temporary file.
+ * <p>
+ * Once the rows of a table are estimated to take more than the threshold on the heap, they are written to a temporary file in a compact binary
+ * format, and the rest of the table's rows follow them there as they are parsed. The file is memory-mapped once the table is complete, and the
+ * table reads its rows from the mapping, decoding a row each time it is accessed. Only the offsets of the rows stay on the heap.
+ * <p>
+ * Set it with {@link ClientRequestProperties#setSpillOptions(KustoSpillOptions)}. The temporary file is deleted as soon as it is mapped where the
+ * platform allows it, and otherwise when the JVM exits.
+ */
+public final class KustoSpillOptions implements Serializable {
+    private final long thresholdBytes;
+    private final String directory;
+
+    /**
+     * @param thresholdBytes the estimated heap size of a table's rows above which they are spilled
+     */
+    public KustoSpillOptions(long thresholdBytes) {
+        this(thresholdBytes, null);
+    }
+
+    /**
+     * @param thresholdBytes the estimated heap size of a table's rows above which they are spilled
+     * @param directory the directory of the temporary files, or null for the default temporary-file directory
+     */
+    public KustoSpillOptions(long thresholdBytes, String directory) {
+        Ensure.isTrue(thresholdBytes >= 0, "thresholdBytes must not be negative");
+        this.thresholdBytes = thresholdBytes;
+        this.directory = directory;
+    }
+
+    public long getThresholdBytes() {
+        return thresholdBytes;
+    }
+
+    public String getDirectory() {
+        return directory;
+    }
+}
@@ -0,0 +1,271 @@
+// Copyright (c) Microsoft Corporation.
+// Licensed under the MIT License.
+
+package com.microsoft.azure.kusto.data;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * The rows of a result table that were spilled to a memory-mapped temporary file, see {@link KustoSpillOptions}.
+ * <p>
+ * Each row is written as its cell count followed by its cells, each one a type tag and the value in binary: 4 or 8 bytes for numbers and
+ * UTF-8 bytes prefixed by their length for text, decimals and JSON. A row is decoded each time it is accessed, and its dynamic values are only
+ * turned into trees when they are read, like in {@link KustoColumnarRows}.
+ */
+class KustoSpilledRows extends AbstractList<List<Object>> implements RandomAccess {
+    private static final byte NULL = 0;
+    private static final byte FALSE = 1;
+    private static final byte TRUE = 2;
+    private static final byte INT = 3;
+    private static final byte LONG = 4;
+    private static final byte DOUBLE = 5;
+    private static final byte STRING = 6;
+    private static final byte DECIMAL = 7;
+    private static final byte JSON = 8;
+    private static final byte DYNAMIC = 9;
+
+    // The file is mapped in segments, and rows are laid out so that none of them crosses a segment boundary
+    private static final int SEGMENT_SHIFT = 30;
+    private static final long SEGMENT_SIZE = 1L << SEGMENT_SHIFT;
+
+    private final ByteBuffer[] segments;
+    private final long[] rowOffsets;
+    private final int size;
+
+    private KustoSpilledRows(ByteBuffer[] segments, long[] rowOffsets, int size) {
+        this.segments = segments;
+        this.rowOffsets = rowOffsets;
+        this.size = size;
+    }
+
+    @Override
+    public List<Object> get(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+        long offset = rowOffsets[index];
+        // Duplicated so concurrent readers don't share a position
+        ByteBuffer buffer = segments[(int) (offset >>> SEGMENT_SHIFT)].duplicate();
+        buffer.position((int) (offset & (SEGMENT_SIZE - 1)));
+        Object[] values = new Object[buffer.getInt()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = readValue(buffer);
+        }
+        return new Row(values);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    private static Object readValue(ByteBuffer buffer) {
+        byte tag = buffer.get();
+        switch (tag) {
+            case NULL:
+                return null;
+            case FALSE:
+                return Boolean.FALSE;
+            case TRUE:
+                return Boolean.TRUE;
+            case INT:
+                return buffer.getInt();
+            case LONG:
+                return buffer.getLong();
+            case DOUBLE:
+                return buffer.getDouble();
+            case STRING:
+                return new String(readBytes(buffer), StandardCharsets.UTF_8);
+            case DECIMAL:
+                return new BigDecimal(new String(readBytes(buffer), StandardCharsets.UTF_8));
+            case JSON:
+            case DYNAMIC:
+                return KustoDynamicValue.of(readBytes(buffer));
+            default:
+                throw new IllegalStateException("Unknown value tag " + tag + " in spilled rows");
+        }
+    }
+
+    private static byte[] readBytes(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.getInt()];
+        buffer.get(bytes);
+        return bytes;
+    }
+
+    private static class Row extends AbstractList<Object> implements RandomAccess {
+        private final Object[] values;
+
+        Row(Object[] values) {
+            this.values = values;
+        }
+
+        @Override
+        public Object get(int index) {
+            return KustoDynamicValue.resolve(values[index]);
+        }
+
+        @Override
+        public int size() {
+            return values.length;
+        }
+    }
+
+    /**
+     * Writes rows to a new temporary file, to be mapped by {@link #finish()}.
+     */
+    static class Writer {
+        private static final int INITIAL_CAPACITY = 1024;
+
+        private final Path file;
+        private final DataOutputStream out;
+        private long[] rowOffsets = new long[INITIAL_CAPACITY];
+        private int size = 0;
+        private long position = 0;
+        // Reused for every row, so a row can be moved to the next segment as a whole
+        private final ByteArrayOutputStream row = new ByteArrayOutputStream();
+        private final DataOutputStream rowOut = new DataOutputStream(row);
+
+        Writer(KustoSpillOptions options) {
+            try {
+                file = options.getDirectory() == null ? Files.createTempFile("kusto-result", ".rows")
+                        : Files.createTempFile(Paths.get(options.getDirectory()), "kusto-result", ".rows");
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to create a file to spill result rows to", e);
+            }
+            try {
+                out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file), 1 << 16));
+            } catch (IOException e) {
+                delete(file);
+                throw new UncheckedIOException("Failed to open the file to spill result rows to " + file, e);
+            }
+        }
+
+        void add(List<Object> values) {
+            try {
+                row.reset();
+                rowOut.writeInt(values.size());
+                for (Object value : values) {
+                    writeValue(rowOut, value);
+                }
+
+                int length = row.size();
+                if (length > SEGMENT_SIZE) {
+                    throw new IllegalStateException("A row of " + length + " bytes is too large to spill");
+                }
+                long segmentEnd = ((position >>> SEGMENT_SHIFT) + 1) << SEGMENT_SHIFT;
+                if (position + length > segmentEnd) {
+                    pad(segmentEnd - position);
+                }
+                if (size == rowOffsets.length) {
+                    rowOffsets = Arrays.copyOf(rowOffsets, size * 2);
+                }
+                rowOffsets[size++] = position;
+                row.writeTo(out);
+                position += length;
+            } catch (IOException e) {
+                discard();
+                throw new UncheckedIOException("Failed to spill result rows to " + file, e);
+            }
+        }
+
+        KustoSpilledRows finish() {
+            try {
+                out.close();
+                int segmentCount = (int) ((position + SEGMENT_SIZE - 1) >>> SEGMENT_SHIFT);
+                ByteBuffer[] segments = new ByteBuffer[segmentCount];
+                try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                    for (int i = 0; i < segmentCount; i++) {
+                        long start = (long) i << SEGMENT_SHIFT;
+                        segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(SEGMENT_SIZE, position - start));
+                    }
+                }
+                return new KustoSpilledRows(segments, rowOffsets, size);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to map the spilled result rows of " + file, e);
+            } finally {
+                // The mappings stay valid once the file is deleted, except on platforms that don't allow deleting it until they are released
+                discard();
+            }
+        }
+
+        /**
+         * Closes and deletes the file, e.g. when the response failed or was cancelled before the table was complete.
+         */
+        void discard() {
+            try {
+                out.close();
+            } catch (IOException ignore) {
+                // The file is deleted anyway
+            }
+            delete(file);
+        }
+
+        // Files are only registered for deletion on exit when they can't be deleted now, as the JVM keeps every registered path until it exits
+        private static void delete(Path file) {
+            try {
+                Files.deleteIfExists(file);
+            } catch (IOException e) {
+                file.toFile().deleteOnExit();
+            }
+        }
+
+        private void pad(long count) throws IOException {
+            for (long i = 0; i < count; i++) {
+                out.write(0);
+            }
+            position += count;
+        }
+
+        private static void writeValue(DataOutputStream out, Object value) throws IOException {
+            if (value == null) {
+                out.writeByte(NULL);
+            } else if (value instanceof Boolean) {
+                out.writeByte((Boolean) value ? TRUE : FALSE);
+            } else if (value instanceof Integer) {
+                out.writeByte(INT);
+                out.writeInt((Integer) value);
+            } else if (value instanceof Long) {
+                out.writeByte(LONG);
+                out.writeLong((Long) value);
+            } else if (value instanceof Double) {
+                out.writeByte(DOUBLE);
+                out.writeDouble((Double) value);
+            } else if (value instanceof String) {
+                writeBytes(out, STRING, ((String) value).getBytes(StandardCharsets.UTF_8));
+            } else if (value instanceof BigDecimal) {
+                writeBytes(out, DECIMAL, value.toString().getBytes(StandardCharsets.UTF_8));
+            } else if (value instanceof KustoDynamicValue) {
+                writeBytes(out, DYNAMIC, ((KustoDynamicValue) value).bytes());
+            } else if (value instanceof JsonNode) {
+                writeBytes(out, JSON, JsonCodecs.writer().writeValueAsBytes(value));
+            } else {
+                throw new IllegalArgumentException("Values of type " + value.getClass().getName() + " can't be spilled");
+            }
+        }
+
+        private static void writeBytes(DataOutputStream out, byte tag, byte[] bytes) throws IOException {
+            out.writeByte(tag);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        }
+    }
+
+}
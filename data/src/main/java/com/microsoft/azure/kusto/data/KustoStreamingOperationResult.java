@@ -0,0 +1,167 @@
+// Copyright (c) Microsoft Corporation.
+// Licensed under the MIT License.
+
+package com.microsoft.azure.kusto.data;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.microsoft.azure.kusto.data.exceptions.JsonPropertyMissingException;
+import com.microsoft.azure.kusto.data.exceptions.KustoServiceQueryError;
+import com.microsoft.azure.kusto.data.instrumentation.SupplierOneException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.lang.invoke.MethodHandles;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * A forward-only cursor over a query response, read from the response stream as it is consumed.
+ * <p>
+ * Tables are returned in the order they appear in the response, and the rows of each table are decoded one at a time as
+ * {@link KustoResultSetTable#next()} is called, so memory use stays the same regardless of the number of rows. Moving to the next table skips the
+ * rows of the current one that were not read. The tables offer the typed getters of {@link KustoResultSetTable}, but can't be rewound or
+ * counted - {@code getData()}, {@code count()}, {@code first()}, {@code last()} and {@code beforeFirst()} throw
+ * {@link UnsupportedOperationException}.
+ * <p>
+ * Errors reported by the service in the middle of the response are thrown as {@link KustoServiceQueryError} when they are reached. The cursor holds
+ * the response stream open and must be closed.
+ */
+public class KustoStreamingOperationResult implements Iterator<KustoResultSetTable>, Closeable {
+    private static final Logger log = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+
+    private final KustoResultParser parser;
+    private KustoResultSetTable nextTable = null;
+    private boolean exhausted = false;
+
+    /**
+     * @param response the response stream, which is closed when the cursor is closed
+     * @param version the response version, "v1" or "v2"
+     */
+    public KustoStreamingOperationResult(InputStream response, String version) {
+        this(response, version, null);
+    }
+
+    /**
+     * @param response the response stream, which is closed when the cursor is closed
+     * @param version the response version, "v1" or "v2"
+     * @param columnSelection the columns to keep in the primary result tables of a v2 response, or null to keep them all
+     */
+    public KustoStreamingOperationResult(InputStream response, String version, KustoColumnSelection columnSelection) {
+        ObjectMapper objectMapper = JsonCodecs.mapper();
+        try {
+            parser = new KustoResultParser(objectMapper.createParser(response), objectMapper, version.contains("v2"), columnSelection);
+        } catch (IOException e) {
+            try {
+                response.close();
+            } catch (IOException closeException) {
+                e.addSuppressed(closeException);
+            }
+            throw toRuntimeException(e);
+        }
+    }
+
+    /**
+     * Moves to the next table of the response, skipping the unread rows of the current table.
+     */
+    @Override
+    public boolean hasNext() {
+        if (nextTable == null && !exhausted) {
+            KustoResultParser.Frame frame = read(parser::nextTable);
+            if (frame == null) {
+                exhausted = true;
+            } else {
+                nextTable = new KustoStreamingResultSetTable(frame, new RowIterator(frame));
+            }
+        }
+        return nextTable != null;
+    }
+
+    @Override
+    public KustoResultSetTable next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        KustoResultSetTable table = nextTable;
+        nextTable = null;
+        return table;
+    }
+
+    /**
+     * Moves forward to the primary result table, skipping any table before it.
+     *
+     * @return the primary result table, or null if the rest of the response doesn't have one
+     */
+    public KustoResultSetTable getPrimaryResults() {
+        while (hasNext()) {
+            KustoResultSetTable table = next();
+            if (WellKnownDataSet.PrimaryResult.equals(table.getTableKind())) {
+                return table;
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public void close() throws IOException {
+        parser.close();
+    }
+
+    private <T> T read(SupplierOneException<T, IOException> reader) {
+        try {
+            return reader.get();
+        } catch (IOException e) {
+            throw toRuntimeException(e);
+        } catch (JsonPropertyMissingException e) {
+            log.error("Json processing error occurred while parsing string to json with exception", e);
+            throw new KustoServiceQueryError("Json processing error occurred while parsing string to json with exception " + e.getMessage());
+        }
+    }
+
+    private static RuntimeException toRuntimeException(IOException e) {
+        if (e instanceof JsonProcessingException) {
+            log.error("Json processing error occurred while parsing string to json with exception", e);
+            return new KustoServiceQueryError("Json processing error occurred while parsing string to json with exception " + e.getMessage());
+        }
+        return new UncheckedIOException("Failed to read the streaming query response", e);
+    }
+
+    private class RowIterator implements Iterator<List<Object>> {
+        private final KustoResultParser.Frame frame;
+        private List<Object> nextRow = null;
+        private boolean done = false;
+
+        RowIterator(KustoResultParser.Frame frame) {
+            this.frame = frame;
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (nextRow == null && !done) {
+                // Once the cursor moved on to another table, the rows of this one are gone
+                if (parser.isCurrentTable(frame)) {
+                    nextRow = read(parser::nextRow);
+                }
+                done = nextRow == null;
+            }
+            return !done;
+        }
+
+        @Override
+        public List<Object> next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            List<Object> row = nextRow;
+            nextRow = null;
+            // Like the rows of a collected table, the rows returned hold the trees of their dynamic values
+            row.replaceAll(KustoDynamicValue::resolve);
+            return row;
+        }
+    }
+}
@@ -0,0 +1,41 @@
+// Copyright (c) Microsoft Corporation.
+// Licensed under the MIT License.
+
+package com.microsoft.azure.kusto.data;
+
+import java.util.Iterator;
+import java.util.List;
+
+// A forward-only table whose rows are decoded from the response stream as next() is called - rows that were passed are not kept
+class KustoStreamingResultSetTable extends KustoResultSetTable {
+    private static final String FORWARD_ONLY_MESSAGE = "Streaming result tables are forward-only; use next() to read the rows";
+
+    KustoStreamingResultSetTable(KustoResultParser.Frame frame, Iterator<List<Object>> rowIterator) {
+        super(frame, rowIterator);
+    }
+
+    @Override
+    public List<List<Object>> getData() {
+        throw new UnsupportedOperationException(FORWARD_ONLY_MESSAGE);
+    }
+
+    @Override
+    public int count() {
+        throw new UnsupportedOperationException(FORWARD_ONLY_MESSAGE);
+    }
+
+    @Override
+    public void beforeFirst() {
+        throw new UnsupportedOperationException(FORWARD_ONLY_MESSAGE);
+    }
+
+    @Override
+    public boolean first() {
+        throw new UnsupportedOperationException(FORWARD_ONLY_MESSAGE);
+    }
+
+    @Override
+    public boolean last() {
+        throw new UnsupportedOperationException(FORWARD_ONLY_MESSAGE);
+    }
+}
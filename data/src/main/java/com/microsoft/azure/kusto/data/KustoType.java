@@ -1,6 +1,9 @@
 package com.microsoft.azure.kusto.data;
 
+import com.microsoft.azure.kusto.data.format.KustoTemporalParser;
+
 import java.time.Instant;
+import java.time.ZoneOffset;
 import java.time.ZonedDateTime;
 import java.util.UUID;
 import java.util.function.Function;
@@ -21,11 +24,15 @@ public class KustoType<C> {
     public static final KustoType<String> GUID_STRING = new KustoType<>(String.class);
     public static final KustoType<String> STRING = new KustoType<>(String.class);
     public static final KustoType<Double> REAL_DOUBLE = new KustoType<>(Double.class);
+    public static final KustoType<Boolean> BOOLEAN = new KustoType<>(Boolean.class);
     public static final KustoType<Float> REAL_FLOAT = new KustoType<>(Float.class, o -> Float.valueOf(Double.class.cast(o).floatValue()));
 
-    public static final KustoType<ZonedDateTime> DATETIME_ZONED_DATE_TIME = new KustoType<>(ZonedDateTime.class, o -> ZonedDateTime.parse(o.toString()));
-    public static final KustoType<Instant> DATETIME_INSTANT = new KustoType<>(Instant.class, o -> Instant.parse(o.toString()));
-    public static final KustoType<Long> DATETIME_LONG = new KustoType<>(Long.class, o -> Instant.parse(o.toString()).toEpochMilli());
+    public static final KustoType<ZonedDateTime> DATETIME_ZONED_DATE_TIME = new KustoType<>(ZonedDateTime.class, o -> {
+        Instant instant = KustoTemporalParser.parseInstant(o.toString());
+        return instant != null ? instant.atZone(ZoneOffset.UTC) : ZonedDateTime.parse(o.toString());
+    });
+    public static final KustoType<Instant> DATETIME_INSTANT = new KustoType<>(Instant.class, KustoType::parseInstant);
+    public static final KustoType<Long> DATETIME_LONG = new KustoType<>(Long.class, o -> parseInstant(o).toEpochMilli());
 
     public static final KustoType<Object> OBJECT = new KustoType<>(Object.class);
 
@@ -41,6 +48,11 @@ public class KustoType<C> {
         this.typer = typer;
     }
 
+    private static Instant parseInstant(Object o) {
+        Instant instant = KustoTemporalParser.parseInstant(o.toString());
+        return instant != null ? instant : Instant.parse(o.toString());
+    }
+
     public C type(Object o) {
         return this.typer.apply(o);
     }
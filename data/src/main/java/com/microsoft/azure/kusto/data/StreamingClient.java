@@ -56,6 +56,34 @@ public interface StreamingClient {
     KustoOperationResult executeStreamingIngestFromBlob(String databaseName, String tableName, String blobUrl, ClientRequestProperties clientRequestProperties,
             String dataFormat, String ingestionMappingReference) throws DataServiceException, DataClientException;
 
+    /**
+     * <p>Query directly from Kusto database using streaming output, reading the result as a forward-only cursor.</p>
+     * The rows are decoded from the response stream as they are read, so memory use does not grow with the size of the result.
+     * See {@link KustoStreamingOperationResult} for the limitations of the returned tables.
+     * The default implementation reads the stream returned by {@link #executeStreamingQuery(String, String, ClientRequestProperties)}.
+     *
+     * @param database   The target database to query
+     * @param command    The command (query or admin command) to execute
+     * @param properties Additional request headers of the query request
+     * @return KustoStreamingOperationResult A cursor over the result, which must be closed by the caller
+     * @throws DataClientException  An exception originating from a client activity
+     * @throws DataServiceException An exception returned from the service
+     */
+    default KustoStreamingOperationResult executeStreamingQueryResult(String database, String command, ClientRequestProperties properties)
+            throws DataServiceException, DataClientException {
+        return new KustoStreamingOperationResult(executeStreamingQuery(database, command, properties), "v2",
+                properties == null ? null : properties.getColumnSelection());
+    }
+
+    default KustoStreamingOperationResult executeStreamingQueryResult(String database, String command) throws DataServiceException, DataClientException {
+        return executeStreamingQueryResult(database, command, null);
+    }
+
+    default Mono<KustoStreamingOperationResult> executeStreamingQueryResultAsync(String database, String command, ClientRequestProperties properties) {
+        return executeStreamingQueryAsync(database, command, properties)
+                .map(stream -> new KustoStreamingOperationResult(stream, "v2", properties == null ? null : properties.getColumnSelection()));
+    }
+
     Mono<InputStream> executeStreamingQueryAsync(String command);
 
     Mono<InputStream> executeStreamingQueryAsync(String database, String command);
@@ -32,10 +32,13 @@ import java.net.UnknownHostException;
 import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
 import java.time.Duration;
+import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Optional;
 import java.util.Properties;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.function.Predicate;
 import java.util.zip.DeflaterInputStream;
 import java.util.zip.GZIPInputStream;
@@ -48,6 +51,7 @@ public class Utils {
 
     // added auto bigdecimal deserialization for float and double value, since the bigdecimal values seem to lose precision while auto deserialization to
     // double value
+    // Builds a new mapper on every call - the SDK itself uses the shared readers and writers of JsonCodecs
     public static ObjectMapper getObjectMapper() {
         return JsonMapper.builder().configure(MapperFeature.PROPAGATE_TRANSIENT_MARKER, true).addModule(new JavaTimeModule()).build().configure(
                 DeserializationFeature.USE_BIG_DECIMAL_FOR_FLOATS, true).configure(JsonGenerator.Feature.WRITE_BIGDECIMAL_AS_PLAIN, true).setNodeFactory(
@@ -149,65 +153,141 @@ public class Utils {
                 : processNonGzipBody(httpResponse.getBody());
     }
 
+    /**
+     * Returns the response body, decompressed as it is read if needed, without collecting it first.
+     */
+    public static Flux<ByteBuffer> getDecompressedBody(HttpResponse httpResponse) {
+        return isGzipResponse(httpResponse) ? inflateGzipBody(httpResponse.getBody()) : httpResponse.getBody();
+    }
+
+    /**
+     * Decompresses a gzip body chunk by chunk. Each compressed chunk is only requested once the output of the previous one was consumed.
+     */
+    public static Flux<ByteBuffer> inflateGzipBody(Flux<ByteBuffer> gzipBody) {
+        return Flux.defer(() -> {
+            final EmbeddedChannel decoder = new EmbeddedChannel(ZlibCodecFactory.newZlibDecoder(ZlibWrapper.GZIP));
+            return gzipBody
+                    .concatMapIterable(byteBuffer -> {
+                        decoder.writeInbound(Unpooled.wrappedBuffer(byteBuffer));
+                        return readDecompressed(decoder);
+                    }, 1)
+                    .concatWith(Flux.defer(() -> {
+                        decoder.finish();
+                        return Flux.fromIterable(readDecompressed(decoder));
+                    }))
+                    .doFinally(ignore -> decoder.finishAndReleaseAll());
+        });
+    }
+
+    private static List<ByteBuffer> readDecompressed(EmbeddedChannel decoder) {
+        List<ByteBuffer> output = new ArrayList<>();
+        ByteBuf decompressed;
+        while ((decompressed = decoder.readInbound()) != null) {
+            try {
+                // Copied to the heap so the pooled buffer can be released right away
+                ByteBuffer copy = ByteBuffer.allocate(decompressed.readableBytes());
+                decompressed.readBytes(copy);
+                copy.flip();
+                output.add(copy);
+            } finally {
+                decompressed.release();
+            }
+        }
+        return output;
+    }
+
     public static Mono<String> processGzipBody(Flux<ByteBuffer> gzipBody) {
-        final EmbeddedChannel decoder = new EmbeddedChannel(ZlibCodecFactory.newZlibDecoder(ZlibWrapper.GZIP));
-
-        /*
-         * A CompositeByteBuf is used to decode multibyte UTF-8 characters
-         * (e.g., 'ä', '€') that are split across network chunks and corrupted during decoding.
-         *
-         * 1. Instead of decoding small chunks individually, we first decompress and
-         * accumulate all bytes into this single logical buffer.
-         * 2. It acts as a "zero-copy" wrapper around the multiple, smaller
-         * decompressed chunks. It doesn't copy them into one new array but simply
-         * holds references to them.
-         * 3. By decoding from this composite buffer only once at the very end, we
-         * guarantee the entire byte sequence is present, ensuring no characters are split.
-         */
-        final CompositeByteBuf composite = Unpooled.compositeBuffer();
-
-        return gzipBody
-                .doOnNext(byteBuffer -> {
-                    ByteBuf in = Unpooled.wrappedBuffer(byteBuffer);
-                    decoder.writeInbound(in);
-                    ByteBuf decompressed;
-                    while ((decompressed = decoder.readInbound()) != null) {
-                        composite.addComponent(true, decompressed);
-                    }
-                })
-                .then(Mono.fromCallable(() -> {
-                    // This block only executes on successful completion of the Flux.
-                    decoder.finish();
-
-                    // Just in case there are any leftover data in the buffer.
-                    ByteBuf remaining;
-                    while ((remaining = decoder.readInbound()) != null) {
-                        composite.addComponent(true, remaining);
-                    }
-
-                    // By waiting until all decompressed bytes are collected in the
-                    // CompositeByteBuf, we can now decode the entire sequence to a String at once.
-                    // This guarantees that no multibyte characters are split during the decoding process.
-                    return composite.toString(StandardCharsets.UTF_8);
-                }))
-                .doFinally(ignore -> {
-                    composite.release();
-                    decoder.finishAndReleaseAll();
-                });
+        // By waiting until all decompressed bytes are collected in the CompositeByteBuf, we can decode the entire sequence to a String at once.
+        // This guarantees that no multibyte characters are split during the decoding process.
+        return collectGzipBody(gzipBody).map(Utils::decodeAndRelease);
     }
 
     public static Mono<String> processNonGzipBody(Flux<ByteBuffer> body) {
-        final CompositeByteBuf composite = Unpooled.compositeBuffer();
-
-        return body
-                .doOnNext(byteBuffer -> {
-                    composite.addComponent(true, Unpooled.wrappedBuffer(byteBuffer));
-                })
-                .then(Mono.fromCallable(() -> composite.toString(StandardCharsets.UTF_8)))
-                .doFinally(ignore -> composite.release())
+        return collectNonGzipBody(body)
+                .map(Utils::decodeAndRelease)
                 .switchIfEmpty(Mono.just(StringUtils.EMPTY));
     }
 
+    private static Mono<CompositeByteBuf> collectGzipBody(Flux<ByteBuffer> gzipBody) {
+        return Mono.defer(() -> {
+            final EmbeddedChannel decoder = new EmbeddedChannel(ZlibCodecFactory.newZlibDecoder(ZlibWrapper.GZIP));
+
+            /*
+             * A CompositeByteBuf is used to decode multibyte UTF-8 characters (e.g., 'ä', '€') that are split across network chunks and corrupted during
+             * decoding.
+             *
+             * 1. Instead of decoding small chunks individually, we first decompress and accumulate all bytes into this single logical buffer. 2. It acts as a
+             * "zero-copy" wrapper around the multiple, smaller decompressed chunks. It doesn't copy them into one new array but simply holds references to
+             * them. 3. By decoding from this composite buffer only once at the very end, we guarantee the entire byte sequence is present, ensuring no
+             * characters are split.
+             */
+            final CompositeByteBuf composite = newBodyBuffer();
+            final AtomicBoolean collected = new AtomicBoolean(false);
+
+            return gzipBody
+                    .doOnNext(byteBuffer -> {
+                        ByteBuf in = Unpooled.wrappedBuffer(byteBuffer);
+                        decoder.writeInbound(in);
+                        ByteBuf decompressed;
+                        while ((decompressed = decoder.readInbound()) != null) {
+                            composite.addComponent(true, decompressed);
+                        }
+                    })
+                    .then(Mono.fromCallable(() -> {
+                        // This block only executes on successful completion of the Flux.
+                        decoder.finish();
+
+                        // Just in case there are any leftover data in the buffer.
+                        ByteBuf remaining;
+                        while ((remaining = decoder.readInbound()) != null) {
+                            composite.addComponent(true, remaining);
+                        }
+                        collected.set(true);
+                        return composite;
+                    }))
+                    .doFinally(ignore -> {
+                        // Once collected, the buffer belongs to the subscriber
+                        if (!collected.get()) {
+                            composite.release();
+                        }
+                        decoder.finishAndReleaseAll();
+                    });
+        });
+    }
+
+    private static Mono<CompositeByteBuf> collectNonGzipBody(Flux<ByteBuffer> body) {
+        return Mono.defer(() -> {
+            final CompositeByteBuf composite = newBodyBuffer();
+            final AtomicBoolean collected = new AtomicBoolean(false);
+
+            return body
+                    .doOnNext(byteBuffer -> composite.addComponent(true, Unpooled.wrappedBuffer(byteBuffer)))
+                    .then(Mono.fromCallable(() -> {
+                        collected.set(true);
+                        return composite;
+                    }))
+                    .doFinally(ignore -> {
+                        if (!collected.get()) {
+                            composite.release();
+                        }
+                    });
+        });
+    }
+
+    private static CompositeByteBuf newBodyBuffer() {
+        // The default limit of 16 components makes the buffer consolidate (copy) everything it holds each time the limit is reached,
+        // which adds up to several full copies of a large body
+        return Unpooled.compositeBuffer(Integer.MAX_VALUE);
+    }
+
+    private static String decodeAndRelease(CompositeByteBuf composite) {
+        try {
+            return composite.toString(StandardCharsets.UTF_8);
+        } finally {
+            composite.release();
+        }
+    }
+
     /**
      * Method responsible for constructing the correct InputStream type based on content encoding header
      *
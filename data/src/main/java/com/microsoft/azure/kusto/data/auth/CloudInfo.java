@@ -21,8 +21,8 @@ import com.azure.core.http.HttpRequest;
 import com.azure.core.http.HttpResponse;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import com.microsoft.azure.kusto.data.ExponentialRetry;
+import com.microsoft.azure.kusto.data.JsonCodecs;
 import com.microsoft.azure.kusto.data.UriUtils;
 import com.microsoft.azure.kusto.data.Utils;
 import com.microsoft.azure.kusto.data.exceptions.DataServiceException;
@@ -158,8 +158,7 @@ public class CloudInfo implements TraceableAttributes, Serializable {
 
     private static CloudInfo parseCloudInfo(String content) {
         try {
-            ObjectMapper objectMapper = Utils.getObjectMapper();
-            JsonNode jsonObject = objectMapper.readTree(content);
+            JsonNode jsonObject = JsonCodecs.treeReader().readTree(content);
             JsonNode innerObject = jsonObject.has("AzureAD") ? jsonObject.get("AzureAD") : null;
             if (innerObject == null) {
                 return DEFAULT_CLOUD;
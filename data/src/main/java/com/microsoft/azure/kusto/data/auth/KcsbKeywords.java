@@ -1,7 +1,6 @@
 package com.microsoft.azure.kusto.data.auth;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.microsoft.azure.kusto.data.Utils;
+import com.microsoft.azure.kusto.data.JsonCodecs;
 import org.jetbrains.annotations.NotNull;
 
 import java.io.InputStream;
@@ -39,10 +38,9 @@ public class KcsbKeywords {
     @NotNull
     private static KcsbKeywords readInstance() {
         try {
-            ObjectMapper objectMapper = Utils.getObjectMapper();
             try (InputStream resourceAsStream = KcsbKeywords.class.getResourceAsStream(
                     "/kcsb.json")) {
-                KcsbKeywords value = objectMapper.readValue(resourceAsStream, KcsbKeywords.class);
+                KcsbKeywords value = JsonCodecs.readerFor(KcsbKeywords.class).readValue(resourceAsStream);
 
                 // Validate the keywords
                 for (KeywordData keywordData : value.keywords) {
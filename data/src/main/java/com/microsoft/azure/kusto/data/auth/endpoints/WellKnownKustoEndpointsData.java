@@ -1,8 +1,7 @@
 package com.microsoft.azure.kusto.data.auth.endpoints;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.microsoft.azure.kusto.data.Utils;
+import com.microsoft.azure.kusto.data.JsonCodecs;
 import org.jetbrains.annotations.NotNull;
 
 import java.io.InputStream;
@@ -40,10 +39,9 @@ public class WellKnownKustoEndpointsData {
     private static WellKnownKustoEndpointsData readInstance() {
         try {
             // Beautiful !
-            ObjectMapper objectMapper = Utils.getObjectMapper();
             try (InputStream resourceAsStream = WellKnownKustoEndpointsData.class.getResourceAsStream(
                     "/WellKnownKustoEndpoints.json")) {
-                return objectMapper.readValue(resourceAsStream, WellKnownKustoEndpointsData.class);
+                return JsonCodecs.readerFor(WellKnownKustoEndpointsData.class).readValue(resourceAsStream);
             }
         } catch (Exception ex) {
             throw new RuntimeException("Failed to read WellKnownKustoEndpoints.json", ex);
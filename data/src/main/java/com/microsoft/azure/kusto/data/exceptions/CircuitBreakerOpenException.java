@@ -0,0 +1,10 @@
+package com.microsoft.azure.kusto.data.exceptions;
+
+/**
+ * Raised without sending the request when the circuit breaker of the cluster is open, because its recent requests failed.
+ */
+public class CircuitBreakerOpenException extends DataServiceException {
+    public CircuitBreakerOpenException(String ingestionSource, String message) {
+        super(ingestionSource, message, false);
+    }
+}
@@ -5,8 +5,7 @@ package com.microsoft.azure.kusto.data.exceptions;
 
 import com.azure.core.http.HttpResponse;
 import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.microsoft.azure.kusto.data.Utils;
+import com.microsoft.azure.kusto.data.JsonCodecs;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -16,7 +15,6 @@ public class DataWebException extends WebException {
     private OneApiError apiError = null;
 
     private final Logger log = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
-    private ObjectMapper objectMapper = Utils.getObjectMapper();
 
     public DataWebException(String message, HttpResponse httpResponse, Throwable cause) {
         super(message, httpResponse, cause);
@@ -33,7 +31,7 @@ public class DataWebException extends WebException {
     public OneApiError getApiError() {
         if (apiError == null) {
             try {
-                apiError = OneApiError.fromJsonObject(objectMapper.readTree(getMessage()).get("error"));
+                apiError = OneApiError.fromJsonObject(JsonCodecs.treeReader().readTree(getMessage()).get("error"));
             } catch (JsonProcessingException e) {
                 log.error(String.format("failed to parse error from message: '%s' ", e.getMessage()), e);
             }
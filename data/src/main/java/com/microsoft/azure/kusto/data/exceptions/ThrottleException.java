@@ -4,6 +4,14 @@ public class ThrottleException extends DataServiceException {
     public static final String ERROR_MESSAGE = "Request was throttled, too many requests.";
 
     public ThrottleException(String ingestionSource) {
-        super(ingestionSource, ERROR_MESSAGE, false);
+        this(ingestionSource, ERROR_MESSAGE);
+    }
+
+    public ThrottleException(String ingestionSource, String message) {
+        super(ingestionSource, message, false);
+    }
+
+    public ThrottleException(String ingestionSource, String message, Exception exception) {
+        super(ingestionSource, message, exception, false);
     }
 }
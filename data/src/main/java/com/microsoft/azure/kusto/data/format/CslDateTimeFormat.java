@@ -93,6 +93,12 @@ public class CslDateTimeFormat extends CslFormat {
     }
 
     private LocalDateTime parseDateTimeFromString(String localDateTimeString) {
+        // Kusto's own format needs none of the masks below
+        LocalDateTime kustoDateTime = KustoTemporalParser.parseLocalDateTime(localDateTimeString);
+        if (kustoDateTime != null) {
+            return kustoDateTime;
+        }
+
         DateTimeFormatter dateTimeFormatter;
 
         // Try to parse using well-known Kusto masks
@@ -22,8 +22,11 @@ public class CslTimespanFormat extends CslFormat {
     }
 
     public CslTimespanFormat(String value) {
+        Duration duration = KustoTemporalParser.parseDuration(value);
         if (StringUtils.isBlank(value)) {
             this.value = null;
+        } else if (duration != null) {
+            this.value = duration;
         } else {
             Matcher matcher = ClientRequestProperties.KUSTO_TIMESPAN_REGEX.matcher(value);
             if (!matcher.matches()) {
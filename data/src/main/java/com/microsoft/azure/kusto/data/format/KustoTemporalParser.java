@@ -0,0 +1,233 @@
+// Copyright (c) Microsoft Corporation.
+// Licensed under the MIT License.
+
+package com.microsoft.azure.kusto.data.format;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+/**
+ * Parses the fixed formats Kusto uses for datetime ({@code yyyy-MM-ddTHH:mm:ss[.fffffff]Z}) and timespan ({@code [-][d.]hh:mm:ss[.fffffff]}) values
+ * by reading the characters at their known positions, without a formatter, regex or intermediate objects.
+ * <p>
+ * Anything that isn't in these exact formats is rejected - {@link #INVALID} or null is returned - so callers can fall back to their lenient
+ * parsing for unusual input.
+ */
+public final class KustoTemporalParser {
+    /**
+     * Returned by the methods that return a primitive when the text isn't in the expected format or is out of range.
+     */
+    public static final long INVALID = Long.MIN_VALUE;
+
+    private static final long NANOS_PER_SECOND = 1_000_000_000L;
+    private static final long SECONDS_PER_DAY = 86_400L;
+    // Indexes of the fixed parts of yyyy-MM-ddTHH:mm:ss
+    private static final int DATE_TIME_SECONDS_END = 19;
+    private static final int MIN_DATE_TIME_LENGTH = DATE_TIME_SECONDS_END + 1;
+    private static final int MAX_FRACTION_DIGITS = 9;
+    private static final int[] FRACTION_SCALE = {0, 100_000_000, 10_000_000, 1_000_000, 100_000, 10_000, 1_000, 100, 10, 1};
+
+    private KustoTemporalParser() {
+    }
+
+    /**
+     * @return the datetime as nanoseconds since the epoch, or {@link #INVALID} for other formats and datetimes outside the years 1677-2262
+     */
+    public static long parseDateTimeEpochNanos(String text) {
+        long epochSecond = parseEpochSecond(text);
+        if (epochSecond == INVALID) {
+            return INVALID;
+        }
+        try {
+            return Math.addExact(Math.multiplyExact(epochSecond, NANOS_PER_SECOND), parseNanoOfSecond(text));
+        } catch (ArithmeticException e) {
+            return INVALID;
+        }
+    }
+
+    /**
+     * @return the datetime, or null if the text isn't in Kusto's datetime format
+     */
+    public static Instant parseInstant(String text) {
+        long epochSecond = parseEpochSecond(text);
+        return epochSecond == INVALID ? null : Instant.ofEpochSecond(epochSecond, parseNanoOfSecond(text));
+    }
+
+    /**
+     * @return the datetime as a UTC local datetime, or null if the text isn't in Kusto's datetime format
+     */
+    public static LocalDateTime parseLocalDateTime(String text) {
+        long epochSecond = parseEpochSecond(text);
+        return epochSecond == INVALID ? null : LocalDateTime.ofEpochSecond(epochSecond, parseNanoOfSecond(text), ZoneOffset.UTC);
+    }
+
+    /**
+     * @return the timespan in nanoseconds, or {@link #INVALID} for other formats and timespans longer than about 292 years
+     */
+    public static long parseTimespanNanos(String text) {
+        if (text == null) {
+            return INVALID;
+        }
+        int length = text.length();
+        int position = 0;
+        boolean negative = length > 0 && text.charAt(0) == '-';
+        if (negative) {
+            position++;
+        }
+
+        // Days are only present when a '.' comes before the first ':'
+        long days = 0;
+        int firstColon = text.indexOf(':', position);
+        int daysSeparator = text.indexOf('.', position);
+        if (firstColon < 0) {
+            return INVALID;
+        }
+        if (daysSeparator >= 0 && daysSeparator < firstColon) {
+            days = parseDigits(text, position, daysSeparator);
+            if (days == INVALID) {
+                return INVALID;
+            }
+            position = daysSeparator + 1;
+        }
+
+        // hh:mm:ss
+        if (length < position + 8 || text.charAt(position + 2) != ':' || text.charAt(position + 5) != ':') {
+            return INVALID;
+        }
+        int hours = parseTwoDigits(text, position);
+        int minutes = parseTwoDigits(text, position + 3);
+        int seconds = parseTwoDigits(text, position + 6);
+        if (hours < 0 || hours > 23 || minutes < 0 || minutes > 59 || seconds < 0 || seconds > 59) {
+            return INVALID;
+        }
+
+        long nanos = parseFraction(text, position + 8, length);
+        if (nanos == INVALID) {
+            return INVALID;
+        }
+
+        try {
+            long totalSeconds = Math.addExact(Math.multiplyExact(days, SECONDS_PER_DAY), hours * 3600L + minutes * 60L + seconds);
+            long total = Math.addExact(Math.multiplyExact(totalSeconds, NANOS_PER_SECOND), nanos);
+            return negative ? -total : total;
+        } catch (ArithmeticException e) {
+            return INVALID;
+        }
+    }
+
+    /**
+     * @return the timespan, or null if the text isn't in Kusto's timespan format
+     */
+    public static Duration parseDuration(String text) {
+        long nanos = parseTimespanNanos(text);
+        return nanos == INVALID ? null : Duration.ofNanos(nanos);
+    }
+
+    /**
+     * Validates the whole text and returns its seconds since the epoch, or {@link #INVALID}.
+     */
+    private static long parseEpochSecond(String text) {
+        if (text == null) {
+            return INVALID;
+        }
+        int length = text.length();
+        if (length < MIN_DATE_TIME_LENGTH || length > MIN_DATE_TIME_LENGTH + 1 + MAX_FRACTION_DIGITS) {
+            return INVALID;
+        }
+        char t = text.charAt(10);
+        char z = text.charAt(length - 1);
+        if (text.charAt(4) != '-' || text.charAt(7) != '-' || (t != 'T' && t != 't') || text.charAt(13) != ':' || text.charAt(16) != ':'
+                || (z != 'Z' && z != 'z')) {
+            return INVALID;
+        }
+
+        int century = parseTwoDigits(text, 0);
+        int yearOfCentury = parseTwoDigits(text, 2);
+        int year = century < 0 || yearOfCentury < 0 ? -1 : century * 100 + yearOfCentury;
+        int month = parseTwoDigits(text, 5);
+        int day = parseTwoDigits(text, 8);
+        int hour = parseTwoDigits(text, 11);
+        int minute = parseTwoDigits(text, 14);
+        int second = parseTwoDigits(text, 17);
+        if (year < 0 || month < 1 || month > 12 || day < 1 || day > lengthOfMonth(year, month) || hour < 0 || hour > 23 || minute < 0 || minute > 59
+                || second < 0 || second > 59) {
+            return INVALID;
+        }
+        if (parseFraction(text, DATE_TIME_SECONDS_END, length - 1) == INVALID) {
+            return INVALID;
+        }
+
+        return epochDay(year, month, day) * SECONDS_PER_DAY + hour * 3600L + minute * 60L + second;
+    }
+
+    private static int parseNanoOfSecond(String text) {
+        return (int) parseFraction(text, DATE_TIME_SECONDS_END, text.length() - 1);
+    }
+
+    /**
+     * Parses an optional ".fffffff" part spanning [start, end) into nanoseconds.
+     */
+    private static long parseFraction(String text, int start, int end) {
+        if (start == end) {
+            return 0;
+        }
+        int digits = end - start - 1;
+        if (text.charAt(start) != '.' || digits < 1 || digits > MAX_FRACTION_DIGITS) {
+            return INVALID;
+        }
+        long fraction = parseDigits(text, start + 1, end);
+        return fraction == INVALID ? INVALID : fraction * FRACTION_SCALE[digits];
+    }
+
+    private static long parseDigits(String text, int start, int end) {
+        // More than 18 digits could overflow
+        if (start == end || end - start > 18) {
+            return INVALID;
+        }
+        long value = 0;
+        for (int i = start; i < end; i++) {
+            int digit = text.charAt(i) - '0';
+            if (digit < 0 || digit > 9) {
+                return INVALID;
+            }
+            value = value * 10 + digit;
+        }
+        return value;
+    }
+
+    // Negative if either character isn't a digit
+    private static int parseTwoDigits(String text, int index) {
+        int tens = text.charAt(index) - '0';
+        int ones = text.charAt(index + 1) - '0';
+        if (tens < 0 || tens > 9 || ones < 0 || ones > 9) {
+            return -1;
+        }
+        return tens * 10 + ones;
+    }
+
+    private static int lengthOfMonth(int year, int month) {
+        switch (month) {
+            case 2:
+                return (year % 4 == 0 && (year % 100 != 0 || year % 400 == 0)) ? 29 : 28;
+            case 4:
+            case 6:
+            case 9:
+            case 11:
+                return 30;
+            default:
+                return 31;
+        }
+    }
+
+    // Days since 1970-01-01 of a proleptic Gregorian date, as java.time.LocalDate#toEpochDay computes them
+    private static long epochDay(int year, int month, int day) {
+        long y = month <= 2 ? year - 1 : year;
+        long era = Math.floorDiv(y, 400);
+        long yearOfEra = y - era * 400;
+        long dayOfYear = (153L * (month + (month > 2 ? -3 : 9)) + 2) / 5 + day - 1;
+        long dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+        return era * 146_097 + dayOfEra - 719_468;
+    }
+}
@@ -0,0 +1,132 @@
+package com.microsoft.azure.kusto.data.http;
+
+import org.jetbrains.annotations.NotNull;
+import org.reactivestreams.Subscription;
+import reactor.core.CoreSubscriber;
+import reactor.core.publisher.Flux;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * A blocking InputStream over a {@code Flux<ByteBuffer>} that only requests more buffers from the source as the reader consumes them.
+ * At most {@link #PREFETCH} buffers are held at a time, so a slow reader stops the network reads instead of having the whole body accumulate in
+ * memory (as {@code HttpResponse.getBodyAsInputStream()} does).
+ * Reads block until data arrives, so the stream must not be read on the event loop thread that produces the buffers.
+ */
+public class FluxInputStream extends InputStream {
+    static final int PREFETCH = 8;
+    private static final ByteBuffer END_OF_STREAM = ByteBuffer.allocate(0);
+
+    private final BlockingQueue<ByteBuffer> queue = new ArrayBlockingQueue<>(PREFETCH + 1);
+    private volatile Subscription subscription;
+    private volatile Throwable error;
+    private ByteBuffer current;
+    private boolean done = false;
+    private boolean closed = false;
+
+    public FluxInputStream(Flux<ByteBuffer> source) {
+        source.subscribe(new CoreSubscriber<ByteBuffer>() {
+            @Override
+            public void onSubscribe(@NotNull Subscription s) {
+                subscription = s;
+                s.request(PREFETCH);
+            }
+
+            @Override
+            public void onNext(ByteBuffer byteBuffer) {
+                queue.offer(byteBuffer);
+            }
+
+            @Override
+            public void onError(Throwable t) {
+                error = t;
+                queue.offer(END_OF_STREAM);
+            }
+
+            @Override
+            public void onComplete() {
+                queue.offer(END_OF_STREAM);
+            }
+        });
+    }
+
+    @Override
+    public int read() throws IOException {
+        byte[] single = new byte[1];
+        int read = read(single, 0, 1);
+        return read == -1 ? -1 : single[0] & 0xFF;
+    }
+
+    @Override
+    public int read(@NotNull byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        ByteBuffer buffer = nextReadableBuffer();
+        if (buffer == null) {
+            return -1;
+        }
+
+        int toRead = Math.min(len, buffer.remaining());
+        buffer.get(b, off, toRead);
+        return toRead;
+    }
+
+    @Override
+    public int available() {
+        return current == null ? 0 : current.remaining();
+    }
+
+    @Override
+    public void close() {
+        if (!closed) {
+            closed = true;
+            Subscription s = subscription;
+            if (s != null && !done) {
+                s.cancel();
+            }
+            queue.clear();
+            current = null;
+        }
+    }
+
+    private ByteBuffer nextReadableBuffer() throws IOException {
+        if (closed) {
+            throw new IOException("Stream closed");
+        }
+
+        while (current == null || !current.hasRemaining()) {
+            if (done) {
+                return null;
+            }
+            if (current != null) {
+                // The previous buffer was fully read, make room for the next one
+                subscription.request(1);
+                current = null;
+            }
+
+            ByteBuffer next;
+            try {
+                next = queue.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while waiting for response data");
+            }
+            if (next == END_OF_STREAM) {
+                done = true;
+                Throwable t = error;
+                if (t != null) {
+                    throw t instanceof IOException ? (IOException) t : new IOException(t);
+                }
+                return null;
+            }
+            current = next;
+        }
+        return current;
+    }
+}
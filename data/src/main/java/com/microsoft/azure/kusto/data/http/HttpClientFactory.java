@@ -2,15 +2,26 @@ package com.microsoft.azure.kusto.data.http;
 
 import com.azure.core.http.HttpClient;
 import com.azure.core.http.HttpHeaderName;
+import com.azure.core.http.netty.NettyAsyncHttpClientBuilder;
+import com.azure.core.http.netty.NettyAsyncHttpClientProvider;
 import com.azure.core.util.Header;
 import com.azure.core.util.HttpClientOptions;
 
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.buffer.UnpooledByteBufAllocator;
+import io.netty.channel.ChannelOption;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import reactor.netty.http.HttpProtocol;
+import reactor.netty.http.HttpResources;
+import reactor.netty.resources.ConnectionProvider;
+import reactor.netty.resources.LoopResources;
 
 import java.time.Duration;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * A static factory for HTTP clients.
@@ -19,6 +30,9 @@ public class HttpClientFactory {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(HttpClientFactory.class);
 
+    // The event loops of the clients with a number of threads of their own, shared by the clients with the same number
+    private static final Map<Integer, LoopResources> EVENT_LOOPS = new ConcurrentHashMap<>();
+
     /**
      * Creates a new HTTP client.
      *
@@ -34,6 +48,13 @@ public class HttpClientFactory {
             return HttpClient.createDefault(options);
         }
 
+        if (properties.isTransportTuned()) {
+            if (properties.provider() == null || properties.provider() == NettyAsyncHttpClientProvider.class) {
+                return createNettyClient(properties);
+            }
+            LOGGER.warn("The transport settings only apply to the Netty HTTP client, they are ignored for {}", properties.provider().getName());
+        }
+
         // MS Docs indicate that all setters handle nulls so even if these values are null everything should "just work"
         // Note that the first discovered HttpClientProvider class is loaded. HttpClientProviders can be swapped in or out
         // by simply
@@ -62,4 +83,45 @@ public class HttpClientFactory {
 
         return HttpClient.createDefault(options);
     }
+
+    /**
+     * Creates a Netty HTTP client with the transport settings that the generic {@link HttpClientOptions} don't expose.
+     */
+    private static HttpClient createNettyClient(HttpClientProperties properties) {
+        ConnectionProvider.Builder connectionProvider = ConnectionProvider.builder("kusto-http")
+                .maxConnections(properties.maxConnectionTotal())
+                .maxIdleTime(Duration.ofSeconds(properties.maxIdleTime()));
+        if (properties.getConnectionAcquireTimeout() != null) {
+            connectionProvider.pendingAcquireTimeout(properties.getConnectionAcquireTimeout());
+        }
+        if (properties.getMaxPendingAcquires() != null) {
+            connectionProvider.pendingAcquireMaxCount(properties.getMaxPendingAcquires());
+        }
+
+        // HTTP/2 is negotiated over TLS, and the connections that can't negotiate it fall back to HTTP/1.1
+        reactor.netty.http.client.HttpClient nettyClient = reactor.netty.http.client.HttpClient.create(connectionProvider.build())
+                .protocol(properties.isHttp2() ? new HttpProtocol[] {HttpProtocol.H2, HttpProtocol.HTTP11} : new HttpProtocol[] {HttpProtocol.HTTP11});
+
+        if (properties.getEventLoopThreads() != null || properties.getNativeTransport() != null) {
+            LoopResources eventLoops = properties.getEventLoopThreads() == null
+                    ? HttpResources.get()
+                    : EVENT_LOOPS.computeIfAbsent(properties.getEventLoopThreads(), threads -> LoopResources.create("kusto-http-" + threads, threads, true));
+            nettyClient = nettyClient.runOn(eventLoops,
+                    properties.getNativeTransport() == null ? LoopResources.DEFAULT_NATIVE : properties.getNativeTransport());
+        }
+        if (properties.getPooledAllocator() != null) {
+            nettyClient = nettyClient.option(ChannelOption.ALLOCATOR,
+                    properties.getPooledAllocator() ? PooledByteBufAllocator.DEFAULT : UnpooledByteBufAllocator.DEFAULT);
+        }
+        if (properties.isKeepAlive()) {
+            nettyClient = nettyClient.headers(headers -> headers.set(HttpHeaderName.CONNECTION.getCaseSensitiveName(), "Keep-Alive"));
+        }
+
+        NettyAsyncHttpClientBuilder builder = new NettyAsyncHttpClientBuilder(nettyClient)
+                .readTimeout(Duration.ofSeconds(properties.readTimeout()));
+        if (properties.getProxy() != null) {
+            builder.proxy(properties.getProxy());
+        }
+        return builder.build();
+    }
 }
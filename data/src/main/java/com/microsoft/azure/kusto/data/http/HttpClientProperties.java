@@ -2,6 +2,12 @@ package com.microsoft.azure.kusto.data.http;
 
 import com.azure.core.http.HttpClientProvider;
 import com.azure.core.http.ProxyOptions;
+import com.microsoft.azure.kusto.data.KustoCircuitBreaker;
+import com.microsoft.azure.kusto.data.KustoConcurrencyLimiter;
+import com.microsoft.azure.kusto.data.KustoHedgingPolicy;
+import com.microsoft.azure.kusto.data.KustoRetryPolicy;
+
+import java.time.Duration;
 
 /**
  * HTTP client properties.
@@ -13,6 +19,17 @@ public class HttpClientProperties {
     private final Class<? extends HttpClientProvider> provider;
     private final ProxyOptions proxy;
     private final Integer readTimeout;
+    private final KustoConcurrencyLimiter concurrencyLimiter;
+    private final KustoHedgingPolicy hedgingPolicy;
+    private final KustoCircuitBreaker circuitBreaker;
+    private final KustoRetryPolicy retryPolicy;
+    private final boolean coalesceQueries;
+    private final boolean http2;
+    private final Integer eventLoopThreads;
+    private final Boolean nativeTransport;
+    private final Boolean pooledAllocator;
+    private final Duration connectionAcquireTimeout;
+    private final Integer maxPendingAcquires;
 
     private HttpClientProperties(HttpClientPropertiesBuilder builder) {
         this.maxIdleTime = builder.maxIdleTime;
@@ -21,6 +38,17 @@ public class HttpClientProperties {
         this.provider = builder.provider;
         this.proxy = builder.proxy;
         this.readTimeout = builder.readTimeout;
+        this.concurrencyLimiter = builder.concurrencyLimiter;
+        this.hedgingPolicy = builder.hedgingPolicy;
+        this.circuitBreaker = builder.circuitBreaker;
+        this.retryPolicy = builder.retryPolicy;
+        this.coalesceQueries = builder.coalesceQueries;
+        this.http2 = builder.http2;
+        this.eventLoopThreads = builder.eventLoopThreads;
+        this.nativeTransport = builder.nativeTransport;
+        this.pooledAllocator = builder.pooledAllocator;
+        this.connectionAcquireTimeout = builder.connectionAcquireTimeout;
+        this.maxPendingAcquires = builder.maxPendingAcquires;
     }
 
     /**
@@ -32,6 +60,25 @@ public class HttpClientProperties {
         return new HttpClientPropertiesBuilder();
     }
 
+    /**
+     * Instantiates a new builder preset for clients that send many requests at once, e.g. a fan-out of queries: HTTP/2 is negotiated so
+     * requests share a few multiplexed connections, the native transport and the pooled buffer allocator are used, up to 100 connections
+     * are kept alive, and requests that wait more than 10 seconds for a connection, or that are queued behind 1000 others, fail instead of
+     * piling up. Each setting can still be changed on the returned builder.
+     *
+     * @return a new {@linkplain HttpClientPropertiesBuilder} with the high-throughput settings
+     */
+    public static HttpClientPropertiesBuilder highThroughputBuilder() {
+        return new HttpClientPropertiesBuilder()
+                .keepAlive(true)
+                .maxConnectionsTotal(100)
+                .http2(true)
+                .nativeTransport(true)
+                .pooledAllocator(true)
+                .connectionAcquireTimeout(Duration.ofSeconds(10))
+                .maxPendingAcquires(1000);
+    }
+
     /**
      * The maximum time persistent connections can stay idle while kept alive in the connection pool. Connections whose
      * inactivity period exceeds this value will get closed and evicted from the pool.
@@ -93,6 +140,113 @@ public class HttpClientProperties {
         return proxy;
     }
 
+    /**
+     * The limiter of the requests sent at once by the clients created with these properties.
+     *
+     * @return the concurrency limiter, or null if requests aren't limited
+     */
+    public KustoConcurrencyLimiter getConcurrencyLimiter() {
+        return concurrencyLimiter;
+    }
+
+    /**
+     * The policy that hedges the queries of the clients created with these properties.
+     *
+     * @return the hedging policy, or null if queries aren't hedged
+     */
+    public KustoHedgingPolicy getHedgingPolicy() {
+        return hedgingPolicy;
+    }
+
+    /**
+     * The circuit breaker the requests of the clients created with these properties go through.
+     *
+     * @return the circuit breaker, or null if requests are always sent
+     */
+    public KustoCircuitBreaker getCircuitBreaker() {
+        return circuitBreaker;
+    }
+
+    /**
+     * The policy that retries the failed queries and management commands of the clients created with these properties.
+     *
+     * @return the retry policy, or null if requests aren't retried
+     */
+    public KustoRetryPolicy getRetryPolicy() {
+        return retryPolicy;
+    }
+
+    /**
+     * Indicates whether identical queries sent while one of them is executed wait for its result instead of being sent again.
+     *
+     * @return whether identical queries in flight are coalesced
+     */
+    public boolean isCoalesceQueries() {
+        return coalesceQueries;
+    }
+
+    /**
+     * Indicates whether HTTP/2 is negotiated with the service, so requests to a cluster are multiplexed over shared connections.
+     *
+     * @return whether HTTP/2 is used when the service supports it
+     */
+    public boolean isHttp2() {
+        return http2;
+    }
+
+    /**
+     * The number of event loop threads of the clients created with these properties.
+     *
+     * @return the number of threads, or null if the event loops shared by all the Netty clients are used
+     */
+    public Integer getEventLoopThreads() {
+        return eventLoopThreads;
+    }
+
+    /**
+     * Indicates whether the native transport, epoll on Linux, is used when it is available.
+     *
+     * @return whether the native transport is preferred, or null for the Netty default
+     */
+    public Boolean getNativeTransport() {
+        return nativeTransport;
+    }
+
+    /**
+     * Indicates whether the network buffers are allocated from a pool.
+     *
+     * @return whether the pooled allocator is used, or null for the Netty default
+     */
+    public Boolean getPooledAllocator() {
+        return pooledAllocator;
+    }
+
+    /**
+     * The maximum time a request waits for a connection from the pool.
+     *
+     * @return the acquisition timeout, or null for the Netty default of 45 seconds
+     */
+    public Duration getConnectionAcquireTimeout() {
+        return connectionAcquireTimeout;
+    }
+
+    /**
+     * The maximum number of requests that wait for a connection from the pool.
+     *
+     * @return the maximum number of pending acquisitions, or null for the Netty default of twice the maximum number of connections
+     */
+    public Integer getMaxPendingAcquires() {
+        return maxPendingAcquires;
+    }
+
+    /**
+     * @return whether the Netty transport of the client is tuned beyond the options all the HTTP client providers support
+     */
+    boolean isTransportTuned() {
+        return http2 || eventLoopThreads != null || nativeTransport != null || pooledAllocator != null || connectionAcquireTimeout != null
+                || maxPendingAcquires != null;
+    }
+
     public static class HttpClientPropertiesBuilder {
 
         private Integer maxIdleTime = 120;
@@ -101,6 +255,17 @@ public class HttpClientProperties {
         private Integer maxConnectionsTotal = 40;
         private Class<? extends HttpClientProvider> provider = null;
         private ProxyOptions proxy = null;
+        private KustoConcurrencyLimiter concurrencyLimiter = null;
+        private KustoHedgingPolicy hedgingPolicy = null;
+        private KustoCircuitBreaker circuitBreaker = null;
+        private KustoRetryPolicy retryPolicy = null;
+        private boolean coalesceQueries;
+        private boolean http2;
+        private Integer eventLoopThreads = null;
+        private Boolean nativeTransport = null;
+        private Boolean pooledAllocator = null;
+        private Duration connectionAcquireTimeout = null;
+        private Integer maxPendingAcquires = null;
 
         public HttpClientPropertiesBuilder() {
         }
@@ -180,6 +345,137 @@ public class HttpClientProperties {
             return this;
         }
 
+        /**
+         * Sets a limiter that adapts the number of requests sent at once to each cluster to what the cluster can take. Not set by default.
+         *
+         * @param concurrencyLimiter the concurrency limiter
+         * @return the builder instance
+         */
+        public HttpClientPropertiesBuilder concurrencyLimiter(KustoConcurrencyLimiter concurrencyLimiter) {
+            this.concurrencyLimiter = concurrencyLimiter;
+            return this;
+        }
+
+        /**
+         * Sets a policy that sends a second request for the queries that didn't get a response in time. Not set by default.
+         *
+         * @param hedgingPolicy the hedging policy
+         * @return the builder instance
+         */
+        public HttpClientPropertiesBuilder hedgingPolicy(KustoHedgingPolicy hedgingPolicy) {
+            this.hedgingPolicy = hedgingPolicy;
+            return this;
+        }
+
+        /**
+         * Sets a circuit breaker that makes requests fail fast while a cluster keeps failing. Not set by default.
+         *
+         * @param circuitBreaker the circuit breaker
+         * @return the builder instance
+         */
+        public HttpClientPropertiesBuilder circuitBreaker(KustoCircuitBreaker circuitBreaker) {
+            this.circuitBreaker = circuitBreaker;
+            return this;
+        }
+
+        /**
+         * Sets a policy that retries the queries and management commands that failed with a transient error. Not set by default.
+         *
+         * @param retryPolicy the retry policy
+         * @return the builder instance
+         */
+        public HttpClientPropertiesBuilder retryPolicy(KustoRetryPolicy retryPolicy) {
+            this.retryPolicy = retryPolicy;
+            return this;
+        }
+
+        /**
+         * Sets whether identical queries (same cluster, database, text, options and parameters) sent while one of them is executed wait for
+         * its result instead of being sent again. Each caller then gets its own copy of the result, and all of them get the error if the query
+         * fails. The query is cancelled only once all of its callers have cancelled. Queries with
+         * {@link com.microsoft.azure.kusto.data.ClientRequestProperties#setResultCacheBypass(boolean)} are always sent. Defaults to false.
+         *
+         * @param coalesceQueries whether to coalesce identical queries in flight
+         * @return the builder instance
+         */
+        public HttpClientPropertiesBuilder coalesceQueries(boolean coalesceQueries) {
+            this.coalesceQueries = coalesceQueries;
+            return this;
+        }
+
+        /**
+         * Sets whether HTTP/2 is negotiated with the service. Requests to a cluster are then multiplexed as streams over shared connections,
+         * instead of each taking a connection of its own. HTTP/1.1 is used when the service or a proxy doesn't support it, and for
+         * {@code http://} URLs. Only applies to the Netty HTTP client. Defaults to false.
+         *
+         * @param http2 whether to negotiate HTTP/2
+         * @return the builder instance
+         */
+        public HttpClientPropertiesBuilder http2(boolean http2) {
+            this.http2 = http2;
+            return this;
+        }
+
+        /**
+         * Sets the number of event loop threads of the client, which then gets event loops of its own. Only applies to the Netty HTTP
+         * client. By default, the event loops shared by all the Netty clients are used, with one thread per core.
+         *
+         * @param eventLoopThreads the number of threads
+         * @return the builder instance
+         */
+        public HttpClientPropertiesBuilder eventLoopThreads(Integer eventLoopThreads) {
+            this.eventLoopThreads = eventLoopThreads;
+            return this;
+        }
+
+        /**
+         * Sets whether the native transport, epoll on Linux, is used when it is available, instead of the NIO transport. Only applies to the
+         * Netty HTTP client. Not set by default, so the Netty default applies.
+         *
+         * @param nativeTransport whether to prefer the native transport
+         * @return the builder instance
+         */
+        public HttpClientPropertiesBuilder nativeTransport(Boolean nativeTransport) {
+            this.nativeTransport = nativeTransport;
+            return this;
+        }
+
+        /**
+         * Sets whether the network buffers are allocated from a pool, which saves allocations and garbage collections under load, or are
+         * allocated for each read. Only applies to the Netty HTTP client. Not set by default, so the Netty default applies.
+         *
+         * @param pooledAllocator whether to use the pooled allocator
+         * @return the builder instance
+         */
+        public HttpClientPropertiesBuilder pooledAllocator(Boolean pooledAllocator) {
+            this.pooledAllocator = pooledAllocator;
+            return this;
+        }
+
+        /**
+         * Sets the maximum time a request waits for a connection from the pool, after which it fails. Only applies to the Netty HTTP client.
+         * Not set by default, so the Netty default of 45 seconds applies.
+         *
+         * @param connectionAcquireTimeout the acquisition timeout
+         * @return the builder instance
+         */
+        public HttpClientPropertiesBuilder connectionAcquireTimeout(Duration connectionAcquireTimeout) {
+            this.connectionAcquireTimeout = connectionAcquireTimeout;
+            return this;
+        }
+
+        /**
+         * Sets the maximum number of requests that wait for a connection from the pool, past which requests fail at once. Only applies to
+         * the Netty HTTP client. Not set by default, so the Netty default of twice the maximum number of connections applies.
+         *
+         * @param maxPendingAcquires the maximum number of pending acquisitions
+         * @return the builder instance
+         */
+        public HttpClientPropertiesBuilder maxPendingAcquires(Integer maxPendingAcquires) {
+            this.maxPendingAcquires = maxPendingAcquires;
+            return this;
+        }
+
         public HttpClientProperties build() {
             return new HttpClientProperties(this);
         }
@@ -9,6 +9,7 @@ import java.util.UUID;
 
 import com.microsoft.azure.kusto.data.StringUtils;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -17,7 +18,8 @@ import com.azure.core.http.HttpMethod;
 import com.azure.core.http.HttpRequest;
 import com.azure.core.util.BinaryData;
 import com.fasterxml.jackson.databind.node.ObjectNode;
-import com.microsoft.azure.kusto.data.Utils;
+import com.microsoft.azure.kusto.data.ClientRequestProperties;
+import com.microsoft.azure.kusto.data.JsonCodecs;
 import com.microsoft.azure.kusto.data.auth.CloudInfo;
 import com.microsoft.azure.kusto.data.exceptions.DataClientException;
 import com.microsoft.azure.kusto.data.req.KustoRequest;
@@ -51,12 +53,22 @@ public class HttpRequestBuilder {
     }
 
     public HttpRequestBuilder createCommandPayload(KustoRequest kr) {
-        ObjectNode json = Utils.getObjectMapper().createObjectNode()
+        return createCommandPayload(kr, null);
+    }
+
+    /**
+     * @param serverTimeoutMs the server timeout to send instead of the one of the request properties, or null to send theirs
+     */
+    public HttpRequestBuilder createCommandPayload(KustoRequest kr, @Nullable Long serverTimeoutMs) {
+        ObjectNode json = JsonCodecs.createObjectNode()
                 .put("db", kr.getDatabase())
                 .put("csl", kr.getCommand());
 
-        if (kr.getProperties() != null) {
-            json.put("properties", kr.getProperties().toString());
+        ClientRequestProperties properties = kr.getProperties();
+        if (serverTimeoutMs != null) {
+            json.put("properties", (properties == null ? new ClientRequestProperties() : properties).toString(serverTimeoutMs));
+        } else if (properties != null) {
+            json.put("properties", properties.toString());
         }
 
         request.setBody(json.toString());
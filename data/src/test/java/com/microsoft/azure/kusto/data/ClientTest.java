@@ -1,13 +1,22 @@
 package com.microsoft.azure.kusto.data;
 
+import com.azure.core.http.HttpClient;
 import com.microsoft.azure.kusto.data.auth.ConnectionStringBuilder;
+import com.microsoft.azure.kusto.data.http.HttpClientProperties;
+import com.microsoft.azure.kusto.data.http.TestHttpResponse;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
 
 import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
 
 class ClientTest {
 
@@ -56,4 +65,82 @@ class ClientTest {
             Assertions.assertEquals(entry.getValue(), client.getClusterUrl());
         }
     }
+
+    @Test
+    @DisplayName("identical concurrent queries share one request")
+    void testIdenticalConcurrentQueriesShareOneRequest() throws URISyntaxException {
+        AtomicInteger queriesSent = new AtomicInteger();
+        ClientImpl client = coalescingClient(queryHttpClient(queriesSent, Duration.ofMillis(300)));
+
+        List<Mono<KustoOperationResult>> calls = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            calls.add(client.executeQueryAsync("db", "T | take 2"));
+        }
+        ClientRequestProperties bypass = new ClientRequestProperties();
+        bypass.setResultCacheBypass(true);
+        calls.add(client.executeQueryAsync("db", "T | take 2", bypass));
+        calls.add(client.executeQueryAsync("db", "T | take 3"));
+
+        List<KustoOperationResult> results = Mono.zip(calls, values -> {
+            List<KustoOperationResult> list = new ArrayList<>();
+            for (Object value : values) {
+                list.add((KustoOperationResult) value);
+            }
+            return list;
+        }).block();
+        Assertions.assertNotNull(results);
+        Assertions.assertEquals(3, queriesSent.get());
+        // Each caller reads the shared result with its own cursors
+        for (KustoOperationResult result : results) {
+            KustoResultSetTable table = result.getPrimaryResults();
+            Assertions.assertTrue(table.next());
+            Assertions.assertEquals(1, table.getInt(0));
+        }
+
+        // Once the query is done, it is sent again
+        client.executeQuery("db", "T | take 2");
+        Assertions.assertEquals(4, queriesSent.get());
+    }
+
+    @Test
+    @DisplayName("a shared query keeps running until all of its callers cancel")
+    void testSharedQueryIsCancelledByItsLastCaller() throws URISyntaxException {
+        AtomicInteger queriesSent = new AtomicInteger();
+        ClientImpl client = coalescingClient(queryHttpClient(queriesSent, Duration.ofMillis(300)));
+
+        Mono<KustoOperationResult> cancelled = client.executeQueryAsync("db", "T").timeout(Duration.ofMillis(50), Mono.empty());
+        Mono<KustoOperationResult> waiting = client.executeQueryAsync("db", "T");
+        KustoOperationResult result = Mono.zip(cancelled.defaultIfEmpty(new KustoOperationResult("[]", "v2")), waiting, (ignore, value) -> value)
+                .block();
+        Assertions.assertNotNull(result);
+        Assertions.assertEquals(1, queriesSent.get());
+        Assertions.assertTrue(result.getPrimaryResults().next());
+    }
+
+    @Test
+    @DisplayName("identical concurrent queries are sent separately unless coalescing is enabled")
+    void testIdenticalConcurrentQueriesAreNotCoalescedByDefault() throws URISyntaxException {
+        AtomicInteger queriesSent = new AtomicInteger();
+        ClientImpl client = new ClientImpl(new ConnectionStringBuilder("http://localhost"), queryHttpClient(queriesSent, Duration.ofMillis(100)));
+
+        Mono.zip(client.executeQueryAsync("db", "T"), client.executeQueryAsync("db", "T")).block();
+        Assertions.assertEquals(2, queriesSent.get());
+    }
+
+    private static ClientImpl coalescingClient(HttpClient httpClient) throws URISyntaxException {
+        return new ClientImpl(new ConnectionStringBuilder("http://localhost"), httpClient, null, HttpClientProperties.builder().coalesceQueries(true).build());
+    }
+
+    private static HttpClient queryHttpClient(AtomicInteger queriesSent, Duration latency) {
+        byte[] body = ("[{\"FrameType\":\"DataSetHeader\",\"IsProgressive\":false,\"Version\":\"v2.0\"},"
+                + "{\"FrameType\":\"DataTable\",\"TableId\":1,\"TableKind\":\"PrimaryResult\",\"TableName\":\"PrimaryResult\","
+                + "\"Columns\":[{\"ColumnName\":\"a\",\"ColumnType\":\"int\"}],\"Rows\":[[1],[2]]},"
+                + "{\"FrameType\":\"DataSetCompletion\",\"HasErrors\":false,\"Cancelled\":false}]").getBytes(StandardCharsets.UTF_8);
+        return request -> {
+            if (request.getUrl().getPath().endsWith("/v2/rest/query")) {
+                queriesSent.incrementAndGet();
+            }
+            return Mono.delay(latency).map(ignore -> TestHttpResponse.newBuilder().withStatusCode(200).withBody(body).build());
+        };
+    }
 }
@@ -0,0 +1,58 @@
+package com.microsoft.azure.kusto.data;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+
+class JsonCodecsTest {
+    @Test
+    void readersAndWritersAreShared() {
+        Assertions.assertSame(JsonCodecs.treeReader(), JsonCodecs.treeReader());
+        Assertions.assertSame(JsonCodecs.writer(), JsonCodecs.writer());
+        Assertions.assertSame(JsonCodecs.readerFor(Pojo.class), JsonCodecs.readerFor(Pojo.class));
+        Assertions.assertSame(JsonCodecs.mapper(), JsonCodecs.mapper());
+    }
+
+    @Test
+    void keepsTheSdkMapperConfiguration() throws JsonProcessingException {
+        JsonNode node = JsonCodecs.treeReader().readTree("{\"a\":10.0003214134245341414141314134134101}");
+        Assertions.assertEquals(new BigDecimal("10.0003214134245341414141314134134101"), node.get("a").decimalValue());
+        Assertions.assertEquals("{\"value\":\"x\"}", JsonCodecs.writer().writeValueAsString(new Pojo("x")));
+    }
+
+    @Test
+    void fieldWriterIgnoresGetters() throws JsonProcessingException {
+        Assertions.assertEquals("{\"value\":\"x\"}", JsonCodecs.fieldWriter().writeValueAsString(new PojoWithGetter("x")));
+    }
+
+    @Test
+    void readsValues() throws JsonProcessingException {
+        Assertions.assertEquals("y", JsonCodecs.readerFor(Pojo.class).<Pojo>readValue("{\"value\":\"y\"}").value);
+    }
+
+    static class Pojo {
+        public String value;
+
+        Pojo() {
+        }
+
+        Pojo(String value) {
+            this.value = value;
+        }
+    }
+
+    static class PojoWithGetter {
+        private final String value;
+
+        PojoWithGetter(String value) {
+            this.value = value;
+        }
+
+        public String getOther() {
+            return "other";
+        }
+    }
+}
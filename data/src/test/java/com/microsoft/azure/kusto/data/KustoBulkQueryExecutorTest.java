@@ -0,0 +1,118 @@
+package com.microsoft.azure.kusto.data;
+
+import com.azure.core.http.HttpClient;
+import com.microsoft.azure.kusto.data.auth.ConnectionStringBuilder;
+import com.microsoft.azure.kusto.data.exceptions.DataServiceException;
+import com.microsoft.azure.kusto.data.http.TestHttpResponse;
+import com.microsoft.azure.kusto.data.req.KustoRequest;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+class KustoBulkQueryExecutorTest {
+    private static final byte[] RESPONSE = ("[{\"FrameType\":\"DataSetHeader\",\"IsProgressive\":false,\"Version\":\"v2.0\"},"
+            + "{\"FrameType\":\"DataTable\",\"TableId\":1,\"TableKind\":\"PrimaryResult\",\"TableName\":\"PrimaryResult\","
+            + "\"Columns\":[{\"ColumnName\":\"a\",\"ColumnType\":\"int\"}],\"Rows\":[[1]]},"
+            + "{\"FrameType\":\"DataSetCompletion\",\"HasErrors\":false,\"Cancelled\":false}]").getBytes(StandardCharsets.UTF_8);
+
+    private static final Pattern TAKE = Pattern.compile("take (\\d+)");
+
+    private final AtomicInteger maxInFlight = new AtomicInteger();
+    private final AtomicInteger maxQueued = new AtomicInteger();
+    private KustoBulkQueryExecutor executor;
+
+    @Test
+    void queriesAreLimitedAcrossCalls() throws URISyntaxException {
+        executor = new KustoBulkQueryExecutor(client(), 3);
+
+        Flux<KustoBulkQueryResult> first = executor.executeUnordered(requests(10, 0));
+        Flux<KustoBulkQueryResult> second = executor.executeUnordered(requests(10, 10));
+        List<KustoBulkQueryResult> results = Flux.merge(first, second).collectList().block();
+
+        Assertions.assertNotNull(results);
+        Assertions.assertEquals(20, results.size());
+        Assertions.assertTrue(results.stream().allMatch(KustoBulkQueryResult::isSuccess));
+        Assertions.assertEquals(3, maxInFlight.get());
+        // Each call sends up to 3 queries at once, so the queries of one call wait for those of the other
+        Assertions.assertTrue(maxQueued.get() > 0 && maxQueued.get() <= 3);
+        Assertions.assertEquals(0, executor.getInFlightCount());
+        Assertions.assertEquals(0, executor.getQueuedCount());
+    }
+
+    @Test
+    void orderedResultsFollowTheRequests() throws URISyntaxException {
+        executor = new KustoBulkQueryExecutor(client(), 4);
+
+        List<KustoBulkQueryResult> ordered = executor.executeOrdered(requests(8, 0)).collectList().block();
+        Assertions.assertNotNull(ordered);
+        for (int i = 0; i < ordered.size(); i++) {
+            Assertions.assertEquals(i, ordered.get(i).getIndex());
+            Assertions.assertEquals("T | take " + i, ordered.get(i).getRequest().getCommand());
+            Assertions.assertTrue(ordered.get(i).getResult().getPrimaryResults().next());
+        }
+
+        // The first queries are the slowest, so they complete last
+        List<Integer> unordered = executor.executeUnordered(requests(4, 0)).map(KustoBulkQueryResult::getIndex).collectList().block();
+        Assertions.assertNotEquals(ordered.stream().limit(4).map(KustoBulkQueryResult::getIndex).collect(Collectors.toList()), unordered);
+    }
+
+    @Test
+    void failedQueriesDontStopTheOthers() throws URISyntaxException {
+        HttpClient httpClient = request -> Mono.just(TestHttpResponse.newBuilder().withStatusCode(400)
+                .withBody("{\"error\":{\"code\":\"BadRequest\",\"message\":\"Syntax error\",\"@permanent\":true}}".getBytes(StandardCharsets.UTF_8))
+                .build());
+        executor = new KustoBulkQueryExecutor(new ClientImpl(new ConnectionStringBuilder("http://localhost"), httpClient), 2);
+
+        List<KustoBulkQueryResult> results = executor.executeOrdered(requests(3, 0)).collectList().block();
+        Assertions.assertNotNull(results);
+        Assertions.assertEquals(3, results.size());
+        for (KustoBulkQueryResult result : results) {
+            Assertions.assertFalse(result.isSuccess());
+            Assertions.assertNull(result.getResult());
+            Assertions.assertInstanceOf(DataServiceException.class, result.getError());
+        }
+        Assertions.assertEquals(0, executor.getInFlightCount());
+    }
+
+    @Test
+    void cancelledQueriesLeaveTheQueue() throws URISyntaxException {
+        executor = new KustoBulkQueryExecutor(client(), 1);
+
+        executor.executeUnordered(requests(5, 0)).take(Duration.ofMillis(20)).blockLast();
+        Assertions.assertEquals(0, executor.getInFlightCount());
+        Assertions.assertEquals(0, executor.getQueuedCount());
+        Assertions.assertEquals(1, executor.executeOrdered(requests(1, 0)).count().block());
+    }
+
+    private ClientImpl client() throws URISyntaxException {
+        HttpClient httpClient = request -> Mono.defer(() -> {
+            maxInFlight.accumulateAndGet(executor.getInFlightCount(), Math::max);
+            maxQueued.accumulateAndGet(executor.getQueuedCount(), Math::max);
+            // The first queries are the slowest, whatever was sent before them
+            Matcher take = TAKE.matcher(request.getBodyAsBinaryData() == null ? "" : request.getBodyAsBinaryData().toString());
+            long index = take.find() ? Long.parseLong(take.group(1)) : 0;
+            return Mono.delay(Duration.ofMillis(Math.max(10, 100 - 30 * index)))
+                    .map(ignore -> TestHttpResponse.newBuilder().withStatusCode(200).withBody(RESPONSE).build());
+        });
+        return new ClientImpl(new ConnectionStringBuilder("http://localhost"), httpClient);
+    }
+
+    private static List<KustoRequest> requests(int count, int first) {
+        List<KustoRequest> requests = new ArrayList<>();
+        for (int i = first; i < first + count; i++) {
+            requests.add(new KustoRequest("T | take " + i, "db"));
+        }
+        return requests;
+    }
+}
@@ -0,0 +1,222 @@
+package com.microsoft.azure.kusto.data;
+
+import com.azure.core.http.HttpClient;
+import com.microsoft.azure.kusto.data.auth.ConnectionStringBuilder;
+import com.microsoft.azure.kusto.data.exceptions.CircuitBreakerOpenException;
+import com.microsoft.azure.kusto.data.exceptions.DataClientException;
+import com.microsoft.azure.kusto.data.exceptions.DataServiceException;
+import com.microsoft.azure.kusto.data.exceptions.ThrottleException;
+import com.microsoft.azure.kusto.data.http.HttpClientProperties;
+import com.microsoft.azure.kusto.data.http.TestHttpResponse;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.test.StepVerifier;
+import reactor.test.scheduler.VirtualTimeScheduler;
+
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+class KustoCircuitBreakerTest {
+    private static final String CLUSTER = "https://cluster.kusto.windows.net";
+
+    private final AtomicLong now = new AtomicLong();
+
+    @Test
+    void failuresOpenTheCircuit() {
+        KustoCircuitBreaker breaker = KustoCircuitBreaker.builder().window(10, 4).failureRateThreshold(0.5).nanoTime(now::get).build();
+
+        succeed(breaker, 2);
+        fail(breaker, 1);
+        // Not enough requests yet
+        Assertions.assertEquals(0, breaker.getFailureRate(CLUSTER));
+        Assertions.assertEquals(KustoCircuitBreaker.State.CLOSED, breaker.getState(CLUSTER));
+        fail(breaker, 1);
+        Assertions.assertEquals(KustoCircuitBreaker.State.OPEN, breaker.getState(CLUSTER));
+
+        AtomicInteger subscribed = new AtomicInteger();
+        StepVerifier.create(breaker.protect(CLUSTER + "/v2/rest/query", Mono.fromCallable(subscribed::incrementAndGet)))
+                .expectError(CircuitBreakerOpenException.class)
+                .verify();
+        Assertions.assertEquals(0, subscribed.get());
+        // Other clusters have their own circuits
+        Assertions.assertEquals(KustoCircuitBreaker.State.CLOSED, breaker.getState("https://other.kusto.windows.net"));
+    }
+
+    @Test
+    void requestErrorsArentFailures() {
+        KustoCircuitBreaker breaker = KustoCircuitBreaker.builder().window(4, 4).nanoTime(now::get).build();
+
+        for (int i = 0; i < 4; i++) {
+            StepVerifier.create(breaker.protect(CLUSTER, Mono.error(new DataServiceException(CLUSTER, "Syntax error", true))))
+                    .expectError(DataServiceException.class)
+                    .verify();
+        }
+        Assertions.assertEquals(KustoCircuitBreaker.State.CLOSED, breaker.getState(CLUSTER));
+        Assertions.assertTrue(KustoCircuitBreaker.isFailure(new ThrottleException(CLUSTER)));
+    }
+
+    @Test
+    void slowCallsOpenTheCircuit() {
+        KustoCircuitBreaker breaker = KustoCircuitBreaker.builder().window(2, 2).slowCalls(Duration.ofSeconds(5), 1).nanoTime(now::get).build();
+
+        for (int i = 0; i < 2; i++) {
+            Sinks.One<String> response = Sinks.one();
+            breaker.protect(CLUSTER, response.asMono()).subscribe();
+            now.addAndGet(TimeUnit.SECONDS.toNanos(6));
+            response.tryEmitValue("slow");
+        }
+        Assertions.assertEquals(1, breaker.getSlowCallRate(CLUSTER));
+        Assertions.assertEquals(KustoCircuitBreaker.State.OPEN, breaker.getState(CLUSTER));
+    }
+
+    @Test
+    void halfOpenCircuitClosesAfterSuccessfulProbes() {
+        KustoCircuitBreaker breaker = KustoCircuitBreaker.builder().window(2, 2).openDuration(Duration.ofSeconds(30)).halfOpenCalls(2)
+                .nanoTime(now::get).build();
+        fail(breaker, 2);
+        Assertions.assertEquals(KustoCircuitBreaker.State.OPEN, breaker.getState(CLUSTER));
+
+        now.addAndGet(TimeUnit.SECONDS.toNanos(30));
+        Assertions.assertEquals(KustoCircuitBreaker.State.HALF_OPEN, breaker.getState(CLUSTER));
+        // Only the probes are let through
+        Sinks.One<String> first = Sinks.one();
+        Sinks.One<String> second = Sinks.one();
+        breaker.protect(CLUSTER, first.asMono()).subscribe();
+        breaker.protect(CLUSTER, second.asMono()).subscribe();
+        StepVerifier.create(breaker.protect(CLUSTER, Mono.just("third"))).expectError(CircuitBreakerOpenException.class).verify();
+
+        first.tryEmitValue("first");
+        second.tryEmitValue("second");
+        Assertions.assertEquals(KustoCircuitBreaker.State.CLOSED, breaker.getState(CLUSTER));
+        Assertions.assertEquals(0, breaker.getFailureRate(CLUSTER));
+    }
+
+    @Test
+    void failedProbeOpensTheCircuitAgain() {
+        KustoCircuitBreaker breaker = KustoCircuitBreaker.builder().window(2, 2).openDuration(Duration.ofSeconds(30)).nanoTime(now::get).build();
+        fail(breaker, 2);
+        now.addAndGet(TimeUnit.SECONDS.toNanos(30));
+
+        fail(breaker, 1);
+        Assertions.assertEquals(KustoCircuitBreaker.State.OPEN, breaker.getState(CLUSTER));
+        now.addAndGet(TimeUnit.SECONDS.toNanos(29));
+        Assertions.assertEquals(KustoCircuitBreaker.State.OPEN, breaker.getState(CLUSTER));
+    }
+
+    @Test
+    void cancelledProbesLetOthersThrough() {
+        KustoCircuitBreaker breaker = KustoCircuitBreaker.builder().window(1, 1).halfOpenCalls(1).nanoTime(now::get).build();
+        fail(breaker, 1);
+        now.addAndGet(TimeUnit.MINUTES.toNanos(1));
+
+        breaker.protect(CLUSTER, Flux.never()).take(Duration.ofMillis(10)).blockLast();
+        StepVerifier.create(breaker.protect(CLUSTER, Flux.just("a", "b"))).expectNext("a", "b").verifyComplete();
+        Assertions.assertEquals(KustoCircuitBreaker.State.CLOSED, breaker.getState(CLUSTER));
+    }
+
+    @Test
+    void requestsCancelledByTheirDeadlineAreFailures() {
+        KustoCircuitBreaker breaker = KustoCircuitBreaker.builder().window(2, 2).halfOpenCalls(1).nanoTime(now::get).build();
+        for (int i = 0; i < 2; i++) {
+            hang(breaker);
+        }
+        Assertions.assertEquals(KustoCircuitBreaker.State.OPEN, breaker.getState(CLUSTER));
+
+        // A hung probe opens the circuit again instead of giving its place to another one
+        now.addAndGet(TimeUnit.MINUTES.toNanos(1));
+        hang(breaker);
+        Assertions.assertEquals(KustoCircuitBreaker.State.OPEN, breaker.getState(CLUSTER));
+    }
+
+    @Test
+    void requestsCancelledAfterTheSlowCallDurationAreSlow() {
+        KustoCircuitBreaker breaker = KustoCircuitBreaker.builder().window(1, 1).slowCalls(Duration.ofSeconds(5), 1).nanoTime(now::get).build();
+
+        Sinks.One<String> response = Sinks.one();
+        Disposable request = breaker.protect(CLUSTER, response.asMono()).subscribe();
+        now.addAndGet(TimeUnit.SECONDS.toNanos(6));
+        request.dispose();
+        Assertions.assertEquals(KustoCircuitBreaker.State.OPEN, breaker.getState(CLUSTER));
+    }
+
+    @Test
+    void clientOpensTheCircuitOfAClusterThatDoesntRespond() throws URISyntaxException {
+        // The 404 of the management command below isn't a failure
+        KustoCircuitBreaker breaker = KustoCircuitBreaker.builder().window(3, 3).failureRateThreshold(0.6).build();
+        // The cloud metadata isn't found, so the default cloud is used
+        HttpClient httpClient = request -> request.getUrl().getPath().endsWith("/rest/query")
+                ? Mono.never()
+                : Mono.just(TestHttpResponse.newBuilder(request).withStatusCode(404).withBody(new byte[0]).build());
+        ClientImpl client = new ClientImpl(new ConnectionStringBuilder("http://localhost"), httpClient, null,
+                HttpClientProperties.builder().circuitBreaker(breaker).build());
+        // Looks up the cloud metadata before the deadlines start
+        StepVerifier.create(client.executeMgmtAsync("db", ".show tables", null)).expectError().verify();
+
+        // The deadlines follow the virtual time of the test
+        LongSupplier nanoTime = () -> VirtualTimeScheduler.get().now(TimeUnit.NANOSECONDS);
+        for (int i = 0; i < 2; i++) {
+            StepVerifier.withVirtualTime(() -> client.executeQueryAsync("db", "T", null)
+                    .contextWrite(context -> KustoDeadline.in(Duration.ofSeconds(3), nanoTime).putIn(context)))
+                    .thenAwait(Duration.ofSeconds(3))
+                    .expectError(DataClientException.class)
+                    .verify(Duration.ofSeconds(10));
+        }
+        Assertions.assertEquals(KustoCircuitBreaker.State.OPEN, breaker.getState(client.getClusterUrl()));
+        StepVerifier.create(client.executeQueryAsync("db", "T", null)).expectError(CircuitBreakerOpenException.class).verify();
+    }
+
+    @Test
+    void clientFailsFastOnceTheCircuitIsOpen() throws URISyntaxException {
+        AtomicInteger sent = new AtomicInteger();
+        KustoCircuitBreaker breaker = KustoCircuitBreaker.builder().window(2, 2).build();
+        // The cloud metadata isn't found, so the default cloud is used
+        HttpClient httpClient = request -> Mono.defer(() -> {
+            if (!request.getUrl().getPath().endsWith("/rest/query")) {
+                return Mono.just(TestHttpResponse.newBuilder(request).withStatusCode(404).withBody(new byte[0]).build());
+            }
+            sent.incrementAndGet();
+            return Mono.just(TestHttpResponse.newBuilder(request).withStatusCode(503).withBody("Service unavailable".getBytes(StandardCharsets.UTF_8))
+                    .build());
+        });
+        ClientImpl client = new ClientImpl(new ConnectionStringBuilder("http://localhost"), httpClient, null,
+                HttpClientProperties.builder().circuitBreaker(breaker).build());
+
+        for (int i = 0; i < 2; i++) {
+            StepVerifier.create(client.executeQueryAsync("db", "T", null))
+                    .expectErrorMatches(e -> e instanceof DataServiceException && !(e instanceof CircuitBreakerOpenException))
+                    .verify();
+        }
+        StepVerifier.create(client.executeQueryAsync("db", "T", null)).expectError(CircuitBreakerOpenException.class).verify();
+        Assertions.assertEquals(2, sent.get());
+        Assertions.assertEquals(KustoCircuitBreaker.State.OPEN, breaker.getState(client.getClusterUrl()));
+    }
+
+    private static void succeed(KustoCircuitBreaker breaker, int count) {
+        for (int i = 0; i < count; i++) {
+            StepVerifier.create(breaker.protect(CLUSTER, Mono.just("a"))).expectNext("a").verifyComplete();
+        }
+    }
+
+    private static void hang(KustoCircuitBreaker breaker) {
+        StepVerifier.create(KustoDeadline.enforce(breaker.protect(CLUSTER, Mono.never())).contextWrite(KustoDeadline.in(Duration.ofMillis(50))::putIn))
+                .expectError(DataClientException.class)
+                .verify(Duration.ofSeconds(10));
+    }
+
+    private static void fail(KustoCircuitBreaker breaker, int count) {
+        for (int i = 0; i < count; i++) {
+            StepVerifier.create(breaker.protect(CLUSTER, Mono.error(new DataServiceException(CLUSTER, "Timeout", false))))
+                    .expectError(DataServiceException.class)
+                    .verify();
+        }
+    }
+}
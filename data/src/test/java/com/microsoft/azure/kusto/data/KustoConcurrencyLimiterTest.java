@@ -0,0 +1,151 @@
+package com.microsoft.azure.kusto.data;
+
+import com.azure.core.http.HttpClient;
+import com.microsoft.azure.kusto.data.auth.ConnectionStringBuilder;
+import com.microsoft.azure.kusto.data.exceptions.ThrottleException;
+import com.microsoft.azure.kusto.data.http.HttpClientFactory;
+import com.microsoft.azure.kusto.data.http.HttpClientProperties;
+import com.microsoft.azure.kusto.data.http.TestHttpResponse;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.test.StepVerifier;
+
+import java.net.URISyntaxException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+class KustoConcurrencyLimiterTest {
+    private static final String CLUSTER = "https://cluster";
+
+    private final AtomicLong now = new AtomicLong();
+
+    @Test
+    void requestsOverTheLimitWait() {
+        KustoConcurrencyLimiter limiter = KustoConcurrencyLimiter.builder().initialLimit(2).nanoTime(now::get).build();
+        List<Sinks.One<String>> responses = responses(3);
+
+        List<String> received = new ArrayList<>();
+        for (Sinks.One<String> response : responses) {
+            limiter.limit(CLUSTER, CommandType.QUERY, response.asMono()).subscribe(received::add);
+        }
+        Assertions.assertEquals(2, limiter.getInFlightCount(CLUSTER, CommandType.QUERY));
+        Assertions.assertEquals(1, limiter.getQueuedCount(CLUSTER, CommandType.QUERY));
+        // Other command types and clusters have their own limits
+        Assertions.assertEquals(0, limiter.getInFlightCount(CLUSTER, CommandType.STREAMING_INGEST));
+        Assertions.assertEquals(0, limiter.getInFlightCount("https://other", CommandType.QUERY));
+
+        // The queued request is only subscribed to once a running one completes
+        responses.get(2).tryEmitValue("third");
+        Assertions.assertTrue(received.isEmpty());
+        responses.get(0).tryEmitValue("first");
+        Assertions.assertEquals(Arrays.asList("first", "third"), received);
+        Assertions.assertEquals(1, limiter.getInFlightCount(CLUSTER, CommandType.QUERY));
+        Assertions.assertEquals(0, limiter.getQueuedCount(CLUSTER, CommandType.QUERY));
+        responses.get(1).tryEmitValue("second");
+        Assertions.assertEquals(3, received.size());
+        Assertions.assertEquals(0, limiter.getInFlightCount(CLUSTER, CommandType.QUERY));
+    }
+
+    @Test
+    void successesRaiseTheLimitWhileItIsUsed() {
+        KustoConcurrencyLimiter limiter = KustoConcurrencyLimiter.builder().initialLimit(2).maxLimit(3).nanoTime(now::get).build();
+
+        // Alone, requests don't use the limit
+        limiter.limit(CLUSTER, CommandType.QUERY, Mono.just("a")).block();
+        Assertions.assertEquals(2, limiter.getLimit(CLUSTER, CommandType.QUERY));
+
+        for (int round = 0; round < 5; round++) {
+            List<Sinks.One<String>> responses = responses(2);
+            responses.forEach(response -> limiter.limit(CLUSTER, CommandType.QUERY, response.asMono()).subscribe());
+            responses.forEach(response -> response.tryEmitValue("a"));
+        }
+        Assertions.assertEquals(3, limiter.getLimit(CLUSTER, CommandType.QUERY));
+    }
+
+    @Test
+    void throttlingBacksOffOncePerLimit() {
+        KustoConcurrencyLimiter limiter = KustoConcurrencyLimiter.builder().initialLimit(8).nanoTime(now::get).build();
+
+        List<Sinks.One<String>> responses = responses(4);
+        responses.forEach(response -> limiter.limit(CLUSTER, CommandType.QUERY, response.asMono()).subscribe(ignore -> {
+        }, ignore -> {
+        }));
+        responses.forEach(response -> response.tryEmitError(new ThrottleException(CLUSTER)));
+        Assertions.assertEquals(4, limiter.getLimit(CLUSTER, CommandType.QUERY));
+
+        // Other errors don't change the limit
+        StepVerifier.create(limiter.limit(CLUSTER, CommandType.QUERY, Mono.error(new IllegalStateException()))).expectError().verify();
+        Assertions.assertEquals(4, limiter.getLimit(CLUSTER, CommandType.QUERY));
+
+        for (int i = 0; i < 5; i++) {
+            StepVerifier.create(limiter.limit(CLUSTER, CommandType.QUERY, Mono.error(new ThrottleException(CLUSTER))))
+                    .expectError(ThrottleException.class)
+                    .verify();
+        }
+        Assertions.assertEquals(1, limiter.getLimit(CLUSTER, CommandType.QUERY));
+    }
+
+    @Test
+    void slowRequestsBackOff() {
+        KustoConcurrencyLimiter limiter = KustoConcurrencyLimiter.builder().initialLimit(10).backoffRatio(0.9).latencyThreshold(Duration.ofSeconds(5))
+                .nanoTime(now::get).build();
+
+        Sinks.One<String> response = Sinks.one();
+        limiter.limit(CLUSTER, CommandType.ADMIN_COMMAND, response.asMono()).subscribe();
+        now.addAndGet(TimeUnit.SECONDS.toNanos(6));
+        response.tryEmitValue("slow");
+        Assertions.assertEquals(9, limiter.getLimit(CLUSTER, CommandType.ADMIN_COMMAND));
+    }
+
+    @Test
+    void requestsWaitForTheLimitAtMostTheMaximumWait() {
+        KustoConcurrencyLimiter limiter = KustoConcurrencyLimiter.builder().initialLimit(1).maxQueueWait(Duration.ofMillis(50)).build();
+        Sinks.One<String> response = Sinks.one();
+        limiter.limit(CLUSTER, CommandType.QUERY, response.asMono()).subscribe();
+
+        StepVerifier.create(limiter.limit(CLUSTER, CommandType.QUERY, Mono.just("a")))
+                .expectError(ThrottleException.class)
+                .verify();
+        Assertions.assertEquals(0, limiter.getQueuedCount(CLUSTER, CommandType.QUERY));
+        Assertions.assertEquals(1, limiter.getLimit(CLUSTER, CommandType.QUERY));
+
+        response.tryEmitValue("a");
+        Assertions.assertEquals(0, limiter.getInFlightCount(CLUSTER, CommandType.QUERY));
+    }
+
+    @Test
+    void throttledResponsesLowerTheLimitOfTheClient() throws URISyntaxException {
+        KustoConcurrencyLimiter limiter = KustoConcurrencyLimiter.builder().initialLimit(10).build();
+        // The cloud metadata isn't found, so the default cloud is used
+        HttpClient httpClient = request -> Mono.just(TestHttpResponse.newBuilder(request)
+                .withStatusCode(request.getUrl().getPath().endsWith("/rest/mgmt") ? 429 : 404)
+                .withBody(new byte[0])
+                .build());
+        ClientImpl client = new ClientImpl(new ConnectionStringBuilder("http://localhost"), httpClient, null,
+                HttpClientProperties.builder().concurrencyLimiter(limiter).build());
+
+        StepVerifier.create(client.executeMgmtAsync("db", ".show tables", null))
+                .expectErrorMatches(e -> e instanceof ThrottleException)
+                .verify();
+        Assertions.assertEquals(5, limiter.getLimit(client.getClusterUrl(), CommandType.ADMIN_COMMAND));
+        Assertions.assertEquals(10, limiter.getLimit(client.getClusterUrl(), CommandType.QUERY));
+
+        HttpClientProperties properties = HttpClientProperties.builder().concurrencyLimiter(limiter).build();
+        Assertions.assertSame(limiter, properties.getConcurrencyLimiter());
+        Assertions.assertNotNull(HttpClientFactory.create(properties));
+    }
+
+    private static List<Sinks.One<String>> responses(int count) {
+        List<Sinks.One<String>> responses = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            responses.add(Sinks.one());
+        }
+        return responses;
+    }
+}
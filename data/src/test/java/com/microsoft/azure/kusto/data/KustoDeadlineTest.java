@@ -0,0 +1,177 @@
+package com.microsoft.azure.kusto.data;
+
+import com.azure.core.http.HttpClient;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.microsoft.azure.kusto.data.auth.ConnectionStringBuilder;
+import com.microsoft.azure.kusto.data.exceptions.DataClientException;
+import com.microsoft.azure.kusto.data.exceptions.KustoDataExceptionBase;
+import com.microsoft.azure.kusto.data.http.HttpClientProperties;
+import com.microsoft.azure.kusto.data.http.TestHttpResponse;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+import reactor.test.scheduler.VirtualTimeScheduler;
+import reactor.util.context.Context;
+
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+class KustoDeadlineTest {
+    private static final byte[] RESPONSE = ("[{\"FrameType\":\"DataSetHeader\",\"IsProgressive\":false,\"Version\":\"v2.0\"},"
+            + "{\"FrameType\":\"DataTable\",\"TableId\":1,\"TableKind\":\"PrimaryResult\",\"TableName\":\"PrimaryResult\","
+            + "\"Columns\":[{\"ColumnName\":\"a\",\"ColumnType\":\"int\"}],\"Rows\":[[1]]},"
+            + "{\"FrameType\":\"DataSetCompletion\",\"HasErrors\":false,\"Cancelled\":false}]").getBytes(StandardCharsets.UTF_8);
+
+    private final List<String> bodies = new CopyOnWriteArrayList<>();
+
+    @Test
+    void remainingTimeDecreases() {
+        AtomicLong now = new AtomicLong();
+        KustoDeadline deadline = KustoDeadline.in(Duration.ofSeconds(10), now::get);
+        Assertions.assertEquals(Duration.ofSeconds(10), deadline.getRemaining());
+
+        now.addAndGet(TimeUnit.SECONDS.toNanos(4));
+        Assertions.assertEquals(Duration.ofSeconds(6), deadline.getRemaining());
+        Assertions.assertFalse(deadline.isExpired());
+
+        now.addAndGet(TimeUnit.SECONDS.toNanos(7));
+        Assertions.assertEquals(Duration.ZERO, deadline.getRemaining());
+        Assertions.assertTrue(deadline.isExpired());
+        Assertions.assertSame(deadline, KustoDeadline.fromContext(deadline.putIn(Context.empty())));
+        Assertions.assertNull(KustoDeadline.fromContext(Context.empty()));
+    }
+
+    @Test
+    void callsFailOnceTheDeadlinePasses() {
+        StepVerifier.create(KustoDeadline.enforce(Mono.never()).contextWrite(KustoDeadline.in(Duration.ofMillis(50))::putIn))
+                .expectError(DataClientException.class)
+                .verify(Duration.ofSeconds(5));
+        // Without a deadline, the call isn't bounded
+        StepVerifier.create(KustoDeadline.enforce(Mono.delay(Duration.ofMillis(100)))).expectNextCount(1).verifyComplete();
+    }
+
+    @Test
+    void retriesStopAtTheDeadline() throws URISyntaxException {
+        KustoRetryPolicy retryPolicy = KustoRetryPolicy.builder().maxAttempts(100).backoff(Duration.ofMillis(10), Duration.ofMillis(10)).build();
+        ClientImpl client = client(retryPolicy, 503, Duration.ofMillis(300));
+        // Looks up the cloud metadata before the deadline starts
+        StepVerifier.create(client.executeMgmtAsync("db", ".show tables", null)).expectError().verify();
+
+        // Requests stop once the deadline leaves less than a second to the service
+        long start = System.nanoTime();
+        StepVerifier.create(client.executeQueryAsync("db", "T | take 1", null).contextWrite(KustoDeadline.in(Duration.ofSeconds(4))::putIn))
+                .expectError(KustoDataExceptionBase.class)
+                .verify(Duration.ofSeconds(10));
+        Assertions.assertTrue(Duration.ofNanos(System.nanoTime() - start).compareTo(Duration.ofSeconds(3)) < 0);
+        Assertions.assertTrue(bodies.size() > 1 && bodies.size() < 10);
+    }
+
+    @Test
+    void remainingTimeIsSentAsServerTimeout() throws URISyntaxException, JsonProcessingException {
+        ClientImpl client = client((KustoRetryPolicy) null, 200, Duration.ZERO);
+        ClientRequestProperties properties = new ClientRequestProperties();
+        properties.setTimeoutInMilliSec(TimeUnit.MINUTES.toMillis(10));
+
+        // The client and the service each keep 30 seconds of the remaining time to report the timeout
+        StepVerifier.create(client.executeQueryAsync("db", "T | take 1", properties).contextWrite(KustoDeadline.in(Duration.ofSeconds(90))::putIn))
+                .expectNextCount(1)
+                .verifyComplete();
+        long serverTimeout = serverTimeout(bodies.get(0));
+        Assertions.assertTrue(serverTimeout > TimeUnit.SECONDS.toMillis(25) && serverTimeout <= TimeUnit.SECONDS.toMillis(30));
+        // The properties keep their own timeout
+        Assertions.assertEquals(TimeUnit.MINUTES.toMillis(10), properties.getTimeoutInMilliSec());
+
+        // A deadline later than the timeout of the request doesn't change it
+        bodies.clear();
+        StepVerifier.create(client.executeQueryAsync("db", "T | take 1", properties).contextWrite(KustoDeadline.in(Duration.ofHours(1))::putIn))
+                .expectNextCount(1)
+                .verifyComplete();
+        Assertions.assertEquals(TimeUnit.MINUTES.toMillis(10), serverTimeout(bodies.get(0)));
+    }
+
+    @Test
+    void requestsAreNotSentWhenTheDeadlineLeavesNoTimeToTheService() throws URISyntaxException {
+        ClientImpl client = client((KustoRetryPolicy) null, 200, Duration.ZERO);
+
+        StepVerifier.create(client.executeQueryAsync("db", "T | take 1", null).contextWrite(KustoDeadline.in(Duration.ofMillis(500))::putIn))
+                .expectError(DataClientException.class)
+                .verify(Duration.ofSeconds(5));
+        Assertions.assertTrue(bodies.isEmpty());
+    }
+
+    @Test
+    void retriesWithoutDeadlineKeepTheServerTimeoutOfTheRequest() throws URISyntaxException, JsonProcessingException {
+        KustoRetryPolicy retryPolicy = KustoRetryPolicy.builder().maxAttempts(3).backoff(Duration.ofMillis(10), Duration.ofMillis(10)).build();
+        ClientImpl client = client(retryPolicy, 503, Duration.ofMillis(10));
+        ClientRequestProperties properties = new ClientRequestProperties();
+        properties.setTimeoutInMilliSec(TimeUnit.MINUTES.toMillis(10));
+
+        StepVerifier.create(client.executeQueryAsync("db", "T | take 1", properties)).expectError().verify(Duration.ofSeconds(5));
+        Assertions.assertEquals(3, bodies.size());
+        for (String body : bodies) {
+            Assertions.assertEquals(TimeUnit.MINUTES.toMillis(10), serverTimeout(body));
+        }
+    }
+
+    @Test
+    void coalescedQueriesKeepTheDeadlineOfTheirCaller() throws URISyntaxException {
+        ClientImpl client = client(HttpClientProperties.builder().coalesceQueries(true).build(), 200, Duration.ofSeconds(5));
+        StepVerifier.create(client.executeMgmtAsync("db", ".show tables", null)).expectError().verify();
+
+        // The second caller waits for the query of the first one, until its own earlier deadline
+        StepVerifier.withVirtualTime(() -> query(client, Duration.ofSeconds(10)).materialize().zipWith(query(client, Duration.ofSeconds(3)).materialize()))
+                .thenAwait(Duration.ofSeconds(10))
+                .assertNext(signals -> {
+                    Assertions.assertTrue(signals.getT1().hasValue());
+                    Assertions.assertInstanceOf(DataClientException.class, signals.getT2().getThrowable());
+                })
+                .verifyComplete();
+        Assertions.assertEquals(1, bodies.size());
+
+        // The query of the first caller would fail before the deadline of the second one, which sends it again
+        bodies.clear();
+        StepVerifier.withVirtualTime(() -> query(client, Duration.ofSeconds(3)).materialize().zipWith(query(client, Duration.ofSeconds(10)).materialize()))
+                .thenAwait(Duration.ofSeconds(10))
+                .assertNext(signals -> {
+                    Assertions.assertInstanceOf(DataClientException.class, signals.getT1().getThrowable());
+                    Assertions.assertTrue(signals.getT2().hasValue());
+                })
+                .verifyComplete();
+        Assertions.assertEquals(2, bodies.size());
+    }
+
+    private static Mono<KustoOperationResult> query(ClientImpl client, Duration deadline) {
+        // The deadline follows the virtual time of the test
+        LongSupplier nanoTime = () -> VirtualTimeScheduler.get().now(TimeUnit.NANOSECONDS);
+        return client.executeQueryAsync("db", "T | take 1", null).contextWrite(context -> KustoDeadline.in(deadline, nanoTime).putIn(context));
+    }
+
+    private ClientImpl client(KustoRetryPolicy retryPolicy, int statusCode, Duration latency) throws URISyntaxException {
+        return client(HttpClientProperties.builder().retryPolicy(retryPolicy).build(), statusCode, latency);
+    }
+
+    private ClientImpl client(HttpClientProperties properties, int statusCode, Duration latency) throws URISyntaxException {
+        // The cloud metadata isn't found, so the default cloud is used
+        HttpClient httpClient = request -> Mono.defer(() -> {
+            if (!request.getUrl().getPath().endsWith("/rest/query")) {
+                return Mono.just(TestHttpResponse.newBuilder(request).withStatusCode(404).withBody(new byte[0]).build());
+            }
+            bodies.add(request.getBodyAsBinaryData().toString());
+            return Mono.delay(latency).map(ignore -> TestHttpResponse.newBuilder(request).withStatusCode(statusCode)
+                    .withBody(statusCode == 200 ? RESPONSE : new byte[0]).build());
+        });
+        return new ClientImpl(new ConnectionStringBuilder("http://localhost"), httpClient, null, properties);
+    }
+
+    private static long serverTimeout(String body) throws JsonProcessingException {
+        String properties = JsonCodecs.treeReader().readTree(body).get("properties").asText();
+        return ClientRequestProperties.fromString(properties).getTimeoutInMilliSec();
+    }
+}
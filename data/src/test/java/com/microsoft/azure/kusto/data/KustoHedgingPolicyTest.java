@@ -0,0 +1,116 @@
+package com.microsoft.azure.kusto.data;
+
+import com.azure.core.http.HttpClient;
+import com.microsoft.azure.kusto.data.auth.ConnectionStringBuilder;
+import com.microsoft.azure.kusto.data.http.HttpClientProperties;
+import com.microsoft.azure.kusto.data.http.TestHttpResponse;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+class KustoHedgingPolicyTest {
+    private static final byte[] RESPONSE = ("[{\"FrameType\":\"DataSetHeader\",\"IsProgressive\":false,\"Version\":\"v2.0\"},"
+            + "{\"FrameType\":\"DataTable\",\"TableId\":1,\"TableKind\":\"PrimaryResult\",\"TableName\":\"PrimaryResult\","
+            + "\"Columns\":[{\"ColumnName\":\"a\",\"ColumnType\":\"int\"}],\"Rows\":[[1]]},"
+            + "{\"FrameType\":\"DataSetCompletion\",\"HasErrors\":false,\"Cancelled\":false}]").getBytes(StandardCharsets.UTF_8);
+
+    @Test
+    void slowRequestsAreHedged() {
+        KustoHedgingPolicy policy = KustoHedgingPolicy.builder().delay(Duration.ofMillis(20)).budgetRatio(1).build();
+        AtomicBoolean cancelled = new AtomicBoolean();
+
+        StepVerifier.create(policy.hedge(Mono.delay(Duration.ofSeconds(10)).map(ignore -> "request").doOnCancel(() -> cancelled.set(true)),
+                Mono.just("hedge")))
+                .expectNext("hedge")
+                .verifyComplete();
+        Assertions.assertTrue(cancelled.get());
+        Assertions.assertEquals(1, policy.getHedgeCount());
+
+        // Requests that respond in time aren't hedged
+        StepVerifier.create(policy.hedge(Mono.just("request"), Mono.just("hedge"))).expectNext("request").verifyComplete();
+        Assertions.assertEquals(2, policy.getQueryCount());
+        Assertions.assertEquals(1, policy.getHedgeCount());
+    }
+
+    @Test
+    void hedgesDontExceedTheBudget() {
+        KustoHedgingPolicy policy = KustoHedgingPolicy.builder().delay(Duration.ZERO).budgetRatio(0.25).build();
+
+        int hedged = 0;
+        for (int i = 0; i < 8; i++) {
+            String winner = policy.hedge(Mono.delay(Duration.ofMillis(50)).map(ignore -> "request"), Mono.just("hedge")).block();
+            if ("hedge".equals(winner)) {
+                hedged++;
+            }
+        }
+        Assertions.assertEquals(2, hedged);
+        Assertions.assertEquals(2, policy.getHedgeCount());
+    }
+
+    @Test
+    void failedHedgesAreIgnored() {
+        KustoHedgingPolicy policy = KustoHedgingPolicy.builder().delay(Duration.ZERO).budgetRatio(1).build();
+
+        StepVerifier.create(policy.hedge(Mono.delay(Duration.ofMillis(50)).map(ignore -> "request"), Mono.error(new IllegalStateException())))
+                .expectNext("request")
+                .verifyComplete();
+        // Errors of the request itself aren't
+        StepVerifier.create(policy.hedge(Mono.error(new IllegalStateException()), Mono.just("hedge")))
+                .expectError(IllegalStateException.class)
+                .verify();
+    }
+
+    @Test
+    void delayFollowsTheLatencyPercentile() {
+        AtomicLong now = new AtomicLong();
+        KustoHedgingPolicy policy = KustoHedgingPolicy.builder().delay(Duration.ofSeconds(1)).latencyPercentile(90, 100).nanoTime(now::get).build();
+
+        for (int i = 1; i <= 100; i++) {
+            long latency = TimeUnit.MILLISECONDS.toNanos(i);
+            policy.hedge(Mono.fromCallable(() -> now.addAndGet(latency)), Mono.never()).block();
+            if (i < 100) {
+                Assertions.assertEquals(Duration.ofSeconds(1), policy.getDelay());
+            }
+        }
+        Assertions.assertEquals(Duration.ofMillis(90), policy.getDelay());
+    }
+
+    @Test
+    void clientHedgesQueriesWithAnotherRequestId() throws URISyntaxException {
+        List<String> requestIds = new CopyOnWriteArrayList<>();
+        // The cloud metadata isn't found, so the default cloud is used, and the first query request is stuck
+        HttpClient httpClient = request -> {
+            if (!request.getUrl().getPath().endsWith("/rest/query")) {
+                return Mono.just(TestHttpResponse.newBuilder(request).withStatusCode(404).withBody(new byte[0]).build());
+            }
+            requestIds.add(request.getHeaders().getValue("x-ms-client-request-id"));
+            Mono<Long> latency = Mono.delay(Duration.ofMillis(requestIds.size() == 1 ? 10_000 : 1));
+            return latency.map(ignore -> TestHttpResponse.newBuilder(request).withStatusCode(200).withBody(RESPONSE).build());
+        };
+        KustoHedgingPolicy policy = KustoHedgingPolicy.builder().delay(Duration.ofMillis(50)).budgetRatio(1).build();
+        ClientImpl client = new ClientImpl(new ConnectionStringBuilder("http://localhost"), httpClient, null,
+                HttpClientProperties.builder().hedgingPolicy(policy).build());
+
+        StepVerifier.create(client.executeQueryAsync("db", "T | take 1", null))
+                .expectNextMatches(result -> result.getPrimaryResults().count() == 1)
+                .expectComplete()
+                .verify(Duration.ofSeconds(5));
+        Assertions.assertEquals(2, requestIds.size());
+        Assertions.assertNotEquals(requestIds.get(0), requestIds.get(1));
+        Assertions.assertTrue(requestIds.get(1).endsWith(";hedge"));
+
+        HttpClientProperties properties = HttpClientProperties.builder().hedgingPolicy(policy).build();
+        Assertions.assertSame(policy, properties.getHedgingPolicy());
+        Assertions.assertEquals(1, policy.getQueryCount());
+    }
+}
@@ -2,8 +2,27 @@ package com.microsoft.azure.kusto.data;
 
 import com.microsoft.azure.kusto.data.exceptions.DataWebException;
 import com.microsoft.azure.kusto.data.exceptions.KustoServiceQueryError;
+import com.sun.management.ThreadMXBean;
+import io.netty.buffer.PooledByteBufAllocator;
 import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Assumptions;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+
+import java.io.ByteArrayInputStream;
+import java.lang.management.ManagementFactory;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -19,4 +38,347 @@ class KustoOperationResultTest {
         assertEquals(1, thrownException.getExceptions().size());
         assertSame(thrownException.getExceptions().get(0).getClass(), DataWebException.class);
     }
+
+    @Test
+    public void testStreamAndStringResponsesAreParsedTheSame() {
+        String responseJson = "[{\"FrameType\":\"DataSetHeader\",\"IsProgressive\":false,\"Version\":\"v2.0\"},"
+                + "{\"FrameType\":\"DataTable\",\"TableId\":1,\"TableKind\":\"PrimaryResult\",\"TableName\":\"PrimaryResult\","
+                + "\"Columns\":[{\"ColumnName\":\"a\",\"ColumnType\":\"int\"},{\"ColumnName\":\"b\",\"ColumnType\":\"real\"},"
+                + "{\"ColumnName\":\"c\",\"ColumnType\":\"dynamic\"},{\"ColumnName\":\"d\",\"ColumnType\":\"string\"}],"
+                + "\"Rows\":[[1,10.0003214134245341414141314134134101,{\"k\":[1,2]},\"x\"],[null,null,null,null]]},"
+                + "{\"TableId\":2,\"TableKind\":\"QueryCompletionInformation\",\"Columns\":[{\"ColumnName\":\"e\",\"ColumnType\":\"long\"}],"
+                + "\"Rows\":[[5]],\"FrameType\":\"DataTable\"},"
+                + "{\"FrameType\":\"DataSetCompletion\",\"HasErrors\":false,\"Cancelled\":false}]";
+
+        KustoOperationResult fromString = new KustoOperationResult(responseJson, "v2");
+        KustoOperationResult fromStream = new KustoOperationResult(new ByteArrayInputStream(responseJson.getBytes(StandardCharsets.UTF_8)), "v2");
+
+        assertEquals(2, fromStream.getResultTables().size());
+        for (int i = 0; i < 2; i++) {
+            assertEquals(fromString.getResultTables().get(i).getData(), fromStream.getResultTables().get(i).getData());
+        }
+
+        KustoResultSetTable primary = fromStream.getPrimaryResults();
+        assertTrue(primary.next());
+        assertEquals(1, primary.getInt(0));
+        assertEquals(new BigDecimal("10.0003214134245341414141314134134101").doubleValue(), primary.getDouble(1));
+        assertEquals(2, primary.getJSONObject(2).get("k").size());
+        assertTrue(primary.next());
+        assertNull(primary.getIntegerObject(0));
+
+        KustoResultSetTable completion = fromStream.getResultTables().get(1);
+        assertEquals(WellKnownDataSet.QueryCompletionInformation, completion.getTableKind());
+        assertTrue(completion.next());
+        assertEquals(5, completion.getInt(0));
+    }
+
+    @Test
+    public void testColumnSelectionAppliesToPrimaryResults() {
+        String responseJson = "[{\"FrameType\":\"DataSetHeader\",\"IsProgressive\":false,\"Version\":\"v2.0\"},"
+                + "{\"FrameType\":\"DataTable\",\"TableId\":1,\"TableKind\":\"PrimaryResult\",\"TableName\":\"PrimaryResult\","
+                + "\"Columns\":[{\"ColumnName\":\"a\",\"ColumnType\":\"int\"},{\"ColumnName\":\"b\",\"ColumnType\":\"dynamic\"},"
+                + "{\"ColumnName\":\"c\",\"ColumnType\":\"string\"}],"
+                + "\"Rows\":[[1,{\"k\":[1,{\"l\":2}]},\"x\"],[null,[3],null]]},"
+                + "{\"TableId\":2,\"TableKind\":\"QueryCompletionInformation\",\"Columns\":[{\"ColumnName\":\"e\",\"ColumnType\":\"long\"},"
+                + "{\"ColumnName\":\"f\",\"ColumnType\":\"long\"}],\"Rows\":[[5,6]],\"FrameType\":\"DataTable\"},"
+                + "{\"FrameType\":\"DataSetCompletion\",\"HasErrors\":false,\"Cancelled\":false}]";
+
+        KustoOperationResult result = new KustoOperationResult(new ByteArrayInputStream(responseJson.getBytes(StandardCharsets.UTF_8)), "v2",
+                KustoColumnSelection.ofOrdinals(2, 7));
+        KustoResultSetTable primary = result.getPrimaryResults();
+        assertEquals(1, primary.getColumns().length);
+        assertEquals("c", primary.getColumns()[0].getColumnName());
+        assertEquals(0, primary.findColumn("c"));
+        assertEquals(Arrays.asList(Arrays.asList("x"), Arrays.asList((Object) null)), primary.getData());
+
+        // Other tables are read whole
+        assertEquals(2, result.getResultTables().get(1).getColumns().length);
+    }
+
+    @Test
+    public void testResponseIsParsedFromChunks() {
+        String responseJson = "[{\"FrameType\":\"DataSetHeader\",\"IsProgressive\":false,\"Version\":\"v2.0\"},"
+                + "{\"FrameType\":\"DataTable\",\"TableId\":1,\"TableKind\":\"PrimaryResult\",\"TableName\":\"PrimaryResult\","
+                + "\"Columns\":[{\"ColumnName\":\"a\",\"ColumnType\":\"string\"},{\"ColumnName\":\"b\",\"ColumnType\":\"dynamic\"}],"
+                + "\"Rows\":[[\"\u00e4\u20ac\ud83d\ude00\",{\"k\":\"\u20ac\"}],[null,null]]},"
+                + "{\"FrameType\":\"DataSetCompletion\",\"HasErrors\":false,\"Cancelled\":false}]";
+        byte[] bytes = responseJson.getBytes(StandardCharsets.UTF_8);
+
+        // Single byte chunks split every multibyte character
+        KustoOperationResult result = KustoOperationResult.readAsync(chunks(bytes, 1), "v2", null).block();
+        KustoOperationResult expected = new KustoOperationResult(responseJson, "v2");
+        assertNotNull(result);
+        assertEquals(expected.getResultTables().size(), result.getResultTables().size());
+        assertEquals(expected.getPrimaryResults().getData(), result.getPrimaryResults().getData());
+        assertEquals("\u00e4\u20ac\ud83d\ude00", result.getPrimaryResults().getData().get(0).get(0));
+    }
+
+    @Test
+    public void testV1ResponseIsParsedFromChunks() {
+        String responseJson = "{\"Tables\":[{\"TableName\":\"Table_0\",\"Columns\":[{\"ColumnName\":\"a\",\"DataType\":\"Int32\",\"ColumnType\":\"int\"}],"
+                + "\"Rows\":[[1],[2]]}]}";
+
+        KustoOperationResult result = KustoOperationResult.readAsync(chunks(responseJson.getBytes(StandardCharsets.UTF_8), 7), "v1", null).block();
+        assertNotNull(result);
+        assertEquals(WellKnownDataSet.PrimaryResult, result.getPrimaryResults().getTableKind());
+        assertEquals(2, result.getPrimaryResults().count());
+    }
+
+    @Test
+    public void testTruncatedResponseFromChunksFails() {
+        String responseJson = "[{\"FrameType\":\"DataSetHeader\",\"IsProgressive\":false,\"Version\":\"v2.0\"},{\"FrameType\":\"DataTable\"";
+
+        assertThrows(KustoServiceQueryError.class,
+                () -> KustoOperationResult.readAsync(chunks(responseJson.getBytes(StandardCharsets.UTF_8), 16), "v2", null).block());
+    }
+
+    @Test
+    public void testSpilledTablesReadTheSameRows(@TempDir Path spillDirectory) throws Exception {
+        String responseJson = "[{\"FrameType\":\"DataSetHeader\",\"IsProgressive\":false,\"Version\":\"v2.0\"},"
+                + "{\"FrameType\":\"DataTable\",\"TableId\":1,\"TableKind\":\"PrimaryResult\",\"TableName\":\"PrimaryResult\","
+                + "\"Columns\":[{\"ColumnName\":\"a\",\"ColumnType\":\"int\"},{\"ColumnName\":\"b\",\"ColumnType\":\"real\"},"
+                + "{\"ColumnName\":\"c\",\"ColumnType\":\"dynamic\"},{\"ColumnName\":\"d\",\"ColumnType\":\"string\"},"
+                + "{\"ColumnName\":\"e\",\"ColumnType\":\"decimal\"},{\"ColumnName\":\"f\",\"ColumnType\":\"bool\"}],"
+                + "\"Rows\":[[1,1.5,{\"k\":[1,2.25]},\"\u00e4\u20ac\",\"10.0003214134245341414141314134134101\",true],"
+                + "[null,null,null,null,null,null],[3,-2.0,[\"x\"],\"y\",\"1\",false]]},"
+                + "{\"FrameType\":\"DataSetCompletion\",\"HasErrors\":false,\"Cancelled\":false}]";
+        byte[] bytes = responseJson.getBytes(StandardCharsets.UTF_8);
+
+        KustoOperationResult expected = KustoOperationResult.readAsync(chunks(bytes, 64), "v2", null).block();
+        // The first row stays under the threshold, the next ones make the table spill
+        ClientRequestProperties properties = new ClientRequestProperties();
+        properties.setSpillOptions(new KustoSpillOptions(200, spillDirectory.toString()));
+        KustoOperationResult spilled = KustoOperationResult.readAsync(chunks(bytes, 64), "v2", properties).block();
+        assertNotNull(expected);
+        assertNotNull(spilled);
+        KustoResultSetTable table = spilled.getPrimaryResults();
+        assertTrue(table.getData() instanceof KustoSpilledRows);
+        assertEquals(expected.getPrimaryResults().getData(), table.getData());
+
+        assertTrue(table.next());
+        assertEquals(1, table.getInt("a"));
+        assertEquals(1.5, table.getDouble("b"));
+        assertEquals(2.25, table.getJSONObject("c").get("k").get(1).asDouble());
+        assertEquals(new BigDecimal("10.0003214134245341414141314134134101"), table.getBigDecimal("e"));
+        assertTrue(table.getBoolean("f"));
+        assertTrue(table.next());
+        assertTrue(table.isNull(0));
+        assertNull(table.getString("d"));
+
+        // The file is deleted once it is mapped
+        try (Stream<Path> files = Files.list(spillDirectory)) {
+            assertEquals(0, files.count());
+        }
+    }
+
+    @Test
+    public void testSpillFileIsDeletedWhenTheResponseFailsOrIsCancelled(@TempDir Path spillDirectory) throws Exception {
+        String responseJson = "[{\"FrameType\":\"DataSetHeader\",\"IsProgressive\":false,\"Version\":\"v2.0\"},"
+                + "{\"FrameType\":\"DataTable\",\"TableId\":1,\"TableKind\":\"PrimaryResult\",\"TableName\":\"PrimaryResult\","
+                + "\"Columns\":[{\"ColumnName\":\"a\",\"ColumnType\":\"string\"}],"
+                + "\"Rows\":[[\"first row\"],[\"second row\"],[\"third row\"],";
+        byte[] bytes = responseJson.getBytes(StandardCharsets.UTF_8);
+        ClientRequestProperties properties = new ClientRequestProperties();
+        properties.setSpillOptions(new KustoSpillOptions(100, spillDirectory.toString()));
+
+        // The response ends in the middle of the table
+        assertThrows(KustoServiceQueryError.class, () -> KustoOperationResult.readAsync(chunks(bytes, 16), "v2", properties).block());
+        try (Stream<Path> files = Files.list(spillDirectory)) {
+            assertEquals(0, files.count());
+        }
+
+        // The rest of the response never arrives
+        Disposable subscription = KustoOperationResult.readAsync(chunks(bytes, 16).concatWith(Flux.never()), "v2", properties).subscribe();
+        try (Stream<Path> files = Files.list(spillDirectory)) {
+            assertEquals(1, files.count());
+        }
+        subscription.dispose();
+        try (Stream<Path> files = Files.list(spillDirectory)) {
+            assertEquals(0, files.count());
+        }
+    }
+
+    @Test
+    public void testOffHeapTablesReadTheSameRows() {
+        String responseJson = "[{\"FrameType\":\"DataSetHeader\",\"IsProgressive\":false,\"Version\":\"v2.0\"},"
+                + "{\"FrameType\":\"DataTable\",\"TableId\":1,\"TableKind\":\"PrimaryResult\",\"TableName\":\"PrimaryResult\","
+                + "\"Columns\":[{\"ColumnName\":\"a\",\"ColumnType\":\"int\"},{\"ColumnName\":\"b\",\"ColumnType\":\"real\"},"
+                + "{\"ColumnName\":\"c\",\"ColumnType\":\"long\"},{\"ColumnName\":\"d\",\"ColumnType\":\"string\"},"
+                + "{\"ColumnName\":\"e\",\"ColumnType\":\"bool\"},{\"ColumnName\":\"f\",\"ColumnType\":\"dynamic\"}],"
+                + "\"Rows\":[[1,1.5,9007199254740993,\"\u00e4\u20ac\ud83d\ude00\",true,{\"k\":1}],[null,null,null,null,null,null],"
+                + "[-3,\"NaN\",-1,\"\",false,[2]]]},"
+                + "{\"FrameType\":\"DataSetCompletion\",\"HasErrors\":false,\"Cancelled\":false}]";
+        byte[] bytes = responseJson.getBytes(StandardCharsets.UTF_8);
+
+        ClientRequestProperties properties = new ClientRequestProperties();
+        properties.setOffHeapResults(true);
+        KustoOperationResult expected = KustoOperationResult.readAsync(chunks(bytes, 64), "v2", null).block();
+        KustoOperationResult offHeap = KustoOperationResult.readAsync(chunks(bytes, 64), "v2", properties).block();
+        assertNotNull(expected);
+        assertNotNull(offHeap);
+        KustoResultSetTable table = offHeap.getPrimaryResults();
+        assertEquals(expected.getPrimaryResults().getData(), table.getData());
+
+        assertTrue(table.next());
+        assertEquals(1, table.getInt("a"));
+        assertEquals(1.5, table.getDouble("b"));
+        assertEquals(9007199254740993L, table.getLong("c"));
+        assertEquals("\u00e4\u20ac\ud83d\ude00", table.getString("d"));
+        assertTrue(table.getBoolean("e"));
+        assertTrue(table.next());
+        for (int i = 0; i < 6; i++) {
+            assertTrue(table.isNull(i));
+        }
+        assertThrows(NullPointerException.class, () -> table.getInt("a"));
+        assertTrue(table.next());
+        assertTrue(Double.isNaN(table.getDouble("b")));
+        assertEquals("", table.getString("d"));
+        assertFalse(table.getBoolean("e"));
+
+        offHeap.close();
+        // Closing twice is allowed, reading after closing isn't
+        offHeap.close();
+        assertThrows(IllegalStateException.class, () -> table.getData().get(0).get(0));
+    }
+
+    @Test
+    public void testOffHeapTablesAreReleasedWhenTheResponseFailsOrIsCancelled() {
+        String table = "[{\"FrameType\":\"DataSetHeader\",\"IsProgressive\":false,\"Version\":\"v2.0\"},"
+                + "{\"FrameType\":\"DataTable\",\"TableId\":1,\"TableKind\":\"PrimaryResult\",\"TableName\":\"PrimaryResult\","
+                + "\"Columns\":[{\"ColumnName\":\"a\",\"ColumnType\":\"long\"}],\"Rows\":[[1],[2]]},";
+        String failedCompletion = "{\"FrameType\":\"DataSetCompletion\",\"HasErrors\":true,\"Cancelled\":false,"
+                + "\"OneApiErrors\":[{\"error\":{\"code\":\"LimitsExceeded\",\"message\":\"Request is invalid and cannot be executed.\","
+                + "\"@permanent\":true}}]}]";
+        ClientRequestProperties properties = new ClientRequestProperties();
+        properties.setOffHeapResults(true);
+        List<KustoOperationResult.TableCollector> collectors = new ArrayList<>();
+        Supplier<KustoOperationResult.TableCollector> collectorFactory = () -> {
+            KustoOperationResult.TableCollector collector = new KustoOperationResult.TableCollector(properties);
+            collectors.add(collector);
+            return collector;
+        };
+
+        // The service reports an error after the table
+        byte[] failed = (table + failedCompletion).getBytes(StandardCharsets.UTF_8);
+        assertThrows(KustoServiceQueryError.class, () -> KustoOperationResult.readAsync(chunks(failed, 64), "v2", properties, collectorFactory).block());
+        // The rest of the response never arrives
+        byte[] incomplete = table.getBytes(StandardCharsets.UTF_8);
+        KustoOperationResult.readAsync(chunks(incomplete, 64).concatWith(Flux.never()), "v2", properties, collectorFactory).subscribe().dispose();
+
+        assertEquals(2, collectors.size());
+        for (KustoOperationResult.TableCollector collector : collectors) {
+            assertEquals(1, collector.tables.size());
+            assertThrows(IllegalStateException.class, () -> collector.tables.get(0).getData().get(0).get(0));
+        }
+    }
+
+    @Test
+    public void testRowsAreParsedWithoutAListOrBoxedCells() {
+        ThreadMXBean threads = (ThreadMXBean) ManagementFactory.getThreadMXBean();
+        Assumptions.assumeTrue(threads.isThreadAllocatedMemorySupported() && threads.isThreadAllocatedMemoryEnabled());
+
+        int rows = 100_000;
+        byte[] bytes = primitiveRowsResponse(rows);
+
+        List<Supplier<KustoOperationResult>> parsers = Arrays.asList(
+                () -> new KustoOperationResult(new ByteArrayInputStream(bytes), "v2"),
+                () -> KustoOperationResult.readAsync(chunks(bytes, 8192), "v2", null).block());
+        for (Supplier<KustoOperationResult> parser : parsers) {
+            parser.get();
+            long allocatedBefore = threads.getThreadAllocatedBytes(Thread.currentThread().getId());
+            KustoOperationResult result = parser.get();
+            long allocated = threads.getThreadAllocatedBytes(Thread.currentThread().getId()) - allocatedBefore;
+
+            // The columns hold 12.125 bytes per row and grow by doubling. Boxing the int and long cells would add 40 bytes per row.
+            assertTrue(allocated / rows < 48, "Allocated " + allocated / rows + " bytes per row");
+            KustoResultSetTable table = result.getPrimaryResults();
+            assertEquals(rows, table.count());
+            while (table.hasNext()) {
+                table.next();
+            }
+            assertEquals((rows - 1) * 7919, table.getInt(0));
+            assertEquals((rows - 1) * 1000000007L, table.getLong(1));
+            assertFalse(table.getBoolean(2));
+        }
+    }
+
+    @Test
+    public void testOffHeapTablesAreAppendedToDirectBuffers() {
+        ThreadMXBean threads = (ThreadMXBean) ManagementFactory.getThreadMXBean();
+        Assumptions.assumeTrue(threads.isThreadAllocatedMemorySupported() && threads.isThreadAllocatedMemoryEnabled());
+
+        int rows = 100_000;
+        byte[] bytes = primitiveRowsResponse(rows);
+        ClientRequestProperties properties = new ClientRequestProperties();
+        properties.setOffHeapResults(true);
+        KustoOperationResult.readAsync(chunks(bytes, 8192), "v2", properties).block().close();
+
+        long pinnedBefore = PooledByteBufAllocator.DEFAULT.pinnedDirectMemory();
+        long allocatedBefore = threads.getThreadAllocatedBytes(Thread.currentThread().getId());
+        KustoOperationResult result = KustoOperationResult.readAsync(chunks(bytes, 8192), "v2", properties).block();
+        long allocated = threads.getThreadAllocatedBytes(Thread.currentThread().getId()) - allocatedBefore;
+
+        // Collecting the columns on the heap before copying them would allocate more than 30 bytes per row
+        assertTrue(allocated / rows < 8, "Allocated " + allocated / rows + " bytes per row");
+        assertTrue(PooledByteBufAllocator.DEFAULT.pinnedDirectMemory() - pinnedBefore >= 12L * rows);
+        KustoResultSetTable table = result.getPrimaryResults();
+        while (table.hasNext()) {
+            table.next();
+        }
+        assertEquals((rows - 1) * 7919, table.getInt(0));
+        assertEquals((rows - 1) * 1000000007L, table.getLong(1));
+        assertFalse(table.getBoolean(2));
+
+        result.close();
+        assertEquals(pinnedBefore, PooledByteBufAllocator.DEFAULT.pinnedDirectMemory());
+    }
+
+    @Test
+    public void testOffHeapColumnsThatAreWidenedReadTheSameRows() {
+        StringBuilder responseJson = new StringBuilder("[{\"FrameType\":\"DataSetHeader\",\"IsProgressive\":false,\"Version\":\"v2.0\"},"
+                + "{\"FrameType\":\"DataTable\",\"TableId\":1,\"TableKind\":\"PrimaryResult\",\"TableName\":\"PrimaryResult\","
+                + "\"Columns\":[{\"ColumnName\":\"a\",\"ColumnType\":\"string\"},{\"ColumnName\":\"b\",\"ColumnType\":\"int\"}],\"Rows\":[");
+        // The string column stops being dictionary-encoded once most of its values differ, the int column gets a value that isn't an int
+        for (int i = 0; i < 3000; i++) {
+            responseJson.append(i == 0 ? "[" : ",[").append(i % 4 == 0 ? "null" : "\"v" + i + "\"").append(',').append(i == 2500 ? "\"x\"" : i)
+                    .append(']');
+        }
+        responseJson.append("]},{\"FrameType\":\"DataSetCompletion\",\"HasErrors\":false,\"Cancelled\":false}]");
+        byte[] bytes = responseJson.toString().getBytes(StandardCharsets.UTF_8);
+
+        ClientRequestProperties properties = new ClientRequestProperties();
+        properties.setOffHeapResults(true);
+        long pinnedBefore = PooledByteBufAllocator.DEFAULT.pinnedDirectMemory();
+        KustoOperationResult expected = KustoOperationResult.readAsync(chunks(bytes, 64), "v2", null).block();
+        KustoOperationResult offHeap = KustoOperationResult.readAsync(chunks(bytes, 64), "v2", properties).block();
+        assertNotNull(expected);
+        assertNotNull(offHeap);
+        assertEquals(expected.getPrimaryResults().getData(), offHeap.getPrimaryResults().getData());
+        assertEquals("v2999", offHeap.getPrimaryResults().getData().get(2999).get(0));
+        assertEquals("x", offHeap.getPrimaryResults().getData().get(2500).get(1));
+
+        // The buffers of the columns that were widened were released along the way
+        offHeap.close();
+        assertEquals(pinnedBefore, PooledByteBufAllocator.DEFAULT.pinnedDirectMemory());
+    }
+
+    private static byte[] primitiveRowsResponse(int rows) {
+        StringBuilder responseJson = new StringBuilder("[{\"FrameType\":\"DataSetHeader\",\"IsProgressive\":false,\"Version\":\"v2.0\"},"
+                + "{\"FrameType\":\"DataTable\",\"TableId\":1,\"TableKind\":\"PrimaryResult\",\"TableName\":\"PrimaryResult\","
+                + "\"Columns\":[{\"ColumnName\":\"a\",\"ColumnType\":\"int\"},{\"ColumnName\":\"b\",\"ColumnType\":\"long\"},"
+                + "{\"ColumnName\":\"c\",\"ColumnType\":\"bool\"}],\"Rows\":[");
+        for (int i = 0; i < rows; i++) {
+            responseJson.append(i == 0 ? "[" : ",[").append(i * 7919).append(',').append(i * 1000000007L).append(',').append(i % 2 == 0).append(']');
+        }
+        responseJson.append("]},{\"FrameType\":\"DataSetCompletion\",\"HasErrors\":false,\"Cancelled\":false}]");
+        return responseJson.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static Flux<ByteBuffer> chunks(byte[] bytes, int chunkSize) {
+        List<ByteBuffer> chunks = new ArrayList<>();
+        for (int i = 0; i < bytes.length; i += chunkSize) {
+            chunks.add(ByteBuffer.wrap(bytes, i, Math.min(chunkSize, bytes.length - i)));
+        }
+        return Flux.fromIterable(chunks);
+    }
 }
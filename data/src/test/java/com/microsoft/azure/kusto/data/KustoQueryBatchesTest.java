@@ -0,0 +1,123 @@
+package com.microsoft.azure.kusto.data;
+
+import com.microsoft.azure.kusto.data.exceptions.DataServiceException;
+import com.microsoft.azure.kusto.data.exceptions.KustoServiceQueryError;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+class KustoQueryBatchesTest {
+    private static final String HEADER = "[{\"FrameType\":\"DataSetHeader\",\"IsProgressive\":false,\"Version\":\"v2.0\"},"
+            + "{\"FrameType\":\"DataTable\",\"TableId\":0,\"TableKind\":\"QueryProperties\",\"TableName\":\"@ExtendedProperties\","
+            + "\"Columns\":[{\"ColumnName\":\"Key\",\"ColumnType\":\"string\"}],\"Rows\":[[\"Visualization\"]]},";
+    private static final String COMPLETION = "{\"FrameType\":\"DataTable\",\"TableId\":9,\"TableKind\":\"QueryCompletionInformation\","
+            + "\"TableName\":\"QueryCompletionInformation\",\"Columns\":[{\"ColumnName\":\"Level\",\"ColumnType\":\"int\"}],\"Rows\":[[4]]},"
+            + "{\"FrameType\":\"DataSetCompletion\",\"HasErrors\":false,\"Cancelled\":false}]";
+    private static final String ERROR_ROW = "{\"OneApiErrors\":[{\"error\":{\"code\":\"LimitsExceeded\",\"message\":\"Request is invalid and cannot be executed.\","
+            + "\"@type\":\"Kusto.Data.Exceptions.KustoServicePartialQueryFailureLimitsExceededException\","
+            + "\"@message\":\"Query execution has exceeded the allowed limits\",\"@permanent\":false}}]}";
+
+    @Test
+    void queriesAreJoinedWithSeparatorsOnTheirOwnLines() {
+        Assertions.assertEquals("T | take 1 // first\n;\nlet x = 1;\nT | where a == x",
+                KustoQueryBatches.join(Arrays.asList("T | take 1 // first", "let x = 1;\nT | where a == x; \n")));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> KustoQueryBatches.join(Arrays.asList("T", " ")));
+    }
+
+    @Test
+    void eachQueryGetsItsPrimaryResultAndTheSharedTables() {
+        String response = HEADER + table(1, "[1],[2]") + "," + table(2, "[3]") + "," + COMPLETION;
+
+        List<KustoQueryBatchResult> results = read(response, "T | take 2", "T2 | take 1");
+        Assertions.assertEquals(2, results.size());
+        Assertions.assertEquals("T2 | take 1", results.get(1).getQuery());
+        for (KustoQueryBatchResult result : results) {
+            Assertions.assertTrue(result.isSuccess());
+            Assertions.assertNull(result.getError());
+            Assertions.assertEquals(3, result.getResult().getResultTables().size());
+            Assertions.assertTrue(result.getResult().getResultTables().get(0).next());
+        }
+        KustoResultSetTable first = results.get(0).getResult().getPrimaryResults();
+        Assertions.assertEquals(2, first.count());
+        Assertions.assertTrue(first.next());
+        Assertions.assertEquals(1, first.getInt(0));
+        KustoResultSetTable second = results.get(1).getResult().getPrimaryResults();
+        Assertions.assertTrue(second.next());
+        Assertions.assertEquals(3, second.getInt(0));
+    }
+
+    @Test
+    void closingAResultDoesntReleaseTheTablesOfTheOthers() {
+        String response = HEADER + table(1, "[1]") + "," + table(2, "[2]") + "," + COMPLETION;
+        ClientRequestProperties properties = new ClientRequestProperties();
+        properties.setOffHeapResults(true);
+
+        List<KustoQueryBatchResult> results = KustoQueryBatches.readAsync(body(response), Arrays.asList("T", "T2"), properties,
+                "https://cluster/v2/rest/query").block();
+        Assertions.assertNotNull(results);
+        results.get(0).getResult().close();
+        KustoOperationResult second = results.get(1).getResult();
+        KustoResultSetTable completion = second.getResultTables().get(2);
+        Assertions.assertEquals(WellKnownDataSet.QueryCompletionInformation, completion.getTableKind());
+        Assertions.assertTrue(completion.next());
+        Assertions.assertEquals(4, completion.getInt(0));
+        Assertions.assertTrue(second.getPrimaryResults().next());
+        Assertions.assertEquals(2, second.getPrimaryResults().getInt(0));
+        second.close();
+    }
+
+    @Test
+    void anErrorFailsItsQueryAndTheOnesAfterIt() {
+        String response = HEADER + table(1, "[1]") + ","
+                + "{\"FrameType\":\"DataTable\",\"TableId\":2,\"TableKind\":\"PrimaryResult\",\"TableName\":\"PrimaryResult\","
+                + "\"Columns\":[{\"ColumnName\":\"a\",\"ColumnType\":\"int\"}],\"Rows\":[[2]," + ERROR_ROW + "]}]";
+
+        List<KustoQueryBatchResult> results = read(response, "T | take 1", "T | summarize count() by a", "T | take 3");
+        Assertions.assertTrue(results.get(0).isSuccess());
+        Assertions.assertTrue(results.get(0).getResult().getPrimaryResults().next());
+
+        Assertions.assertFalse(results.get(1).isSuccess());
+        Assertions.assertNull(results.get(1).getResult());
+        Assertions.assertInstanceOf(DataServiceException.class, results.get(1).getError());
+        Assertions.assertTrue(results.get(1).getError().getMessage().contains("LimitsExceeded"));
+        Assertions.assertFalse(results.get(1).getError().isPermanent());
+
+        Assertions.assertFalse(results.get(2).isSuccess());
+        Assertions.assertTrue(results.get(2).getError().getMessage().startsWith("The query wasn't executed because query 1 of the batch failed"));
+    }
+
+    @Test
+    void queriesMustReturnOnePrimaryResultEach() {
+        String response = HEADER + table(1, "[1]") + "," + COMPLETION;
+        StepVerifier.create(KustoQueryBatches.readAsync(body(response), Arrays.asList("T", "T2"), null, "https://cluster/v2/rest/query"))
+                .expectError(IllegalStateException.class)
+                .verify();
+    }
+
+    @Test
+    void malformedResponsesFailTheWholeBatch() {
+        String response = HEADER + table(1, "[1]");
+        StepVerifier.create(KustoQueryBatches.readAsync(body(response), Arrays.asList("T", "T2"), null, "https://cluster/v2/rest/query"))
+                .expectError(KustoServiceQueryError.class)
+                .verify();
+    }
+
+    private static String table(int id, String rows) {
+        return "{\"FrameType\":\"DataTable\",\"TableId\":" + id + ",\"TableKind\":\"PrimaryResult\",\"TableName\":\"PrimaryResult\","
+                + "\"Columns\":[{\"ColumnName\":\"a\",\"ColumnType\":\"int\"}],\"Rows\":[" + rows + "]}";
+    }
+
+    private static List<KustoQueryBatchResult> read(String response, String... queries) {
+        return KustoQueryBatches.readAsync(body(response), Arrays.asList(queries), null, "https://cluster/v2/rest/query").block();
+    }
+
+    private static Flux<ByteBuffer> body(String response) {
+        return Flux.just(ByteBuffer.wrap(response.getBytes(StandardCharsets.UTF_8)));
+    }
+}
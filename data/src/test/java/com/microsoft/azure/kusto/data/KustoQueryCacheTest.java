@@ -0,0 +1,226 @@
+package com.microsoft.azure.kusto.data;
+
+import com.azure.core.http.HttpClient;
+import com.microsoft.azure.kusto.data.auth.ConnectionStringBuilder;
+import com.microsoft.azure.kusto.data.http.TestHttpResponse;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.net.URISyntaxException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+class KustoQueryCacheTest {
+    private static final String RESPONSE = "[{\"FrameType\":\"DataSetHeader\",\"IsProgressive\":false,\"Version\":\"v2.0\"},"
+            + "{\"FrameType\":\"DataTable\",\"TableId\":1,\"TableKind\":\"PrimaryResult\",\"TableName\":\"PrimaryResult\","
+            + "\"Columns\":[{\"ColumnName\":\"a\",\"ColumnType\":\"int\"}],\"Rows\":[[1],[2]]},"
+            + "{\"FrameType\":\"DataSetCompletion\",\"HasErrors\":false,\"Cancelled\":false}]";
+    private static final int RESPONSE_SIZE = RESPONSE.getBytes(StandardCharsets.UTF_8).length;
+
+    private static final Object CLIENT = new Object();
+
+    private final AtomicLong now = new AtomicLong();
+
+    @Test
+    void hitsReturnResultsWithTheirOwnCursors() {
+        KustoQueryCache cache = new KustoQueryCache(Duration.ofMinutes(1), 10_000, null, 0, now::get);
+        KustoQueryCache.Key key = new KustoQueryCache.Key(CLIENT, "https://cluster", "db", "T", null);
+        Assertions.assertNull(cache.get(key));
+
+        KustoOperationResult received = readResult();
+        cache.put(key, received, null);
+        // Moving the cursors of the received result doesn't move those of the cached one
+        Assertions.assertTrue(received.getPrimaryResults().next());
+
+        KustoOperationResult first = cache.get(key);
+        KustoOperationResult second = cache.get(key);
+        Assertions.assertNotNull(first);
+        Assertions.assertNotNull(second);
+        Assertions.assertTrue(first.hasNext());
+        KustoResultSetTable table = first.next();
+        Assertions.assertTrue(table.next());
+        Assertions.assertEquals(1, table.getInt(0));
+        Assertions.assertTrue(table.next());
+        Assertions.assertEquals(2, table.getInt(0));
+        Assertions.assertTrue(second.getPrimaryResults().next());
+        Assertions.assertEquals(1, second.getPrimaryResults().getInt(0));
+
+        KustoQueryCache.Stats stats = cache.getStats();
+        Assertions.assertEquals(2, stats.getHitCount());
+        Assertions.assertEquals(1, stats.getMissCount());
+        Assertions.assertEquals(1, stats.getEntryCount());
+        Assertions.assertEquals(RESPONSE_SIZE, stats.getSizeBytes());
+    }
+
+    @Test
+    void entriesExpireAfterTheirTimeToLive() {
+        KustoQueryCache cache = new KustoQueryCache(Duration.ofSeconds(10), 10_000, null, 0, now::get);
+        KustoQueryCache.Key key = new KustoQueryCache.Key(CLIENT, "https://cluster", "db", "T", null);
+        cache.put(key, readResult(), null);
+
+        now.addAndGet(TimeUnit.SECONDS.toNanos(9));
+        Assertions.assertNotNull(cache.get(key));
+        now.addAndGet(TimeUnit.SECONDS.toNanos(1));
+        Assertions.assertNull(cache.get(key));
+
+        KustoQueryCache.Stats stats = cache.getStats();
+        Assertions.assertEquals(1, stats.getExpirationCount());
+        Assertions.assertEquals(0, stats.getEntryCount());
+        Assertions.assertEquals(0, stats.getSizeBytes());
+    }
+
+    @Test
+    void leastRecentlyUsedEntriesAreEvictedOverTheBudget() {
+        KustoQueryCache cache = new KustoQueryCache(Duration.ofMinutes(1), 2L * RESPONSE_SIZE, null, 0, now::get);
+        KustoQueryCache.Key first = new KustoQueryCache.Key(CLIENT, "https://cluster", "db", "T | take 1", null);
+        KustoQueryCache.Key second = new KustoQueryCache.Key(CLIENT, "https://cluster", "db", "T | take 2", null);
+        KustoQueryCache.Key third = new KustoQueryCache.Key(CLIENT, "https://cluster", "db", "T | take 3", null);
+        cache.put(first, readResult(), null);
+        cache.put(second, readResult(), null);
+        Assertions.assertNotNull(cache.get(first));
+        cache.put(third, readResult(), null);
+
+        Assertions.assertNotNull(cache.get(first));
+        Assertions.assertNull(cache.get(second));
+        Assertions.assertNotNull(cache.get(third));
+        Assertions.assertEquals(1, cache.getStats().getEvictionCount());
+        Assertions.assertEquals(2L * RESPONSE_SIZE, cache.getStats().getSizeBytes());
+
+        // Results over the whole budget aren't cached
+        KustoQueryCache small = new KustoQueryCache(Duration.ofMinutes(1), RESPONSE_SIZE - 1, null, 0, now::get);
+        small.put(first, readResult(), null);
+        Assertions.assertEquals(0, small.getStats().getEntryCount());
+    }
+
+    @Test
+    void readResultsAreRefreshedBeforeTheyExpire() {
+        KustoQueryCache cache = new KustoQueryCache(Duration.ofSeconds(10), 10_000, Duration.ofSeconds(8), 1, now::get);
+        KustoQueryCache.Key key = new KustoQueryCache.Key(CLIENT, "https://cluster", "db", "T", null);
+        AtomicInteger reloads = new AtomicInteger();
+        Mono<KustoOperationResult> reload = Mono.fromCallable(() -> {
+            reloads.incrementAndGet();
+            return readResult();
+        });
+        cache.put(key, readResult(), reload);
+
+        now.addAndGet(TimeUnit.SECONDS.toNanos(7));
+        Assertions.assertNotNull(cache.get(key));
+        Assertions.assertEquals(0, reloads.get());
+
+        // The reader gets the cached result, and the refreshed one replaces it
+        now.addAndGet(TimeUnit.SECONDS.toNanos(2));
+        Assertions.assertNotNull(cache.get(key));
+        Assertions.assertEquals(1, reloads.get());
+        now.addAndGet(TimeUnit.SECONDS.toNanos(5));
+        Assertions.assertNotNull(cache.get(key));
+        Assertions.assertEquals(1, reloads.get());
+
+        // Results that aren't read aren't refreshed, and expire
+        now.addAndGet(TimeUnit.SECONDS.toNanos(20));
+        Assertions.assertNull(cache.get(key));
+        Assertions.assertEquals(1, reloads.get());
+        Assertions.assertEquals(1, cache.getStats().getRefreshCount());
+    }
+
+    @Test
+    void refreshesAreLimited() {
+        KustoQueryCache cache = new KustoQueryCache(Duration.ofSeconds(10), 10_000, Duration.ofSeconds(5), 1, now::get);
+        KustoQueryCache.Key first = new KustoQueryCache.Key(CLIENT, "https://cluster", "db", "T | take 1", null);
+        KustoQueryCache.Key second = new KustoQueryCache.Key(CLIENT, "https://cluster", "db", "T | take 2", null);
+        Sinks.One<KustoOperationResult> pending = Sinks.one();
+        AtomicInteger reloads = new AtomicInteger();
+        Mono<KustoOperationResult> reload = Mono.defer(() -> {
+            reloads.incrementAndGet();
+            return pending.asMono();
+        });
+        cache.put(first, readResult(), reload);
+        cache.put(second, readResult(), reload);
+
+        now.addAndGet(TimeUnit.SECONDS.toNanos(6));
+        Assertions.assertNotNull(cache.get(first));
+        Assertions.assertNotNull(cache.get(first));
+        Assertions.assertNotNull(cache.get(second));
+        Assertions.assertEquals(1, reloads.get());
+
+        // Once the running refresh is done, the other result can be refreshed
+        pending.tryEmitValue(readResult());
+        Assertions.assertNotNull(cache.get(second));
+        Assertions.assertEquals(2, reloads.get());
+    }
+
+    @Test
+    void keysDependOnPropertiesButNotOnTheirOrder() {
+        ClientRequestProperties properties = new ClientRequestProperties();
+        properties.setOption("a", 1);
+        properties.setOption("b", "x");
+        properties.setParameter("p", 2);
+        properties.setClientRequestId("first");
+        ClientRequestProperties reordered = new ClientRequestProperties();
+        reordered.setParameter("p", 2);
+        reordered.setOption("b", "x");
+        reordered.setOption("a", 1);
+        reordered.setClientRequestId("second");
+        Assertions.assertEquals(new KustoQueryCache.Key(CLIENT, "https://cluster", "db", "T", properties),
+                new KustoQueryCache.Key(CLIENT, "https://cluster", "db", "T", reordered));
+
+        reordered.setParameter("p", 3);
+        Assertions.assertNotEquals(new KustoQueryCache.Key(CLIENT, "https://cluster", "db", "T", properties),
+                new KustoQueryCache.Key(CLIENT, "https://cluster", "db", "T", reordered));
+        Assertions.assertNotEquals(new KustoQueryCache.Key(CLIENT, "https://cluster", "db", "T", null),
+                new KustoQueryCache.Key(CLIENT, "https://cluster", "db2", "T", null));
+
+        ClientRequestProperties selected = new ClientRequestProperties();
+        selected.setColumnSelection(KustoColumnSelection.ofNames("a"));
+        ClientRequestProperties selectedAgain = new ClientRequestProperties();
+        selectedAgain.setColumnSelection(KustoColumnSelection.ofNames("a"));
+        Assertions.assertEquals(new KustoQueryCache.Key(CLIENT, "https://cluster", "db", "T", selected),
+                new KustoQueryCache.Key(CLIENT, "https://cluster", "db", "T", selectedAgain));
+        Assertions.assertNotEquals(new KustoQueryCache.Key(CLIENT, "https://cluster", "db", "T", selected),
+                new KustoQueryCache.Key(CLIENT, "https://cluster", "db", "T", new ClientRequestProperties()));
+    }
+
+    @Test
+    void clientsSharingACacheOnlyGetTheirOwnResults() throws URISyntaxException {
+        AtomicInteger sent = new AtomicInteger();
+        // The cloud metadata isn't found, so the default cloud is used
+        HttpClient httpClient = request -> Mono.defer(() -> {
+            if (!request.getUrl().getPath().endsWith("/rest/query")) {
+                return Mono.just(TestHttpResponse.newBuilder(request).withStatusCode(404).withBody(new byte[0]).build());
+            }
+            sent.incrementAndGet();
+            return Mono.just(TestHttpResponse.newBuilder(request).withStatusCode(200).withBody(RESPONSE.getBytes(StandardCharsets.UTF_8)).build());
+        });
+        KustoQueryCache cache = new KustoQueryCache(Duration.ofMinutes(1), 1 << 20);
+        // The clients could authenticate as different principals
+        ClientImpl first = new ClientImpl(new ConnectionStringBuilder("http://localhost"), httpClient, cache);
+        ClientImpl second = new ClientImpl(new ConnectionStringBuilder("http://localhost"), httpClient, cache);
+
+        first.executeQueryAsync("db", "T", null).block();
+        first.executeQueryAsync("db", "T", null).block();
+        Assertions.assertEquals(1, sent.get());
+        second.executeQueryAsync("db", "T", null).block();
+        Assertions.assertEquals(2, sent.get());
+        Assertions.assertEquals(2, cache.getStats().getEntryCount());
+        Assertions.assertNotEquals(new KustoQueryCache.Key(first, "https://cluster", "db", "T", null),
+                new KustoQueryCache.Key(second, "https://cluster", "db", "T", null));
+
+        // The client sets the server timeout of the properties, which are then reused for the same query
+        ClientRequestProperties properties = new ClientRequestProperties();
+        properties.setParameter("p", 1);
+        first.executeQueryAsync("db", "T", properties).block();
+        Assertions.assertNotNull(properties.getOption(ClientRequestProperties.OPTION_SERVER_TIMEOUT));
+        first.executeQueryAsync("db", "T", properties).block();
+        Assertions.assertEquals(3, sent.get());
+    }
+
+    private static KustoOperationResult readResult() {
+        return KustoOperationResult.readAsync(Flux.just(ByteBuffer.wrap(RESPONSE.getBytes(StandardCharsets.UTF_8))), "v2", null).block();
+    }
+}
@@ -0,0 +1,129 @@
+package com.microsoft.azure.kusto.data;
+
+import com.microsoft.azure.kusto.data.exceptions.KustoServiceQueryError;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPOutputStream;
+
+class KustoResultBatchesTest {
+    private static final String RESPONSE = "[{\"FrameType\":\"DataSetHeader\",\"IsProgressive\":false,\"Version\":\"v2.0\"},"
+            + "{\"FrameType\":\"DataTable\",\"TableId\":0,\"TableKind\":\"QueryProperties\",\"TableName\":\"@ExtendedProperties\","
+            + "\"Columns\":[{\"ColumnName\":\"Key\",\"ColumnType\":\"string\"}],\"Rows\":[[\"Visualization\"]]},"
+            + "{\"FrameType\":\"DataTable\",\"TableId\":1,\"TableKind\":\"PrimaryResult\",\"TableName\":\"PrimaryResult\","
+            + "\"Columns\":[{\"ColumnName\":\"Id\",\"ColumnType\":\"long\"},{\"ColumnName\":\"Name\",\"ColumnType\":\"string\"},"
+            + "{\"ColumnName\":\"Payload\",\"ColumnType\":\"dynamic\"}],"
+            + "\"Rows\":[[1,\"a\",{\"x\":[1,2]}],[2,\"b\",null],[3,\"c\",[\"y\"]]]},"
+            + "{\"FrameType\":\"DataTable\",\"TableId\":2,\"TableKind\":\"QueryCompletionInformation\",\"TableName\":\"QueryCompletionInformation\","
+            + "\"Columns\":[{\"ColumnName\":\"Level\",\"ColumnType\":\"int\"}],\"Rows\":[[4]]},"
+            + "{\"FrameType\":\"DataSetCompletion\",\"HasErrors\":false,\"Cancelled\":false}]";
+
+    @Test
+    void emitsPrimaryResultRowsFromChunkedBody() {
+        List<Long> ids = readIds(KustoResultBatches.primaryResultBatches(chunks(RESPONSE.getBytes(StandardCharsets.UTF_8), 5), Utils.getObjectMapper(), null));
+        Assertions.assertEquals(3, ids.size());
+        Assertions.assertEquals(1L, ids.get(0));
+        Assertions.assertEquals(3L, ids.get(2));
+    }
+
+    @Test
+    void keepsOnlySelectedColumns() {
+        KustoResultSetTable table = KustoResultBatches.primaryResultBatches(chunks(RESPONSE.getBytes(StandardCharsets.UTF_8), 3), Utils.getObjectMapper(),
+                KustoColumnSelection.ofNames("Payload", "Id")).blockFirst();
+        Assertions.assertNotNull(table);
+        Assertions.assertEquals(2, table.getColumns().length);
+        Assertions.assertEquals("Id", table.getColumns()[0].getColumnName());
+        Assertions.assertEquals(1, table.getColumns()[1].getOrdinal());
+        Assertions.assertTrue(table.next());
+        Assertions.assertEquals(1L, table.getLong("Id"));
+        Assertions.assertEquals(2, table.getJSONObject("Payload").get("x").size());
+        Assertions.assertEquals(2, table.getCurrentRow().size());
+    }
+
+    @Test
+    void emitsPrimaryResultRowsFromGzipBody() throws IOException {
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(compressed)) {
+            gzip.write(RESPONSE.getBytes(StandardCharsets.UTF_8));
+        }
+
+        Flux<ByteBuffer> body = Utils.inflateGzipBody(chunks(compressed.toByteArray(), 16));
+        List<Long> ids = readIds(KustoResultBatches.primaryResultBatches(body, Utils.getObjectMapper(), null));
+        Assertions.assertEquals(3, ids.size());
+    }
+
+    @Test
+    void rowsAreReadAsTheyArrive() {
+        KustoResultSetTable first = KustoResultBatches.primaryResultBatches(chunks(RESPONSE.getBytes(StandardCharsets.UTF_8), 5), Utils.getObjectMapper(), null)
+                .blockFirst();
+        Assertions.assertNotNull(first);
+        Assertions.assertEquals("PrimaryResult", first.getTableName());
+        Assertions.assertTrue(first.next());
+        Assertions.assertEquals("a", first.getString("Name"));
+        Assertions.assertEquals(2, first.getJSONObject("Payload").get("x").size());
+    }
+
+    @Test
+    void slowSubscriberStopsReadingTheBody() {
+        byte[] bytes = RESPONSE.getBytes(StandardCharsets.UTF_8);
+        int chunkSize = 5;
+        AtomicInteger emittedChunks = new AtomicInteger();
+        Flux<ByteBuffer> body = chunks(bytes, chunkSize).doOnNext(ignore -> emittedChunks.incrementAndGet());
+
+        StepVerifier.create(KustoResultBatches.primaryResultBatches(body, Utils.getObjectMapper(), null), 1)
+                .expectNextCount(1)
+                .then(() -> Assertions.assertTrue(emittedChunks.get() < bytes.length / chunkSize))
+                .thenCancel()
+                .verify();
+    }
+
+    @Test
+    void errorsInTheMiddleOfTheResponseFailTheFlux() {
+        String response = "[{\"FrameType\":\"DataTable\",\"TableKind\":\"PrimaryResult\",\"TableName\":\"PrimaryResult\","
+                + "\"Columns\":[{\"ColumnName\":\"Id\",\"ColumnType\":\"long\"}],\"Rows\":[[1],"
+                + "{\"OneApiErrors\":[{\"error\":{\"code\":\"LimitsExceeded\",\"message\":\"Request is invalid and cannot be executed.\","
+                + "\"@type\":\"Kusto.Data.Exceptions.KustoServicePartialQueryFailureLimitsExceededException\",\"@message\":\"Query execution has exceeded the allowed limits\","
+                + "\"@permanent\":false}}]}]}]";
+
+        StepVerifier.create(KustoResultBatches.primaryResultBatches(chunks(response.getBytes(StandardCharsets.UTF_8), 1000), Utils.getObjectMapper(), null))
+                .expectNextMatches(table -> table.next() && table.getLong(0) == 1)
+                .expectError(KustoServiceQueryError.class)
+                .verify();
+    }
+
+    @Test
+    void truncatedResponseFailsTheFlux() {
+        String truncated = RESPONSE.substring(0, RESPONSE.length() / 2);
+        StepVerifier.create(KustoResultBatches.primaryResultBatches(chunks(truncated.getBytes(StandardCharsets.UTF_8), 64), Utils.getObjectMapper(), null))
+                .thenConsumeWhile(table -> true)
+                .expectError(KustoServiceQueryError.class)
+                .verify();
+    }
+
+    private static List<Long> readIds(Flux<KustoResultSetTable> batches) {
+        List<Long> ids = new ArrayList<>();
+        for (KustoResultSetTable batch : batches.toIterable()) {
+            while (batch.next()) {
+                ids.add(batch.getLong("Id"));
+            }
+        }
+        return ids;
+    }
+
+    private static Flux<ByteBuffer> chunks(byte[] bytes, int chunkSize) {
+        List<ByteBuffer> chunks = new ArrayList<>();
+        for (int i = 0; i < bytes.length; i += chunkSize) {
+            chunks.add(ByteBuffer.wrap(bytes, i, Math.min(chunkSize, bytes.length - i)));
+        }
+        return Flux.fromIterable(chunks);
+    }
+}
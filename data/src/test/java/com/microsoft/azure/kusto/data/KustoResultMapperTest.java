@@ -247,4 +247,65 @@ public class KustoResultMapperTest {
     void testExtractListNamedMapperNullThrowing() {
         testSingleNullThrowing(namedMapper);
     }
+
+    public static class PrimitivePojo {
+        int count;
+        long total;
+        double ratio;
+        boolean valid;
+
+        public void setCount(int count) {
+            this.count = count;
+        }
+
+        public void setTotal(long total) {
+            this.total = total;
+        }
+
+        public void setRatio(double ratio) {
+            this.ratio = ratio;
+        }
+
+        public void setValid(boolean valid) {
+            this.valid = valid;
+        }
+    }
+
+    static final KustoResultMapper<PrimitivePojo> primitiveMapper = KustoResultMapper.newBuilder(PrimitivePojo::new)
+            .addIntColumn("Count", PrimitivePojo::setCount)
+            .addLongColumn("Total", 1, PrimitivePojo::setTotal)
+            .addDoubleColumn(2, PrimitivePojo::setRatio)
+            .addBooleanColumn("Valid", PrimitivePojo::setValid).build();
+
+    static KustoResultSetTable primitiveTable(String rows) throws Exception {
+        String columns = "[ { \"ColumnName\": \"Count\", \"ColumnType\": \"int\" }, { \"ColumnName\": \"Total\", \"ColumnType\": \"long\" }, "
+                + "{ \"ColumnName\": \"Ratio\", \"ColumnType\": \"real\" }, { \"ColumnName\": \"Valid\", \"ColumnType\": \"bool\" } ]";
+        return new KustoResultSetTable(Utils.getObjectMapper().readTree("{\"TableName\":\"Table_0\",\"Columns\":" + columns + ",\"Rows\":" + rows + "}"));
+    }
+
+    @Test
+    void testExtractListPrimitiveColumns() throws Exception {
+        List<PrimitivePojo> list = primitiveMapper.extractList(primitiveTable("[[1,5000000000,0.5,true],[-2,3,\"NaN\",false]]"));
+        assertEquals(2, list.size());
+        assertEquals(1, list.get(0).count);
+        assertEquals(5000000000L, list.get(0).total);
+        assertEquals(0.5, list.get(0).ratio);
+        assertEquals(true, list.get(0).valid);
+        assertEquals(-2, list.get(1).count);
+        assertEquals(3L, list.get(1).total);
+        assertEquals(Double.NaN, list.get(1).ratio);
+        assertEquals(false, list.get(1).valid);
+    }
+
+    @Test
+    void testExtractListPrimitiveColumnsNullThrowing() throws Exception {
+        NullPointerException e = assertThrows(NullPointerException.class, () -> primitiveMapper.extractList(primitiveTable("[[1,null,0.5,true]]")));
+        assertEquals("Column Total (ordinal 1) is not nullable", e.getMessage());
+    }
+
+    @Test
+    void testExtractSinglePrimitiveColumnWrongType() throws Exception {
+        KustoResultMapper<PrimitivePojo> mapper = KustoResultMapper.newBuilder(PrimitivePojo::new).addIntColumn(3, PrimitivePojo::setCount).build();
+        assertThrows(IllegalArgumentException.class, () -> mapper.extractSingle(primitiveTable("[[1,2,0.5,true]]")));
+    }
 }
@@ -0,0 +1,125 @@
+package com.microsoft.azure.kusto.data;
+
+import com.azure.core.http.HttpClient;
+import com.azure.core.http.HttpRequest;
+import com.microsoft.azure.kusto.data.auth.ConnectionStringBuilder;
+import com.microsoft.azure.kusto.data.exceptions.CircuitBreakerOpenException;
+import com.microsoft.azure.kusto.data.exceptions.DataServiceException;
+import com.microsoft.azure.kusto.data.exceptions.ThrottleException;
+import com.microsoft.azure.kusto.data.http.HttpClientProperties;
+import com.microsoft.azure.kusto.data.http.TestHttpResponse;
+import com.microsoft.azure.kusto.data.req.KustoRequest;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiFunction;
+
+class KustoRetryPolicyTest {
+    private static final byte[] RESPONSE = ("[{\"FrameType\":\"DataSetHeader\",\"IsProgressive\":false,\"Version\":\"v2.0\"},"
+            + "{\"FrameType\":\"DataTable\",\"TableId\":1,\"TableKind\":\"PrimaryResult\",\"TableName\":\"PrimaryResult\","
+            + "\"Columns\":[{\"ColumnName\":\"a\",\"ColumnType\":\"int\"}],\"Rows\":[[1]]},"
+            + "{\"FrameType\":\"DataSetCompletion\",\"HasErrors\":false,\"Cancelled\":false}]").getBytes(StandardCharsets.UTF_8);
+    private static final KustoRequest QUERY = new KustoRequest("T | take 1", "db", CommandType.QUERY);
+
+    private final List<String> requestIds = new CopyOnWriteArrayList<>();
+
+    @Test
+    void transientErrorsAreRetried() throws URISyntaxException {
+        KustoRetryPolicy policy = KustoRetryPolicy.builder().backoff(Duration.ofMillis(1), Duration.ofMillis(10)).build();
+        ClientImpl client = client(policy,
+                (request, attempt) -> attempt < 2 ? TestHttpResponse.newBuilder(request).withStatusCode(503).withBody(new byte[0]).build()
+                        : TestHttpResponse.newBuilder(request).withStatusCode(200).withBody(RESPONSE).build());
+
+        StepVerifier.create(client.executeQueryAsync("db", "T | take 1", null))
+                .expectNextMatches(result -> result.getPrimaryResults().count() == 1)
+                .verifyComplete();
+        Assertions.assertEquals(3, requestIds.size());
+        Assertions.assertEquals(3, requestIds.stream().distinct().count());
+        Assertions.assertEquals(2, policy.getRetryCount());
+        Assertions.assertEquals(1, policy.getRequestCount());
+    }
+
+    @Test
+    void permanentErrorsAreReturnedAtOnce() throws URISyntaxException {
+        KustoRetryPolicy policy = KustoRetryPolicy.builder().backoff(Duration.ofMillis(1), Duration.ofMillis(10)).build();
+        ClientImpl client = client(policy, (request, attempt) -> TestHttpResponse.newBuilder(request).withStatusCode(400)
+                .withBody("{\"error\":{\"code\":\"BadRequest\",\"message\":\"Syntax error\",\"@permanent\":true}}".getBytes(StandardCharsets.UTF_8)).build());
+
+        StepVerifier.create(client.executeQueryAsync("db", "T |", null)).expectError(DataServiceException.class).verify();
+        Assertions.assertEquals(1, requestIds.size());
+        Assertions.assertEquals(0, policy.getRetryCount());
+    }
+
+    @Test
+    void retryAfterIsHonoured() throws URISyntaxException {
+        KustoRetryPolicy policy = KustoRetryPolicy.builder().backoff(Duration.ofMillis(1), Duration.ofSeconds(5)).build();
+        ClientImpl client = client(policy, (request, attempt) -> attempt == 0
+                ? TestHttpResponse.newBuilder(request).withStatusCode(429).addHeader("Retry-After", "1").withBody(new byte[0]).build()
+                : TestHttpResponse.newBuilder(request).withStatusCode(200).withBody(RESPONSE).build());
+
+        long start = System.nanoTime();
+        StepVerifier.create(client.executeQueryAsync("db", "T | take 1", null)).expectNextCount(1).verifyComplete();
+        Assertions.assertTrue(Duration.ofNanos(System.nanoTime() - start).compareTo(Duration.ofSeconds(1)) >= 0);
+        Assertions.assertEquals(2, requestIds.size());
+
+        // A longer wait than the maximum delay isn't retried
+        requestIds.clear();
+        ClientImpl throttled = client(policy, (request, attempt) -> TestHttpResponse.newBuilder(request).withStatusCode(429).addHeader("Retry-After", "60")
+                .withBody(new byte[0]).build());
+        StepVerifier.create(throttled.executeQueryAsync("db", "T | take 1", null)).expectError(ThrottleException.class).verify();
+        Assertions.assertEquals(1, requestIds.size());
+    }
+
+    @Test
+    void retriesDontExceedTheBudget() {
+        KustoRetryPolicy policy = KustoRetryPolicy.builder().backoff(Duration.ZERO, Duration.ZERO).budgetRatio(0.5).build();
+        AtomicInteger attempts = new AtomicInteger();
+        Mono<String> failing = Mono.defer(() -> {
+            attempts.incrementAndGet();
+            return Mono.error(new DataServiceException("https://cluster", "Timeout", false));
+        });
+
+        // The bucket starts with 10 tokens and each request adds half a token, so the first 19 requests are retried, then one out of two
+        for (int i = 0; i < 25; i++) {
+            StepVerifier.create(policy.retry(QUERY, failing)).expectError(DataServiceException.class).verify();
+        }
+        Assertions.assertEquals(22, policy.getRetryCount());
+        Assertions.assertEquals(25 + 22, attempts.get());
+    }
+
+    @Test
+    void onlyReadOnlyCommandsAreRetriedAfterAFailure() {
+        DataServiceException unavailable = new DataServiceException("https://cluster", "Service unavailable", false);
+        KustoRequest show = new KustoRequest(".show tables", "db", CommandType.ADMIN_COMMAND);
+        KustoRequest append = new KustoRequest(".set-or-append T <| S", "db", CommandType.ADMIN_COMMAND);
+
+        Assertions.assertTrue(KustoRetryPolicy.isRetryable(QUERY, unavailable));
+        Assertions.assertTrue(KustoRetryPolicy.isRetryable(show, unavailable));
+        Assertions.assertFalse(KustoRetryPolicy.isRetryable(append, unavailable));
+        // Throttled commands weren't executed
+        Assertions.assertTrue(KustoRetryPolicy.isRetryable(append, new ThrottleException("https://cluster")));
+        Assertions.assertFalse(KustoRetryPolicy.isRetryable(QUERY, new CircuitBreakerOpenException("https://cluster", "Open")));
+    }
+
+    private ClientImpl client(KustoRetryPolicy policy, BiFunction<HttpRequest, Integer, TestHttpResponse> responses)
+            throws URISyntaxException {
+        // The cloud metadata isn't found, so the default cloud is used
+        HttpClient httpClient = request -> Mono.fromCallable(() -> {
+            if (!request.getUrl().getPath().endsWith("/rest/query")) {
+                return TestHttpResponse.newBuilder(request).withStatusCode(404).withBody(new byte[0]).build();
+            }
+            requestIds.add(request.getHeaders().getValue("x-ms-client-request-id"));
+            return responses.apply(request, requestIds.size() - 1);
+        });
+        return new ClientImpl(new ConnectionStringBuilder("http://localhost"), httpClient, null,
+                HttpClientProperties.builder().retryPolicy(policy).build());
+    }
+}
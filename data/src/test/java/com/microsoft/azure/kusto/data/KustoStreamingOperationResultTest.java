@@ -0,0 +1,148 @@
+package com.microsoft.azure.kusto.data;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.microsoft.azure.kusto.data.exceptions.KustoServiceQueryError;
+import com.microsoft.azure.kusto.data.http.FluxInputStream;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class KustoStreamingOperationResultTest {
+    private static final String RESPONSE = "[{\"FrameType\":\"DataSetHeader\",\"IsProgressive\":false,\"Version\":\"v2.0\"},"
+            + "{\"FrameType\":\"DataTable\",\"TableId\":0,\"TableKind\":\"QueryProperties\",\"TableName\":\"@ExtendedProperties\","
+            + "\"Columns\":[{\"ColumnName\":\"Key\",\"ColumnType\":\"string\"}],\"Rows\":[[\"Visualization\"]]},"
+            + "{\"FrameType\":\"DataTable\",\"TableId\":1,\"TableKind\":\"PrimaryResult\",\"TableName\":\"PrimaryResult\","
+            + "\"Columns\":[{\"ColumnName\":\"Id\",\"ColumnType\":\"long\"},{\"ColumnName\":\"Name\",\"ColumnType\":\"string\"},"
+            + "{\"ColumnName\":\"Time\",\"ColumnType\":\"datetime\"}],"
+            + "\"Rows\":[[1,\"a\",\"2024-01-15T19:45:16.8109217Z\"],[2,\"b\",null],[3,\"c\",\"2024-01-16T00:00:00Z\"]]},"
+            + "{\"FrameType\":\"DataTable\",\"TableId\":2,\"TableKind\":\"QueryCompletionInformation\",\"TableName\":\"QueryCompletionInformation\","
+            + "\"Columns\":[{\"ColumnName\":\"Level\",\"ColumnType\":\"int\"}],\"Rows\":[[4]]},"
+            + "{\"FrameType\":\"DataSetCompletion\",\"HasErrors\":false,\"Cancelled\":false}]";
+
+    @Test
+    void readsTablesAndRowsInOrder() throws IOException {
+        try (KustoStreamingOperationResult result = new KustoStreamingOperationResult(toStream(RESPONSE), "v2")) {
+            KustoResultSetTable primary = result.getPrimaryResults();
+            assertEquals("PrimaryResult", primary.getTableName());
+            assertEquals(3, primary.getColumns().length);
+
+            List<Long> ids = new ArrayList<>();
+            while (primary.next()) {
+                ids.add(primary.getLong("Id"));
+                if (primary.getLong(0) == 1) {
+                    assertEquals("a", primary.getString("Name"));
+                    assertEquals(2024, primary.getKustoDateTime("Time").getYear());
+                }
+            }
+            assertEquals(3, ids.size());
+            assertEquals(3L, ids.get(2));
+
+            assertTrue(result.hasNext());
+            KustoResultSetTable completion = result.next();
+            assertEquals(WellKnownDataSet.QueryCompletionInformation, completion.getTableKind());
+            assertTrue(completion.next());
+            assertEquals(4, completion.getInt(0));
+            assertFalse(completion.next());
+            assertFalse(result.hasNext());
+        }
+    }
+
+    @Test
+    void movingToTheNextTableSkipsUnreadRows() throws IOException {
+        try (KustoStreamingOperationResult result = new KustoStreamingOperationResult(toStream(RESPONSE), "v2")) {
+            KustoResultSetTable primary = result.getPrimaryResults();
+            assertTrue(primary.next());
+            assertEquals(1, primary.getLong(0));
+
+            KustoResultSetTable completion = result.next();
+            assertFalse(primary.next());
+            assertTrue(completion.next());
+            assertEquals(4, completion.getInt(0));
+        }
+    }
+
+    @Test
+    void tablesAreForwardOnly() throws IOException {
+        try (KustoStreamingOperationResult result = new KustoStreamingOperationResult(toStream(RESPONSE), "v2")) {
+            KustoResultSetTable table = result.next();
+            assertThrows(UnsupportedOperationException.class, table::getData);
+            assertThrows(UnsupportedOperationException.class, table::count);
+            assertThrows(UnsupportedOperationException.class, table::first);
+            assertThrows(UnsupportedOperationException.class, table::beforeFirst);
+        }
+    }
+
+    @Test
+    void errorsAreThrownWhenReached() throws IOException {
+        String response = "[{\"FrameType\":\"DataTable\",\"TableKind\":\"PrimaryResult\",\"TableName\":\"PrimaryResult\","
+                + "\"Columns\":[{\"ColumnName\":\"Id\",\"ColumnType\":\"long\"}],\"Rows\":[[1],"
+                + "{\"OneApiErrors\":[{\"error\":{\"code\":\"LimitsExceeded\",\"message\":\"Request is invalid and cannot be executed.\","
+                + "\"@type\":\"Kusto.Data.Exceptions.KustoServicePartialQueryFailureLimitsExceededException\",\"@message\":\"Query execution has exceeded the allowed limits\","
+                + "\"@permanent\":false}}]}]}]";
+        try (KustoStreamingOperationResult result = new KustoStreamingOperationResult(toStream(response), "v2")) {
+            KustoResultSetTable primary = result.getPrimaryResults();
+            assertTrue(primary.next());
+            assertEquals(1, primary.getLong(0));
+            assertThrows(KustoServiceQueryError.class, primary::next);
+        }
+    }
+
+    @Test
+    void readsFromFluxBackedStream() throws IOException {
+        byte[] bytes = RESPONSE.getBytes(StandardCharsets.UTF_8);
+        List<ByteBuffer> chunks = new ArrayList<>();
+        for (int i = 0; i < bytes.length; i += 7) {
+            chunks.add(ByteBuffer.wrap(bytes, i, Math.min(7, bytes.length - i)));
+        }
+
+        try (KustoStreamingOperationResult result = new KustoStreamingOperationResult(new FluxInputStream(Flux.fromIterable(chunks)), "v2")) {
+            KustoResultSetTable primary = result.getPrimaryResults();
+            int rows = 0;
+            while (primary.next()) {
+                rows++;
+            }
+            assertEquals(3, rows);
+        }
+    }
+
+    @Test
+    void dynamicValuesAreResolved() throws IOException {
+        String response = "[{\"FrameType\":\"DataSetHeader\",\"IsProgressive\":false,\"Version\":\"v2.0\"},"
+                + "{\"FrameType\":\"DataTable\",\"TableId\":1,\"TableKind\":\"PrimaryResult\",\"TableName\":\"PrimaryResult\","
+                + "\"Columns\":[{\"ColumnName\":\"Bag\",\"ColumnType\":\"dynamic\"}],\"Rows\":[[{\"a\":[1,2]}]]},"
+                + "{\"FrameType\":\"DataSetCompletion\",\"HasErrors\":false,\"Cancelled\":false}]";
+        try (KustoStreamingOperationResult result = new KustoStreamingOperationResult(toStream(response), "v2")) {
+            KustoResultSetTable primary = result.getPrimaryResults();
+            assertTrue(primary.next());
+            JsonNode bag = assertInstanceOf(JsonNode.class, primary.getCurrentRow().get(0));
+            assertEquals(2, bag.get("a").get(1).asInt());
+            assertEquals(bag, primary.getJSONObject("Bag"));
+        }
+    }
+
+    @Test
+    void noPrimaryResult() throws IOException {
+        String response = "[{\"FrameType\":\"DataSetHeader\"},{\"FrameType\":\"DataSetCompletion\",\"HasErrors\":false}]";
+        try (KustoStreamingOperationResult result = new KustoStreamingOperationResult(toStream(response), "v2")) {
+            assertNull(result.getPrimaryResults());
+        }
+    }
+
+    private static InputStream toStream(String response) {
+        return new ByteArrayInputStream(response.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,65 @@
+package com.microsoft.azure.kusto.data;
+
+import com.microsoft.azure.kusto.data.format.KustoTemporalParser;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+public class KustoTemporalParserTest {
+    @Test
+    void parseDateTime_MatchesInstantParse() {
+        String[] values = {"2022-05-17T00:00:00Z", "2022-05-17T00:00:00.1Z", "2022-05-17T13:45:59.1234567Z", "2020-02-29T23:59:59.999999999Z",
+                "1970-01-01T00:00:00Z", "1969-12-31T23:59:59.5Z", "0001-01-01T00:00:00Z", "9999-12-31T23:59:59.9999999Z", "2000-03-01T00:00:00Z"};
+        for (String value : values) {
+            Instant expected = Instant.parse(value);
+            Assertions.assertEquals(expected, KustoTemporalParser.parseInstant(value), value);
+            Assertions.assertEquals(LocalDateTime.ofInstant(expected, ZoneOffset.UTC), KustoTemporalParser.parseLocalDateTime(value), value);
+        }
+
+        Assertions.assertEquals(Instant.parse("2022-05-17T13:45:59.1234567Z").toEpochMilli() * 1_000_000 + 456_700,
+                KustoTemporalParser.parseDateTimeEpochNanos("2022-05-17T13:45:59.1234567Z"));
+        Assertions.assertEquals(Instant.parse("2022-05-17T13:45:59Z"), KustoTemporalParser.parseInstant("2022-05-17t13:45:59z"));
+    }
+
+    @Test
+    void parseDateTime_RejectsOtherFormats() {
+        String[] values = {null, "", "2022-05-17", "2022-05-17 00:00:00Z", "2022-05-17T00:00:00", "2022-05-17T00:00:00+02:00", "2021-02-29T00:00:00Z",
+                "2022-13-01T00:00:00Z", "2022-04-31T00:00:00Z", "2022-05-17T24:00:00Z", "2022-05-17T00:60:00Z", "2022-05-17T00:00:00.Z",
+                "2022-05-17T00:00:00.1234567890Z", "2022-05-17T00:00:00.12a4Z", "20x2-05-17T00:00:00Z"};
+        for (String value : values) {
+            Assertions.assertNull(KustoTemporalParser.parseInstant(value), value);
+            Assertions.assertNull(KustoTemporalParser.parseLocalDateTime(value), value);
+            Assertions.assertEquals(KustoTemporalParser.INVALID, KustoTemporalParser.parseDateTimeEpochNanos(value), value);
+        }
+
+        // Valid datetimes that don't fit in a long of nanoseconds
+        Assertions.assertEquals(KustoTemporalParser.INVALID, KustoTemporalParser.parseDateTimeEpochNanos("0001-01-01T00:00:00Z"));
+        Assertions.assertEquals(KustoTemporalParser.INVALID, KustoTemporalParser.parseDateTimeEpochNanos("9999-12-31T00:00:00Z"));
+    }
+
+    @Test
+    void parseTimespan() {
+        Assertions.assertEquals(Duration.ofHours(1), KustoTemporalParser.parseDuration("01:00:00"));
+        Assertions.assertEquals(Duration.ofDays(2).plusHours(3).plusMinutes(4).plusSeconds(5).plusMillis(600),
+                KustoTemporalParser.parseDuration("2.03:04:05.6"));
+        Assertions.assertEquals(Duration.ofSeconds(1).plusNanos(234_567_800).negated(), KustoTemporalParser.parseDuration("-00:00:01.2345678"));
+        Assertions.assertEquals(Duration.ofDays(106751).plusHours(23).plusMinutes(47).plusSeconds(16).plusNanos(854_775_807),
+                KustoTemporalParser.parseDuration("106751.23:47:16.854775807"));
+        Assertions.assertEquals(Duration.ofDays(-3).minusHours(1), KustoTemporalParser.parseDuration("-3.01:00:00"));
+        Assertions.assertEquals(90_000_000_000L, KustoTemporalParser.parseTimespanNanos("00:01:30"));
+    }
+
+    @Test
+    void parseTimespan_RejectsOtherFormats() {
+        String[] values = {null, "", "1:00:00", "01:00", "24:00:00", "00:60:00", "00:00:60", "00:00:00.", "00:00:00.1234567890", "a.00:00:00",
+                "1.2.00:00:00", "PT1H", "106751.23:47:16.854775808", "10675199.02:48:05.4775807"};
+        for (String value : values) {
+            Assertions.assertEquals(KustoTemporalParser.INVALID, KustoTemporalParser.parseTimespanNanos(value), value);
+            Assertions.assertNull(KustoTemporalParser.parseDuration(value), value);
+        }
+    }
+}
@@ -15,6 +15,7 @@ import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import java.io.ByteArrayInputStream;
 import java.math.BigDecimal;
 import java.nio.charset.StandardCharsets;
 import java.sql.Date;
@@ -28,6 +29,8 @@ import java.time.LocalDateTime;
 import java.time.LocalTime;
 import java.time.ZoneId;
 import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.TimeZone;
 import java.util.UUID;
 
@@ -313,8 +316,9 @@ public class ResultSetTest {
 
     @Test
     public void testKustoResultSetReal_WhenHasValue_ReturnsValue() {
-        assertEquals(BIGDECIMAL_VAL, kustoResultSetTableWithValues.getBigDecimal(8));
-        assertEquals(BIGDECIMAL_VAL, kustoResultSetTableWithValues.getBigDecimal("i"));
+        // real columns are decoded as doubles, only decimal columns keep the exact value
+        assertEquals(BigDecimal.valueOf(BIGDECIMAL_VAL.doubleValue()), kustoResultSetTableWithValues.getBigDecimal(8));
+        assertEquals(BigDecimal.valueOf(BIGDECIMAL_VAL.doubleValue()), kustoResultSetTableWithValues.getBigDecimal("i"));
 
         assertEquals(BIGDECIMAL_VAL.doubleValue(), kustoResultSetTableWithValues.getDoubleObject(8));
         assertEquals(BIGDECIMAL_VAL.doubleValue(), kustoResultSetTableWithValues.getDoubleObject("i"));
@@ -433,4 +437,151 @@ public class ResultSetTest {
         assertSame(thrownException.getExceptions().get(0).getClass(), RuntimeException.class);
         assertSame(thrownException.getExceptions().get(1).getClass(), RuntimeException.class);
     }
+
+    @Test
+    public void testColumnarTable_ReturnsSameValuesAsRows() throws JsonProcessingException {
+        ObjectMapper objectMapper = Utils.getObjectMapper();
+        String columns = "[ { \"ColumnName\": \"a\", \"ColumnType\": \"bool\" }, { \"ColumnName\": \"b\", \"ColumnType\": \"int\" }, "
+                + "{ \"ColumnName\": \"c\", \"ColumnType\": \"long\" }, { \"ColumnName\": \"d\", \"ColumnType\": \"string\" } ]";
+        KustoResultSetTable table = new KustoResultSetTable(objectMapper.readTree("{\"TableName\":\"Table_0\",\"Columns\":" + columns
+                + ",\"Rows\":[[true,1,5,\"x\"],[null,null,null,null],[false,-2," + LONG_VAL + ",\"y\"]]}"));
+
+        assertEquals(3, table.count());
+        assertEquals(Arrays.asList(true, 1, 5L, "x"), table.getData().get(0));
+        assertEquals(Arrays.asList(false, -2, LONG_VAL, "y"), table.getData().get(2));
+
+        assertTrue(table.next());
+        assertTrue(table.getBoolean("a"));
+        assertEquals(1, table.getInt("b"));
+        assertEquals(1L, table.getLong("b"));
+        assertEquals((short) 1, table.getShort("b"));
+        assertEquals(5, table.getInt("c"));
+        assertEquals(5L, table.getLong("c"));
+        assertEquals(Long.valueOf(5), table.getObject("c"));
+        assertEquals("x", table.getString("d"));
+
+        assertTrue(table.next());
+        assertNull(table.getBooleanObject("a"));
+        assertNull(table.getIntegerObject("b"));
+        assertNull(table.getLongObject("c"));
+        assertNull(table.getString("d"));
+        assertThrows(NullPointerException.class, () -> table.getBoolean("a"));
+        assertThrows(NullPointerException.class, () -> table.getInt("b"));
+        assertThrows(NullPointerException.class, () -> table.getLong("c"));
+
+        assertTrue(table.next());
+        assertEquals(LONG_VAL, table.getLong("c"));
+        assertEquals(LONG_VAL, table.getLongObject("c"));
+        assertThrows(ClassCastException.class, () -> table.getInt("c"));
+    }
+
+    @Test
+    public void testColumnarTable_KeepsValuesThatDontFitTheColumnType() throws JsonProcessingException {
+        ObjectMapper objectMapper = Utils.getObjectMapper();
+        String columns = "[ { \"ColumnName\": \"a\", \"ColumnType\": \"int\" }, { \"ColumnName\": \"b\", \"ColumnType\": \"bool\" } ]";
+        KustoResultSetTable table = new KustoResultSetTable(objectMapper.readTree("{\"TableName\":\"Table_0\",\"Columns\":" + columns
+                + ",\"Rows\":[[1,true],[\"NaN\",{\"k\":1}],[2,false,\"extra\"]]}"));
+
+        assertEquals(Arrays.asList(1, true), table.getData().get(0));
+        assertEquals("NaN", table.getData().get(1).get(0));
+        assertEquals(objectMapper.readTree("{\"k\":1}"), table.getData().get(1).get(1));
+        assertEquals(Arrays.asList(2, false, "extra"), table.getData().get(2));
+
+        assertTrue(table.next());
+        assertEquals(1, table.getInt("a"));
+        assertTrue(table.getBoolean("b"));
+    }
+
+    @Test
+    public void testDynamicCellsAreDecodedWhenRead() throws JsonProcessingException {
+        ObjectMapper objectMapper = Utils.getObjectMapper();
+        String columns = "[ { \"ColumnName\": \"a\", \"ColumnType\": \"dynamic\" }, { \"ColumnName\": \"b\", \"ColumnType\": \"int\" } ]";
+        String rows = "[[{\"x\":[1,1.10,\"y\",null,{\"z\":true}]}, 1], [null, 2], [\"text\", 3], [[1,2], 4]]";
+        String response = "{\"Tables\":[{\"TableName\":\"Table_0\",\"Columns\":" + columns + ",\"Rows\":" + rows + "}]}";
+        JsonNode expected = objectMapper.readTree("{\"x\":[1,1.10,\"y\",null,{\"z\":true}]}");
+
+        KustoOperationResult fromString = new KustoOperationResult(response, "v1");
+        KustoResultSetTable fromTree = new KustoResultSetTable(objectMapper.readTree(response).get("Tables").get(0));
+        for (KustoResultSetTable table : Arrays.asList(fromString.getPrimaryResults(), fromTree)) {
+            assertEquals(expected, table.getData().get(0).get(0));
+            assertEquals(Arrays.asList(null, 2), table.getData().get(1));
+
+            assertTrue(table.next());
+            assertEquals(expected, table.getJSONObject("a"));
+            assertEquals(new BigDecimal("1.10"), table.getJSONObject("a").get("x").get(1).decimalValue());
+            // Every read builds its own tree
+            ((ObjectNode) table.getJSONObject("a")).put("changed", true);
+            assertEquals(expected, table.getObject("a"));
+
+            assertTrue(table.next());
+            assertNull(table.getObject("a"));
+
+            assertTrue(table.next());
+            assertEquals("text", table.getString("a"));
+
+            assertTrue(table.next());
+            assertEquals(objectMapper.readTree("[1,2]"), table.getJSONObject("a"));
+        }
+    }
+
+    @Test
+    public void testRepeatedStringsAreDictionaryEncoded() {
+        StringBuilder rows = new StringBuilder();
+        for (int i = 0; i < 3000; i++) {
+            rows.append(i == 0 ? "" : ",").append("[\"").append(i % 3 == 0 ? "east" : "west").append("\",\"id").append(i).append("\",")
+                    .append(i == 1 ? "null" : "\"x\"").append("]");
+        }
+        String columns = "[ { \"ColumnName\": \"region\", \"ColumnType\": \"string\" }, { \"ColumnName\": \"id\", \"ColumnType\": \"string\" },"
+                + " { \"ColumnName\": \"c\", \"ColumnType\": \"string\" } ]";
+        String response = "{\"Tables\":[{\"TableName\":\"Table_0\",\"Columns\":" + columns + ",\"Rows\":[" + rows + "]}]}";
+
+        KustoResultSetTable table = new KustoOperationResult(response, "v1").getPrimaryResults();
+        assertEquals(Arrays.asList("east", "west"), table.getStringDictionary("region"));
+        assertEquals(Collections.singletonList("x"), table.getStringDictionary("c"));
+        // Mostly distinct values aren't worth a dictionary
+        assertNull(table.getStringDictionary("id"));
+
+        assertTrue(table.next());
+        assertEquals(0, table.getStringCode("region"));
+        assertEquals("east", table.getString("region"));
+        assertThrows(IllegalStateException.class, () -> table.getStringCode("id"));
+        assertTrue(table.next());
+        assertEquals(1, table.getStringCode("region"));
+        assertEquals(-1, table.getStringCode("c"));
+        assertNull(table.getString("c"));
+        assertEquals("id2999", table.getData().get(2999).get(1));
+    }
+
+    @Test
+    public void testCellsAreDecodedByColumnType() throws JsonProcessingException {
+        ObjectMapper objectMapper = Utils.getObjectMapper();
+        String columns = "[ { \"ColumnName\": \"a\", \"ColumnType\": \"real\" }, { \"ColumnName\": \"b\", \"ColumnType\": \"decimal\" }, "
+                + "{ \"ColumnName\": \"c\", \"ColumnType\": \"long\" }, { \"ColumnName\": \"d\", \"ColumnType\": \"int\" } ]";
+        String rows = "[[1.5, " + BIGDECIMAL_VAL + ", 1, 2], [3, 4, " + LONG_VAL + ", -1], [\"NaN\", 1.10, null, null], [\"-Infinity\", null, null, null]]";
+        String response = "{\"Tables\":[{\"TableName\":\"Table_0\",\"Columns\":" + columns + ",\"Rows\":" + rows + "}]}";
+
+        KustoOperationResult fromString = new KustoOperationResult(response, "v1");
+        KustoOperationResult fromStream = new KustoOperationResult(new ByteArrayInputStream(response.getBytes(StandardCharsets.UTF_8)), "v1");
+        KustoResultSetTable fromTree = new KustoResultSetTable(objectMapper.readTree(response).get("Tables").get(0));
+        for (KustoResultSetTable table : Arrays.asList(fromString.getPrimaryResults(), fromStream.getPrimaryResults(), fromTree)) {
+            assertTrue(table.next());
+            assertEquals(1.5d, table.getObject("a"));
+            assertEquals(BIGDECIMAL_VAL, table.getObject("b"));
+            assertEquals(1L, table.getObject("c"));
+            assertEquals(2, table.getObject("d"));
+
+            assertTrue(table.next());
+            assertEquals(3d, table.getObject("a"));
+            assertEquals(new BigDecimal(4), table.getBigDecimal("b"));
+            assertEquals(LONG_VAL, table.getObject("c"));
+            assertEquals(-1, table.getInt("d"));
+
+            assertTrue(table.next());
+            assertTrue(Double.isNaN(table.getDouble("a")));
+            assertEquals(new BigDecimal("1.10"), table.getObject("b"));
+
+            assertTrue(table.next());
+            assertEquals(Double.NEGATIVE_INFINITY, table.getDouble("a"));
+        }
+    }
 }
@@ -1,11 +1,20 @@
 package com.microsoft.azure.kusto.data.http;
 
 import com.azure.core.http.HttpClient;
-
+import com.azure.core.http.HttpMethod;
+import com.azure.core.http.HttpRequest;
+import com.azure.core.http.HttpResponse;
+import com.sun.net.httpserver.HttpServer;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+
 class HttpClientFactoryTest {
     @Test
     @DisplayName("test create http client from null properties")
@@ -19,5 +28,36 @@ class HttpClientFactoryTest {
         HttpClientProperties properties = HttpClientProperties.builder().build();
         final HttpClient httpClient = HttpClientFactory.create(properties);
         Assertions.assertNotNull(httpClient);
+        Assertions.assertFalse(properties.isTransportTuned());
+    }
+
+    @Test
+    @DisplayName("test send a request with a tuned transport")
+    void testTunedTransport() throws IOException {
+        HttpClientProperties properties = HttpClientProperties.highThroughputBuilder().eventLoopThreads(2).build();
+        Assertions.assertTrue(properties.isTransportTuned());
+        Assertions.assertTrue(properties.isHttp2());
+        Assertions.assertEquals(Duration.ofSeconds(10), properties.getConnectionAcquireTimeout());
+
+        HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/", exchange -> {
+            byte[] body = "ok".getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream output = exchange.getResponseBody()) {
+                output.write(body);
+            }
+        });
+        server.start();
+        try {
+            // http:// URLs fall back to HTTP/1.1
+            HttpClient httpClient = HttpClientFactory.create(properties);
+            HttpResponse response = httpClient.send(new HttpRequest(HttpMethod.GET, "http://localhost:" + server.getAddress().getPort() + "/"))
+                    .block(Duration.ofSeconds(30));
+            Assertions.assertNotNull(response);
+            Assertions.assertEquals(200, response.getStatusCode());
+            Assertions.assertEquals("ok", response.getBodyAsString().block(Duration.ofSeconds(30)));
+        } finally {
+            server.stop(0);
+        }
     }
 }
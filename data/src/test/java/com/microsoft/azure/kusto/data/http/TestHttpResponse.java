@@ -11,6 +11,7 @@ public class TestHttpResponse extends HttpResponse {
 
     private int fakeStatusCode;
     private final HttpHeaders fakeHeaders = new HttpHeaders();
+    private byte[] fakeBody;
 
     private TestHttpResponse() {
         super(null);
@@ -45,7 +46,7 @@ public class TestHttpResponse extends HttpResponse {
 
     @Override
     public Flux<ByteBuffer> getBody() {
-        return null;
+        return fakeBody == null ? null : Flux.defer(() -> Flux.just(ByteBuffer.wrap(fakeBody)));
     }
 
     @Override
@@ -64,14 +65,19 @@ public class TestHttpResponse extends HttpResponse {
     }
 
     public static TestHttpResponseBuilder newBuilder() {
-        return new TestHttpResponseBuilder();
+        return new TestHttpResponseBuilder(new TestHttpResponse());
+    }
+
+    public static TestHttpResponseBuilder newBuilder(HttpRequest request) {
+        return new TestHttpResponseBuilder(new TestHttpResponse(request));
     }
 
     public static class TestHttpResponseBuilder {
 
-        private final TestHttpResponse res = new TestHttpResponse();
+        private final TestHttpResponse res;
 
-        private TestHttpResponseBuilder() {
+        private TestHttpResponseBuilder(TestHttpResponse res) {
+            this.res = res;
         }
 
         public TestHttpResponseBuilder withStatusCode(int statusCode) {
@@ -84,6 +90,11 @@ public class TestHttpResponse extends HttpResponse {
             return this;
         }
 
+        public TestHttpResponseBuilder withBody(byte[] body) {
+            res.fakeBody = body;
+            return this;
+        }
+
         public TestHttpResponse build() {
             return res;
         }
@@ -3,12 +3,9 @@
 
 package com.microsoft.azure.kusto.ingest;
 
-import com.fasterxml.jackson.annotation.JsonAutoDetect.Visibility;
-import com.fasterxml.jackson.annotation.PropertyAccessor;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import com.microsoft.azure.kusto.data.Ensure;
+import com.microsoft.azure.kusto.data.JsonCodecs;
 import com.microsoft.azure.kusto.data.StringUtils;
-import com.microsoft.azure.kusto.data.Utils;
 import com.microsoft.azure.kusto.data.instrumentation.TraceableAttributes;
 import com.microsoft.azure.kusto.ingest.exceptions.IngestionClientException;
 import org.jetbrains.annotations.NotNull;
@@ -229,14 +226,12 @@ public class IngestionProperties implements TraceableAttributes {
                 }
             }
 
-            ObjectMapper objectMapper = Utils.getObjectMapper();
-            String tagsAsJson = objectMapper.writeValueAsString(tags);
+            String tagsAsJson = JsonCodecs.writer().writeValueAsString(tags);
             fullAdditionalProperties.put("tags", tagsAsJson);
         }
 
         if (!ingestIfNotExists.isEmpty()) {
-            ObjectMapper objectMapper = Utils.getObjectMapper();
-            String ingestIfNotExistsJson = objectMapper.writeValueAsString(ingestIfNotExists);
+            String ingestIfNotExistsJson = JsonCodecs.writer().writeValueAsString(ingestIfNotExists);
             fullAdditionalProperties.put("ingestIfNotExists", ingestIfNotExistsJson);
         }
         fullAdditionalProperties.putAll(additionalProperties);
@@ -248,11 +243,7 @@ public class IngestionProperties implements TraceableAttributes {
             fullAdditionalProperties.put("ingestionMappingReference", mappingReference);
             fullAdditionalProperties.put("ingestionMappingType", ingestionMapping.getIngestionMappingKind().getKustoValue());
         } else if (ingestionMapping.getColumnMappings() != null) {
-            ObjectMapper objectMapper = Utils.getObjectMapper();
-            objectMapper.setVisibility(PropertyAccessor.ALL, Visibility.NONE);
-            objectMapper.setVisibility(PropertyAccessor.FIELD, Visibility.ANY);
-
-            String mapping = objectMapper.writeValueAsString(ingestionMapping.getColumnMappings());
+            String mapping = JsonCodecs.fieldWriter().writeValueAsString(ingestionMapping.getColumnMappings());
             fullAdditionalProperties.put("ingestionMapping", mapping);
             fullAdditionalProperties.put("ingestionMappingType", ingestionMapping.getIngestionMappingKind().getKustoValue());
         }
@@ -11,6 +11,7 @@ import com.azure.storage.common.policy.RequestRetryOptions;
 import com.microsoft.azure.kusto.data.BaseClient;
 import com.microsoft.azure.kusto.data.Ensure;
 import com.microsoft.azure.kusto.data.ExponentialRetry;
+import com.microsoft.azure.kusto.data.KustoDeadline;
 import com.microsoft.azure.kusto.data.StreamingClient;
 import com.microsoft.azure.kusto.data.auth.ConnectionStringBuilder;
 import com.microsoft.azure.kusto.data.exceptions.*;
@@ -327,12 +328,13 @@ public class ManagedStreamingIngestClient extends IngestClientBase implements Qu
 
         // If an error occurs, each time the retryWhen subscribes to executeStream create a new instance
         // instead of using the same executeStream Mono for all retries
-        return Mono.defer(() -> executeStream(blobSourceInfo, ingestionProperties, blobAsyncClient, i.increment()))
-                .retryWhen(streamingRetry)
+        // The attempts and the fallback share the deadline of the call, if it has one
+        return KustoDeadline.enforce(Mono.defer(() -> executeStream(blobSourceInfo, ingestionProperties, blobAsyncClient, i.increment()))
+                .retryWhen(streamingRetry))
                 .onErrorResume(e -> {
                     if (streamingIngestionErrorPredicate(e)) {
                         log.info("Streaming ingestion failed for sourceId: {}, falling back to queued ingestion.", blobSourceInfo.getSourceId());
-                        return queuedIngestClient.ingestFromBlobAsync(blobSourceInfo, ingestionProperties);
+                        return KustoDeadline.enforce(queuedIngestClient.ingestFromBlobAsync(blobSourceInfo, ingestionProperties));
                     }
                     return Mono.error(e);
                 }); // Fall back to queued ingestion
@@ -418,14 +420,15 @@ public class ManagedStreamingIngestClient extends IngestClientBase implements Qu
 
     private Mono<IngestionResult> ingestStreamWithRetries(StreamSourceInfo streamSourceInfo, IngestionProperties ingestionProperties) {
         IngestionUtils.IntegerHolder integerHolder = new IngestionUtils.IntegerHolder();
-        return Mono.defer(() -> executeStream(streamSourceInfo, ingestionProperties, null, integerHolder.increment()))
+        // The attempts and the fallback share the deadline of the call, if it has one
+        return KustoDeadline.enforce(Mono.defer(() -> executeStream(streamSourceInfo, ingestionProperties, null, integerHolder.increment()))
                 .doOnError((e) -> resetStream(streamSourceInfo))
-                .retryWhen(streamingRetry)
+                .retryWhen(streamingRetry))
                 .onErrorResume(e -> {
                     // If the error is not recoverable, we should not fall back to queued ingestion
                     if (streamingIngestionErrorPredicate(e)) {
                         log.info("Streaming ingestion failed for sourceId: {}, falling back to queued ingestion.", streamSourceInfo.getSourceId());
-                        return queuedIngestClient.ingestFromStreamAsync(streamSourceInfo, ingestionProperties);
+                        return KustoDeadline.enforce(queuedIngestClient.ingestFromStreamAsync(streamSourceInfo, ingestionProperties));
                     }
 
                     return Mono.error(e);
@@ -1,7 +1,6 @@
 package com.microsoft.azure.kusto.ingest;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.microsoft.azure.kusto.data.Utils;
+import com.microsoft.azure.kusto.data.JsonCodecs;
 import com.microsoft.azure.kusto.data.exceptions.ExceptionUtils;
 import com.microsoft.azure.kusto.data.instrumentation.FunctionOneException;
 import com.microsoft.azure.kusto.data.instrumentation.MonitoredActivity;
@@ -92,10 +91,9 @@ class ResourceAlgorithms {
     }
 
     public static Mono<Void> postToQueueWithRetriesAsync(ResourceManager resourceManager, AzureStorageClient azureStorageClient, IngestionBlobInfo blob) {
-        ObjectMapper objectMapper = Utils.getObjectMapper();
         String message;
         try {
-            message = objectMapper.writeValueAsString(blob);
+            message = JsonCodecs.writer().writeValueAsString(blob);
         } catch (Exception e) {
             throw new IngestionClientException("Failed to ingest from blob", e);
         }